@@ -0,0 +1,115 @@
+package thredds.filesystem;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test DirectorySnapshot finds additions, deletions and modifications.
+ */
+public class TestDirectorySnapshot {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    DirectorySnapshot.clear();
+  }
+
+  @Test
+  public void testDiffs() throws IOException {
+    File dir = tempFolder.newFolder("snap");
+    Path dirPath = dir.toPath();
+    Files.write(dirPath.resolve("a.grb2"), new byte[10]);
+    Files.write(dirPath.resolve("b.grb2"), new byte[10]);
+    Files.createDirectory(dirPath.resolve("sub"));
+
+    DirectorySnapshot snap = DirectorySnapshot.get(dirPath);
+    DirectorySnapshot.Diff diff = snap.refresh();
+    assertEquals(3, diff.added.size());
+    assertEquals(2, snap.getFiles().size());
+    List<Path> subdirs = snap.getSubdirs();
+    assertEquals(1, subdirs.size());
+    assertEquals("sub", subdirs.get(0).getFileName().toString());
+
+    Files.write(dirPath.resolve("c.grb2"), new byte[10]);
+    Files.delete(dirPath.resolve("a.grb2"));
+    diff = snap.refresh();
+    assertEquals(1, diff.added.size());
+    assertEquals("c.grb2", diff.added.get(0));
+    assertEquals(1, diff.deleted.size());
+    assertEquals("a.grb2", diff.deleted.get(0));
+    assertEquals(2, snap.getFiles().size());
+
+    // verification is forgotten on change
+    snap.setVerified("index", 42);
+    assertTrue(snap.isVerified("index", 42));
+    assertFalse(snap.isVerified("index", 43));
+    Files.write(dirPath.resolve("d.grb2"), new byte[10]);
+    snap.refresh();
+    assertFalse(snap.isVerified("index", 42));
+
+    // modification in place is found on a full scan
+    DirectorySnapshot.setFullScanInterval(1);
+    try {
+      Files.write(dirPath.resolve("b.grb2"), new byte[20]);
+      sleep(5);
+      diff = snap.refresh();
+      assertEquals(1, diff.changed.size());
+      assertEquals("b.grb2", diff.changed.get(0));
+    } finally {
+      DirectorySnapshot.setFullScanInterval(3600 * 1000);
+    }
+  }
+
+  @Test
+  public void testVerifiedUntilFullScan() throws IOException {
+    File dir = tempFolder.newFolder("verify");
+    Path dirPath = dir.toPath();
+    Path file = dirPath.resolve("a.grb2");
+    Files.write(file, new byte[10]);
+    FileTime dirTime = Files.getLastModifiedTime(dirPath);
+
+    DirectorySnapshot snap = DirectorySnapshot.get(dirPath);
+    snap.refresh();
+    snap.setVerified("index", 42);
+    assertTrue(snap.isVerified("index", 42));
+
+    // grows in place; the directory lastModified does not change, so nothing is reread until the full scan
+    Files.write(file, new byte[20]);
+    Files.setLastModifiedTime(dirPath, dirTime);
+    sleep(5);
+    assertTrue(snap.refresh().isEmpty());
+    assertTrue(snap.isVerified("index", 42));
+
+    DirectorySnapshot.setFullScanInterval(1);
+    try {
+      DirectorySnapshot.Diff diff = snap.refresh();
+      assertEquals(1, diff.changed.size());
+      assertEquals(20, snap.getFiles().get(0).getLength());
+      assertFalse(snap.isVerified("index", 42));
+    } finally {
+      DirectorySnapshot.setFullScanInterval(3600 * 1000);
+    }
+  }
+
+  private void sleep(long msecs) {
+    try {
+      Thread.sleep(msecs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package ucar.nc2.ft.point.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.FeatureDatasetFactoryManager;
+import ucar.nc2.ft.FeatureDatasetPoint;
+import ucar.nc2.ft.point.TestCFPointDatasets;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Write the CF point datasets in the classic model with records buffered in batches of different sizes,
+ * and compare every variable's values to writing one record at a time.
+ */
+@RunWith(Parameterized.class)
+public class TestCFPointWriterBatch {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> getTestParameters() {
+    return TestCFPointDatasets.getTestParameters();
+  }
+
+  private final String location;
+  private final FeatureType ftype;
+
+  public TestCFPointWriterBatch(String location, FeatureType ftype, int countExpected) {
+    this.location = location;
+    this.ftype = ftype;
+  }
+
+  @Test
+  public void testSameValues() throws IOException {
+    File unbatched = write(1);
+    for (int batchSize : new int[] {2, 7, 1000}) {
+      File batched = write(batchSize);
+      try (NetcdfFile expected = NetcdfFile.open(unbatched.getPath());
+           NetcdfFile result = NetcdfFile.open(batched.getPath())) {
+        Assert.assertEquals(location, expected.getVariables().size(), result.getVariables().size());
+        for (Variable v : expected.getVariables()) {
+          String what = location + " batchSize=" + batchSize + " " + v.getFullName();
+          Variable rv = result.findVariable(v.getFullNameEscaped());
+          Assert.assertNotNull(what, rv);
+          Assert.assertArrayEquals(what, v.getShape(), rv.getShape());
+          Array data = v.read();
+          Array rdata = rv.read();
+          Assert.assertEquals(what, data.getDataType(), rdata.getDataType());
+          Assert.assertTrue(what, Arrays.deepEquals(new Object[] {data.copyTo1DJavaArray()},
+                  new Object[] {rdata.copyTo1DJavaArray()}));
+        }
+      }
+    }
+  }
+
+  private File write(int batchSize) throws IOException {
+    File fileOut = TestDir.getTempFile();
+    Formatter errlog = new Formatter();
+    try (FeatureDatasetPoint fdpoint = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(ftype, location, null, errlog)) {
+      Assert.assertNotNull(errlog.toString(), fdpoint);
+      CFPointWriterConfig config = new CFPointWriterConfig(NetcdfFileWriter.Version.netcdf3).setBatchSize(batchSize);
+      CFPointWriter.writeFeatureCollection(fdpoint, fileOut.getPath(), config);
+    }
+    return fileOut;
+  }
+}
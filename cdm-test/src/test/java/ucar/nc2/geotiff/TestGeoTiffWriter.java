@@ -55,9 +55,12 @@ import ucar.unidata.util.test.TestDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * GeoTiffWriter2 writing geotiffs
@@ -173,4 +176,123 @@ public class TestGeoTiffWriter {
     }
   }
 
+  // write the same coverage subset as strips and as tiles, and compare the pixels
+  @Test
+  public void testWriteCoverageTiled() throws IOException, InvalidRangeException {
+    File f = new File(filename);
+    String stripOut = TestDir.temporaryLocalDataDir + f.getName() + ".strips.tif";
+    String tiledOut = TestDir.temporaryLocalDataDir + f.getName() + ".tiled.tif";
+
+    try (FeatureDatasetCoverage cc = CoverageDatasetFactory.open(filename)) {
+      assert cc != null;
+      CoverageCollection gcd = cc.findCoverageDataset(type);
+      Assert.assertNotNull(type.toString(), gcd);
+
+      int pos = field.indexOf("/");
+      String covName = (pos > 0) ? field.substring(pos+1) : field;
+      Coverage coverage = gcd.findCoverage(covName);
+      Assert.assertNotNull(covName, coverage);
+      CoverageCoordAxis1D z = (CoverageCoordAxis1D) coverage.getCoordSys().getZAxis();
+
+      for (int stride : new int[] {1, 3}) {
+        SubsetParams params = new SubsetParams().set(SubsetParams.timePresent, true);
+        if (z != null) params.set(SubsetParams.vertCoord, z.getCoordMidpoint(0));
+        if (stride > 1) params.setHorizStride(stride);
+
+        for (boolean greyScale : new boolean[] {true, false}) {
+          try (GeotiffWriter writer = new GeotiffWriter(stripOut)) {
+            writer.writeGrid(coverage.readData(params), greyScale);
+          }
+          byte[] expected = readPixels(stripOut);
+
+          for (boolean deflate : new boolean[] {false, true}) {
+            for (boolean buffered : new boolean[] {true, false}) {
+              String what = String.format("%s stride=%d greyScale=%s deflate=%s buffered=%s", covName, stride, greyScale, deflate, buffered);
+              try (GeotiffWriter writer = new GeotiffWriter(tiledOut)) {
+                writer.setTileSize(32); // so there are partial tiles on the right and bottom
+                writer.setDeflate(deflate);
+                if (!buffered) writer.maxBufferBytes = 0; // read the data a second time
+                writer.writeGridTiled(coverage, params, greyScale);
+              }
+              Assert.assertArrayEquals(what, expected, readPixels(tiledOut));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  // the image in row order, from its strips or its tiles
+  private byte[] readPixels(String location) throws IOException {
+    try (GeoTiff geotiff = new GeoTiff(location);
+         RandomAccessFile raf = new RandomAccessFile(location, "r")) {
+      geotiff.read();
+      int width = geotiff.findTag(Tag.ImageWidth).value[0];
+      int height = geotiff.findTag(Tag.ImageLength).value[0];
+      int elemSize = geotiff.findTag(Tag.BitsPerSample).value[0] / 8;
+      boolean deflated = geotiff.findTag(Tag.Compression).value[0] == 8;
+      byte[] pixels = new byte[width * height * elemSize];
+
+      IFDEntry tileOffsets = geotiff.findTag(Tag.TileOffsets);
+      if (tileOffsets == null) {
+        IFDEntry offsets = geotiff.findTag(Tag.StripOffsets);
+        IFDEntry counts = geotiff.findTag(Tag.StripByteCounts);
+        int n = 0;
+        for (int i = 0; i < offsets.value.length; i++) {
+          raf.seek(offsets.value[i]);
+          raf.readFully(pixels, n, counts.value[i]);
+          n += counts.value[i];
+        }
+        Assert.assertEquals(location, pixels.length, n);
+        return pixels;
+      }
+
+      IFDEntry tileCounts = geotiff.findTag(Tag.TileByteCounts);
+      int tileSize = geotiff.findTag(Tag.TileWidth).value[0];
+      int tilesAcross = (width + tileSize - 1) / tileSize;
+      int tilesDown = (height + tileSize - 1) / tileSize;
+      Assert.assertEquals(location, tilesAcross * tilesDown, tileOffsets.value.length);
+
+      int rowBytes = tileSize * elemSize;
+      for (int t = 0; t < tileOffsets.value.length; t++) {
+        byte[] tile = new byte[tileCounts.value[t]];
+        raf.seek(tileOffsets.value[t]);
+        raf.readFully(tile);
+        if (deflated)
+          tile = inflate(tile, tileSize * rowBytes);
+        Assert.assertEquals(location, tileSize * rowBytes, tile.length);
+
+        int row0 = (t / tilesAcross) * tileSize;
+        int col0 = (t % tilesAcross) * tileSize;
+        int ncols = Math.min(tileSize, width - col0);
+        for (int j = 0; j < tileSize && row0 + j < height; j++)
+          System.arraycopy(tile, j * rowBytes, pixels, ((row0 + j) * width + col0) * elemSize, ncols * elemSize);
+      }
+      return pixels;
+    }
+  }
+
+  private static byte[] inflate(byte[] data, int size) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      byte[] result = new byte[size];
+      int n = 0;
+      while (n < size && !inflater.finished()) {
+        int count = inflater.inflate(result, n, size - n);
+        if (count == 0 && inflater.needsInput())
+          break;
+        n += count;
+      }
+      Assert.assertEquals(size, n);
+      Assert.assertTrue(inflater.finished());
+      return result;
+
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+
 }
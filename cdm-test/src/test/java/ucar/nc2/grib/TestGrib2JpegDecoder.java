@@ -0,0 +1,47 @@
+package ucar.nc2.grib;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import ucar.nc2.grib.grib2.Grib2Record;
+import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decode the same JPEG2000 (template 5.40) records twice on one thread, the second time in reverse order,
+ * so each decode gets a pooled decoder last used for a different message, and compare.
+ */
+@Category(NeedsCdmUnitTest.class)
+public class TestGrib2JpegDecoder {
+  static private final int MAX_RECORDS = 50;
+
+  @Test
+  public void testDecodeTwice() throws IOException {
+    String filename = TestDir.cdmUnitTestDir + "tds/ncep/GFS_Global_2p5deg_20100602_1200.grib2";
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      List<Grib2Record> records = new ArrayList<>();
+      Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+      while (scanner.hasNext() && records.size() < MAX_RECORDS) {
+        Grib2Record gr = scanner.next();
+        if (gr.getDataRepresentationSection().getDataTemplate() == 40)
+          records.add(gr);
+      }
+      Assert.assertTrue("no JPEG2000 records in " + filename, records.size() > 1);
+
+      List<float[]> first = new ArrayList<>();
+      for (Grib2Record gr : records)
+        first.add(gr.readData(raf));
+
+      for (int i = records.size() - 1; i >= 0; i--) {
+        float[] again = records.get(i).readData(raf);
+        Assert.assertArrayEquals("record " + i, first.get(i), again, 0.0f);
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package ucar.nc2.iosp.nexrad2;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Uncompress a synthetic bzip2 compressed Level II volume in memory, and compare with the bytes it was made from.
+ * Does not need cdmUnitTest data.
+ */
+public class TestLevel2UncompressInMemory {
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testUncompress() throws IOException {
+    // more blocks than processors, of different sizes, so the runs are uneven
+    for (int nblocks : new int[] {1, 3, 37}) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      File file = makeVolume(nblocks, expected);
+      try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+        raf.order(RandomAccessFile.BIG_ENDIAN);
+        try (RandomAccessFile mraf = Level2VolumeScan.uncompressInMemory(raf)) {
+          Assert.assertEquals(file.getPath(), mraf.getLocation());
+          byte[] result = new byte[(int) mraf.length()];
+          mraf.seek(0);
+          mraf.readFully(result);
+          Assert.assertArrayEquals("nblocks=" + nblocks, expected.toByteArray(), result);
+        }
+      }
+    }
+  }
+
+  // volume header, then length prefixed bzip2 blocks, the last one with a negative length
+  private File makeVolume(int nblocks, ByteArrayOutputStream expected) throws IOException {
+    Random random = new Random(nblocks);
+    byte[] header = new byte[Level2Record.FILE_HEADER_SIZE];
+    byte[] title = "AR2V0006.001".getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(title, 0, header, 0, title.length);
+    expected.write(header);
+
+    File file = tempFolder.newFile();
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+      out.write(header);
+      for (int b = 0; b < nblocks; b++) {
+        byte[] data = new byte[1000 + random.nextInt(50 * 1000)];
+        for (int i = 0; i < data.length; i++)
+          data[i] = (byte) (random.nextInt(8) == 0 ? random.nextInt() : i / 100);
+        expected.write(data);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream bz = new BZip2CompressorOutputStream(bytes)) {
+          bz.write(data);
+        }
+        byte[] compressed = bytes.toByteArray();
+        out.writeInt((b == nblocks - 1) ? -compressed.length : compressed.length);
+        out.write(compressed);
+      }
+    }
+    return file;
+  }
+}
@@ -32,11 +32,13 @@
  */
 package ucar.nc2.iosp.nexrad2;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import ucar.ma2.Array;
 import ucar.ma2.IndexIterator;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
 import ucar.nc2.Dimension;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
@@ -60,6 +62,30 @@ public class TestNexrad2 {
     System.out.println("that took = "+took+" msec");
   }
 
+  @Test
+  public void testUncompressInMemory() throws IOException {
+    TestDir.actOnAll(TestDir.cdmUnitTestDir + "formats/nexrad/level2/VCP11", null, filename -> {
+      if (filename.endsWith(".uncompress")) return 0;
+
+      Array disk, mem;
+      boolean save = Level2VolumeScan.isUncompressInMemory();
+      try {
+        Level2VolumeScan.setUncompressInMemory(false);
+        try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+          disk = ncfile.findVariable("Reflectivity").read();
+        }
+        Level2VolumeScan.setUncompressInMemory(true);
+        try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+          mem = ncfile.findVariable("Reflectivity").read();
+        }
+      } finally {
+        Level2VolumeScan.setUncompressInMemory(save);
+      }
+      Assert.assertTrue(filename, MAMath.equals(disk, mem));
+      return 1;
+    });
+  }
+
   private class MyAct implements TestDir.Act {
     boolean deleteUncompress;
 
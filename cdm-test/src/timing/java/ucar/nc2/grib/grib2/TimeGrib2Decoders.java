@@ -0,0 +1,158 @@
+package ucar.nc2.grib.grib2;
+
+import ucar.unidata.io.RandomAccessFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compare decoding the JPEG2000 (DRS 5.40) fields of a GRIB2 file against decoding the same values
+ * packed as PNG (5.41) and CCSDS (5.42).
+ * The PNG images are written with ImageIO, the CCSDS streams with a minimal split sample encoder.
+ * The JPEG2000 times include reading the data section.
+ */
+public class TimeGrib2Decoders {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.out.println("usage: TimeGrib2Decoders <grib2 file with template 5.40 records>");
+      return;
+    }
+
+    long jpegTime = 0, pngTime = 0, ccsdsTime = 0;
+    long jpegSize = 0, pngSize = 0, ccsdsSize = 0;
+    int nrecords = 0;
+
+    try (RandomAccessFile raf = new RandomAccessFile(args[0], "r")) {
+      Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+      while (scanner.hasNext()) {
+        Grib2Record gr = scanner.next();
+        if (gr.getDataRepresentationSection().getDataTemplate() != 40) continue;
+        int nb = gr.getBinaryDataInfo(raf).numberOfBits;
+        if (nb == 0 || nb > 16) continue; // PNG writer below does 16 bit gray
+
+        long start = System.nanoTime();
+        int[] values = gr.readRawData(raf);
+        jpegTime += System.nanoTime() - start;
+        if (values == null) continue;
+        jpegSize += gr.getDataSection().getMsgLength();
+
+        byte[] png = encodePng(values);
+        pngSize += png.length;
+        start = System.nanoTime();
+        int[] fromPng = new Grib2PngDecoder().decode(png, 0, png.length);
+        pngTime += System.nanoTime() - start;
+
+        int blockSize = 32, rsi = 128;
+        int flags = Grib2CcsdsDecoder.DATA_PREPROCESS | Grib2CcsdsDecoder.DATA_MSB;
+        byte[] ccsds = encodeCcsds(values, nb, blockSize, rsi);
+        ccsdsSize += ccsds.length;
+        int[] fromCcsds = new int[values.length];
+        start = System.nanoTime();
+        new Grib2CcsdsDecoder(nb, blockSize, rsi, flags).decode(ccsds, 0, ccsds.length, fromCcsds, values.length);
+        ccsdsTime += System.nanoTime() - start;
+
+        if (!Arrays.equals(values, fromPng) || !Arrays.equals(values, fromCcsds))
+          System.out.printf("MISMATCH record %d%n", nrecords);
+        nrecords++;
+      }
+    }
+
+    System.out.printf("%d records%n", nrecords);
+    System.out.printf(" jpeg2000 %8.1f msecs %10d bytes%n", jpegTime / 1.0e6, jpegSize);
+    System.out.printf(" png      %8.1f msecs %10d bytes%n", pngTime / 1.0e6, pngSize);
+    System.out.printf(" ccsds    %8.1f msecs %10d bytes%n", ccsdsTime / 1.0e6, ccsdsSize);
+  }
+
+  private static byte[] encodePng(int[] values) throws Exception {
+    BufferedImage image = new BufferedImage(values.length, 1, BufferedImage.TYPE_USHORT_GRAY);
+    WritableRaster raster = image.getRaster();
+    for (int i = 0; i < values.length; i++)
+      raster.setSample(i, 0, 0, values[i]);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", out);
+    return out.toByteArray();
+  }
+
+  // preprocessing and split sample or uncompressed blocks only, unsigned, nb <= 16
+  private static byte[] encodeCcsds(int[] values, int nb, int blockSize, int rsi) {
+    int idLen = (nb > 8) ? 4 : 3;
+    long xmax = (1L << nb) - 1;
+    int n = values.length;
+    int nblocks = (n + blockSize - 1) / blockSize;
+    long[] d = new long[nblocks * blockSize];
+
+    int rsiSize = rsi * blockSize;
+    for (int i = 0; i < d.length; i++) {
+      long x = values[Math.min(i, n - 1)];
+      if (i % rsiSize == 0) {
+        d[i] = x;
+      } else {
+        long prev = values[Math.min(i - 1, n - 1)];
+        long delta = x - prev;
+        long theta = Math.min(prev, xmax - prev);
+        if (delta >= 0 && delta <= theta) d[i] = 2 * delta;
+        else if (delta < 0 && -delta <= theta) d[i] = -2 * delta - 1;
+        else d[i] = theta + Math.abs(delta);
+      }
+    }
+
+    BitOutput out = new BitOutput();
+    for (int b = 0; b < nblocks; b++) {
+      int first = b * blockSize;
+      int start = (first % rsiSize == 0) ? 1 : 0;
+      long best = (long) nb * blockSize;
+      int bestK = -1;
+      for (int k = 0; k < nb && k <= (1 << idLen) - 3; k++) {
+        long bits = 0;
+        for (int i = start; i < blockSize; i++)
+          bits += (d[first + i] >>> k) + 1 + k;
+        if (bits < best) {
+          best = bits;
+          bestK = k;
+        }
+      }
+      if (bestK < 0) {
+        out.put((1 << idLen) - 1, idLen);
+        for (int i = 0; i < blockSize; i++)
+          out.put(d[first + i], nb);
+      } else {
+        out.put(bestK + 1, idLen);
+        if (start == 1) out.put(d[first], nb);
+        for (int i = start; i < blockSize; i++) {
+          for (long z = d[first + i] >>> bestK; z > 0; z--)
+            out.put(0, 1);
+          out.put(1, 1);
+        }
+        for (int i = start; i < blockSize; i++)
+          out.put(d[first + i], bestK);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static class BitOutput {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int current, nbits;
+
+    void put(long value, int nb) {
+      for (int i = nb - 1; i >= 0; i--) {
+        current = (current << 1) | (int) ((value >>> i) & 1);
+        if (++nbits == 8) {
+          bytes.write(current);
+          current = 0;
+          nbits = 0;
+        }
+      }
+    }
+
+    byte[] toByteArray() {
+      while (nbits != 0)
+        put(0, 1);
+      return bytes.toByteArray();
+    }
+  }
+}
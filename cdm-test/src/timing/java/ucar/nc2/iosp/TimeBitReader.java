@@ -0,0 +1,39 @@
+package ucar.nc2.iosp;
+
+import java.util.Random;
+
+/**
+ * Time unpacking GRIB style packed values with BitReader, one value at a time vs bits2UInt(nb, int[], ...).
+ */
+public class TimeBitReader {
+  private static final int NVALUES = 1000 * 1000;
+
+  public static void main(String[] args) throws Exception {
+    for (int run = 0; run < 3; run++) {
+      for (int nb : new int[]{7, 8, 12, 16, 21}) {
+        byte[] data = new byte[(NVALUES * nb + 7) / 8];
+        new Random(run).nextBytes(data);
+        int[] result = new int[NVALUES];
+
+        long start = System.nanoTime();
+        BitReader reader = new BitReader(data);
+        long sum1 = 0;
+        for (int i = 0; i < NVALUES; i++)
+          sum1 += reader.bits2UInt(nb);
+        double scalar = (System.nanoTime() - start) / 1.0e6;
+
+        start = System.nanoTime();
+        reader = new BitReader(data);
+        reader.bits2UInt(nb, result, 0, NVALUES);
+        long sum2 = 0;
+        for (int v : result)
+          sum2 += v;
+        double bulk = (System.nanoTime() - start) / 1.0e6;
+
+        System.out.printf(" nb=%2d scalar=%8.1f msecs bulk=%8.1f msecs speedup=%5.1f %s%n", nb, scalar, bulk,
+                scalar / bulk, sum1 == sum2 ? "" : "MISMATCH");
+      }
+      System.out.println();
+    }
+  }
+}
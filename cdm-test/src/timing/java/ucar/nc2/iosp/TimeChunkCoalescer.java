@@ -0,0 +1,53 @@
+package ucar.nc2.iosp;
+
+import ucar.ma2.DataType;
+import ucar.ma2.Section;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+
+/**
+ * Time extracting a time series from a record variable, as in a netCDF-3 file, with and without
+ * ChunkCoalescer. Each record holds a 20 KB field; reading one point per record is one small read per record
+ * without coalescing. Run it against a file on NFS to see the difference in seeks.
+ */
+public class TimeChunkCoalescer {
+  private static final int NRECS = 5000;
+  private static final int NFLOATS = 5000; // per record
+  private static final int RECSIZE = 4 * NFLOATS;
+
+  public static void main(String[] args) throws Exception {
+    File f;
+    if (args.length > 0) {
+      f = new File(args[0]);
+    } else {
+      f = File.createTempFile("TimeChunkCoalescer", ".dat");
+      f.deleteOnExit();
+      try (java.io.RandomAccessFile out = new java.io.RandomAccessFile(f, "rw")) {
+        out.setLength((long) NRECS * RECSIZE);
+      }
+    }
+
+    for (int run = 0; run < 3; run++) {
+      for (int maxGap : new int[]{-1, 32 * 1000, 1000 * 1000}) {
+        ChunkCoalescer.setMaxGap(maxGap);
+        time(f, "0:" + (NRECS - 1) + ",1234", maxGap);       // time series at a point
+        time(f, "0:" + (NRECS - 1) + ",100:4999:100", maxGap);  // strided, 49 points
+      }
+      System.out.println();
+    }
+  }
+
+  private static void time(File f, String section, int maxGap) throws Exception {
+    RandomAccessFile.setDebugAccess(true);
+    long start = System.nanoTime();
+    try (RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r")) {
+      Layout layout = new LayoutRegularSegmented(0, 4, RECSIZE, new int[]{NRECS, NFLOATS}, new Section(section));
+      IospHelper.readDataFill(raf, layout, DataType.FLOAT, null, -1);
+    }
+    double msecs = (System.nanoTime() - start) / 1.0e6;
+    System.out.printf(" maxGap=%8d section=%-20s: %8.1f msecs, %6d reads, %10d bytes%n", maxGap, section, msecs,
+            RandomAccessFile.getDebugNseeks(), RandomAccessFile.getDebugNbytes());
+    RandomAccessFile.setDebugAccess(false);
+  }
+}
@@ -0,0 +1,51 @@
+package ucar.nc2.time;
+
+/**
+ * Time ISO and udunits date parsing on a few million values,
+ * comparing the hand written ISO parser with the regexp parser.
+ */
+public class TimeCalendarDateParse {
+  private static final int N = 2 * 1000 * 1000;
+
+  public static void main(String[] args) {
+    String[] iso = new String[N];
+    String[] udunits = new String[N];
+    for (int i = 0; i < N; i++) {
+      int day = 1 + i % 28, hour = i % 24, min = i % 60;
+      iso[i] = String.format("2015-%02d-%02dT%02d:%02d:%02dZ", 1 + i % 12, day, hour, min, i % 60);
+      udunits[i] = (i % 1000) + " hours since 1970-01-01 00:00:00";
+    }
+
+    for (int run = 0; run < 3; run++) {
+      long start = System.nanoTime();
+      long sum = 0;
+      for (String s : iso)
+        sum += CalendarDateFormatter.parseIsoTimeStringRegexp(null, s).getMillis();
+      report("iso regexp", start, sum);
+
+      start = System.nanoTime();
+      sum = 0;
+      for (String s : iso)
+        sum += CalendarDateFormatter.isoStringToCalendarDate(null, s).getMillis();
+      report("iso       ", start, sum);
+
+      start = System.nanoTime();
+      sum = 0;
+      for (String s : iso)
+        sum += CalendarDate.parseUdunitsOrIso(null, s).getMillis();
+      report("udunitsOrIso(iso)    ", start, sum);
+
+      start = System.nanoTime();
+      sum = 0;
+      for (String s : udunits)
+        sum += CalendarDate.parseUdunitsOrIso(null, s).getMillis();
+      report("udunitsOrIso(udunits)", start, sum);
+      System.out.println();
+    }
+  }
+
+  private static void report(String what, long start, long sum) {
+    double secs = (System.nanoTime() - start) / 1.0e9;
+    System.out.printf(" %s: %d values in %.3f secs = %.0f nsecs/value (%d)%n", what, N, secs, secs * 1.0e9 / N, sum);
+  }
+}
@@ -0,0 +1,81 @@
+package ucar.unidata.io;
+
+import ucar.ma2.DataType;
+import ucar.ma2.Section;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.LayoutRegular;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Time reading a 100 MB float section with RandomAccessFile.readFloat(float[], ...)
+ * and IospHelper.readData, in both byte orders, against reading one float at a time.
+ */
+public class TimeBulkRead {
+  private static final int NFLOATS = 25 * 1000 * 1000; // 100 MB
+  private static final int NROWS = 1000;
+
+  public static void main(String[] args) throws Exception {
+    File f = File.createTempFile("TimeBulkRead", ".dat");
+    f.deleteOnExit();
+    try (java.io.RandomAccessFile out = new java.io.RandomAccessFile(f, "rw")) {
+      ByteBuffer bb = ByteBuffer.allocate(4 * NFLOATS / NROWS);
+      for (int row = 0; row < NROWS; row++) {
+        bb.clear();
+        while (bb.hasRemaining()) bb.putFloat(row);
+        out.write(bb.array());
+      }
+    }
+
+    for (int run = 0; run < 3; run++) {
+      for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+        timeScalar(f, order);
+        timeBulk(f, order);
+        timeIospHelper(f, order);
+      }
+      System.out.println();
+    }
+  }
+
+  private static void timeScalar(File f, ByteOrder order) throws IOException {
+    float[] data = new float[NFLOATS];
+    long start = System.nanoTime();
+    try (RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r")) {
+      raf.order(order);
+      for (int i = 0; i < NFLOATS; i++)
+        data[i] = raf.readFloat();
+    }
+    report("scalar", order, start, 4L * NFLOATS);
+  }
+
+  private static void timeBulk(File f, ByteOrder order) throws IOException {
+    float[] data = new float[NFLOATS];
+    long start = System.nanoTime();
+    try (RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r")) {
+      raf.order(order);
+      raf.readFloat(data, 0, NFLOATS);
+    }
+    report("bulk  ", order, start, 4L * NFLOATS);
+  }
+
+  // every other row, so each chunk is a separate read
+  private static void timeIospHelper(File f, ByteOrder order) throws Exception {
+    int ncols = NFLOATS / NROWS;
+    Section want = new Section(new int[]{0, 0}, new int[]{NROWS / 2, ncols}, new int[]{2, 1});
+    long start = System.nanoTime();
+    try (RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r")) {
+      LayoutRegular layout = new LayoutRegular(0, 4, new int[]{NROWS, ncols}, want);
+      int byteOrder = (order == ByteOrder.BIG_ENDIAN) ? RandomAccessFile.BIG_ENDIAN : RandomAccessFile.LITTLE_ENDIAN;
+      IospHelper.readDataFill(raf, layout, DataType.FLOAT, null, byteOrder);
+    }
+    report("iosp/2", order, start, 4L * NFLOATS / 2);
+  }
+
+  private static void report(String what, ByteOrder order, long start, long nbytes) {
+    double secs = (System.nanoTime() - start) / 1.0e9;
+    System.out.printf(" %s %s: %.3f secs = %.1f MB/sec%n", what, order, secs, 1.0e-6 * nbytes / secs);
+  }
+}
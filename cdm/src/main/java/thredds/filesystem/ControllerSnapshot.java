@@ -0,0 +1,140 @@
+/*
+ *
+ *  * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *  *
+ *  *  Portions of this software were developed by the Unidata Program at the
+ *  *  University Corporation for Atmospheric Research.
+ *  *
+ *  *  Access and use of this software shall impose the following obligations
+ *  *  and understandings on the user. The user is granted the right, without
+ *  *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  *  this software, and any derivative works thereof, and its supporting
+ *  *  documentation for any purpose whatsoever, provided that this entire
+ *  *  notice appears in all copies of the software, derivative works and
+ *  *  supporting documentation.  Further, UCAR requests that the user credit
+ *  *  UCAR/Unidata in any publications that result from the use of this
+ *  *  software or in any product that includes this software. The names UCAR
+ *  *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  *  to endorse or promote any products or commercial entity unless specific
+ *  *  written permission is obtained from UCAR/Unidata. The user also
+ *  *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  *  any support, consulting, training or assistance of any kind with regard
+ *  *  to the use, operation and performance of this software nor to provide
+ *  *  the user with any updates, revisions, new versions or "bug fixes."
+ *  *
+ *  *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package thredds.filesystem;
+
+import thredds.inventory.CollectionConfig;
+import thredds.inventory.MController;
+import thredds.inventory.MFile;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Implements an MController using persistent DirectorySnapshots,
+ * so that rescans only go back to the OS for directories that have changed.
+ * Install with MFileCollectionManager.setController().
+ */
+@ThreadSafe
+public class ControllerSnapshot implements MController {
+  static private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ControllerSnapshot.class);
+
+  ////////////////////////////////////////
+
+  public ControllerSnapshot() {
+  }
+
+  @Override
+  public Iterator<MFile> getInventoryAll(CollectionConfig mc, boolean recheck) {
+    Path cd = getDirectory(mc);
+    if (cd == null) return null;
+    List<MFile> result = new ArrayList<>();
+    try {
+      addAll(mc, cd, result);
+    } catch (IOException ioe) {
+      logger.warn("I/O error on " + cd, ioe);
+      return null;
+    }
+    return result.iterator();
+  }
+
+  // leaves before subdirs, like ControllerOS
+  private void addAll(CollectionConfig mc, Path dir, List<MFile> result) throws IOException {
+    DirectorySnapshot snapshot = DirectorySnapshot.get(dir);
+    snapshot.refresh();
+    addFiles(mc, snapshot, result);
+    for (Path subdir : snapshot.getSubdirs())
+      addAll(mc, subdir, result);
+  }
+
+  @Override
+  public Iterator<MFile> getInventoryTop(CollectionConfig mc, boolean recheck) throws IOException {
+    Path cd = getDirectory(mc);
+    if (cd == null) return null;
+    DirectorySnapshot snapshot = DirectorySnapshot.get(cd);
+    snapshot.refresh();
+    List<MFile> result = new ArrayList<>();
+    addFiles(mc, snapshot, result);
+    return result.iterator();
+  }
+
+  @Override
+  public Iterator<MFile> getSubdirs(CollectionConfig mc, boolean recheck) {
+    Path cd = getDirectory(mc);
+    if (cd == null) return null;
+    List<MFile> result = new ArrayList<>();
+    try {
+      DirectorySnapshot snapshot = DirectorySnapshot.get(cd);
+      snapshot.refresh();
+      for (Path subdir : snapshot.getSubdirs()) {
+        MFile mfile = new MFileOS7(subdir);
+        if (mc.accept(mfile)) result.add(mfile);
+      }
+    } catch (IOException ioe) {
+      logger.warn("I/O error on " + cd, ioe);
+      return null;
+    }
+    return result.iterator();
+  }
+
+  public void close() {
+  } // NOOP
+
+  ////////////////////////////////////////////////////////////
+
+  private Path getDirectory(CollectionConfig mc) {
+    String path = mc.getDirectoryName();
+    if (path.startsWith("file:")) {
+      path = path.substring(5);
+    }
+
+    Path cd = Paths.get(path);
+    if (!Files.isDirectory(cd)) return null;
+    return cd;
+  }
+
+  private void addFiles(CollectionConfig mc, DirectorySnapshot snapshot, List<MFile> result) {
+    for (MFile mfile : snapshot.getFiles()) {
+      if (mc.accept(mfile)) result.add(mfile);
+    }
+  }
+
+}
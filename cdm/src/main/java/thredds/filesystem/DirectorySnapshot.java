@@ -0,0 +1,330 @@
+/*
+ *
+ *  * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *  *
+ *  *  Portions of this software were developed by the Unidata Program at the
+ *  *  University Corporation for Atmospheric Research.
+ *  *
+ *  *  Access and use of this software shall impose the following obligations
+ *  *  and understandings on the user. The user is granted the right, without
+ *  *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  *  this software, and any derivative works thereof, and its supporting
+ *  *  documentation for any purpose whatsoever, provided that this entire
+ *  *  notice appears in all copies of the software, derivative works and
+ *  *  supporting documentation.  Further, UCAR requests that the user credit
+ *  *  UCAR/Unidata in any publications that result from the use of this
+ *  *  software or in any product that includes this software. The names UCAR
+ *  *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  *  to endorse or promote any products or commercial entity unless specific
+ *  *  written permission is obtained from UCAR/Unidata. The user also
+ *  *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  *  any support, consulting, training or assistance of any kind with regard
+ *  *  to the use, operation and performance of this software nor to provide
+ *  *  the user with any updates, revisions, new versions or "bug fixes."
+ *  *
+ *  *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package thredds.filesystem;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent listing (name, size, lastModified) of one directory, shared by all users of that directory.
+ * refresh() only rereads the directory when it may have changed:
+ * <ol>
+ * <li> the directory's own lastModified changed (files added, deleted or renamed), or
+ * <li> a WatchService event arrived for it (if enableWatch() was called), or
+ * <li> fullScanInterval has elapsed since the last full scan.
+ * </ol>
+ * Only new files and files reported modified by the WatchService have their attributes reread, except on a full scan.
+ * Without the WatchService, files modified in place are only noticed on a full scan.
+ */
+@ThreadSafe
+public class DirectorySnapshot {
+  static private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DirectorySnapshot.class);
+
+  // directory lastModified this close to the last scan may hide a later change with the same timestamp
+  static private final long MTIME_SLOP = 2000;
+
+  static private final Map<Path, DirectorySnapshot> snapshots = new ConcurrentHashMap<>();
+  static private final Map<WatchKey, DirectorySnapshot> watched = new ConcurrentHashMap<>();
+  static private volatile WatchService watcher;
+  static private volatile long fullScanInterval = TimeUnit.HOURS.toMillis(1);
+
+  /**
+   * Get the shared snapshot for a directory. It is empty until refresh() is called.
+   *
+   * @param dir the directory
+   * @return the snapshot, never null
+   */
+  static public DirectorySnapshot get(Path dir) {
+    return snapshots.computeIfAbsent(dir.toAbsolutePath().normalize(), DirectorySnapshot::new);
+  }
+
+  /**
+   * Use a WatchService to be notified of changes, including files modified in place.
+   * Does nothing useful on file systems that dont support it, eg NFS; those fall back to the directory lastModified.
+   */
+  static public synchronized void enableWatch() throws IOException {
+    if (watcher == null)
+      watcher = FileSystems.getDefault().newWatchService();
+  }
+
+  /**
+   * Set how often every file's attributes are reread, regardless of other change indications.
+   *
+   * @param millis interval in msecs, <= 0 means never
+   */
+  static public void setFullScanInterval(long millis) {
+    fullScanInterval = millis;
+  }
+
+  /**
+   * Discard all snapshots and close the WatchService, if any. Call on shutdown.
+   */
+  static public synchronized void shutdown() {
+    clear();
+    WatchService ws = watcher;
+    watcher = null;
+    if (ws != null) {
+      try {
+        ws.close();
+      } catch (IOException e) {
+        logger.warn("DirectorySnapshot: failed to close WatchService", e);
+      }
+    }
+  }
+
+  /**
+   * Discard all snapshots; for testing.
+   */
+  static public void clear() {
+    for (WatchKey key : watched.keySet())
+      key.cancel();
+    watched.clear();
+    snapshots.clear();
+  }
+
+  // drain pending watch events, marking the affected snapshots dirty
+  static private void pollWatcher() {
+    WatchService ws = watcher;
+    if (ws == null) return;
+    WatchKey key;
+    while ((key = ws.poll()) != null) {
+      DirectorySnapshot snap = watched.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (snap == null) continue;
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          snap.markDirty(null);
+        } else {
+          Path name = (Path) event.context();
+          snap.markDirty(name.toString());
+        }
+      }
+      if (!key.reset())
+        watched.remove(key);
+    }
+  }
+
+  /**
+   * The differences found by refresh().
+   */
+  static public class Diff {
+    public final List<String> added = new ArrayList<>();
+    public final List<String> deleted = new ArrayList<>();
+    public final List<String> changed = new ArrayList<>();
+
+    public boolean isEmpty() {
+      return added.isEmpty() && deleted.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return "Diff{nadded=" + added.size() + ", ndeleted=" + deleted.size() + ", nchanged=" + changed.size() + '}';
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////
+
+  private final Path dir;
+
+  @GuardedBy("this")
+  private Map<String, BasicFileAttributes> entries; // null = never scanned
+  @GuardedBy("this")
+  private long dirLastModified;
+  @GuardedBy("this")
+  private long lastScanned, lastFullScan;
+  @GuardedBy("this")
+  private WatchKey watchKey;
+
+  // set from watch events, without holding the lock
+  private volatile boolean dirty, allModified;
+  private final Set<String> modifiedNames = ConcurrentHashMap.newKeySet();
+
+  // index files known to be consistent with the current listing: key -> index lastModified
+  private final Map<String, Long> verified = new ConcurrentHashMap<>();
+
+  private DirectorySnapshot(Path dir) {
+    this.dir = dir;
+  }
+
+  public Path getDirectory() {
+    return dir;
+  }
+
+  private void markDirty(String name) {
+    if (name == null) allModified = true;
+    else modifiedNames.add(name);
+    dirty = true;
+  }
+
+  /**
+   * Bring the listing up to date with the file system.
+   *
+   * @return the differences from the previous listing; everything is "added" on the first call
+   * @throws IOException if the directory cant be read
+   */
+  public synchronized Diff refresh() throws IOException {
+    pollWatcher();
+    long now = System.currentTimeMillis();
+    long dirMod = Files.getLastModifiedTime(dir).toMillis();
+
+    boolean fullScan = (entries == null) || allModified || (fullScanInterval > 0 && now - lastFullScan > fullScanInterval);
+    boolean needScan = fullScan || dirty || (dirMod != dirLastModified) || (dirMod >= lastScanned - MTIME_SLOP);
+    Diff diff = new Diff();
+    if (!needScan) return diff;
+
+    // take the pending watch events; any that arrive during the scan are seen next time
+    dirty = false;
+    allModified = false;
+    Set<String> modified = new HashSet<>(modifiedNames);
+    modifiedNames.removeAll(modified);
+
+    Map<String, BasicFileAttributes> old = (entries == null) ? Collections.<String, BasicFileAttributes>emptyMap() : entries;
+    Map<String, BasicFileAttributes> result = new HashMap<>(Math.max(16, old.size() * 4 / 3));
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+      for (Path p : ds) {
+        String name = p.getFileName().toString();
+        BasicFileAttributes oldAttr = old.get(name);
+        if (oldAttr != null && !fullScan && !modified.contains(name)) {
+          result.put(name, oldAttr); // unchanged: no need to go back to the file system
+          continue;
+        }
+        BasicFileAttributes attr;
+        try {
+          attr = Files.readAttributes(p, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+          continue; // deleted since listing
+        } catch (IOException ioe) {
+          logger.error("Failed to read attributes of " + p, ioe);
+          continue;
+        }
+        result.put(name, attr);
+        if (oldAttr == null)
+          diff.added.add(name);
+        else if (oldAttr.lastModifiedTime().toMillis() != attr.lastModifiedTime().toMillis() || oldAttr.size() != attr.size())
+          diff.changed.add(name);
+      }
+    } catch (IOException ioe) {
+      markDirty(null); // start over next time
+      throw ioe;
+    }
+    for (String name : old.keySet()) {
+      if (!result.containsKey(name))
+        diff.deleted.add(name);
+    }
+
+    boolean first = (entries == null);
+    entries = result;
+    dirLastModified = dirMod;
+    lastScanned = now;
+    if (fullScan) lastFullScan = now;
+    if (first || !diff.isEmpty())
+      verified.clear();
+    if (watcher != null && watchKey == null) register();
+
+    if (logger.isDebugEnabled())
+      logger.debug("DirectorySnapshot {} rescanned (full={}): {}", dir, fullScan, diff);
+    return diff;
+  }
+
+  private void register() {
+    try {
+      watchKey = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+              StandardWatchEventKinds.ENTRY_MODIFY);
+      watched.put(watchKey, this);
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.warn("DirectorySnapshot cant watch {}: {}", dir, e.getMessage());
+    }
+  }
+
+  /**
+   * The files (not subdirectories) in the last refreshed listing, in no particular order.
+   * Each call returns new MFile objects, so callers may set their auxInfo.
+   */
+  public synchronized List<MFileOS7> getFiles() {
+    if (entries == null) return Collections.emptyList();
+    List<MFileOS7> result = new ArrayList<>(entries.size());
+    for (Map.Entry<String, BasicFileAttributes> entry : entries.entrySet()) {
+      if (!entry.getValue().isDirectory())
+        result.add(new MFileOS7(dir.resolve(entry.getKey()), entry.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * The subdirectories in the last refreshed listing, in no particular order.
+   */
+  public synchronized List<Path> getSubdirs() {
+    if (entries == null) return Collections.emptyList();
+    List<Path> result = new ArrayList<>();
+    for (Map.Entry<String, BasicFileAttributes> entry : entries.entrySet()) {
+      if (entry.getValue().isDirectory())
+        result.add(dir.resolve(entry.getKey()));
+    }
+    return result;
+  }
+
+  /**
+   * Record that an index built from this directory is consistent with the current listing.
+   * Forgotten as soon as refresh() finds a change.
+   *
+   * @param indexKey           identifies the index, eg its path
+   * @param indexLastModified  lastModified of the index
+   */
+  public void setVerified(String indexKey, long indexLastModified) {
+    verified.put(indexKey, indexLastModified);
+  }
+
+  /**
+   * Is the index known to be consistent with the files in the directory?
+   * True if it was verified since refresh() last found a change, and has not been rewritten since.
+   * No file is looked at here: changes are found by refresh(), from the directory lastModified and WatchService events,
+   * and by rereading every file's attributes once each fullScanInterval.
+   */
+  public boolean isVerified(String indexKey, long indexLastModified) {
+    Long when = verified.get(indexKey);
+    return when != null && when == indexLastModified;
+  }
+
+  @Override
+  public String toString() {
+    return "DirectorySnapshot{" + dir + '}';
+  }
+}
@@ -33,6 +33,7 @@
 package thredds.inventory.partition;
 
 import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.filesystem.DirectorySnapshot;
 import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
 import thredds.inventory.MFile;
@@ -59,6 +60,7 @@ import java.util.List;
  * @since 11/10/13
  */
 public class DirectoryBuilder {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DirectoryBuilder.class);
 
   // returns a DirectoryPartition or DirectoryCollection
   static public MCollection factory(FeatureCollectionConfig config, Path topDir, boolean isTop, IndexReader indexReader, String suffix, org.slf4j.Logger logger) throws IOException {
@@ -259,6 +261,22 @@ public class DirectoryBuilder {
     if (debug) System.out.printf("DirectoryBuilder.scanForChildren on %s ", dir);
 
     int count = 0;
+    if (DirectoryCollection.isUsingSnapshots()) {
+      try {
+        DirectorySnapshot snapshot = DirectorySnapshot.get(dir);
+        snapshot.refresh();
+        for (Path p : snapshot.getSubdirs()) {
+          children.add(new DirectoryBuilder(topCollectionName, p, null, suffix));
+          count++;
+        }
+      } catch (IOException e) {
+        logger.error("DirectoryBuilder.scanForChildren failed on " + dir, e);
+      }
+      if (debug) System.out.printf("done=%d%n", count);
+      childrenConstructed = true;
+      return;
+    }
+
     try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
       for (Path p : ds) {
         BasicFileAttributes attr = Files.readAttributes(p, BasicFileAttributes.class);
@@ -268,7 +286,7 @@ public class DirectoryBuilder {
         }
       }
     } catch (IOException e) {
-      e.printStackTrace();
+      logger.error("DirectoryBuilder.scanForChildren failed on " + dir, e);
     }
     if (debug) System.out.printf("done=%d%n", count);
     childrenConstructed = true;
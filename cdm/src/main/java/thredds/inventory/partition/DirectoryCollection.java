@@ -33,6 +33,7 @@
 
 package thredds.inventory.partition;
 
+import thredds.filesystem.DirectorySnapshot;
 import thredds.filesystem.MFileOS7;
 import thredds.inventory.CollectionAbstract;
 import thredds.inventory.MFile;
@@ -57,6 +58,21 @@ import java.util.*;
  */
 public class DirectoryCollection extends CollectionAbstract {
 
+  static private volatile boolean useSnapshots = false;
+
+  /**
+   * Set whether to list directories through a persistent DirectorySnapshot,
+   * so that rechecks only go back to the file system for directories that have changed.
+   * @param b true to use snapshots
+   */
+  static public void setUseSnapshots(boolean b) {
+    useSnapshots = b;
+  }
+
+  static public boolean isUsingSnapshots() {
+    return useSnapshots;
+  }
+
   /**
    * Create standard name = topCollectionName + last directory
    * @param topCollectionName from config, name of the collection
@@ -122,9 +138,23 @@ public class DirectoryCollection extends CollectionAbstract {
 
   @Override
   public CloseableIterator<MFile> getFileIterator() throws IOException {
+    if (useSnapshots) return new SnapshotIterator(getSnapshot());
     return new MyFileIterator(collectionDir);
   }
 
+  /**
+   * Get the up-to-date snapshot of this directory, if snapshots are in use.
+   * @return refreshed snapshot, or null if not using snapshots
+   */
+  public DirectorySnapshot getSnapshot() throws IOException {
+    if (!useSnapshots) return null;
+    DirectorySnapshot snapshot = DirectorySnapshot.get(collectionDir);
+    DirectorySnapshot.Diff diff = snapshot.refresh();
+    if (!diff.isEmpty() && logger.isDebugEnabled())
+      logger.debug("{}: {} {}", collectionName, collectionDir, diff);
+    return snapshot;
+  }
+
   @Override
   public void close() {
     if (debug) System.out.printf("Close DirectoryCollection %s%n", collectionName);
@@ -197,12 +227,62 @@ public class DirectoryCollection extends CollectionAbstract {
     }
   }
 
+  // returns the files in the snapshot, subject to sfilter and olderThan
+  private class SnapshotIterator implements CloseableIterator<MFile> {
+    Iterator<MFileOS7> files;
+    MyStreamFilter filter = new MyStreamFilter();
+    MFile nextMFile;
+
+    SnapshotIterator(DirectorySnapshot snapshot) {
+      files = snapshot.getFiles().iterator();
+    }
+
+    public boolean hasNext() {
+      long now = System.currentTimeMillis();
+      while (files.hasNext()) {
+        MFileOS7 mfile = files.next();
+        try {
+          if (!filter.accept(mfile.getNioPath())) continue;
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        if (now - mfile.getLastModified() < olderThanMillis)
+          continue;
+        nextMFile = mfile;
+        return true;
+      }
+      nextMFile = null;
+      return false;
+    }
+
+    public MFile next() {
+      if (nextMFile == null) throw new NoSuchElementException();
+      return nextMFile;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+    }
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////////////
   private static final boolean debug = false;
   private static int debugCount = 0;
   // this idiom keeps the iterator from escaping, so that we can use try-with-resource, and ensure DirectoryStream closes. like++
   public void iterateOverMFileCollection(Visitor visit) throws IOException {
     if (debug) System.out.printf(" iterateOverMFileCollection %s ", collectionDir);
+    if (useSnapshots) {
+      MyStreamFilter filter = new MyStreamFilter();
+      for (MFileOS7 mfile : getSnapshot().getFiles()) {
+        if (filter.accept(mfile.getNioPath()))
+          visit.consume(mfile);
+      }
+      return;
+    }
+
     int count = 0;
     try (DirectoryStream<Path> ds = Files.newDirectoryStream(collectionDir, new MyStreamFilter())) {
       for (Path p : ds) {
@@ -148,6 +148,84 @@ public class ArrayStructureBB extends ArrayStructure {
     return bbuffer;
   }
 
+  // the convertScalarXXX() read numbers straight from the ByteBuffer, instead of boxing them with getScalarObject()
+
+  @Override
+  public double convertScalarDouble(int recnum, StructureMembers.Member m) {
+    if (m.getDataArray() != null || !isNumber(m.getDataType())) return super.convertScalarDouble(recnum, m);
+    int offset = calcOffsetSetOrder(recnum, m);
+    return readDouble(bbuffer, offset, m.getDataType());
+  }
+
+  @Override
+  public float convertScalarFloat(int recnum, StructureMembers.Member m) {
+    if (m.getDataArray() != null || !isNumber(m.getDataType())) return super.convertScalarFloat(recnum, m);
+    int offset = calcOffsetSetOrder(recnum, m);
+    return readFloat(bbuffer, offset, m.getDataType());
+  }
+
+  @Override
+  public int convertScalarInt(int recnum, StructureMembers.Member m) {
+    if (m.getDataArray() != null || !isNumber(m.getDataType())) return super.convertScalarInt(recnum, m);
+    int offset = calcOffsetSetOrder(recnum, m);
+    return readInt(bbuffer, offset, m.getDataType());
+  }
+
+  @Override
+  public long convertScalarLong(int recnum, StructureMembers.Member m) {
+    if (m.getDataArray() != null || !isNumber(m.getDataType())) return super.convertScalarLong(recnum, m);
+    int offset = calcOffsetSetOrder(recnum, m);
+    return readLong(bbuffer, offset, m.getDataType());
+  }
+
+  // stored as a primitive number, including enums
+  static private boolean isNumber(DataType dataType) {
+    Class c = dataType.getPrimitiveClassType();
+    return (c == double.class) || (c == float.class) || (c == byte.class) || (c == short.class) || (c == int.class) || (c == long.class);
+  }
+
+  // these follow the conversions in ArrayStructure.convertScalarXXX()
+  static private double readDouble(ByteBuffer bb, int offset, DataType dataType) {
+    Class c = dataType.getPrimitiveClassType();
+    if (c == double.class) return bb.getDouble(offset);
+    if (c == float.class) return bb.getFloat(offset);
+    if (c == byte.class) return bb.get(offset);
+    if (c == short.class) return bb.getShort(offset);
+    if (c == int.class) return bb.getInt(offset);
+    if (c == long.class) return bb.getLong(offset);
+    throw new ForbiddenConversionException("Type is " + dataType + ", not convertible to double");
+  }
+
+  static private float readFloat(ByteBuffer bb, int offset, DataType dataType) {
+    Class c = dataType.getPrimitiveClassType();
+    if (c == float.class) return bb.getFloat(offset);
+    if (c == double.class) return (float) bb.getDouble(offset);
+    if (c == byte.class) return bb.get(offset);
+    if (c == short.class) return bb.getShort(offset);
+    if (c == int.class) return bb.getInt(offset);
+    if (c == long.class) return bb.getLong(offset);
+    throw new ForbiddenConversionException("Type is " + dataType + ", not convertible to float");
+  }
+
+  static private int readInt(ByteBuffer bb, int offset, DataType dataType) {
+    Class c = dataType.getPrimitiveClassType();
+    if (c == double.class) return (int) bb.getDouble(offset);
+    if (c == float.class) return (int) bb.getFloat(offset);
+    return (int) readLong(bb, offset, dataType);
+  }
+
+  static private long readLong(ByteBuffer bb, int offset, DataType dataType) {
+    Class c = dataType.getPrimitiveClassType();
+    boolean unsigned = dataType.isUnsigned();
+    if (c == long.class) return bb.getLong(offset);
+    if (c == int.class) return unsigned ? DataType.unsignedIntToLong(bb.getInt(offset)) : bb.getInt(offset);
+    if (c == short.class) return unsigned ? DataType.unsignedShortToInt(bb.getShort(offset)) : bb.getShort(offset);
+    if (c == byte.class) return unsigned ? DataType.unsignedByteToShort(bb.get(offset)) : bb.get(offset);
+    if (c == double.class) return (long) bb.getDouble(offset);
+    if (c == float.class) return (long) bb.getFloat(offset);
+    throw new ForbiddenConversionException("Type is " + dataType + ", not convertible to long");
+  }
+
   @Override
   public double getScalarDouble(int recnum, StructureMembers.Member m) {
     if (m.getDataType() != DataType.DOUBLE) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be double");
@@ -520,7 +598,12 @@ public class ArrayStructureBB extends ArrayStructure {
   protected int calcOffsetSetOrder(int recnum, StructureMembers.Member m) {
     if (null != m.getDataObject())
       bbuffer.order( (ByteOrder) m.getDataObject());
-    return bb_offset + recnum * getStructureSize() + m.getDataParam();
+    return calcRecordStart(recnum) + m.getDataParam();
+  }
+
+  // offset in bbuffer of the start of a record
+  protected int calcRecordStart(int recnum) {
+    return bb_offset + recnum * getStructureSize();
   }
 
   /*  int index = asbb.addObjectToHeap(s);
@@ -570,6 +653,135 @@ public class ArrayStructureBB extends ArrayStructure {
 
   }
 
+  ////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Make a Cursor over the records of this array.
+   *
+   * @return new Cursor, positioned at the first record
+   */
+  public Cursor getCursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Reads scalar members of one record at a time straight from the ByteBuffer, without making a StructureData
+   * for the record or boxing the values.
+   * Position it with setRecnum(), then call the getters with members of this array; the member offsets
+   * (Member.getDataParam()) are already known, so there is no lookup per record.
+   * Each Cursor has its own view of the ByteBuffer, so separate threads may use separate Cursors on the same array.
+   * Members with their own data array (Member.getDataArray()) are read from that instead.
+   */
+  public class Cursor {
+    private final ByteBuffer bb;      // in the order of bbuffer
+    private final ByteBuffer swapped; // in the other order
+    private int recnum;
+    private int start;
+
+    private Cursor() {
+      ByteOrder order = bbuffer.order();
+      bb = bbuffer.duplicate().order(order);
+      swapped = bbuffer.duplicate().order(order == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+      setRecnum(0);
+    }
+
+    /**
+     * Move to a record.
+     *
+     * @param recnum record number in the array, must be less than getSize()
+     * @return this
+     */
+    public Cursor setRecnum(int recnum) {
+      this.recnum = recnum;
+      this.start = calcRecordStart(recnum);
+      return this;
+    }
+
+    public int getRecnum() {
+      return recnum;
+    }
+
+    /**
+     * Get the StructureData of the current record, if the caller needs one.
+     *
+     * @return StructureData of the current record
+     */
+    public StructureData getStructureData() {
+      return ArrayStructureBB.this.getStructureData(recnum);
+    }
+
+    private ByteBuffer buffer(StructureMembers.Member m) {
+      Object order = m.getDataObject(); // see calcOffsetSetOrder()
+      return (order == null || order == bb.order()) ? bb : swapped;
+    }
+
+    public double getDouble(StructureMembers.Member m) {
+      if (m.getDataType() != DataType.DOUBLE) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be double");
+      if (m.getDataArray() != null) return getScalarDouble(recnum, m);
+      return buffer(m).getDouble(start + m.getDataParam());
+    }
+
+    public float getFloat(StructureMembers.Member m) {
+      if (m.getDataType() != DataType.FLOAT) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be float");
+      if (m.getDataArray() != null) return getScalarFloat(recnum, m);
+      return buffer(m).getFloat(start + m.getDataParam());
+    }
+
+    public long getLong(StructureMembers.Member m) {
+      if (m.getDataType().getPrimitiveClassType() != long.class) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be long");
+      if (m.getDataArray() != null) return getScalarLong(recnum, m);
+      return buffer(m).getLong(start + m.getDataParam());
+    }
+
+    public int getInt(StructureMembers.Member m) {
+      if (m.getDataType().getPrimitiveClassType() != int.class) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be int");
+      if (m.getDataArray() != null) return getScalarInt(recnum, m);
+      return buffer(m).getInt(start + m.getDataParam());
+    }
+
+    public short getShort(StructureMembers.Member m) {
+      if (m.getDataType().getPrimitiveClassType() != short.class) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be short");
+      if (m.getDataArray() != null) return getScalarShort(recnum, m);
+      return buffer(m).getShort(start + m.getDataParam());
+    }
+
+    public byte getByte(StructureMembers.Member m) {
+      if (m.getDataType().getPrimitiveClassType() != byte.class) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be byte");
+      if (m.getDataArray() != null) return getScalarByte(recnum, m);
+      return buffer(m).get(start + m.getDataParam());
+    }
+
+    public char getChar(StructureMembers.Member m) {
+      if (m.getDataType() != DataType.CHAR) throw new IllegalArgumentException("Type is " + m.getDataType() + ", must be char");
+      if (m.getDataArray() != null) return getScalarChar(recnum, m);
+      return (char) buffer(m).get(start + m.getDataParam());
+    }
+
+    /** Get any numeric member as a double, converting like StructureData.convertScalarDouble() */
+    public double convertDouble(StructureMembers.Member m) {
+      if (m.getDataArray() != null || !isNumber(m.getDataType())) return convertScalarDouble(recnum, m);
+      return readDouble(buffer(m), start + m.getDataParam(), m.getDataType());
+    }
+
+    /** Get any numeric member as a float, converting like StructureData.convertScalarFloat() */
+    public float convertFloat(StructureMembers.Member m) {
+      if (m.getDataArray() != null || !isNumber(m.getDataType())) return convertScalarFloat(recnum, m);
+      return readFloat(buffer(m), start + m.getDataParam(), m.getDataType());
+    }
+
+    /** Get any numeric member as an int, converting like StructureData.convertScalarInt() */
+    public int convertInt(StructureMembers.Member m) {
+      if (m.getDataArray() != null || !isNumber(m.getDataType())) return convertScalarInt(recnum, m);
+      return readInt(buffer(m), start + m.getDataParam(), m.getDataType());
+    }
+
+    /** Get any numeric member as a long, converting like StructureData.convertScalarLong() */
+    public long convertLong(StructureMembers.Member m) {
+      if (m.getDataArray() != null || !isNumber(m.getDataType())) return convertScalarLong(recnum, m);
+      return readLong(buffer(m), start + m.getDataParam(), m.getDataType());
+    }
+  }
+
   ////////////////////////////////////////////////////////////////////////
   // debugging
   public static void main(String argv[]) {
@@ -33,7 +33,6 @@
 package ucar.ma2;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 /**
  * Variation of ArrayStructureBB, where the offsets of the records into the ByteBuffer are uneven and must be
@@ -59,9 +58,7 @@ public class ArrayStructureBBpos extends ArrayStructureBB {
 
 
   @Override
-  protected int calcOffsetSetOrder(int recnum, StructureMembers.Member m) {
-    if (null != m.getDataObject())
-      bbuffer.order( (ByteOrder) m.getDataObject());
-    return positions[recnum] + m.getDataParam();
+  protected int calcRecordStart(int recnum) {
+    return positions[recnum];
   }
 }
\ No newline at end of file
@@ -33,7 +33,6 @@
 package ucar.ma2;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 /**
  * Describe
@@ -70,9 +69,7 @@ public class ArrayStructureBBsection extends ArrayStructureBB {
 
 
   @Override
-  protected int calcOffsetSetOrder(int recnum, StructureMembers.Member m) {
-    if (null != m.getDataObject())
-      bbuffer.order( (ByteOrder) m.getDataObject());
-    return bb_offset + orgRecnum[recnum] * getStructureSize() + m.getDataParam();
+  protected int calcRecordStart(int recnum) {
+    return bb_offset + orgRecnum[recnum] * getStructureSize();
   }
 }
@@ -58,6 +58,16 @@ public class StructureDataA extends StructureData {
     this.recno = recno;
   }
 
+  /** @return the containing ArrayStructure */
+  public ArrayStructure getArrayStructure() {
+    return sa;
+  }
+
+  /** @return the recno in the containing ArrayStructure */
+  public int getRecno() {
+    return recno;
+  }
+
   public Array getArray(StructureMembers.Member m) {
     return sa.getArray(recno, m);
   }
@@ -73,11 +73,14 @@ import ucar.nc2.iosp.netcdf3.N3header;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.iosp.netcdf3.SPFactory;
 import ucar.nc2.ncml.NcMLWriter;
+import ucar.nc2.stream.HeaderSnapshot;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.DiskCache;
 import ucar.nc2.util.EscapeStrings;
 import ucar.nc2.util.IO;
 import ucar.nc2.util.Indent;
+import ucar.nc2.util.Metrics;
+import ucar.nc2.util.RequestTrace;
 import ucar.nc2.util.rc.RC;
 import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.UncompressInputStream;
@@ -132,6 +135,11 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NetcdfFile.class);
 
   static private int default_buffersize = 8092;
+
+  static private final Metrics.Family<Metrics.Histogram> iospReadTime =
+          Metrics.histogram("cdm_iosp_read_seconds", "Time spent in IOServiceProvider.readData", "iosp");
+  static private final Metrics.Family<Metrics.Counter> iospReadBytes =
+          Metrics.counter("cdm_iosp_read_bytes_total", "Bytes returned by IOServiceProvider.readData", "iosp");
   static private ArrayList<IOServiceProvider> registeredProviders = new ArrayList<>();
   static protected boolean debugSPI = false, debugCompress = false, showRequest = false;
   static boolean debugStructureIterator = false;
@@ -454,14 +462,18 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
    * @throws IOException if error
    */
   static public NetcdfFile open(String location, int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object iospMessage) throws IOException {
+    try (RequestTrace.Span span = RequestTrace.span("NetcdfFile.open")) {
+      ucar.unidata.io.RandomAccessFile raf = getRaf(location, buffer_size);
 
-    ucar.unidata.io.RandomAccessFile raf = getRaf(location, buffer_size);
-
-    try {
-      return open(raf, location, cancelTask, iospMessage);
-    } catch (Throwable t) {
-      raf.close();
-      throw new IOException(t);
+      try {
+        NetcdfFile result = open(raf, location, cancelTask, iospMessage);
+        if (iospMessage == null) // for metadata only callers, see HeaderSnapshot.open()
+          HeaderSnapshot.write(result, raf);
+        return result;
+      } catch (Throwable t) {
+        raf.close();
+        throw new IOException(t);
+      }
     }
   }
 
@@ -2046,7 +2058,12 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
     if (spi == null) {
       throw new IOException("spi is null, perhaps file has been closed. Trying to read variable " + v.getFullName());
     }
+    long startNanos = System.nanoTime();
     Array result = spi.readData(v, ranges);
+    String iospName = spi.getClass().getSimpleName();
+    iospReadTime.labels(iospName).observeNanos(System.nanoTime() - startNanos);
+    if (result != null)
+      iospReadBytes.labels(iospName).inc(result.getSizeBytes());
 
     if (showRequest) {
       long took = System.currentTimeMillis() - start;
@@ -38,6 +38,7 @@ import ucar.nc2.constants.CF;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.Indent;
+import ucar.nc2.util.RequestTrace;
 import ucar.nc2.util.rc.RC;
 
 import java.io.OutputStream;
@@ -669,7 +670,9 @@ public class Variable extends CDMNode implements VariableIF, ProxyReader, Attrib
    * @throws InvalidRangeException if section is invalid
    */
   public Array read(ucar.ma2.Section section) throws java.io.IOException, ucar.ma2.InvalidRangeException {
-    return (section == null) ? _read() : _read(Section.fill(section, shape));
+    try (RequestTrace.Span span = RequestTrace.span("Variable.read")) {
+      return (section == null) ? _read() : _read(Section.fill(section, shape));
+    }
   }
 
   /**
@@ -683,7 +686,9 @@ public class Variable extends CDMNode implements VariableIF, ProxyReader, Attrib
    * @return the requested data in a memory-resident Array.
    */
   public Array read() throws IOException {
-    return _read();
+    try (RequestTrace.Span span = RequestTrace.span("Variable.read")) {
+      return _read();
+    }
   }
 
   /**
@@ -662,7 +662,10 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     if (!hasScaleOffset) return in;
     if (debugRead) System.out.println("convertScaleOffset ");
 
-    Array out = Array.factory(convertedDataType, in.getShape());
+    Array out = convertScaleOffsetBulk(in);
+    if (out != null) return out;
+
+    out = Array.factory(convertedDataType, in.getShape());
     IndexIterator iterIn = in.getIndexIterator();
     IndexIterator iterOut = out.getIndexIterator();
 
@@ -683,6 +686,97 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     return out;
   }
 
+  // smallest array for which a lookup table of converted byte/short values pays off
+  static private final int MIN_BYTE_TABLE = 1024;
+  static private final int MIN_SHORT_TABLE = 4 * 65536;
+
+  /**
+   * Convert packed integer data with scale and offset directly from the backing java array
+   * into a float or double java array, avoiding the IndexIterators.
+   * Byte (and large short) arrays are converted through a lookup table, so the missing value tests
+   * are done once per distinct packed value instead of once per element.
+   *
+   * @param in data to convert
+   * @return converted data, or null if the bulk path does not apply
+   */
+  private Array convertScaleOffsetBulk(Array in) {
+    if (convertedDataType != DataType.FLOAT && convertedDataType != DataType.DOUBLE) return null;
+    Class elemType = in.getElementType();
+    if (elemType != byte.class && elemType != short.class && elemType != int.class) return null;
+
+    Object packed = in.get1DJavaArray(in.getDataType()); // no copy if in canonical order
+    int n = (int) in.getSize();
+    boolean wantFloat = (convertedDataType == DataType.FLOAT);
+    float[] fout = wantFloat ? new float[n] : null;
+    double[] dout = wantFloat ? null : new double[n];
+
+    if (elemType == byte.class) {
+      byte[] pa = (byte[]) packed;
+      if (n >= MIN_BYTE_TABLE) {
+        double[] table = makeTable(256, true);
+        for (int i = 0; i < n; i++) {
+          if (wantFloat) fout[i] = (float) table[pa[i] & 0xff];
+          else dout[i] = table[pa[i] & 0xff];
+        }
+      } else {
+        boolean checkMissing = useNaNs && hasMissing();
+        for (int i = 0; i < n; i++) {
+          double val = scale * (isUnsigned ? (pa[i] & 0xff) : pa[i]) + offset;
+          if (checkMissing && isMissing_(val)) val = Double.NaN;
+          if (wantFloat) fout[i] = (float) val;
+          else dout[i] = val;
+        }
+      }
+
+    } else if (elemType == short.class) {
+      short[] pa = (short[]) packed;
+      if (n >= MIN_SHORT_TABLE) {
+        double[] table = makeTable(65536, false);
+        for (int i = 0; i < n; i++) {
+          if (wantFloat) fout[i] = (float) table[pa[i] & 0xffff];
+          else dout[i] = table[pa[i] & 0xffff];
+        }
+      } else {
+        boolean checkMissing = useNaNs && hasMissing();
+        for (int i = 0; i < n; i++) {
+          double val = scale * (isUnsigned ? (pa[i] & 0xffff) : pa[i]) + offset;
+          if (checkMissing && isMissing_(val)) val = Double.NaN;
+          if (wantFloat) fout[i] = (float) val;
+          else dout[i] = val;
+        }
+      }
+
+    } else {
+      int[] pa = (int[]) packed;
+      boolean checkMissing = useNaNs && hasMissing();
+      for (int i = 0; i < n; i++) {
+        double val = scale * (isUnsigned ? (pa[i] & 0xffffffffL) : pa[i]) + offset;
+        if (checkMissing && isMissing_(val)) val = Double.NaN;
+        if (wantFloat) fout[i] = (float) val;
+        else dout[i] = val;
+      }
+    }
+
+    return Array.factory(convertedDataType, in.getShape(), wantFloat ? fout : dout);
+  }
+
+  /**
+   * Precompute the converted value of every possible packed byte or short value.
+   * Indexed by the packed value's unsigned bit pattern.
+   */
+  private double[] makeTable(int size, boolean isByte) {
+    boolean checkMissing = useNaNs && hasMissing();
+    double[] table = new double[size];
+    for (int bits = 0; bits < size; bits++) {
+      int packed;
+      if (isUnsigned) packed = bits;
+      else packed = isByte ? (byte) bits : (short) bits;
+      double val = scale * packed + offset;
+      table[bits] = checkMissing && isMissing_(val) ? Double.NaN : val;
+    }
+    return table;
+  }
+
   private void convertScaleOffsetUnsignedByte(IndexIterator iterIn, IndexIterator iterOut) {
     boolean checkMissing = useNaNs && hasMissing();
     while (iterIn.hasNext()) {
@@ -714,25 +808,27 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
    * Translate missing data to NaNs. Data must be DOUBLE or FLOAT
    *
    * @param in convert this array
-   * @return same array, with missing values replaced by NaNs
+   * @return same array (or a canonical copy if not in canonical order), with missing values replaced by NaNs
    */
   private Array convertMissing(Array in) {
     if (debugRead) System.out.println("convertMissing ");
 
-    IndexIterator iterIn = in.getIndexIterator();
     if (in.getElementType() == double.class) {
-      while (iterIn.hasNext()) {
-        double val = iterIn.getDoubleNext();
-        if (isMissing_(val))
-          iterIn.setDoubleCurrent(Double.NaN);
+      double[] storage = (double[]) in.get1DJavaArray(in.getDataType()); // no copy if in canonical order
+      for (int i = 0; i < storage.length; i++) {
+        if (isMissing_(storage[i]))
+          storage[i] = Double.NaN;
       }
+      return (storage == in.getStorage()) ? in : Array.factory(in.getDataType(), in.getShape(), storage);
     } else if (in.getElementType() == float.class) {
-      while (iterIn.hasNext()) {
-        float val = iterIn.getFloatNext();
-        if (isMissing_(val))
-          iterIn.setFloatCurrent(Float.NaN);
+      float[] storage = (float[]) in.get1DJavaArray(in.getDataType());
+      for (int i = 0; i < storage.length; i++) {
+        if (isMissing_(storage[i]))
+          storage[i] = Float.NaN;
       }
+      return (storage == in.getStorage()) ? in : Array.factory(in.getDataType(), in.getShape(), storage);
     }
+
     return in;
   }
 
@@ -759,4 +855,4 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
 
   }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -33,12 +33,24 @@
 package ucar.nc2.ft.point.collection;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Formatter;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nonnull;
 
 import thredds.inventory.TimedCollection;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataDeep;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.Attribute;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.FeatureType;
@@ -49,22 +61,83 @@ import ucar.nc2.ft.PointFeature;
 import ucar.nc2.ft.PointFeatureCollection;
 import ucar.nc2.ft.PointFeatureIterator;
 import ucar.nc2.ft.point.PointCollectionImpl;
+import ucar.nc2.ft.point.PointFeatureImpl;
 import ucar.nc2.ft.point.PointIteratorAbstract;
+import ucar.nc2.ft.point.PointIteratorFiltered;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.time.CalendarDateUnit;
 import ucar.unidata.geoloc.LatLonRect;
 
 /**
  * PointCollection composed of other PointCollections
+ * <p>
+ * By default the datasets are read one at a time, in the caller's thread. With setReadAhead(), up to that many
+ * datasets are opened, read and subsetted at once in other threads, which is much faster for bounding box and
+ * time queries over many files (eg a year of daily lightning files). The points are copied into memory, and at most
+ * about readAhead * QUEUE_SIZE of them are held at a time. If timeOrdered, they are returned in the same order as
+ * reading the datasets one at a time; otherwise in whatever order the datasets are read.
+ * <p>
+ * All collections share a fixed number of reading threads; call shutdown() to stop them. A dataset whose points are
+ * not being taken does not hold a thread: once its queue is full it is set aside, and started again when the
+ * iterator has taken half of them. The iterator should be closed if it is not read to the end. If it is not, and
+ * it is not used for GIVE_UP_MSECS, its datasets are closed, and the iterator then fails.
  *
  * @author caron
  * @since May 19, 2009
  */
 public class CompositePointCollection extends PointCollectionImpl implements UpdateableCollection {
+  static private final int QUEUE_SIZE = 1000; // points read ahead from each dataset
+  static private final int READ_THREADS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+  static private final long GIVE_UP_MSECS = 10 * 60 * 1000; // an iterator not used for this long is abandoned
+  static private final long PARK_CHECK_MSECS = 10 * 1000;    // how often a set aside reader checks for that
+  static private int defaultReadAhead = 0;
+  static private boolean defaultTimeOrdered = true;
+  static private ScheduledExecutorService readExecutor;
+
+  /**
+   * Set the read ahead of collections made after this.
+   *
+   * @param readAhead   number of datasets to read at once in other threads; 0 reads them one at a time
+   * @param timeOrdered return points in dataset (time) order, else in the order they are read
+   */
+  static public void setDefaultReadAhead(int readAhead, boolean timeOrdered) {
+    defaultReadAhead = readAhead;
+    defaultTimeOrdered = timeOrdered;
+  }
+
+  // datasets beyond READ_THREADS wait their turn, in the order they were submitted
+  static private synchronized ScheduledExecutorService getReadExecutor() {
+    if (readExecutor == null) {
+      ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(READ_THREADS, r -> {
+        Thread t = new Thread(r, "CompositePointCollection-read");
+        t.setDaemon(true);
+        return t;
+      });
+      pool.setKeepAliveTime(60, TimeUnit.SECONDS);
+      pool.allowCoreThreadTimeOut(true);
+      readExecutor = pool;
+    }
+    return readExecutor;
+  }
+
+  /**
+   * Stop the threads that read ahead. Call on shutdown.
+   */
+  static public synchronized void shutdown() {
+    if (readExecutor != null)
+      readExecutor.shutdownNow();
+    readExecutor = null;
+  }
+
   private TimedCollection pointCollections;
   protected List<VariableSimpleIF> dataVariables;
   protected List<Attribute> globalAttributes;
 
+  private int readAhead = defaultReadAhead;
+  private boolean timeOrdered = defaultTimeOrdered;
+  private LatLonRect filterBB;          // when reading ahead, the subset is done in the reading threads
+  private CalendarDateRange filterDate;
+
   protected CompositePointCollection(String name, CalendarDateUnit timeUnit, String altUnits, TimedCollection pointCollections) throws IOException {
     super(name, timeUnit, altUnits);
     this.pointCollections = pointCollections;
@@ -87,6 +160,17 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
     }
   }
 
+  /**
+   * Read datasets in other threads. Subsets made after this inherit it.
+   *
+   * @param readAhead   number of datasets to read at once; 0 reads them one at a time in the caller's thread
+   * @param timeOrdered return points in dataset (time) order, else in the order they are read
+   */
+  public void setReadAhead(int readAhead, boolean timeOrdered) {
+    this.readAhead = readAhead;
+    this.timeOrdered = timeOrdered;
+  }
+
   public List<VariableSimpleIF> getDataVariables() {
     if (dataVariables == null) readMetadata();
     return dataVariables;
@@ -102,16 +186,41 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
   public PointFeatureCollection subset(LatLonRect boundingBox, CalendarDateRange dateRange) throws IOException {
     if ((dateRange == null) && (boundingBox == null))
       return this;
-    else if (dateRange == null)
+
+    if (readAhead > 0) { // filter each dataset as it is read, by the intersection with any filter this already has
+      LatLonRect bb = filterBB;
+      if (boundingBox != null)
+        bb = (bb == null) ? boundingBox : bb.intersect(boundingBox);
+      CalendarDateRange dates = filterDate;
+      if (dateRange != null)
+        dates = (dates == null) ? dateRange : dates.intersects(dateRange) ? dates.intersect(dateRange) : null;
+
+      if ((boundingBox == null || bb != null) && (dateRange == null || dates != null)) {
+        TimedCollection datasets = (dateRange == null) ? pointCollections : pointCollections.subset(dateRange);
+        CompositePointCollection subset = new CompositePointCollection(name, getTimeUnit(), getAltUnits(), datasets);
+        subset.setReadAhead(readAhead, timeOrdered);
+        subset.filterBB = bb;
+        subset.filterDate = dates;
+        return subset;
+      }
+      return new PointCollectionSubset(this, boundingBox, dateRange); // no intersection, so no points
+    }
+
+    if (dateRange == null)
       return new PointCollectionSubset(this, boundingBox, null);
     else {
       CompositePointCollection dateSubset = new CompositePointCollection(name, getTimeUnit(), getAltUnits(), pointCollections.subset(dateRange));
+      dateSubset.setReadAhead(readAhead, timeOrdered);
+      dateSubset.filterBB = filterBB;
+      dateSubset.filterDate = filterDate;
       return new PointCollectionSubset(dateSubset, boundingBox, dateRange);
     }
   }
 
   @Override
   public PointFeatureIterator getPointFeatureIterator() throws IOException {
+    if (readAhead > 0)
+      return new ReadAheadIterator();
     return new CompositePointFeatureIterator();
   }
 
@@ -143,7 +252,10 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
 
       List<DsgFeatureCollection> fcList = currentDataset.getPointFeatureCollectionList();
       PointFeatureCollection pc = (PointFeatureCollection) fcList.get(0);
-      return pc.getPointFeatureIterator();
+      PointFeatureIterator pfIter = pc.getPointFeatureIterator();
+      if (filterBB != null || filterDate != null) // a read ahead subset, since set to read one at a time
+        pfIter = new PointIteratorFiltered(pfIter, filterBB, filterDate);
+      return pfIter;
     }
 
     @Override
@@ -197,6 +309,265 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
     }
   }
 
+  // Reads up to readAhead datasets at once, in the shared pool. A Reader puts the points that pass the filter, copied,
+  // on its queue, then itself when done. If timeOrdered, each Reader has its own queue, which are taken from in
+  // dataset order; otherwise all the Readers share one queue. A Reader whose queue is full parks: it returns its
+  // thread to the pool, and the iterator runs it again once it has taken half of the queue.
+  private class ReadAheadIterator extends PointIteratorAbstract {
+    private final Iterator<TimedCollection.Dataset> iter;
+    private final Deque<Reader> readers = new ArrayDeque<>(); // running or with points not yet taken, in dataset order
+    private final BlockingQueue<Object> shared;                // if not timeOrdered
+    private volatile boolean cancelled = false;
+    private volatile String stopped;                           // why the Readers stopped before they were done
+    private volatile long lastUsed = System.currentTimeMillis(); // last time hasNext() took or waited for a point
+    private PointFeature pointFeature;                         // the next one, if already taken
+    private boolean finished = false;
+
+    ReadAheadIterator() {
+      iter = pointCollections.getDatasets().iterator();
+      shared = timeOrdered ? null : new ArrayBlockingQueue<>(QUEUE_SIZE * readAhead);
+      startReaders();
+    }
+
+    private void startReaders() {
+      while (readers.size() < readAhead && iter.hasNext()) {
+        Reader reader = new Reader(iter.next(), timeOrdered ? new ArrayBlockingQueue<>(QUEUE_SIZE) : shared);
+        readers.addLast(reader);
+        getReadExecutor().execute(reader);
+      }
+    }
+
+    // run parked Readers again once the queue they are waiting on is half empty
+    private void resumeReaders(BlockingQueue<Object> queue) {
+      if (queue.size() > queue.remainingCapacity()) return;
+      if (timeOrdered) {
+        resume(readers.peekFirst());
+      } else {
+        for (Reader reader : readers)
+          resume(reader);
+      }
+    }
+
+    private void resume(Reader reader) {
+      if (reader != null && reader.parked.compareAndSet(true, false))
+        getReadExecutor().execute(reader);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (pointFeature != null) return true;
+      if (finished) return false;
+
+      try {
+        while (!readers.isEmpty()) {
+          lastUsed = System.currentTimeMillis();
+          BlockingQueue<Object> queue = timeOrdered ? readers.peekFirst().queue : shared;
+          Object item = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (item == null) {
+            if (stopped != null) {
+              close();
+              throw new RuntimeException("CompositePointCollection stopped reading " + stopped);
+            }
+            continue;
+          }
+
+          if (item instanceof PointFeature) {
+            pointFeature = (PointFeature) item;
+            resumeReaders(queue);
+            return true;
+          }
+
+          Reader done = (Reader) item;
+          readers.remove(done);
+          if (done.error != null) {
+            close();
+            throw new RuntimeException("CompositePointCollection failed to read " + done.td.getLocation(), done.error);
+          }
+          startReaders();
+          if (!timeOrdered) resumeReaders(queue);
+        }
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new RuntimeException(e);
+      }
+
+      close();
+      return false;
+    }
+
+    @Override
+    public PointFeature next() {
+      if (!hasNext())
+        throw new NoSuchElementException("This iterator has no more elements.");
+      PointFeature result = pointFeature;
+      calcBounds(result);
+      pointFeature = null;
+      return result;
+    }
+
+    @Override
+    public void close() {
+      if (finished) return;
+      finished = true;
+      cancelled = true;
+      for (Reader reader : readers) {
+        reader.queue.clear();
+        if (reader.parked.compareAndSet(true, false))
+          reader.release(); // running ones see that they are cancelled and release themselves
+      }
+      readers.clear();
+      finishCalcBounds();
+    }
+
+    private class Reader implements Runnable {
+      private final TimedCollection.Dataset td;
+      private final BlockingQueue<Object> queue;
+      private final AtomicBoolean parked = new AtomicBoolean();   // whoever sets it false runs the Reader next
+      private final AtomicBoolean checking = new AtomicBoolean(); // a check() is scheduled
+      private volatile Throwable error;
+
+      // only used by whoever is running the Reader; the executor hands them on when it is run again
+      private FeatureDatasetPoint openDataset;
+      private PointFeatureIterator pfIter;
+      private StructureMembers featureMembers, allMembers;
+      private Object pending; // not yet on the queue: a point, or this Reader when done
+
+      Reader(TimedCollection.Dataset td, BlockingQueue<Object> queue) {
+        this.td = td;
+        this.queue = queue;
+      }
+
+      @Override
+      public void run() {
+        while (!cancelled) {
+          if (pending == null) {
+            try {
+              pending = next();
+            } catch (Throwable t) {
+              error = t;
+            }
+            if (pending == null) { // no more points, or failed
+              release();
+              pending = this;
+            }
+          }
+
+          if (queue.offer(pending)) {
+            if (pending == this) return;
+            pending = null;
+          } else if (park()) {
+            return;
+          }
+        }
+        release();
+      }
+
+      // the next point that passes the filter, copied so it outlives the dataset, or null if there are no more
+      private PointFeature next() throws IOException {
+        if (pfIter == null) {
+          Formatter errlog = new Formatter();
+          openDataset = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, td.getLocation(), null, errlog);
+          if (openDataset == null)
+            throw new IllegalStateException("Cant open FeatureDatasetPoint " + td.getLocation());
+          if (CompositeDatasetFactory.debug)
+            System.out.printf("CompositePointCollection read ahead dataset %s%n", td.getLocation());
+
+          List<DsgFeatureCollection> fcList = openDataset.getPointFeatureCollectionList();
+          PointFeatureCollection pc = (PointFeatureCollection) fcList.get(0);
+          pfIter = pc.getPointFeatureIterator();
+          if (filterBB != null || filterDate != null)
+            pfIter = new PointIteratorFiltered(pfIter, filterBB, filterDate);
+        }
+
+        if (!pfIter.hasNext()) return null;
+        PointFeature pf = pfIter.next();
+        if (featureMembers == null) {
+          featureMembers = new StructureMembers(pf.getFeatureData().getStructureMembers());
+          allMembers = new StructureMembers(pf.getDataAll().getStructureMembers());
+        }
+        return new PointFeatureCopy(CompositePointCollection.this, pf, featureMembers, allMembers);
+      }
+
+      // the queue is full: return the thread, to be run again by the iterator once it has taken some points.
+      // false if points were taken meanwhile, so carry on.
+      private boolean park() {
+        parked.set(true);
+        if (queue.remainingCapacity() > 0 && parked.compareAndSet(true, false))
+          return false;
+        scheduleCheck();
+        return true;
+      }
+
+      private void scheduleCheck() {
+        if (checking.compareAndSet(false, true))
+          getReadExecutor().schedule(this::check, PARK_CHECK_MSECS, TimeUnit.MILLISECONDS);
+      }
+
+      // while parked, see if the iterator was abandoned without being closed, in which case all the readers stop
+      private void check() {
+        checking.set(false);
+        if (!parked.get()) return;
+        boolean abandoned = System.currentTimeMillis() - lastUsed > GIVE_UP_MSECS;
+        if (!cancelled && !abandoned) {
+          scheduleCheck();
+          return;
+        }
+        if (parked.compareAndSet(true, false)) {
+          if (!cancelled)
+            stop(td.getLocation() + ": iterator not used for " + GIVE_UP_MSECS / 1000 + " secs");
+          release();
+        }
+      }
+
+      private void release() {
+        if (pfIter != null)
+          pfIter.close();
+        pfIter = null;
+        if (openDataset != null) {
+          try {
+            openDataset.close();
+          } catch (IOException e) {
+            if (error == null) error = e;
+          }
+        }
+        openDataset = null;
+      }
+
+      private void stop(String why) {
+        if (stopped == null)
+          stopped = why;
+        cancelled = true;
+      }
+    }
+  }
+
+  // a PointFeature with its data copied, so it outlives the dataset it was read from
+  private static class PointFeatureCopy extends PointFeatureImpl {
+    private final StructureData featureData, dataAll;
+
+    PointFeatureCopy(DsgFeatureCollection dsg, PointFeature from, StructureMembers featureMembers,
+                     StructureMembers allMembers) throws IOException {
+      super(dsg, from.getLocation(), from.getObservationTime(), from.getNominalTime(),
+              from.getFeatureCollection().getTimeUnit());
+      this.featureData = StructureDataDeep.copy(from.getFeatureData(), featureMembers);
+      this.dataAll = StructureDataDeep.copy(from.getDataAll(), allMembers);
+    }
+
+    @Nonnull
+    @Override
+    public StructureData getFeatureData() throws IOException {
+      return featureData;
+    }
+
+    @Nonnull
+    @Override
+    public StructureData getDataAll() throws IOException {
+      return dataAll;
+    }
+  }
+
   /* private class CompositePointFeatureIteratorMultithreaded extends PointIteratorAbstract {
     private boolean finished = false;
     private int bufferSize = -1;
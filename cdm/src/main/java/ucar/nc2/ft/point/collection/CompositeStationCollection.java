@@ -33,15 +33,22 @@
 package ucar.nc2.ft.point.collection;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Formatter;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
 import thredds.inventory.TimedCollection;
 import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataDeep;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.Attribute;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.FeatureType;
@@ -54,9 +61,12 @@ import ucar.nc2.ft.PointFeatureCollectionIterator;
 import ucar.nc2.ft.PointFeatureIterator;
 import ucar.nc2.ft.StationTimeSeriesFeature;
 import ucar.nc2.ft.StationTimeSeriesFeatureCollection;
+import ucar.nc2.ft.point.PointFeatureImpl;
 import ucar.nc2.ft.point.PointIteratorAbstract;
+import ucar.nc2.ft.point.PointIteratorAdapter;
 import ucar.nc2.ft.point.StationFeature;
 import ucar.nc2.ft.point.StationHelper;
+import ucar.nc2.ft.point.StationPointFeature;
 import ucar.nc2.ft.point.StationTimeSeriesCollectionImpl;
 import ucar.nc2.ft.point.StationTimeSeriesFeatureImpl;
 import ucar.nc2.time.CalendarDateRange;
@@ -140,6 +150,11 @@ public class CompositeStationCollection extends StationTimeSeriesCollectionImpl
     }
   }
 
+  @Override
+  public StationTimeSeriesFeatureCollection subsetFeatures(List<StationFeature> stations) throws IOException {
+    return subset(stations);
+  }
+
   @Override
   public StationTimeSeriesFeatureCollection subset(ucar.unidata.geoloc.LatLonRect boundingBox) throws IOException {
     if (boundingBox == null) {
@@ -171,9 +186,15 @@ public class CompositeStationCollection extends StationTimeSeriesCollectionImpl
   }
 
 
+  // if not null, the stations' observations are read together
+  StationBatch getStationBatch() {
+    return null;
+  }
+
   private static class CompositeStationCollectionSubset extends CompositeStationCollection {
     private final CompositeStationCollection from;
     private final List<StationFeature> stationFeats;
+    private final StationBatch batch;
 
     private CompositeStationCollectionSubset(CompositeStationCollection from, List<StationFeature> stationFeats)
             throws IOException {
@@ -183,6 +204,12 @@ public class CompositeStationCollection extends StationTimeSeriesCollectionImpl
       Preconditions.checkArgument(stationFeats != null && !stationFeats.isEmpty(),
               "stationFeats == null || stationFeats.isEmpty(): %s", stationFeats);
       this.stationFeats = stationFeats;
+      this.batch = (stationFeats.size() > 1) ? new StationBatch(this) : null;
+    }
+
+    @Override
+    StationBatch getStationBatch() {
+      return batch;
     }
 
     @Override
@@ -198,6 +225,123 @@ public class CompositeStationCollection extends StationTimeSeriesCollectionImpl
     }
   }
 
+  // Reads the observations of a run of stations from each dataset in one pass, rather than each station opening every
+  // dataset itself: a request for 50 stations over a month of daily files opens 30 files, not 1500.
+  // The observations are copied into memory, each one a StructureDataDeep; the run is sized to hold about maxBatchObs
+  // of them, going by the number of observations per station in the previous run.
+  // A subset is meant to be read by one request, one station at a time, as the NCSS station writers do. The methods
+  // are synchronized so that iterators used from other threads do not see a half read run, but stations read in
+  // an interleaved order will read their datasets again for every switch.
+  private static class StationBatch {
+    static private final int maxBatchObs = 200 * 1000;
+
+    private final CompositeStationCollection coll;
+    private List<String> locations; // the datasets the current run was read from
+    private Map<String, List<StationPointFeature>> obs = new HashMap<>(); // key is station name
+    private int runSize = 10;
+
+    StationBatch(CompositeStationCollection coll) {
+      this.coll = coll;
+    }
+
+    // the observations of one station in the given datasets, sorted by time
+    synchronized List<StationPointFeature> getObservations(String stnName, TimedCollection datasets) throws IOException {
+      List<String> want = new ArrayList<>();
+      for (TimedCollection.Dataset td : datasets.getDatasets())
+        want.add(td.getLocation());
+
+      if (!want.equals(locations) || !obs.containsKey(stnName))
+        readRun(stnName, datasets, want);
+      return obs.get(stnName);
+    }
+
+    // read the stations starting with stnName
+    private void readRun(String stnName, TimedCollection datasets, List<String> want) throws IOException {
+      List<StationFeature> stations = coll.getStationHelper().getStationFeatures();
+      int start = 0;
+      while (start < stations.size() && !stations.get(start).getName().equals(stnName))
+        start++;
+      Map<String, StationFeature> run = new LinkedHashMap<>();
+      for (int i = start; i < Math.min(start + runSize, stations.size()); i++)
+        run.put(stations.get(i).getName(), stations.get(i));
+
+      obs = new HashMap<>();
+      obs.put(stnName, new ArrayList<>());
+      for (String name : run.keySet())
+        obs.put(name, new ArrayList<>());
+      locations = want;
+      if (run.isEmpty()) return;
+
+      List<String> names = new ArrayList<>(run.keySet());
+      int count = 0;
+      for (TimedCollection.Dataset td : datasets.getDatasets()) {
+        Formatter errlog = new Formatter();
+        try (FeatureDatasetPoint openDataset = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.STATION, td.getLocation(), null, errlog)) {
+          if (openDataset == null)
+            throw new IllegalStateException("Cant open FeatureDatasetPoint " + td.getLocation());
+          if (CompositeDatasetFactory.debug)
+            System.out.printf("StationBatch open dataset: %s for %d stations%n", td.getLocation(), names.size());
+
+          List<DsgFeatureCollection> fcList = openDataset.getPointFeatureCollectionList();
+          StationTimeSeriesFeatureCollection stnCollection = (StationTimeSeriesFeatureCollection) fcList.get(0);
+          StructureMembers featureMembers = null, allMembers = null;
+          try (PointFeatureIterator iter = stnCollection.flatten(names, null, null).getPointFeatureIterator()) {
+            while (iter.hasNext()) {
+              StationPointFeature pf = (StationPointFeature) iter.next();
+              StationFeature stn = run.get(pf.getStation().getName());
+              if (stn == null) continue;
+              if (featureMembers == null) {
+                featureMembers = new StructureMembers(pf.getFeatureData().getStructureMembers());
+                allMembers = new StructureMembers(pf.getDataAll().getStructureMembers());
+              }
+              obs.get(stn.getName()).add(new StationPointFeatureCopy(stn, pf, featureMembers, allMembers));
+              count++;
+            }
+          }
+        }
+      }
+
+      Comparator<StationPointFeature> byTime = Comparator.comparingLong(pf -> pf.getObservationTimeAsCalendarDate().getMillis());
+      for (List<StationPointFeature> list : obs.values())
+        list.sort(byTime);
+
+      int perStation = Math.max(1, count / run.size());
+      runSize = Math.max(1, maxBatchObs / perStation);
+    }
+  }
+
+  // a StationPointFeature with its data copied, so it outlives the dataset it was read from
+  private static class StationPointFeatureCopy extends PointFeatureImpl implements StationPointFeature {
+    private final StationFeature station;
+    private final StructureData featureData, dataAll;
+
+    StationPointFeatureCopy(StationFeature station, StationPointFeature from, StructureMembers featureMembers,
+                            StructureMembers allMembers) throws IOException {
+      super((DsgFeatureCollection) station, from.getLocation(), from.getObservationTime(), from.getNominalTime(),
+              from.getFeatureCollection().getTimeUnit());
+      this.station = station;
+      this.featureData = StructureDataDeep.copy(from.getFeatureData(), featureMembers);
+      this.dataAll = StructureDataDeep.copy(from.getDataAll(), allMembers);
+    }
+
+    @Override
+    public StationFeature getStation() {
+      return station;
+    }
+
+    @Nonnull
+    @Override
+    public StructureData getFeatureData() throws IOException {
+      return featureData;
+    }
+
+    @Nonnull
+    @Override
+    public StructureData getDataAll() throws IOException {
+      return dataAll;
+    }
+  }
+
   //////////////////////////////////////////////////////////
   // the iterator over StationTimeSeriesFeature objects
   // problematic - since each station will independently iterate over the datasets.
@@ -247,6 +391,9 @@ public class CompositeStationCollection extends StationTimeSeriesCollectionImpl
 
     @Override
     public PointFeatureIterator getPointFeatureIterator() throws IOException {
+      StationBatch batch = getStationBatch();
+      if (batch != null)
+        return new PointIteratorAdapter(batch.getObservations(getName(), collForFeature).iterator());
       return new CompositeStationFeatureIterator();
     }
 
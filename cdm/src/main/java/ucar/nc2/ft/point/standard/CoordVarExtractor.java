@@ -34,6 +34,8 @@
 package ucar.nc2.ft.point.standard;
 
 import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataA;
+import ucar.ma2.StructureMembers;
 
 /**
  * Abstract superclass for extracting coordinate values from nested tables.
@@ -45,6 +47,7 @@ import ucar.ma2.StructureData;
 public abstract class CoordVarExtractor {
   protected String axisName, memberName;
   protected int nestingLevel;
+  private volatile MemberLookup lastLookup; // memberName in the last StructureMembers seen
 
   protected CoordVarExtractor(String axisName, int nestingLevel) {
     this.axisName = axisName;
@@ -86,6 +89,38 @@ public abstract class CoordVarExtractor {
 
   protected abstract boolean isMissing(StructureData tableData);
 
+  /**
+   * Find memberName in the StructureData.
+   * The records of an ArrayStructure share their StructureMembers, so the lookup is done once for all of them.
+   *
+   * @param sdata find the member in this
+   * @return the member, never null
+   * @throws IllegalArgumentException if not found
+   */
+  protected StructureMembers.Member findMember(StructureData sdata) {
+    StructureMembers members = sdata.getStructureMembers();
+    MemberLookup last = lastLookup;
+    if (last != null && last.members == members)
+      return last.member;
+
+    StructureMembers.Member m = members.findMember(memberName);
+    if (m == null)
+      throw new IllegalArgumentException("illegal member name =" + memberName);
+    if (sdata instanceof StructureDataA)  // other kinds usually have their own StructureMembers
+      lastLookup = new MemberLookup(members, m);
+    return m;
+  }
+
+  private static class MemberLookup {
+    final StructureMembers members;
+    final StructureMembers.Member member;
+
+    MemberLookup(StructureMembers members, StructureMembers.Member member) {
+      this.members = members;
+      this.member = member;
+    }
+  }
+
   public boolean isMissing(StructureData[] tableData) {
     return isMissing(tableData[nestingLevel]);
   }
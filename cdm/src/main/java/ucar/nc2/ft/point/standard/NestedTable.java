@@ -265,11 +265,11 @@ public class NestedTable {
     @Override
     public String getCoordValueString(StructureData sdata) {
       if (coordVar.getDataType().isString())
-        return sdata.getScalarString(memberName);
+        return sdata.getScalarString(findMember(sdata));
       else if (coordVar.getDataType().isIntegral())
-        return Integer.toString(sdata.convertScalarInt(memberName));
+        return Integer.toString(sdata.convertScalarInt(findMember(sdata)));
       else
-        return Double.toString(sdata.convertScalarDouble(memberName));
+        return Double.toString(sdata.convertScalarDouble(findMember(sdata)));
     }
 
     @Override
@@ -296,7 +296,7 @@ public class NestedTable {
 
     @Override
     public double getCoordValue(StructureData sdata) {
-      return sdata.convertScalarDouble(memberName);
+      return sdata.convertScalarDouble(findMember(sdata));
     }
 
     @Override
@@ -306,7 +306,7 @@ public class NestedTable {
 
     @Override
     public long getCoordValueLong(StructureData sdata) {
-      return sdata.convertScalarLong(memberName);
+      return sdata.convertScalarLong(findMember(sdata));
     }
   }
 
@@ -379,6 +379,9 @@ public abstract class CFPointWriter implements Closeable {
   protected CalendarDate minDate = null;
   protected CalendarDate maxDate = null;
 
+  // classic model: buffered records, one buffer for each varMap passed to writeStructureData()
+  private final Map<Map<String, Variable>, RecordBuffer> buffers = new IdentityHashMap<>();
+
   // LOOK doesnt work
   protected CFPointWriter(String fileOut, List<Attribute> atts, NetcdfFileWriter.Version version) throws IOException {
     this(fileOut, atts, null, null, null, new CFPointWriterConfig(version));
@@ -743,6 +746,14 @@ public abstract class CFPointWriter implements Closeable {
           return recno + 1;
         }
 
+      } else if (config.batchSize > 1) {
+        RecordBuffer buffer = buffers.get(varMap);
+        if (buffer == null) {
+          buffer = new RecordBuffer(varMap);
+          buffers.put(varMap, buffer);
+        }
+        buffer.add(recno, sdata);
+
       } else {
         writeStructureDataClassic(varMap, origin, sdata);
       }
@@ -780,6 +791,142 @@ public abstract class CFPointWriter implements Closeable {
     return origin[0];
   }
 
+  /**
+   * Write out any buffered records.
+   * @throws IOException on write error
+   */
+  protected void flushRecords() throws IOException {
+    try {
+      for (RecordBuffer buffer : buffers.values())
+        buffer.flush();
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // Collects classic model records for one set of variables into a column for each variable, and writes a column
+  // with one call per config.batchSize records, rather than one call per variable per record.
+  // A record whose members dont match the columns (other names, types or sizes) causes a flush; one that cant be
+  // buffered at all (eg non-numeric) is written directly by writeStructureDataClassic().
+  private class RecordBuffer {
+    private final Map<String, Variable> varMap;
+    private final List<Column> columns = new ArrayList<>();
+    private int startRecno, count;
+
+    RecordBuffer(Map<String, Variable> varMap) {
+      this.varMap = varMap;
+    }
+
+    void add(int recno, StructureData sdata) throws IOException, InvalidRangeException {
+      List<StructureMembers.Member> members = new ArrayList<>();
+      List<Array> values = new ArrayList<>();
+      for (StructureMembers.Member m : sdata.getMembers()) {
+        if (varMap.get(m.getName()) == null) continue;
+        Array org = sdata.getArray(m);
+        if (m.getDataType() == DataType.STRING)   // convert to ArrayChar
+          org = ArrayChar.makeFromStringArray((ArrayObject) org);
+        members.add(m);
+        values.add(org);
+      }
+
+      if (count > 0 && (recno != startRecno + count || !fits(members, values)))
+        flush();
+
+      if (count == 0) {
+        if (!fits(members, values)) { // keep the columns (and their arrays) of the last batch if they still fit
+          columns.clear();
+          for (StructureMembers.Member m : members) {
+            Variable v = varMap.get(m.getName());
+            if (v.getRank() < 1) break; // must have the record dimension
+            columns.add(new Column(m.getName(), v, values.get(columns.size()).getDataType()));
+          }
+          if (!fits(members, values)) {
+            columns.clear();
+            writeStructureDataClassic(varMap, new int[] {recno}, sdata);
+            return;
+          }
+        }
+        startRecno = recno;
+      }
+
+      for (int i = 0; i < columns.size(); i++)
+        columns.get(i).set(count, values.get(i));
+      count++;
+
+      if (count >= config.batchSize)
+        flush();
+    }
+
+    private boolean fits(List<StructureMembers.Member> members, List<Array> values) {
+      if (members.size() != columns.size()) return false;
+      for (int i = 0; i < columns.size(); i++) {
+        Column col = columns.get(i);
+        Array org = values.get(i);
+        if (!col.name.equals(members.get(i).getName()) || org.getDataType() != col.dataType) return false;
+        if (!col.dataType.isNumeric() && col.dataType != DataType.CHAR) return false;
+        if (org.getSize() == col.recordSize) continue;
+        // a string shorter than the variable's string length is padded
+        if (col.dataType != DataType.CHAR || org.getRank() > 1 || col.recordShape.length != 1 || org.getSize() > col.recordSize)
+          return false;
+      }
+      return true;
+    }
+
+    void flush() throws IOException, InvalidRangeException {
+      if (count == 0) return;
+      for (Column col : columns)
+        col.write(startRecno, count);
+      count = 0;
+    }
+  }
+
+  // the buffered values of one variable; the first dimension is the record
+  private class Column {
+    private final String name;
+    private final Variable v;
+    private final DataType dataType;
+    private final int[] recordShape; // the variable's shape without the record dimension
+    private final int recordSize;
+    private Array values; // made when the first record is set, so only for records that fit
+
+    Column(String name, Variable v, DataType dataType) {
+      this.name = name;
+      this.v = v;
+      this.dataType = dataType;
+      int[] vshape = v.getShape();
+      this.recordShape = Arrays.copyOfRange(vshape, 1, vshape.length);
+      int size = 1;
+      for (int len : recordShape) size *= len;
+      this.recordSize = size;
+    }
+
+    void set(int row, Array org) {
+      if (values == null) {
+        int[] shape = new int[recordShape.length + 1];
+        shape[0] = config.batchSize;
+        System.arraycopy(recordShape, 0, shape, 1, recordShape.length);
+        values = Array.factory(dataType, shape);
+      }
+      int start = row * recordSize;
+      int n = (int) org.getSize();
+      Array.arraycopy(org, 0, values, start, n);
+      for (int i = n; i < recordSize; i++)  // only for CHAR
+        values.setChar(start + i, (char) 0);
+    }
+
+    void write(int startRecno, int count) throws IOException, InvalidRangeException {
+      int[] origin = new int[recordShape.length + 1];
+      origin[0] = startRecno;
+      Array data = values;
+      if (count < values.getShape()[0]) {
+        int[] shape = values.getShape();
+        shape[0] = count;
+        data = values.sectionNoReduce(new int[origin.length], shape, null);
+      }
+      writer.write(v, origin, data);
+    }
+  }
+
 
   // keep track of the bounding box
   protected void trackBB(LatLonPoint loc, CalendarDate obsDate) {
@@ -797,6 +944,7 @@ public abstract class CFPointWriter implements Closeable {
   }
 
   public void finish() throws IOException {
+    flushRecords();
     if (llbb != null) {
       writer.updateAttribute(null, new Attribute(ACDD.LAT_MIN, llbb.getLowerLeftPoint().getLatitude()));
       writer.updateAttribute(null, new Attribute(ACDD.LAT_MAX, llbb.getUpperRightPoint().getLatitude()));
@@ -816,7 +964,11 @@ public abstract class CFPointWriter implements Closeable {
 
   @Override
   public void close() throws IOException {
-    writer.close();
+    try {
+      flushRecords();
+    } finally {
+      writer.close();
+    }
   }
 
   ///////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -48,6 +48,7 @@ public class CFPointWriterConfig {
   public Nc4Chunking chunking;                    // for netcdf-4
   public boolean noTimeCoverage = false;          // does not have a time dimension
   public int recDimensionLength = -1;             // do use unlimited dimension (for netcdf3), use fixed dimension of this length NOT USED
+  public int batchSize = 1000;                    // classic model: buffer this many records per variable before writing; 1 = no buffering
 
   public CFPointWriterConfig(NetcdfFileWriter.Version version) {
     this(version, new Nc4ChunkingDefault());  // The default chunker used in Nc4Iosp.
@@ -62,4 +63,9 @@ public class CFPointWriterConfig {
     this.noTimeCoverage = noTimeCoverage;
     return this;
   }
+
+  public CFPointWriterConfig setBatchSize(int batchSize)  {
+    this.batchSize = batchSize;
+    return this;
+  }
 }
@@ -38,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.MAMath;
+import ucar.ma2.Range;
 import ucar.ma2.RangeIterator;
 import ucar.nc2.util.Optional;
 import ucar.unidata.geoloc.*;
@@ -165,6 +166,8 @@ public class HorizCoordSys {
     LatLonPoint latlon = (LatLonPoint) params.get(SubsetParams.latlonPoint);
     Integer horizStride = (Integer) params.get(SubsetParams.horizStride);
     if (horizStride == null || horizStride < 1) horizStride = 1;
+    Range xIndexRange = (Range) params.get(SubsetParams.xIndexRange);
+    Range yIndexRange = (Range) params.get(SubsetParams.yIndexRange);
 
     CoverageCoordAxis1D xaxisSubset = null, yaxisSubset = null;
     CoverageCoordAxis lataxisSubset = null, lonaxisSubset = null;
@@ -173,7 +176,22 @@ public class HorizCoordSys {
 
     Formatter errMessages = new Formatter();
     try {
-      if (latlon != null) { // overrides other horiz subset params
+      if (xIndexRange != null || yIndexRange != null) { // overrides other horiz subset params
+        if (xIndexRange != null) {
+          opt = (isProjection ? xaxis : lonaxis).subsetByIndex(xIndexRange);
+          if (!opt.isPresent()) errMessages.format("xaxis: %s;%n", opt.getErrorMessage());
+          else if (isProjection) xaxisSubset = (CoverageCoordAxis1D) opt.get();
+          else lonaxisSubset = opt.get();
+        }
+
+        if (yIndexRange != null) {
+          opt = (isProjection ? yaxis : lataxis).subsetByIndex(yIndexRange);
+          if (!opt.isPresent()) errMessages.format("yaxis: %s;%n", opt.getErrorMessage());
+          else if (isProjection) yaxisSubset = (CoverageCoordAxis1D) opt.get();
+          else lataxisSubset = opt.get();
+        }
+
+      } else if (latlon != null) { // overrides other horiz subset params
         if (isProjection) {
           CoordAxisHelper xhelper = new CoordAxisHelper(xaxis);
           CoordAxisHelper yhelper = new CoordAxisHelper(yaxis);
@@ -294,7 +312,7 @@ public class HorizCoordSys {
   public LatLonPoint getLatLon(int yindex, int xindex) {
     if (isProjection) {
       double x = xaxis.getCoordMidpoint(xindex);
-      double y = yaxis.getCoordMidpoint(xindex);
+      double y = yaxis.getCoordMidpoint(yindex);
       ProjectionImpl proj = transform.getProjection();
       return proj.projToLatLon(x, y);
     } else {
@@ -304,6 +322,24 @@ public class HorizCoordSys {
     }
   }
 
+  /**
+   * Compute the lat, lon of every point of a projection grid, using the projection's array conversion.
+   *
+   * @return lat/lon coordinates: latlon[2][ny*nx], where (latlon[0][y*nx+x], latlon[1][y*nx+x]) is the (lat, lon)
+   *         of the point (yindex, xindex); or null if this is not a projection
+   */
+  public double[][] makeLatLon2D() {
+    if (!isProjection) return null;
+    double[] xcoords = new double[xaxis.getNcoords()];
+    for (int i = 0; i < xcoords.length; i++)
+      xcoords[i] = xaxis.getCoordMidpoint(i);
+    double[] ycoords = new double[yaxis.getNcoords()];
+    for (int j = 0; j < ycoords.length; j++)
+      ycoords[j] = yaxis.getCoordMidpoint(j);
+
+    return transform.getProjection().projToLatLon(xcoords, ycoords);
+  }
+
   /*
     longitude subset, after normalizing to start
     draw a circle, representing longitude values from start to start + 360.
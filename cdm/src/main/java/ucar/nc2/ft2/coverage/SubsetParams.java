@@ -60,6 +60,8 @@ public class SubsetParams {
   public static final String projBB = "projBB";         // value = ProjectionRect
   public static final String horizStride = "horizStride";  // value = Integer
   public static final String latlonPoint = "latlonPoint";  // value = LatLonPointImpl
+  public static final String xIndexRange = "xIndexRange";  // value = Range of x or lon indices, used GeotiffWriter local, not remote
+  public static final String yIndexRange = "yIndexRange";  // value = Range of y or lat indices, used GeotiffWriter local, not remote
   public static final String stations = "stn";           // value = List<String>
 
   public static final String time = "time";             // value = CalendarDate
@@ -33,6 +33,7 @@
  */
 package ucar.nc2.ft2.coverage.writer;
 
+import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
@@ -66,6 +67,8 @@ public class CFGridCoverageWriter2 {
 
   static private final String BOUNDS = "_bounds";
   static private final String BOUNDS_DIM = "bounds_dim"; // dimension of length 2, can be used by any bounds coordinate
+  static private final String LAT = "lat"; // 2D lat, lon added to projection grids when addLatLon
+  static private final String LON = "lon";
 
   /**
    * Write a netcdf/CF file from a CoverageDataset
@@ -105,6 +108,16 @@ public class CFGridCoverageWriter2 {
       total_size += grid.getSizeInBytes();
     }
 
+    // 2D lat/lon is only needed for projections
+    HorizCoordSys hcs = subsetDataset.getHorizCoordSys();
+    boolean makeLatLon = addLatLon && hcs != null && hcs.getIsProjection() && !hcs.isLatLon2D();
+    if (makeLatLon) {
+      for (CoverageCoordAxis axis : subsetDataset.getCoordAxes())
+        if (axis.getName().equals(LAT) || axis.getName().equals(LON)) makeLatLon = false;
+    }
+    if (makeLatLon)
+      total_size += 2 * DataType.DOUBLE.getSize() * (long) hcs.getXAxis().getNcoords() * hcs.getYAxis().getNcoords();
+
     if (testSizeOnly)
       return Optional.of(total_size);
 
@@ -176,7 +189,10 @@ public class CFGridCoverageWriter2 {
         ctv.addAttribute(att);
     }
 
-    addCFAnnotations(subsetDataset, writer, addLatLon);
+    if (makeLatLon)
+      addLatLon2D(hcs, writer);
+
+    addCFAnnotations(subsetDataset, writer, makeLatLon);
 
     // finish define mode
     writer.create();
@@ -197,6 +213,9 @@ public class CFGridCoverageWriter2 {
       }
     }
 
+    if (makeLatLon)
+      writeLatLon2D(hcs, writer);
+
     // write the grid data
     for (Coverage grid : subsetDataset.getCoverages()) {
       // we need to call readData on the original
@@ -253,6 +272,30 @@ public class CFGridCoverageWriter2 {
     }
   }
 
+  private void addLatLon2D(HorizCoordSys hcs, NetcdfFileWriter writer) {
+    String dims = hcs.getYAxis().getName() + " " + hcs.getXAxis().getName();
+
+    Variable latVar = writer.addVariable(null, LAT, DataType.DOUBLE, dims);
+    latVar.addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+    latVar.addAttribute(new Attribute(CDM.LONG_NAME, "latitude coordinate"));
+    latVar.addAttribute(new Attribute(CF.STANDARD_NAME, CF.LATITUDE));
+    latVar.addAttribute(new Attribute(_Coordinate.AxisType, AxisType.Lat.toString()));
+
+    Variable lonVar = writer.addVariable(null, LON, DataType.DOUBLE, dims);
+    lonVar.addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+    lonVar.addAttribute(new Attribute(CDM.LONG_NAME, "longitude coordinate"));
+    lonVar.addAttribute(new Attribute(CF.STANDARD_NAME, CF.LONGITUDE));
+    lonVar.addAttribute(new Attribute(_Coordinate.AxisType, AxisType.Lon.toString()));
+  }
+
+  // computes all the points with one call to the projection, in parallel for large grids
+  private void writeLatLon2D(HorizCoordSys hcs, NetcdfFileWriter writer) throws IOException, InvalidRangeException {
+    int[] shape = new int[] {hcs.getYAxis().getNcoords(), hcs.getXAxis().getNcoords()};
+    double[][] latlon = hcs.makeLatLon2D();
+    writer.write(writer.findVariable(LAT), Array.factory(DataType.DOUBLE, shape, latlon[ProjectionImpl.INDEX_LAT]));
+    writer.write(writer.findVariable(LON), Array.factory(DataType.DOUBLE, shape, latlon[ProjectionImpl.INDEX_LON]));
+  }
+
   private void addVariableAttributes(Variable v, List<Attribute> atts) {
     for (Attribute att : atts) {
       if (att.getShortName().startsWith("_Coordinate")) continue;
@@ -276,7 +319,7 @@ public class CFGridCoverageWriter2 {
       Formatter sbuff = new Formatter();
       for (String s : grid.getCoordSys().getAxisNames())
         sbuff.format("%s ", s);
-      // if (addLatLon) sbuff.format("lat lon"); LOOK
+      if (addLatLon) sbuff.format("%s %s", LAT, LON);
       newV.addAttribute(new Attribute(CF.COORDINATES, sbuff.toString()));
 
       // add reference to coordinate transform variables
@@ -239,6 +239,50 @@ public class GeoTiff implements Closeable {
     return nextOverflowData;
   }
 
+  /**
+   * Start writing the data of an image one tile at a time: call writeTile() for each tile, then endData(),
+   * then writeMetadata().
+   *
+   * @param imageNumber image number, starting at 1
+   * @return file offset where the data starts
+   */
+  int startData(int imageNumber) throws IOException {
+    if (file == null)
+      init();
+
+    if (imageNumber == 1)
+      channel.position(headerSize);
+    else
+      channel.position(nextOverflowData);
+    return (int) channel.position();
+  }
+
+  /**
+   * Write one tile following the previous one.
+   *
+   * @param tile the tile bytes, possibly compressed
+   * @return file offset of the tile
+   */
+  int writeTile(byte[] tile) throws IOException {
+    int offset = (int) channel.position();
+    ByteBuffer buffer = ByteBuffer.wrap(tile);
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+    return offset;
+  }
+
+  /**
+   * Done writing tiles; the IFD goes after them.
+   */
+  void endData() throws IOException {
+    long pos = channel.position();
+    if (pos % 2 != 0) { // IFD must start on a word boundary
+      channel.write(ByteBuffer.allocate(1));
+      pos++;
+    }
+    firstIFD = (int) pos;
+  }
+
   void writeMetadata(int imageNumber) throws IOException {
     if (file == null)
       init();
@@ -33,8 +33,15 @@
 
 package ucar.nc2.geotiff;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
 
 import ucar.ma2.Array;
 import ucar.ma2.ArrayByte;
@@ -42,15 +49,19 @@ import ucar.ma2.ArrayFloat;
 import ucar.ma2.DataType;
 import ucar.ma2.Index;
 import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
 import ucar.ma2.IsMissingEvaluator;
 import ucar.ma2.MAMath;
+import ucar.ma2.Range;
 import ucar.nc2.dataset.CoordinateAxis1D;
 import ucar.nc2.dt.GridCoordSystem;
 import ucar.nc2.dt.GridDataset;
 import ucar.nc2.dt.GridDatatype;
+import ucar.nc2.ft2.coverage.Coverage;
 import ucar.nc2.ft2.coverage.CoverageCoordAxis1D;
 import ucar.nc2.ft2.coverage.CoverageCoordSys;
 import ucar.nc2.ft2.coverage.GeoReferencedArray;
+import ucar.nc2.ft2.coverage.SubsetParams;
 import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonPointImpl;
 import ucar.unidata.geoloc.Projection;
@@ -72,6 +83,9 @@ public class GeotiffWriter implements Closeable {
 
   protected GeoTiff geotiff;
   protected short pageNumber = 1;
+  protected int tileSize = 256;
+  protected boolean deflate = false;
+  protected long maxBufferBytes = 64 * 1000 * 1000; // writeGridTiled() reads the data once if it fits in this
 
   /**
    * Constructor
@@ -86,6 +100,24 @@ public class GeotiffWriter implements Closeable {
     geotiff.close();
   }
 
+  /**
+   * Set the width and height of the tiles made by writeGridTiled(), default 256.
+   *
+   * @param tileSize must be a positive multiple of 16
+   */
+  public void setTileSize(int tileSize) {
+    if (tileSize <= 0 || tileSize % 16 != 0)
+      throw new IllegalArgumentException("Tile size must be a positive multiple of 16 = " + tileSize);
+    this.tileSize = tileSize;
+  }
+
+  /**
+   * Set whether writeGridTiled() compresses the tiles with deflate, default false.
+   */
+  public void setDeflate(boolean deflate) {
+    this.deflate = deflate;
+  }
+
   /**
    * Write GridDatatype data to the geotiff file.
    *
@@ -189,16 +221,6 @@ public class GeotiffWriter implements Closeable {
 
   private void writeMetadata(boolean greyScale, double xStart, double yStart, double xInc, double yInc, int height, int width, int imageNumber, int nextStart,
                      MAMath.MinMax dataMinMax, Projection proj) throws IOException {
-
-    geotiff.addTag(new IFDEntry(Tag.ImageWidth, FieldType.SHORT).setValue(width));
-    geotiff.addTag(new IFDEntry(Tag.ImageLength, FieldType.SHORT).setValue(height));
-
-    // set the multiple images tag
-    int ff = 1 << 1;
-    int page = imageNumber - 1;
-    geotiff.addTag(new IFDEntry(Tag.NewSubfileType, FieldType.SHORT).setValue(ff));
-    geotiff.addTag(new IFDEntry(Tag.PageNumber, FieldType.SHORT).setValue(page, 2));
-
     // just make it all one big "row"
     geotiff.addTag(new IFDEntry(Tag.RowsPerStrip, FieldType.SHORT).setValue(1));  //height));
     // the following changes to make it viewable in ARCMAP
@@ -228,9 +250,25 @@ public class GeotiffWriter implements Closeable {
     }
     geotiff.addTag(new IFDEntry(Tag.StripByteCounts, FieldType.LONG, width).setValue(sbytecount));
     geotiff.addTag(new IFDEntry(Tag.StripOffsets, FieldType.LONG, width).setValue(soffset));
+
+    writeMetadata(greyScale, xStart, yStart, xInc, yInc, height, width, imageNumber, dataMinMax, proj, 1);  // no compression
+  }
+
+  // the tags common to strips and tiles
+  private void writeMetadata(boolean greyScale, double xStart, double yStart, double xInc, double yInc, int height, int width, int imageNumber,
+                             MAMath.MinMax dataMinMax, Projection proj, int compression) throws IOException {
+    geotiff.addTag(new IFDEntry(Tag.ImageWidth, FieldType.SHORT).setValue(width));
+    geotiff.addTag(new IFDEntry(Tag.ImageLength, FieldType.SHORT).setValue(height));
+
+    // set the multiple images tag
+    int ff = 1 << 1;
+    int page = imageNumber - 1;
+    geotiff.addTag(new IFDEntry(Tag.NewSubfileType, FieldType.SHORT).setValue(ff));
+    geotiff.addTag(new IFDEntry(Tag.PageNumber, FieldType.SHORT).setValue(page, 2));
+
     // standard tags
     geotiff.addTag(new IFDEntry(Tag.Orientation, FieldType.SHORT).setValue(1));
-    geotiff.addTag(new IFDEntry(Tag.Compression, FieldType.SHORT).setValue(1));  // no compression
+    geotiff.addTag(new IFDEntry(Tag.Compression, FieldType.SHORT).setValue(compression));
     geotiff.addTag(new IFDEntry(Tag.Software, FieldType.ASCII).setValue("nc2geotiff"));
     geotiff.addTag(new IFDEntry(Tag.PhotometricInterpretation, FieldType.SHORT).setValue(1));  // black is zero : not used?
     geotiff.addTag(new IFDEntry(Tag.PlanarConfiguration, FieldType.SHORT).setValue(1));
@@ -621,5 +659,221 @@ public class GeotiffWriter implements Closeable {
     writeMetadata(greyScale, xStart, yStart, xInc, yInc, height, width, pageNumber, nextStart, dataMinMax, proj);
     pageNumber++;
   }
+
+  /**
+   * Write a Coverage subset to the geotiff file as tiles, optionally compressed.
+   * The data is read from the coverage one row of tiles at a time and the tiles are written as they are made,
+   * so the whole subset is never in memory. Unless it is small, the data is read twice, the first time to find its range.
+   *
+   * @param coverage  write data from this coverage
+   * @param params    subset of the coverage; must be a single 2D (y, x) slice
+   * @param greyScale if true, write greyScale image, else dataSample.
+   * @throws IOException on i/o error
+   * @throws InvalidRangeException if the subset is not valid
+   */
+  public void writeGridTiled(Coverage coverage, SubsetParams params, boolean greyScale) throws IOException, InvalidRangeException {
+    ucar.nc2.util.Optional<CoverageCoordSys> opt = coverage.getCoordSys().subset(params);
+    if (!opt.isPresent())
+      throw new InvalidRangeException(opt.getErrorMessage());
+
+    CoverageCoordSys gcs = opt.get();
+    if (!gcs.isRegularSpatial())
+      throw new IllegalArgumentException("Must have 1D x and y axes for " + coverage.getName());
+
+    Projection proj = gcs.getProjection();
+    CoverageCoordAxis1D xaxis = (CoverageCoordAxis1D) gcs.getXAxis();
+    CoverageCoordAxis1D yaxis = (CoverageCoordAxis1D) gcs.getYAxis();
+
+    // a longitude subset crossing the seam is not a single index range, so read it all at once
+    if (!(xaxis.getRangeIterator() instanceof Range)) {
+      writeGrid(coverage.readData(params), greyScale);
+      return;
+    }
+
+    int height = yaxis.getNcoords();
+    int width = xaxis.getNcoords();
+
+    // latlon coord does not need to be scaled
+    double scaler = (xaxis.getUnits().equalsIgnoreCase("km")) ? 1000.0 : 1.0;
+
+    // data must go from top to bottom
+    double xStart = xaxis.getCoordEdge1(0) * scaler;
+    double yStart = yaxis.getCoordEdge1(0) * scaler;
+    double xInc = xaxis.getResolution() * scaler;
+    double yInc = Math.abs(yaxis.getResolution()) * scaler;
+
+    boolean flip = (height > 1) && (yaxis.getCoordMidpoint(0) < yaxis.getCoordMidpoint(1));
+    if (flip)
+      yStart = yaxis.getCoordEdgeLast() * scaler;
+
+    // the subset in indices of the original axes; the horizontal subset params are replaced by these
+    Range xrange = xaxis.getRange();
+    Range yrange = yaxis.getRange();
+    SubsetParams other = new SubsetParams();
+    for (Map.Entry<String, Object> entry : params.getEntries()) {
+      switch (entry.getKey()) {
+        case SubsetParams.latlonBB:
+        case SubsetParams.projBB:
+        case SubsetParams.latlonPoint:
+        case SubsetParams.horizStride:
+          break;
+        default:
+          other.set(entry.getKey(), entry.getValue());
+      }
+    }
+
+    // read a block of rows by their index range
+    RowReader reader = (start, end) -> {
+      SubsetParams rows = new SubsetParams();
+      for (Map.Entry<String, Object> entry : other.getEntries())
+        rows.set(entry.getKey(), entry.getValue());
+      rows.set(SubsetParams.xIndexRange, xrange);
+      rows.set(SubsetParams.yIndexRange, new Range(yrange.element(start), yrange.element(end - 1), yrange.stride()));
+
+      Array data = coverage.readData(rows).getData();
+      if (data.getSize() != (long) (end - start) * width)
+        throw new IOException("Read " + data.getSize() + " values from " + coverage.getName() + " rows " + start + "-" + end +
+                ", expected " + (end - start) + " x " + width);
+      return data.reshape(new int[]{end - start, width});
+    };
+
+    writeTiles(reader, coverage, height, width, flip, greyScale, xStart, yStart, xInc, yInc, proj);
+  }
+
+  /** Reads the data for writeTiles() */
+  interface RowReader {
+    /**
+     * Read a block of rows.
+     *
+     * @param start first row, in the y axis order
+     * @param end   last row, exclusive
+     * @return 2D array in YX order, shape (end - start, width)
+     */
+    Array read(int start, int end) throws IOException, InvalidRangeException;
+  }
+
+  void writeTiles(RowReader reader, IsMissingEvaluator missing, int height, int width, boolean flip, boolean greyScale,
+                  double xStart, double yStart, double xInc, double yInc, Projection proj) throws IOException, InvalidRangeException {
+    if (pageNumber > 1) {
+      geotiff.initTags();
+    }
+
+    int tilesDown = (height + tileSize - 1) / tileSize;
+    int tilesAcross = (width + tileSize - 1) / tileSize;
+
+    // first pass finds the data range; keep the data if its small
+    List<Array> blocks = new ArrayList<>();
+    long nbytes = 0;
+    double min = Double.MAX_VALUE;
+    double max = -Double.MAX_VALUE;
+    for (int row = 0; row < tilesDown; row++) {
+      Array block = readTileRow(reader, row, height, flip);
+      MAMath.MinMax minmax = MAMath.getMinMaxSkipMissingData(block, missing);
+      min = Math.min(min, minmax.min);
+      max = Math.max(max, minmax.max);
+      if (blocks != null) {
+        nbytes += block.getSizeBytes();
+        if (nbytes > maxBufferBytes)
+          blocks = null;
+        else
+          blocks.add(block);
+      }
+    }
+    MAMath.MinMax dataMinMax = new MAMath.MinMax(min, max);
+
+    // second pass makes the tiles of each row in parallel, and writes them in order
+    int[] offsets = new int[tilesDown * tilesAcross];
+    int[] counts = new int[tilesDown * tilesAcross];
+    geotiff.startData(pageNumber);
+    for (int row = 0; row < tilesDown; row++) {
+      Array block = (blocks != null) ? blocks.get(row) : readTileRow(reader, row, height, flip);
+      byte[][] tiles = IntStream.range(0, tilesAcross).parallel()
+              .mapToObj(col -> makeTile(block, col, width, greyScale, missing, dataMinMax))
+              .toArray(byte[][]::new);
+      for (int col = 0; col < tilesAcross; col++) {
+        int index = row * tilesAcross + col;
+        offsets[index] = geotiff.writeTile(tiles[col]);
+        counts[index] = tiles[col].length;
+      }
+      if (blocks != null)
+        blocks.set(row, null);
+    }
+    geotiff.endData();
+
+    geotiff.addTag(new IFDEntry(Tag.TileWidth, FieldType.SHORT).setValue(tileSize));
+    geotiff.addTag(new IFDEntry(Tag.TileLength, FieldType.SHORT).setValue(tileSize));
+    geotiff.addTag(new IFDEntry(Tag.TileOffsets, FieldType.LONG, offsets.length).setValue(offsets));
+    geotiff.addTag(new IFDEntry(Tag.TileByteCounts, FieldType.LONG, counts.length).setValue(counts));
+
+    writeMetadata(greyScale, xStart, yStart, xInc, yInc, height, width, pageNumber, dataMinMax, proj, deflate ? 8 : 1);  // 8 = deflate
+    pageNumber++;
+  }
+
+  // the rows of one row of tiles, top to bottom; the last one may be short
+  private Array readTileRow(RowReader reader, int row, int height, boolean flip) throws IOException, InvalidRangeException {
+    int start = row * tileSize;
+    int end = Math.min(height, start + tileSize);
+    if (!flip)
+      return reader.read(start, end);
+    return reader.read(height - end, height - start).flip(0);
+  }
+
+  // one tile, padded on the right and bottom with the missing value
+  private byte[] makeTile(Array block, int col, int width, boolean greyScale, IsMissingEvaluator missing, MAMath.MinMax dataMinMax) {
+    int nrows = block.getShape()[0];
+    int start = col * tileSize;
+    int ncols = Math.min(width, start + tileSize) - start;
+    Index ima = block.getIndex();
+
+    byte[] tile;
+    if (greyScale) {
+      // see replaceMissingValuesAndScale()
+      double scale = 254.0 / (dataMinMax.max - dataMinMax.min);
+      tile = new byte[tileSize * tileSize];
+      for (int j = 0; j < nrows; j++) {
+        for (int i = 0; i < ncols; i++) {
+          double v = block.getDouble(ima.set(j, start + i));
+          if (!missing.isMissing(v))
+            tile[j * tileSize + i] = (byte) ((int) ((v - dataMinMax.min) * scale + 1) & 0xff);
+        }
+      }
+
+    } else {
+      // see replaceMissingValues()
+      float minValue = (float) (dataMinMax.min - 1.0);
+      ByteBuffer bb = ByteBuffer.allocate(4 * tileSize * tileSize);
+      for (int j = 0; j < tileSize; j++) {
+        for (int i = 0; i < tileSize; i++) {
+          float v = minValue;
+          if (j < nrows && i < ncols) {
+            v = block.getFloat(ima.set(j, start + i));
+            if (missing.isMissing((double) v))
+              v = minValue;
+          }
+          bb.putFloat(v);
+        }
+      }
+      tile = bb.array();
+    }
+
+    return deflate ? deflate(tile) : tile;
+  }
+
+  private static byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buffer);
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
 }
 
@@ -37,6 +37,7 @@ import ucar.unidata.io.RandomAccessFile;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Helper for reading data that has been bit packed.
@@ -59,9 +60,15 @@ public class BitReader {
   private byte bitBuf = 0;
   private int bitPos = 0; // Current bit position in bitBuf.
 
-  // for testing
-  public BitReader(byte[] test) {
-    this.data = test;
+  private byte[] scratch; // for reading bytes from the raf in bits2UInt(int nb, int[] result, int start, int n)
+
+  /**
+   * Constructor for data already in memory.
+   *
+   * @param data the packed data, starting at data[0]
+   */
+  public BitReader(byte[] data) {
+    this.data = data;
     this.dataPos = 0;
   }
 
@@ -161,6 +168,117 @@ public class BitReader {
     return result;
   }
 
+  /**
+   * Read the next n values of nb bits each, as unsigned ints.
+   * Gives the same result as calling (int) bits2UInt(nb) n times, but reads all the bytes at once,
+   * and unpacks them with a 64-bit accumulator instead of a bit at a time.
+   * Byte aligned 8, 12 and 16 bit values have their own loops.
+   *
+   * @param nb     the number of bits in each value, must be 0 <= nb <= 64; values wider than 32 bits are truncated.
+   * @param result put the values here
+   * @param start  starting at result[start]
+   * @param n      number of values to read
+   * @throws java.io.IOException on read error
+   */
+  public void bits2UInt(int nb, int[] result, int start, int n) throws IOException {
+    assert nb <= 64;
+    assert nb >= 0;
+    if (n <= 0) return;
+    if (nb == 0) {
+      Arrays.fill(result, start, start + n, 0);
+      return;
+    }
+    if (nb > 32) {
+      for (int i = 0; i < n; i++)
+        result[start + i] = (int) bits2UInt(nb);
+      return;
+    }
+
+    // the unread bits of bitBuf come first, then whole bytes
+    long nbits = (long) n * nb;
+    long need = nbits - bitPos;
+    int nbytes = (need > 0) ? (int) ((need + 7) / 8) : 0;
+    int firstBit = (bitPos == 0) ? 0 : 8 - bitPos;
+
+    byte[] buf;
+    int pos;
+    if (raf != null) {
+      if (scratch == null || scratch.length < nbytes + 1)
+        scratch = new byte[nbytes + 1];
+      pos = (bitPos == 0) ? 1 : 0;
+      scratch[0] = bitBuf;
+      raf.readFully(scratch, 1, nbytes);
+      buf = scratch;
+    } else {
+      if (dataPos + nbytes > data.length)
+        throw new EOFException();
+      pos = (bitPos == 0) ? dataPos : dataPos - 1; // bitBuf == data[dataPos-1]
+      buf = data;
+    }
+
+    unpack(buf, pos, firstBit, nb, result, start, n);
+
+    // leave things as if we had called bits2UInt(nb) n times
+    long endBit = firstBit + nbits;
+    int endByte = pos + (int) (endBit >>> 3);
+    int rem = (int) (endBit & 7);
+    if (rem == 0) {
+      bitPos = 0;
+    } else {
+      bitBuf = buf[endByte];
+      bitPos = 8 - rem;
+      endByte++;
+    }
+    if (raf == null)
+      dataPos = endByte;
+  }
+
+  // unpack n values of nb bits (1 <= nb <= 32), starting at bit firstBit (0 = most significant) of buf[pos]
+  private static void unpack(byte[] buf, int pos, int firstBit, int nb, int[] result, int start, int n) {
+    int end = start + n;
+    if (firstBit == 0) {
+      switch (nb) {
+        case 8:
+          for (int i = start; i < end; i++)
+            result[i] = buf[pos++] & 0xff;
+          return;
+
+        case 16:
+          for (int i = start; i < end; i++, pos += 2)
+            result[i] = ((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff);
+          return;
+
+        case 12:
+          int i = start;
+          for (; i < end - 1; i += 2, pos += 3) { // 2 values in 3 bytes
+            int b1 = buf[pos + 1] & 0xff;
+            result[i] = ((buf[pos] & 0xff) << 4) | (b1 >>> 4);
+            result[i + 1] = ((b1 & 0x0f) << 8) | (buf[pos + 2] & 0xff);
+          }
+          if (i < end)
+            result[i] = ((buf[pos] & 0xff) << 4) | ((buf[pos + 1] & 0xff) >>> 4);
+          return;
+      }
+    }
+
+    // the valid bits are the low accBits bits of acc
+    long mask = (1L << nb) - 1;
+    long acc = buf[pos++] & 0xff;
+    int accBits = 8 - firstBit;
+    long bitsLeft = (long) n * nb - accBits; // bits not yet in acc
+    for (int i = start; i < end; i++) {
+      if (accBits < nb) { // fill acc with as many whole bytes as will fit
+        do {
+          acc = (acc << 8) | (buf[pos++] & 0xff);
+          accBits += 8;
+          bitsLeft -= 8;
+        } while (accBits <= 56 && bitsLeft > 0);
+      }
+      accBits -= nb;
+      result[i] = (int) ((acc >>> accBits) & mask);
+    }
+  }
+
   /**
    * Read the next nb bits and return an Signed Long .
    *
@@ -0,0 +1,235 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp;
+
+import ucar.ma2.DataType;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads the chunks of a Layout from a RandomAccessFile, merging chunks that are close together in the file
+ * into a single large read, then scattering the bytes into the destination array.
+ * Strided sections, or sections of record variables with a small inner dimension, otherwise become thousands of
+ * small seeks and reads, which is what dominates the time on NFS or HTTP.
+ * <p/>
+ * Chunks are merged as they come from the Layout, so memory use is bounded by maxReadSize,
+ * and chunks are merged only when the src position increases. A chunk more than maxGap bytes past the end of the
+ * current read, or one that would make the read larger than maxReadSize, starts a new read.
+ * The bytes in the gaps are read and discarded.
+ * <p/>
+ * Off by default, since it changes the I/O pattern of every IOSP that uses IospHelper; turn it on with setMaxGap().
+ */
+public class ChunkCoalescer {
+  static public final int DEFAULT_MAX_GAP = 32 * 1000;
+  static private volatile int maxGap = -1;
+  static private volatile int maxReadSize = 4 * 1000 * 1000;
+
+  /**
+   * Set the largest gap in bytes between chunks that will be read through, rather than seeking past.
+   * A negative number turns off coalescing, the default; IospHelper then reads each chunk separately.
+   * DEFAULT_MAX_GAP is a reasonable value to turn it on with.
+   *
+   * @param bytes maximum gap in bytes, default -1
+   */
+  static public void setMaxGap(int bytes) {
+    maxGap = bytes;
+  }
+
+  static public int getMaxGap() {
+    return maxGap;
+  }
+
+  /**
+   * Set the size in bytes of the largest merged read.
+   * A single chunk larger than this is still read, directly into the destination.
+   *
+   * @param bytes maximum read size in bytes, default 4M
+   */
+  static public void setMaxReadSize(int bytes) {
+    maxReadSize = bytes;
+  }
+
+  static public int getMaxReadSize() {
+    return maxReadSize;
+  }
+
+  static public boolean isEnabled() {
+    return maxGap >= 0;
+  }
+
+  /**
+   * Read all the chunks of the layout into the primitive array.
+   *
+   * @param raf       read from here.
+   * @param layout    handles skipping around in the file.
+   * @param dataType  dataType of the variable
+   * @param arr       primitive array to read data into, byte[] for CHAR and STRUCTURE
+   * @param byteOrder if equal to RandomAccessFile.ORDER_XXXX, set the byte order just before reading
+   * @return arr
+   * @throws java.io.IOException on read error
+   */
+  static public Object readData(RandomAccessFile raf, Layout layout, DataType dataType, Object arr, int byteOrder) throws IOException {
+    if (!canRead(dataType))
+      throw new IllegalStateException("unknown type= " + dataType);
+    int elemSize = (dataType == DataType.STRUCTURE) ? layout.getElemSize() : dataType.getSize();
+    ChunkCoalescer reader = new ChunkCoalescer(raf, dataType, arr, elemSize, byteOrder);
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      reader.add(chunk.getSrcPos(), chunk.getNelems(), chunk.getDestElem());
+    }
+    reader.flush();
+    return arr;
+  }
+
+  // same types as IospHelper.readData
+  static private boolean canRead(DataType dataType) {
+    Class c = dataType.getPrimitiveClassType();
+    return c == byte.class || c == short.class || c == int.class || c == long.class || dataType == DataType.CHAR ||
+            dataType == DataType.FLOAT || dataType == DataType.DOUBLE || dataType == DataType.STRUCTURE;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////
+
+  private final RandomAccessFile raf;
+  private final DataType dataType;
+  private final Object arr;
+  private final int elemSize;
+  private final int byteOrder;
+  private final int gap, readSize; // settings when the read started
+
+  // the pending read: chunks from runStart to runEnd in the file
+  private long runStart, runEnd;
+  private int nchunks;
+  private long[] srcPos = new long[16];
+  private int[] nelems = new int[16];
+  private long[] destElem = new long[16];
+
+  private byte[] buff;
+
+  private ChunkCoalescer(RandomAccessFile raf, DataType dataType, Object arr, int elemSize, int byteOrder) {
+    this.raf = raf;
+    this.dataType = dataType;
+    this.arr = arr;
+    this.elemSize = elemSize;
+    this.byteOrder = byteOrder;
+    this.gap = maxGap;
+    this.readSize = maxReadSize;
+  }
+
+  private void add(long pos, int n, long dest) throws IOException {
+    long end = pos + (long) n * elemSize;
+    if (nchunks > 0 && (pos < runEnd || pos - runEnd > gap || end - runStart > readSize))
+      flush();
+
+    if (nchunks == 0) runStart = pos;
+    if (nchunks == srcPos.length) {
+      int size = 2 * nchunks;
+      srcPos = Arrays.copyOf(srcPos, size);
+      nelems = Arrays.copyOf(nelems, size);
+      destElem = Arrays.copyOf(destElem, size);
+    }
+    srcPos[nchunks] = pos;
+    nelems[nchunks] = n;
+    destElem[nchunks] = dest;
+    nchunks++;
+    runEnd = end;
+  }
+
+  private void flush() throws IOException {
+    if (nchunks == 0) return;
+    raf.order(byteOrder); // layout.next() may have done its own reading
+    if (nchunks == 1) {
+      raf.seek(srcPos[0]);
+      readChunk((int) destElem[0], nelems[0]);
+
+    } else {
+      int len = (int) (runEnd - runStart);
+      if (buff == null || buff.length < len)
+        buff = new byte[Math.max(len, Math.min(2 * len, readSize))];
+      raf.seek(runStart);
+      raf.readFully(buff, 0, len);
+      ByteBuffer bb = ByteBuffer.wrap(buff, 0, len);
+      bb.order(raf.getByteOrder());
+      for (int i = 0; i < nchunks; i++) {
+        bb.position((int) (srcPos[i] - runStart));
+        scatter(bb, (int) destElem[i], nelems[i]);
+      }
+    }
+    nchunks = 0;
+  }
+
+  // read one chunk directly from the file
+  private void readChunk(int dest, int n) throws IOException {
+    if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
+      raf.readFully((byte[]) arr, dest, n);
+    } else if (dataType.getPrimitiveClassType() == short.class) {
+      raf.readShort((short[]) arr, dest, n);
+    } else if (dataType.getPrimitiveClassType() == int.class) {
+      raf.readInt((int[]) arr, dest, n);
+    } else if (dataType == DataType.FLOAT) {
+      raf.readFloat((float[]) arr, dest, n);
+    } else if (dataType == DataType.DOUBLE) {
+      raf.readDouble((double[]) arr, dest, n);
+    } else if (dataType.getPrimitiveClassType() == long.class) {
+      raf.readLong((long[]) arr, dest, n);
+    } else if (dataType == DataType.STRUCTURE) {
+      raf.readFully((byte[]) arr, dest * elemSize, n * elemSize);
+    } else {
+      throw new IllegalStateException("unknown type= " + dataType);
+    }
+  }
+
+  // copy one chunk from the buffer, starting at its current position
+  private void scatter(ByteBuffer bb, int dest, int n) {
+    if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
+      bb.get((byte[]) arr, dest, n);
+    } else if (dataType.getPrimitiveClassType() == short.class) {
+      bb.asShortBuffer().get((short[]) arr, dest, n);
+    } else if (dataType.getPrimitiveClassType() == int.class) {
+      bb.asIntBuffer().get((int[]) arr, dest, n);
+    } else if (dataType == DataType.FLOAT) {
+      bb.asFloatBuffer().get((float[]) arr, dest, n);
+    } else if (dataType == DataType.DOUBLE) {
+      bb.asDoubleBuffer().get((double[]) arr, dest, n);
+    } else if (dataType.getPrimitiveClassType() == long.class) {
+      bb.asLongBuffer().get((long[]) arr, dest, n);
+    } else if (dataType == DataType.STRUCTURE) {
+      bb.get((byte[]) arr, dest * elemSize, n * elemSize);
+    } else {
+      throw new IllegalStateException("unknown type= " + dataType);
+    }
+  }
+}
@@ -102,6 +102,12 @@ public class IospHelper {
   static public Object readData(RandomAccessFile raf, Layout layout, DataType dataType, Object arr, int byteOrder, boolean convertChar) throws java.io.IOException {
     if (showLayoutTypes) System.out.println("***RAF LayoutType=" + layout.getClass().getName());
 
+    if (ChunkCoalescer.isEnabled()) {  // merge nearby chunks into fewer, larger reads
+      ChunkCoalescer.readData(raf, layout, dataType, arr, byteOrder);
+      if (convertChar && dataType == DataType.CHAR) return convertByteToChar((byte[]) arr);
+      else return arr;
+    }
+
     if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
       byte[] pa = (byte[]) arr;
       while (layout.hasNext()) {
@@ -41,6 +41,7 @@ import ucar.nc2.Variable;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.nc2.util.IO;
+import ucar.nc2.util.RequestTrace;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.ByteArrayInputStream;
@@ -208,22 +209,24 @@ class H5tiledLayoutBB implements LayoutBB {
         raf.readFully(data);
 
       // apply filters backwards
-      for (int i = filters.length - 1; i >= 0; i--) {
-        H5header.Filter f = filters[i];
-        if (isBitSet(delegate.filterMask, i)) {
-          if (debug) System.out.println("skip for chunk " + delegate);
-          continue;
+      try (RequestTrace.Span span = RequestTrace.span("H5tiledLayoutBB.decompress")) {
+        for (int i = filters.length - 1; i >= 0; i--) {
+          H5header.Filter f = filters[i];
+          if (isBitSet(delegate.filterMask, i)) {
+            if (debug) System.out.println("skip for chunk " + delegate);
+            continue;
+          }
+          if (f.id == 1) {
+            data = inflate(data);
+          } else if (f.id == 2) {
+            data = shuffle(data, f.data[0]);
+          } else if (f.id == 3) {
+            data = checkfletcher32(data);
+          /* }  else if (f.id == 307) {
+            data = unbzip2(data); */
+          } else
+            throw new RuntimeException("Unknown filter type="+f.id);
         }
-        if (f.id == 1) {
-          data = inflate(data);
-        } else if (f.id == 2) {
-          data = shuffle(data, f.data[0]);
-        } else if (f.id == 3) {
-          data = checkfletcher32(data);
-        /* }  else if (f.id == 307) {
-          data = unbzip2(data); */
-        } else
-          throw new RuntimeException("Unknown filter type="+f.id);
       }
 
         ByteBuffer result = ByteBuffer.wrap(data);
@@ -33,6 +33,7 @@
 
 package ucar.nc2.iosp.nexrad2;
 
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.DiskCache;
@@ -43,6 +44,12 @@ import java.io.*;
 import java.util.*;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import ucar.unidata.io.bzip2.CBZip2InputStream;
 import ucar.unidata.io.bzip2.BZip2ReadException;
@@ -72,6 +79,40 @@ public class Level2VolumeScan {
   static public final String AR2V0007 = "AR2V0007";
 
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Level2VolumeScan.class);
+
+  static private volatile boolean uncompressInMemory = false;
+  static private ExecutorService uncompressExecutor; // made on first use
+
+  /**
+   * Uncompress bzip2 compressed volumes into memory, decompressing the blocks in parallel, instead of writing
+   * a ".uncompress" file to the DiskCache. The uncompressed volume is held in memory while the file is open,
+   * typically 5-10 times the compressed file size.
+   *
+   * @param b true to uncompress in memory; default is false
+   */
+  static public void setUncompressInMemory(boolean b) {
+    uncompressInMemory = b;
+  }
+
+  static public boolean isUncompressInMemory() {
+    return uncompressInMemory;
+  }
+
+  // one daemon thread per processor, which go away when idle; not the common ForkJoinPool, which the whole server shares
+  static private synchronized ExecutorService getUncompressExecutor() {
+    if (uncompressExecutor == null) {
+      int n = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor exec = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread t = new Thread(r, "Level2VolumeScan-uncompress");
+        t.setDaemon(true);
+        return t;
+      });
+      exec.allowCoreThreadTimeOut(true);
+      uncompressExecutor = exec;
+    }
+    return uncompressExecutor;
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////
 
   // Data file
@@ -149,7 +190,13 @@ public class Level2VolumeScan {
             || dataFormat.equals(AR2V0004) || dataFormat.equals(AR2V0006)  || dataFormat.equals(AR2V0007) ) {
       raf.skipBytes(4);
       String BZ = raf.readString(2);
-      if (BZ.equals("BZ")) {
+      if (BZ.equals("BZ") && uncompressInMemory) {
+        RandomAccessFile mraf = uncompressInMemory(raf);
+        raf.close();
+        raf = mraf;
+        raf.order(RandomAccessFile.BIG_ENDIAN);
+
+      } else if (BZ.equals("BZ")) {
         RandomAccessFile uraf = null;
         File uncompressedFile = DiskCache.getFileStandardPolicy(raf.getLocation() + ".uncompress");
 
@@ -771,6 +818,105 @@ public class Level2VolumeScan {
     return outputRaf;
   }
 
+  /**
+   * Uncompress into memory. Each block is an independent bzip2 stream, so they are uncompressed in parallel:
+   * the blocks are split into one run per processor, and each run is uncompressed by its own decoder,
+   * the first by this thread and the others by the uncompress executor.
+   *
+   * @param inputRaf file to uncompress, big endian
+   * @return in-memory raf of the uncompressed file, with the same location
+   * @throws IOException on read error
+   */
+  static RandomAccessFile uncompressInMemory(RandomAccessFile inputRaf) throws IOException {
+    inputRaf.seek(0);
+    byte[] header = new byte[Level2Record.FILE_HEADER_SIZE];
+    inputRaf.readFully(header);
+
+    // collect the compressed blocks, see uncompress()
+    List<byte[]> blocks = new ArrayList<>();
+    while (true) {
+      int numCompBytes;
+      try {
+        numCompBytes = inputRaf.readInt();
+      } catch (EOFException ee) {
+        break; // assume this is ok
+      }
+      if (numCompBytes == -1) break;
+      boolean eof = false;
+      if (numCompBytes < 0) { // last block
+        numCompBytes = -numCompBytes;
+        eof = true;
+      }
+      byte[] buf = new byte[numCompBytes];
+      inputRaf.readFully(buf);
+      blocks.add(buf);
+      if (eof) break;
+    }
+
+    byte[][] ublocks = new byte[blocks.size()][];
+    int nruns = Math.max(1, Math.min(blocks.size(), Runtime.getRuntime().availableProcessors()));
+    List<Future<?>> futures = new ArrayList<>();
+    for (int run = 1; run < nruns; run++) {
+      int from = run * blocks.size() / nruns;
+      int to = (run + 1) * blocks.size() / nruns;
+      futures.add(getUncompressExecutor().submit(() -> {
+        uncompressBlocks(blocks, ublocks, from, to);
+        return null;
+      }));
+    }
+    try {
+      uncompressBlocks(blocks, ublocks, 0, blocks.size() / nruns);
+      for (Future<?> f : futures)
+        f.get();
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted uncompressing " + inputRaf.getLocation(), e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      throw new IOException(cause);
+    } finally {
+      for (Future<?> f : futures)
+        f.cancel(true); // no-op unless something failed
+    }
+
+    int total = header.length;
+    for (byte[] ublock : ublocks)
+      total += ublock.length;
+    byte[] result = new byte[total];
+    System.arraycopy(header, 0, result, 0, header.length);
+    int pos = header.length;
+    for (byte[] ublock : ublocks) {
+      System.arraycopy(ublock, 0, result, pos, ublock.length);
+      pos += ublock.length;
+    }
+    if (log.isDebugEnabled())
+      log.debug("uncompressed " + blocks.size() + " blocks in memory, " + total + " bytes from " + inputRaf.getLocation());
+
+    return new InMemoryRandomAccessFile(inputRaf.getLocation(), result);
+  }
+
+  // uncompress blocks[from, to) into result, with one decoder
+  static private void uncompressBlocks(List<byte[]> blocks, byte[][] result, int from, int to) throws IOException {
+    CBZip2InputStream cbzip2 = new CBZip2InputStream();
+    byte[] ubuff = new byte[40000];
+    for (int i = from; i < to; i++) {
+      byte[] buf = blocks.get(i);
+      cbzip2.setStream(new ByteArrayInputStream(buf, 2, buf.length - 2)); // skip "BZ"
+      ByteArrayOutputStream out = new ByteArrayOutputStream(8 * buf.length);
+      int nread;
+      try {
+        while ((nread = cbzip2.read(ubuff)) != -1)
+          out.write(ubuff, 0, nread);
+        result[i] = out.toByteArray();
+      } catch (BZip2ReadException ioe) {
+        log.warn("Nexrad2IOSP.uncompress ", ioe);
+        result[i] = new byte[0]; // same as uncompress(): a bad block is left out
+      }
+    }
+  }
+
   // check if compressed file seems ok
   static public long testValid(String ufilename) throws IOException {
     boolean lookForHeader = false;
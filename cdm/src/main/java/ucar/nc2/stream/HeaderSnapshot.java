@@ -0,0 +1,238 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.stream;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileSubclass;
+import ucar.nc2.iosp.IOServiceProvider;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Formatter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent snapshots of the CDM metadata of local files, kept in a DiskCache2.
+ * A snapshot is the ncStream header of the file (with coordinate values and other small data inline),
+ * plus the file size and last modified time it was made from.
+ * NetcdfFile.open() writes the snapshots, but does not use them: a NetcdfFile built from a snapshot opens the
+ * file with its real IOSP, header and all, the first time data is read (see HeaderSnapshotIosp), so a caller
+ * that reads data would pay for both. Callers that only look at the metadata use open() here instead.
+ * <p>
+ * Off unless setDiskCache() is called. Only used for the file types in getFileTypes(), by default HDF5, netCDF-4
+ * and HDF4, whose headers are expensive to read.
+ */
+public class HeaderSnapshot {
+  static private final Logger logger = LoggerFactory.getLogger(HeaderSnapshot.class);
+
+  static private final int MAGIC = 0x43444d48; // "CDMH"
+  static private final int VERSION = 1;
+  static private final int sizeToCache = 100; // when to store a variable's data in the snapshot
+  static private final String SUFFIX = ".snapshot";
+
+  static private volatile DiskCache2 diskCache = null;
+  static private volatile Set<String> fileTypes = new HashSet<>(Arrays.asList("HDF5", "NetCDF-4", "HDF4", "HDF5-EOS", "HDF4-EOS"));
+
+  // files that dont get a snapshot, so open() can skip looking in the cache for them
+  static private final Cache<String, Boolean> noSnapshot = CacheBuilder.newBuilder().maximumSize(10 * 1000).build();
+
+  static private final AtomicLong hits = new AtomicLong();
+  static private final AtomicLong misses = new AtomicLong();
+  static private final AtomicLong writes = new AtomicLong();
+
+  /**
+   * Keep header snapshots in this cache.
+   *
+   * @param dc use this DiskCache2, or null to turn off header snapshots.
+   */
+  static public void setDiskCache(DiskCache2 dc) {
+    diskCache = dc;
+    noSnapshot.invalidateAll();
+  }
+
+  /**
+   * Set which files get a snapshot.
+   *
+   * @param fileTypeIds the IOServiceProvider.getFileTypeId() of the files
+   */
+  static public void setFileTypes(Collection<String> fileTypeIds) {
+    fileTypes = new HashSet<>(fileTypeIds);
+    noSnapshot.invalidateAll();
+  }
+
+  static public Set<String> getFileTypes() {
+    return fileTypes;
+  }
+
+  static public void showStats(Formatter f) {
+    f.format("HeaderSnapshot: hits= %d miss= %d writes= %d cache= %s%n", hits.get(), misses.get(), writes.get(),
+            diskCache == null ? "off" : diskCache.getRootDirectory());
+  }
+
+  static private File getSnapshotFile(DiskCache2 dc, String location) {
+    return dc.getCacheFile(location + SUFFIX);
+  }
+
+  /**
+   * Open a local file from its snapshot, for callers that only look at the metadata.
+   * Reading data that is not in the snapshot opens the real file, so other callers should use NetcdfFile.open().
+   *
+   * @param location file path
+   * @return NetcdfFile built from the snapshot, or null if snapshots are off or theres no current snapshot.
+   */
+  static public NetcdfFile open(String location) {
+    DiskCache2 dc = diskCache;
+    if (dc == null) return null;
+    if (noSnapshot.getIfPresent(location) != null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    File file = new File(location);
+    if (!file.isFile()) return null;
+    File snapFile = getSnapshotFile(dc, location);
+    if (snapFile == null || !snapFile.exists()) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(location) ||
+              in.readLong() != file.length() || in.readLong() != file.lastModified()) {
+        misses.incrementAndGet();
+        return null; // stale, will be rewritten
+      }
+      String fileTypeId = in.readUTF();
+      String fileTypeDescription = in.readUTF();
+      String fileTypeVersion = in.readUTF();
+      byte[] b = new byte[in.readInt()];
+      in.readFully(b);
+      NcStreamProto.Header proto = NcStreamProto.Header.parseFrom(b);
+
+      HeaderSnapshotIosp iosp = new HeaderSnapshotIosp(location, fileTypeId, fileTypeDescription, fileTypeVersion, proto);
+      NetcdfFile ncfile = new NetcdfFileSubclass(iosp, location);
+      iosp.open(null, ncfile, null);
+      hits.incrementAndGet();
+      return ncfile;
+
+    } catch (Throwable t) {
+      logger.warn("HeaderSnapshot: failed to read {}: {}", snapFile, t.getMessage());
+      misses.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Write a snapshot of a newly opened file, if snapshots are on and the file is the right type.
+   *
+   * @param ncfile the file, just opened by its IOSP
+   * @param raf    the file was opened from this
+   */
+  static public void write(NetcdfFile ncfile, RandomAccessFile raf) {
+    DiskCache2 dc = diskCache;
+    if (dc == null) return;
+    IOServiceProvider iosp = ncfile.getIosp();
+    String location = ncfile.getLocation();
+    if (iosp == null || location == null) return;
+    if (!fileTypes.contains(iosp.getFileTypeId()) ||
+            raf.getClass() != RandomAccessFile.class || !raf.getLocation().equals(location)) { // eg uncompressed
+      noSnapshot.put(location, Boolean.TRUE);
+      return;
+    }
+    File file = new File(location);
+    if (!file.isFile()) return;
+    File snapFile = getSnapshotFile(dc, location);
+    if (snapFile == null) return;
+    if (isCurrent(snapFile, location, file)) return;
+
+    File tmp = new File(snapFile.getPath() + ".tmp");
+    try {
+      long length = file.length();
+      long lastModified = file.lastModified();
+      NcStreamProto.Header.Builder headerBuilder = NcStreamProto.Header.newBuilder();
+      headerBuilder.setLocation(location);
+      if (ncfile.getTitle() != null) headerBuilder.setTitle(ncfile.getTitle());
+      if (ncfile.getId() != null) headerBuilder.setId(ncfile.getId());
+      headerBuilder.setRoot(NcStream.encodeGroup(ncfile.getRootGroup(), sizeToCache));
+      byte[] b = headerBuilder.build().toByteArray();
+
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(location);
+        out.writeLong(length);
+        out.writeLong(lastModified);
+        out.writeUTF(nonNull(iosp.getFileTypeId()));
+        out.writeUTF(nonNull(iosp.getFileTypeDescription()));
+        out.writeUTF(nonNull(iosp.getFileTypeVersion()));
+        out.writeInt(b.length);
+        out.write(b);
+      }
+      Files.move(tmp.toPath(), snapFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      writes.incrementAndGet();
+
+    } catch (Throwable t) {
+      // not all metadata can be put into ncStream, just dont make a snapshot
+      logger.debug("HeaderSnapshot: cant write {}: {}", snapFile, t.getMessage());
+      noSnapshot.put(location, Boolean.TRUE);
+      if (tmp.exists() && !tmp.delete())
+        logger.debug("HeaderSnapshot: cant delete {}", tmp);
+    }
+  }
+
+  // the snapshot was made from this version of the file, so theres no need to write it again
+  static private boolean isCurrent(File snapFile, String location, File file) {
+    if (!snapFile.exists()) return false;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapFile)))) {
+      return in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(location) &&
+              in.readLong() == file.length() && in.readLong() == file.lastModified();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  static private String nonNull(String s) {
+    return (s == null) ? "" : s;
+  }
+}
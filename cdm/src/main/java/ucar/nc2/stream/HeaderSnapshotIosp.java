@@ -0,0 +1,190 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.stream;
+
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.util.CancelTask;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Formatter;
+
+/**
+ * The IOSP of a NetcdfFile made from a HeaderSnapshot.
+ * The metadata comes from the snapshot; the file is opened with its real IOSP the first time data is read,
+ * and reads are passed on to the corresponding Variable there.
+ * <p>
+ * So a snapshot only saves the cost of reading the header for clients that just look at the metadata,
+ * and for the small variables kept inline in the snapshot. The first read of any other data does a full
+ * NetcdfFile.open of the real file, header and all, once per open of the snapshot, which is why
+ * NetcdfFile.open() itself does not use snapshots.
+ * Only made by HeaderSnapshot: there is no public constructor and isValidFile() is false, so NetcdfFile.open
+ * never picks it on its own.
+ */
+public class HeaderSnapshotIosp extends AbstractIOServiceProvider {
+  private final String fileTypeId, fileTypeDescription, fileTypeVersion;
+  private NcStreamProto.Header header; // from the snapshot, dropped once open
+  private NetcdfFile realFile; // opened on demand
+
+  HeaderSnapshotIosp(String location, String fileTypeId, String fileTypeDescription, String fileTypeVersion,
+                     NcStreamProto.Header header) {
+    this.location = location;
+    this.fileTypeId = fileTypeId;
+    this.fileTypeDescription = fileTypeDescription;
+    this.fileTypeVersion = fileTypeVersion;
+    this.header = header;
+  }
+
+  /*
+   * The real file, opened the first time its data is needed. This is a full NetcdfFile.open, which reads
+   * the header the snapshot was made to avoid, so data reads on a snapshot cost as much as opening the file.
+   */
+  private synchronized NetcdfFile getRealFile() throws IOException {
+    if (realFile == null) {
+      RandomAccessFile raf = new RandomAccessFile(location, "r");
+      try {
+        realFile = NetcdfFile.open(raf, location, null, null);
+      } catch (Throwable t) {
+        raf.close();
+        throw new IOException(t);
+      }
+    }
+    return realFile;
+  }
+
+  private Variable getRealVariable(Variable v) throws IOException {
+    Variable real = getRealFile().findVariable(v.getFullNameEscaped());
+    if (real == null)
+      throw new IOException("HeaderSnapshot of " + location + " is out of date: cant find " + v.getFullName());
+    return real;
+  }
+
+  @Override
+  public boolean isValidFile(RandomAccessFile raf) throws IOException {
+    return false; // only made by HeaderSnapshot
+  }
+
+  /**
+   * Build the metadata of ncfile from the snapshot header. The file itself is not read.
+   *
+   * @param raf        not used, may be null; the real file is opened on the first data read
+   * @param ncfile     add objects to this empty NetcdfFile
+   * @param cancelTask not used
+   */
+  @Override
+  public synchronized void open(RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) throws IOException {
+    if (header == null)
+      throw new IOException("HeaderSnapshot of " + location + " already opened");
+    if (header.getId().length() > 0) ncfile.setId(header.getId());
+    if (header.getTitle().length() > 0) ncfile.setTitle(header.getTitle());
+    NcStream.readGroup(header.getRoot(), ncfile, ncfile.getRootGroup());
+    ncfile.finish();
+    header = null;
+  }
+
+  @Override
+  public Array readData(Variable v2, Section section) throws IOException, InvalidRangeException {
+    return getRealVariable(v2).read(section);
+  }
+
+  @Override
+  public long readToByteChannel(Variable v2, Section section, WritableByteChannel channel) throws IOException, InvalidRangeException {
+    return getRealVariable(v2).readToByteChannel(section, channel);
+  }
+
+  @Override
+  public StructureDataIterator getStructureIterator(Structure s, int bufferSize) throws IOException {
+    return ((Structure) getRealVariable(s)).getStructureIterator(bufferSize);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (realFile != null)
+      realFile.close();
+    realFile = null;
+  }
+
+  @Override
+  public synchronized void release() throws IOException {
+    if (realFile != null)
+      realFile.release();
+  }
+
+  @Override
+  public synchronized void reacquire() throws IOException {
+    if (realFile != null)
+      realFile.reacquire();
+  }
+
+  @Override
+  public Object sendIospMessage(Object message) {
+    try {
+      return getRealFile().sendIospMessage(message);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public String getDetailInfo() {
+    Formatter f = new Formatter();
+    f.format("Header from snapshot, real file is %s%n", (realFile == null) ? "not open" : "open");
+    if (realFile != null)
+      f.format("%s", realFile.getIosp().getDetailInfo());
+    return f.toString();
+  }
+
+  @Override
+  public String getFileTypeId() {
+    return fileTypeId;
+  }
+
+  @Override
+  public String getFileTypeDescription() {
+    return fileTypeDescription;
+  }
+
+  @Override
+  public String getFileTypeVersion() {
+    return fileTypeVersion.isEmpty() ? null : fileTypeVersion;
+  }
+}
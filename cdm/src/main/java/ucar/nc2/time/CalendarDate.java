@@ -153,6 +153,13 @@ public class CalendarDate implements Comparable<CalendarDate> {
   @Nullable
   public static CalendarDate parseUdunitsOrIso(String calendarName, String isoOrUdunits) {
     CalendarDate result;
+    if (hasSince(isoOrUdunits)) {  // cant be ISO, so dont throw an exception to find that out
+      try {
+        return parseUdunits(calendarName, isoOrUdunits);
+      } catch (Exception e) {
+        return null;
+      }
+    }
     try {
       result = parseISOformat(calendarName, isoOrUdunits);
     } catch (Exception e) {
@@ -167,6 +174,13 @@ public class CalendarDate implements Comparable<CalendarDate> {
 
 
 
+  private static boolean hasSince(String s) {
+    for (int i = s.length() - 5; i >= 0; i--) {
+      if (s.regionMatches(true, i, "since", 0, 5)) return true;
+    }
+    return false;
+  }
+
   /**
    * Get CalendarDate from ISO date string
    * @param calendarName get Calendar from Calendar.get(calendarName). may be null
@@ -211,6 +211,12 @@ public class CalendarDateFormatter {
   private static final Pattern isodatePattern = Pattern.compile(isodatePatternString);
 
   private static DateTime parseIsoTimeString(Calendar calt, String iso) {
+    DateTime dt = parseIsoTimeStringFast(calt, iso);
+    return (dt != null) ? dt : parseIsoTimeStringRegexp(calt, iso);
+  }
+
+  // the original regexp parser, handles every form; package private for testing
+  static DateTime parseIsoTimeStringRegexp(Calendar calt, String iso) {
     iso = iso.trim();
     iso = iso.toLowerCase();
 
@@ -256,26 +262,14 @@ public class CalendarDateFormatter {
 
       if (isMinus) year = -year;
 
-      // kludge to deal with legacy files using year 0. // 10/10/2013 jcaron
-      if ((year == 0) && (calt == Calendar.gregorian)) {
-        calt = Calendar.proleptic_gregorian;
-      }
-
-      //if (year <  -292275054 || year > 292278993)
-      //  throw new IllegalArgumentException(" incorrect date specification = " + iso);
-
-      // Get a DateTime object in this Chronology
-      Chronology cron = Calendar.getChronology(calt);
-      cron = cron.withUTC(); // default is UTC
-      DateTime dt = new DateTime(year, month, day, hour, minute, 0, 0, cron);
-
-      // Add the seconds
-      dt = dt.plus((long) (1000 * second));
-
       // Parse the time zone if present
+      boolean hasZone = false;
+      int hourOffset = 0;
+      int minuteOffset = 0;
       if (zoneString != null) {
         zoneString = zoneString.trim();
         if (zoneString.length() > 0 && !zoneString.equalsIgnoreCase("Z") && !zoneString.equalsIgnoreCase("UTC") && !zoneString.equalsIgnoreCase("GMT")) {
+          hasZone = true;
           isMinus = false;
           if (zoneString.startsWith("-")) {
              isMinus = true;
@@ -285,8 +279,6 @@ public class CalendarDateFormatter {
            }
 
           // allow 01:00, 1:00, 01 or 0100
-          int hourOffset;
-          int minuteOffset = 0;
           int posColon = zoneString.indexOf(':');
           if (posColon > 0) {
             String hourS = zoneString.substring(0,posColon);
@@ -309,27 +301,178 @@ public class CalendarDateFormatter {
             // so i guess dont make minuteOffset negetive
             hourOffset = -hourOffset;
           }
-          DateTimeZone dtz = DateTimeZone.forOffsetHoursMinutes(hourOffset, minuteOffset);
-
-          // Apply the time zone offset, retaining the field values.  This
-          // manipulates the millisecond instance.
-          dt = dt.withZoneRetainFields(dtz);
-          // Now convert to the UTC time zone, retaining the millisecond instant
-          dt = dt.withZone(DateTimeZone.UTC);
-        } //else {
-          //dt = dt.withZone(DateTimeZone.UTC);   // default UTC
-        //}
-
-      //} else {
-      //  dt = dt.withZone(DateTimeZone.UTC);   // default UTC
+        }
       }
 
-      return dt;
+      return makeDateTime(calt, year, month, day, hour, minute, second, hasZone, hourOffset, minuteOffset);
+
     } catch (Throwable e) {  // catch random joda exceptions
       throw new IllegalArgumentException("Illegal base time specification: '" + dateString+"' "+e.getMessage());
     }
   }
 
+  /*
+   * Hand written parser for the common forms, without regexp matching, tokenizing or substrings:
+   *   [+-]Y*[-M*[-D*]][(T|t| )h*[:m*[:s*[.s*]]]][Z|z| UTC| GMT| Z|[ ](+|-)hh[[:]mm]]
+   * Returns null if the string is not one of these forms, in which case the caller uses the regexp parser,
+   * so that the result (or the exception) is always the same as parseIsoTimeStringRegexp.
+   */
+  private static DateTime parseIsoTimeStringFast(Calendar calt, String iso) {
+    int len = iso.length();
+    int pos = 0;
+    while (pos < len && iso.charAt(pos) <= ' ') pos++;     // trim
+    while (len > pos && iso.charAt(len - 1) <= ' ') len--;
+    if (pos >= len) return null;
+
+    boolean isMinus = false;
+    char c = iso.charAt(pos);
+    if (c == '-' || c == '+') {
+      isMinus = (c == '-');
+      pos++;
+    }
+
+    // date: up to 3 fields separated by '-'
+    int[] field = {0, 1, 1};  // year, month, day
+    for (int i = 0; i < 3; i++) {
+      int start = pos;
+      int val = 0;
+      while (pos < len && (c = iso.charAt(pos)) >= '0' && c <= '9') {
+        val = val * 10 + (c - '0');
+        pos++;
+      }
+      if (pos == start || pos - start > 9) return null;
+      field[i] = val;
+      if (pos == len || iso.charAt(pos) != '-') break;
+      if (i == 2) return null; // more than 3 fields
+      pos++;
+    }
+    int year = isMinus ? -field[0] : field[0];
+    int hour = 0, minute = 0;
+    double second = 0.0;
+    boolean hasZone = false;
+    int hourOffset = 0, minuteOffset = 0;
+
+    if (pos < len) {
+      c = iso.charAt(pos++);
+      if (c != 'T' && c != 't' && c != ' ') return null;
+
+      // time: up to 3 fields separated by ':', seconds may have a fraction
+      int[] tfield = {0, 0, 0};
+      for (int i = 0; i < 3; i++) {
+        int start = pos;
+        int val = 0;
+        while (pos < len && (c = iso.charAt(pos)) >= '0' && c <= '9') {
+          val = val * 10 + (c - '0');
+          pos++;
+        }
+        if (pos == start || pos - start > 9) return null;
+        tfield[i] = val;
+        if (i == 2 && pos < len && iso.charAt(pos) == '.') {
+          pos++;
+          while (pos < len && (c = iso.charAt(pos)) >= '0' && c <= '9') pos++;
+          second = Double.parseDouble(iso.substring(start, pos)); // same rounding as the regexp parser
+        } else if (i == 2) {
+          second = val;
+        }
+        if (pos == len || iso.charAt(pos) != ':') break;
+        if (i == 2) return null;
+        pos++;
+      }
+      hour = tfield[0];
+      minute = tfield[1];
+
+      // zone
+      if (pos < len) {
+        c = iso.charAt(pos);
+        if ((c == 'Z' || c == 'z') && pos == len - 1) {
+          // UTC
+        } else {
+          if (c == ' ') {
+            pos++;
+            int n = len - pos;
+            if ((n == 3 && (iso.regionMatches(true, pos, "UTC", 0, 3) || iso.regionMatches(true, pos, "GMT", 0, 3))) ||
+                (n == 1 && (iso.charAt(pos) == 'Z' || iso.charAt(pos) == 'z')))
+              pos = len;
+            else if (n == 0)
+              return null;
+            else
+              c = iso.charAt(pos);
+          }
+          if (pos < len) {
+            if (c != '+' && c != '-') return null;
+            boolean zoneMinus = (c == '-');
+            pos++;
+            int start = pos;
+            int hval = 0;
+            while (pos < len && (c = iso.charAt(pos)) >= '0' && c <= '9') {
+              hval = hval * 10 + (c - '0');
+              pos++;
+            }
+            int ndigits = pos - start;
+            if (ndigits == 0 || ndigits > 4) return null;
+            if (pos < len) {  // hh:mm
+              if (iso.charAt(pos) != ':') return null;
+              pos++;
+              int mstart = pos;
+              int mval = 0;
+              while (pos < len && (c = iso.charAt(pos)) >= '0' && c <= '9') {
+                mval = mval * 10 + (c - '0');
+                pos++;
+              }
+              if (pos < len || pos == mstart || pos - mstart > 4) return null;
+              hourOffset = hval;
+              minuteOffset = mval;
+            } else if (ndigits > 2) { // hhmm
+              hourOffset = hval / (ndigits == 3 ? 10 : 100);
+              minuteOffset = hval % (ndigits == 3 ? 10 : 100);
+            } else {
+              hourOffset = hval;
+            }
+            if (zoneMinus) hourOffset = -hourOffset;
+            hasZone = true;
+          }
+        }
+      }
+    }
+
+    try {
+      return makeDateTime(calt, year, field[1], field[2], hour, minute, second, hasZone, hourOffset, minuteOffset);
+    } catch (Throwable e) {  // let the regexp parser make the error message
+      return null;
+    }
+  }
+
+  private static DateTime makeDateTime(Calendar calt, int year, int month, int day, int hour, int minute, double second,
+                                       boolean hasZone, int hourOffset, int minuteOffset) {
+    // kludge to deal with legacy files using year 0. // 10/10/2013 jcaron
+    if ((year == 0) && (calt == Calendar.gregorian)) {
+      calt = Calendar.proleptic_gregorian;
+    }
+
+    //if (year <  -292275054 || year > 292278993)
+    //  throw new IllegalArgumentException(" incorrect date specification = " + iso);
+
+    // Get a DateTime object in this Chronology
+    Chronology cron = Calendar.getChronology(calt);
+    cron = cron.withUTC(); // default is UTC
+    DateTime dt = new DateTime(year, month, day, hour, minute, 0, 0, cron);
+
+    // Add the seconds
+    dt = dt.plus((long) (1000 * second));
+
+    if (hasZone) {
+      DateTimeZone dtz = DateTimeZone.forOffsetHoursMinutes(hourOffset, minuteOffset);
+
+      // Apply the time zone offset, retaining the field values.  This
+      // manipulates the millisecond instance.
+      dt = dt.withZoneRetainFields(dtz);
+      // Now convert to the UTC time zone, retaining the millisecond instant
+      dt = dt.withZone(DateTimeZone.UTC);
+    }
+
+    return dt;
+  }
+
   /////////////////////////////////////////////
   private final DateTimeFormatter dflocal;
 
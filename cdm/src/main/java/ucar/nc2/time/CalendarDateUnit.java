@@ -32,9 +32,13 @@
  */
 package ucar.nc2.time;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import javax.annotation.concurrent.Immutable;
 
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.Formatter;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -74,6 +78,14 @@ There’s an alternative proposition, in which the new units of calendar_month a
  */
 @Immutable
 public class CalendarDateUnit {
+  // the same few unit strings are parsed over and over (every time coordinate in an aggregation, etc.)
+  // CalendarDateUnit is immutable, so share them. one cache per Calendar, keyed by the udunit string as given.
+  private static final EnumMap<Calendar, Cache<String, CalendarDateUnit>> cache = new EnumMap<>(Calendar.class);
+  static {
+    for (Calendar cal : Calendar.values())
+      cache.put(cal, CacheBuilder.newBuilder().maximumSize(500).<String, CalendarDateUnit>build());
+  }
+
   public static final CalendarDateUnit unixDateUnit = CalendarDateUnit.of(null, CalendarPeriod.Field.Second, CalendarDate.parseISOformat(null, "1970-01-01T00:00:00"));
 
   private static final String byCalendarString = "calendar ";
@@ -92,7 +104,7 @@ public class CalendarDateUnit {
   static public CalendarDateUnit of(String calendarName, String udunitString) {
     Calendar calt = Calendar.get(calendarName);
     if (calt == null) calt = Calendar.getDefault();
-    return new CalendarDateUnit(calt, udunitString);
+    return make(calt, udunitString);
   }
 
   /**
@@ -104,7 +116,18 @@ public class CalendarDateUnit {
    */
   static public CalendarDateUnit withCalendar(Calendar calt, String udunitString) {
     if (calt == null) calt = Calendar.getDefault();
-    return new CalendarDateUnit(calt, udunitString);
+    return make(calt, udunitString);
+  }
+
+  // failures are not cached, they throw IllegalArgumentException each time
+  private static CalendarDateUnit make(Calendar calt, String udunitString) {
+    Cache<String, CalendarDateUnit> calCache = cache.get(calt);
+    CalendarDateUnit result = calCache.getIfPresent(udunitString);
+    if (result == null) {
+      result = new CalendarDateUnit(calt, udunitString);
+      calCache.put(udunitString, result);
+    }
+    return result;
   }
 
   /**
@@ -0,0 +1,260 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small registry of counters and histograms, written out in the Prometheus text format.
+ * Metrics are grouped into families with a name, help text and label names; each combination of label values
+ * is a separate counter or histogram.
+ * <pre>
+ *   static private final Metrics.Family&lt;Metrics.Histogram&gt; readTime =
+ *       Metrics.histogram("cdm_iosp_read_seconds", "Time in IOServiceProvider.readData", "iosp");
+ *   ...
+ *   readTime.labels(spi.getClass().getSimpleName()).observeNanos(System.nanoTime() - start);
+ * </pre>
+ */
+@ThreadSafe
+public class Metrics {
+  /** Default histogram buckets, in seconds */
+  static public final double[] LATENCY_BUCKETS = {.0005, .001, .0025, .005, .01, .025, .05, .1, .25, .5, 1, 2.5, 5, 10, 30};
+
+  static private final Map<String, Family<?>> registry = new ConcurrentSkipListMap<>();
+
+  /**
+   * Get or create a family of counters.
+   *
+   * @param name       metric name, eg "cdm_iosp_read_bytes_total"
+   * @param help       description
+   * @param labelNames names of the labels, may be none
+   * @return the family
+   */
+  static public Family<Counter> counter(String name, String help, String... labelNames) {
+    return register(new Family<>(name, help, "counter", labelNames, Counter::new));
+  }
+
+  /**
+   * Get or create a family of histograms with the default buckets.
+   *
+   * @param name       metric name, eg "cdm_iosp_read_seconds"
+   * @param help       description
+   * @param labelNames names of the labels, may be none
+   * @return the family
+   */
+  static public Family<Histogram> histogram(String name, String help, String... labelNames) {
+    return histogram(name, help, LATENCY_BUCKETS, labelNames);
+  }
+
+  static public Family<Histogram> histogram(String name, String help, double[] buckets, String... labelNames) {
+    double[] bounds = buckets.clone();
+    Arrays.sort(bounds);
+    return register(new Family<>(name, help, "histogram", labelNames, () -> new Histogram(bounds)));
+  }
+
+  @SuppressWarnings("unchecked")
+  static private <T extends Metric> Family<T> register(Family<T> family) {
+    Family<?> prev = registry.putIfAbsent(family.name, family);
+    if (prev == null) return family;
+    if (!prev.type.equals(family.type) || !Arrays.equals(prev.labelNames, family.labelNames))
+      throw new IllegalArgumentException("Metric " + family.name + " already registered as a different kind");
+    return (Family<T>) prev;
+  }
+
+  /** Discard all values, for testing */
+  static public void clear() {
+    for (Family<?> family : registry.values())
+      family.children.clear();
+  }
+
+  /**
+   * Write all metrics in the Prometheus text exposition format, version 0.0.4
+   *
+   * @param f write to this
+   */
+  static public void writePrometheus(Formatter f) {
+    for (Family<?> family : registry.values()) {
+      if (family.children.isEmpty()) continue;
+      f.format("# HELP %s %s%n", family.name, family.help);
+      f.format("# TYPE %s %s%n", family.name, family.type);
+      for (Map.Entry<String, ? extends Metric> entry : family.children.entrySet())
+        entry.getValue().write(f, family.name, family.makeLabels(entry.getKey()));
+    }
+  }
+
+  static private String formatDouble(double d) {
+    if (d == Double.POSITIVE_INFINITY) return "+Inf";
+    if (d == Math.rint(d) && Math.abs(d) < 1e15) return Long.toString((long) d);
+    return Double.toString(d);
+  }
+
+  static private String escape(String s) {
+    return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  ////////////////////////////////////////////////////////////////////////
+
+  public interface Metric {
+    void write(Formatter f, String name, String labels);
+  }
+
+  interface Factory<T> {
+    T make();
+  }
+
+  /** A named group of metrics of the same type, one per combination of label values */
+  static public class Family<T extends Metric> {
+    final String name, help, type;
+    final String[] labelNames;
+    final ConcurrentHashMap<String, T> children = new ConcurrentHashMap<>();
+    final Factory<T> factory;
+
+    Family(String name, String help, String type, String[] labelNames, Factory<T> factory) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+      this.labelNames = labelNames;
+      this.factory = factory;
+    }
+
+    /**
+     * Get the metric for these label values, creating it if needed.
+     *
+     * @param labelValues one for each label name, in order
+     * @return the metric
+     */
+    public T labels(String... labelValues) {
+      if (labelValues.length != labelNames.length)
+        throw new IllegalArgumentException(name + " needs " + labelNames.length + " label values");
+      String key = (labelValues.length == 1) ? labelValues[0] : String.join("\u0000", labelValues);
+      T result = children.get(key);
+      if (result == null)
+        result = children.computeIfAbsent(key, k -> factory.make());
+      return result;
+    }
+
+    String makeLabels(String key) {
+      if (labelNames.length == 0) return "";
+      String[] values = (labelNames.length == 1) ? new String[]{key} : key.split("\u0000", -1);
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < labelNames.length; i++) {
+        if (i > 0) sb.append(',');
+        sb.append(labelNames[i]).append("=\"").append(escape(values[i])).append('"');
+      }
+      return sb.toString();
+    }
+  }
+
+  /** A count that only goes up */
+  static public class Counter implements Metric {
+    private final DoubleAdder value = new DoubleAdder();
+
+    public void inc() {
+      value.add(1);
+    }
+
+    public void inc(double amount) {
+      value.add(amount);
+    }
+
+    public double get() {
+      return value.sum();
+    }
+
+    @Override
+    public void write(Formatter f, String name, String labels) {
+      f.format("%s%s %s%n", name, labels.isEmpty() ? "" : "{" + labels + "}", formatDouble(value.sum()));
+    }
+  }
+
+  /** Counts observations into buckets, and keeps their sum */
+  static public class Histogram implements Metric {
+    private final double[] bounds;
+    private final AtomicLongArray counts; // not cumulative; last one is +Inf
+    private final DoubleAdder sum = new DoubleAdder();
+    private final LongAdder count = new LongAdder();
+
+    Histogram(double[] bounds) {
+      this.bounds = bounds;
+      this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    public void observe(double value) {
+      int i = Arrays.binarySearch(bounds, value);
+      if (i < 0) i = -i - 1; // first bound >= value
+      counts.incrementAndGet(i);
+      sum.add(value);
+      count.increment();
+    }
+
+    /**
+     * Observe an elapsed time.
+     *
+     * @param nanos elapsed time in nanoseconds, recorded in seconds
+     */
+    public void observeNanos(long nanos) {
+      observe(nanos / 1.0e9);
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public double getSum() {
+      return sum.sum();
+    }
+
+    @Override
+    public void write(Formatter f, String name, String labels) {
+      String sep = labels.isEmpty() ? "" : ",";
+      long cumulative = 0;
+      for (int i = 0; i <= bounds.length; i++) {
+        cumulative += counts.get(i);
+        double le = (i < bounds.length) ? bounds[i] : Double.POSITIVE_INFINITY;
+        f.format("%s_bucket{%s%sle=\"%s\"} %d%n", name, labels, sep, formatDouble(le), cumulative);
+      }
+      String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+      f.format("%s_sum%s %s%n", name, braces, formatDouble(sum.sum()));
+      f.format("%s_count%s %d%n", name, braces, cumulative);
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.util;
+
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An opt-in trace of where the time went while handling one request.
+ * The trace is attached to the current thread; code on the read path marks spans with
+ * <pre>
+ *   try (RequestTrace.Span span = RequestTrace.span("NetcdfFile.open")) {
+ *     ...
+ *   }
+ * </pre>
+ * and the spans are summed by name, with their own ("self") time separated from the time in nested spans.
+ * A span nested inside an open span of the same name (eg a recursive read) adds to the self time, but not to the
+ * count or total, which would otherwise count that time twice.
+ * When no trace is active, span() returns a shared no-op Span, so the cost is one ThreadLocal lookup.
+ * Work done on other threads is not traced.
+ */
+public class RequestTrace {
+  static private final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+  static private final Span NOOP = new Span(null, null, null, false);
+
+  /**
+   * Start tracing on the current thread, replacing any trace already there.
+   *
+   * @param id identifies the request in the summary
+   * @return the new trace
+   */
+  static public RequestTrace start(String id) {
+    RequestTrace trace = new RequestTrace(id);
+    current.set(trace);
+    return trace;
+  }
+
+  /**
+   * Stop tracing on the current thread.
+   *
+   * @return the trace that was active, or null
+   */
+  static public RequestTrace finish() {
+    RequestTrace trace = current.get();
+    current.remove();
+    if (trace != null) trace.endNanos = System.nanoTime();
+    return trace;
+  }
+
+  /** @return the trace active on the current thread, or null */
+  static public RequestTrace current() {
+    return current.get();
+  }
+
+  static public boolean isActive() {
+    return current.get() != null;
+  }
+
+  /**
+   * Open a span on the current trace. Close it when the work is done, preferably with try-with-resources.
+   *
+   * @param name what is being timed, eg "Variable.read"; spans with the same name are summed
+   * @return the span; a no-op if there is no active trace
+   */
+  static public Span span(String name) {
+    RequestTrace trace = current.get();
+    if (trace == null) return NOOP;
+    Stat stat = trace.getStat(name);
+    stat.depth++;
+    Span span = new Span(trace, name, trace.top, stat.depth == 1);
+    trace.top = span;
+    return span;
+  }
+
+  ////////////////////////////////////////////////////////////////////////
+
+  private static class Stat {
+    int count;
+    long totalNanos, selfNanos;
+    int depth; // open spans with this name
+  }
+
+  private final String id;
+  private final long startNanos = System.nanoTime();
+  private long endNanos;
+  private final Map<String, Stat> stats = new LinkedHashMap<>(); // in order first seen
+  private Span top; // innermost open span
+
+  private RequestTrace(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /** @return elapsed msecs since the trace started, up to finish() if it has been called */
+  public double getElapsedMsecs() {
+    long end = (endNanos == 0) ? System.nanoTime() : endNanos;
+    return (end - startNanos) / 1.0e6;
+  }
+
+  /** @return names of the spans seen, in the order first opened */
+  public List<String> getSpanNames() {
+    return new ArrayList<>(stats.keySet());
+  }
+
+  /** @return number of times the named span was closed, not counting those nested in a span of the same name */
+  public int getCount(String name) {
+    Stat stat = stats.get(name);
+    return (stat == null) ? 0 : stat.count;
+  }
+
+  /** @return total msecs in the named span, including nested spans */
+  public double getTotalMsecs(String name) {
+    Stat stat = stats.get(name);
+    return (stat == null) ? 0 : stat.totalNanos / 1.0e6;
+  }
+
+  /** @return msecs in the named span, not counting nested spans */
+  public double getSelfMsecs(String name) {
+    Stat stat = stats.get(name);
+    return (stat == null) ? 0 : stat.selfNanos / 1.0e6;
+  }
+
+  /**
+   * One line summary, eg
+   * "trace 42 total=812.4ms; FileCache.acquire 1x 40.2ms (self 0.3); NetcdfFile.open 1x 39.9ms (self 39.9); ..."
+   *
+   * @param f add to this
+   */
+  public void show(Formatter f) {
+    f.format("trace %s total=%.1fms", id, getElapsedMsecs());
+    for (Map.Entry<String, Stat> entry : stats.entrySet()) {
+      Stat stat = entry.getValue();
+      if (stat.count == 0) continue; // never closed
+      f.format("; %s %dx %.1fms", entry.getKey(), stat.count, stat.totalNanos / 1.0e6);
+      if (stat.selfNanos != stat.totalNanos)
+        f.format(" (self %.1f)", stat.selfNanos / 1.0e6);
+    }
+  }
+
+  @Override
+  public String toString() {
+    Formatter f = new Formatter();
+    show(f);
+    return f.toString();
+  }
+
+  private Stat getStat(String name) {
+    Stat stat = stats.get(name);
+    if (stat == null) {
+      stat = new Stat();
+      stats.put(name, stat);
+    }
+    return stat;
+  }
+
+  private void close(Span span, long elapsed) {
+    // also pop any nested span that was never closed, eg because of an exception
+    for (Span leaked = top; leaked != null && leaked != span; leaked = leaked.parent) {
+      leaked.closed = true;
+      stats.get(leaked.name).depth--;
+    }
+
+    Stat stat = stats.get(span.name);
+    stat.depth--;
+    if (span.outermost) {
+      stat.count++;
+      stat.totalNanos += elapsed;
+    }
+    stat.selfNanos += elapsed - span.childNanos;
+    if (span.parent != null) span.parent.childNanos += elapsed;
+    top = span.parent;
+  }
+
+  /** A timed section of work; close() it exactly once. */
+  static public class Span implements AutoCloseable {
+    private final RequestTrace trace;
+    private final String name;
+    private final Span parent;
+    private final boolean outermost; // no open span with the same name encloses this one
+    private final long startNanos;
+    private long childNanos;
+    private boolean closed;
+
+    private Span(RequestTrace trace, String name, Span parent, boolean outermost) {
+      this.trace = trace;
+      this.name = name;
+      this.parent = parent;
+      this.outermost = outermost;
+      this.startNanos = (trace == null) ? 0 : System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+      if (trace == null || closed) return;
+      closed = true;
+      trace.close(this, System.nanoTime() - startNanos);
+    }
+  }
+}
@@ -36,7 +36,9 @@ import ucar.nc2.dataset.DatasetUrl;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateFormatter;
 import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.Metrics;
 import ucar.nc2.util.Misc;
+import ucar.nc2.util.RequestTrace;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
@@ -92,6 +94,10 @@ public class FileCache implements FileCacheIF {
   static final boolean debugPrint = false;
   static final boolean debugCleanup = false;
 
+  static private final Metrics.Family<Metrics.Histogram> acquireTime =
+          Metrics.histogram("cdm_filecache_acquire_seconds", "Time to acquire a file from a FileCache, including opening it on a miss",
+                  "cache", "result");
+
   // Shared mutable data. Access to it is limited to the following 3 synchronized methods.
   static private Timer timer;
 
@@ -256,24 +262,30 @@ public class FileCache implements FileCacheIF {
     if (null == hashKey) hashKey = location.trueurl;
     if (null == hashKey) throw new IllegalArgumentException();
 
-    Tracker t = null;
-    if (trackAll) {
-      t = new Tracker(hashKey);
-      Tracker prev = track.putIfAbsent(hashKey, t);
-      if (prev != null) t = prev;
-    }
+    long startNanos = System.nanoTime();
+    FileCacheable ncfile;
+    try (RequestTrace.Span span = RequestTrace.span("FileCache.acquire")) {
+      Tracker t = null;
+      if (trackAll) {
+        t = new Tracker(hashKey);
+        Tracker prev = track.putIfAbsent(hashKey, t);
+        if (prev != null) t = prev;
+      }
 
-    FileCacheable ncfile = acquireCacheOnly(hashKey);
-    if (ncfile != null) {
-      hits.incrementAndGet();
-      if (t != null) t.hit++;
-      return ncfile;
-    }
-    miss.incrementAndGet();
-    if (t != null) t.miss++;
+      ncfile = acquireCacheOnly(hashKey);
+      if (ncfile != null) {
+        hits.incrementAndGet();
+        if (t != null) t.hit++;
+        acquireTime.labels(name, "hit").observeNanos(System.nanoTime() - startNanos);
+        return ncfile;
+      }
+      miss.incrementAndGet();
+      if (t != null) t.miss++;
 
-    // open the file
-    ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+      // open the file
+      ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+      acquireTime.labels(name, "miss").observeNanos(System.nanoTime() - startNanos);
+    }
     if (cacheLog.isDebugEnabled())
       cacheLog.debug("FileCache " + name + " acquire " + hashKey + " " + ncfile.getLocation());
     if (debugPrint) System.out.println("  FileCache " + name + " acquire " + hashKey + " " + ncfile.getLocation());
@@ -39,6 +39,8 @@ import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import ucar.nc2.dataset.DatasetUrl;
 import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.Metrics;
+import ucar.nc2.util.RequestTrace;
 
 import java.io.IOException;
 import java.util.Formatter;
@@ -52,6 +54,9 @@ import java.util.concurrent.ExecutionException;
  * @since 11/12/2014
  */
 public class FileCacheGuava implements FileCacheIF {
+  static private final Metrics.Family<Metrics.Histogram> acquireTime =
+          Metrics.histogram("cdm_filecache_acquire_seconds", "Time to acquire a file from a FileCache, including opening it on a miss",
+                  "cache", "result");
 
   private final String name;
   private LoadingCache<String, FileCacheable> cache;
@@ -92,9 +97,18 @@ public class FileCacheGuava implements FileCacheIF {
     if (null == hashKey) hashKey = durl.trueurl;
     if (null == hashKey) throw new IllegalArgumentException();
 
-    try {
+    long startNanos = System.nanoTime();
+    try (RequestTrace.Span span = RequestTrace.span("FileCache.acquire")) {
+      FileCacheable result = cache.getIfPresent(hashKey);
+      if (result != null) {
+        acquireTime.labels(name, "hit").observeNanos(System.nanoTime() - startNanos);
+        return result;
+      }
+
       // If the key wasn't in the "easy to compute" group, we need to use the factory.
-      return cache.get((String)hashKey, () -> factory.open(durl, buffer_size, cancelTask, spiObject));
+      result = cache.get((String)hashKey, () -> factory.open(durl, buffer_size, cancelTask, spiObject));
+      acquireTime.labels(name, "miss").observeNanos(System.nanoTime() - startNanos);
+      return result;
     } catch (ExecutionException e) {
       throw new RuntimeException(e.getCause());
     }
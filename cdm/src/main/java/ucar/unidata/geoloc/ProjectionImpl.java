@@ -36,6 +36,7 @@ import ucar.unidata.geoloc.projection.LatLonProjection;
 import ucar.unidata.util.*;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Superclass for our implementations of geoloc.Projection.
@@ -91,6 +92,14 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
    */
   protected static final double TOLERANCE = 1.0e-6;
 
+  /**
+   * Grids with more points than this are converted in parallel by projToLatLon(double[], double[])
+   */
+  static public int parallelThreshold = 100 * 1000;
+
+  // number of points in each parallel piece
+  static private final int PARALLEL_BLOCK = 10 * 1000;
+
   /**
    * PI
    */
@@ -422,8 +431,12 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
               + "from array not same length as to array");
     }
 
+    ProjectionPointImpl ppi = new ProjectionPointImpl();
+    LatLonPointImpl llpi = new LatLonPointImpl();
+
     for (int i = 0; i < from[0].length; i++) {
-      LatLonPoint endL = projToLatLon(from[0][i], from[1][i]);
+      ppi.setLocation(from[0][i], from[1][i]);
+      LatLonPoint endL = projToLatLon(ppi, llpi);
       to[0][i] = endL.getLatitude();
       to[1][i] = endL.getLongitude();
     }
@@ -475,9 +488,9 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
 
     for (int i = 0; i < from[0].length; i++) {
       ppi.setLocation((double) from[0][i], (double) from[1][i]);
-      projToLatLon(ppi, llpi);
-      to[0][i] = (float) llpi.getLatitude();
-      to[1][i] = (float) llpi.getLongitude();
+      LatLonPoint endL = projToLatLon(ppi, llpi);
+      to[0][i] = (float) endL.getLatitude();
+      to[1][i] = (float) endL.getLongitude();
     }
 
     return to;
@@ -563,9 +576,9 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
     for (int i = 0; i < from[0].length; i++) {
       llpi.setLatitude(from[latIndex][i]);
       llpi.setLongitude(from[lonIndex][i]);
-      latLonToProj(llpi, ppi);
-      to[0][i] = ppi.getX();
-      to[1][i] = ppi.getY();
+      ProjectionPoint endP = latLonToProj(llpi, ppi);
+      to[0][i] = endP.getX();
+      to[1][i] = endP.getY();
     }
     return to;
   }
@@ -653,14 +666,59 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
     for (int i = 0; i < from[0].length; i++) {
       llpi.setLatitude(from[latIndex][i]);
       llpi.setLongitude(from[lonIndex][i]);
-      latLonToProj(llpi, ppi);
-      to[0][i] = (float) ppi.getX();
-      to[1][i] = (float) ppi.getY();
+      ProjectionPoint endP = latLonToProj(llpi, ppi);
+      to[0][i] = (float) endP.getX();
+      to[1][i] = (float) endP.getY();
     }
 
     return to;
   }
 
+  /**
+   * Convert the projection coordinates of a 2D grid to lat/lon coordinates, using projToLatLon(double[][], double[][]).
+   * Grids with more than parallelThreshold points are split into blocks of rows that are converted in parallel.
+   *
+   * @param xcoords x coordinates of the grid, length nx
+   * @param ycoords y coordinates of the grid, length ny
+   * @return resulting array of lat/lon coordinates: to[2][ny*nx] where
+   *         (to[0][j*nx+i], to[1][j*nx+i]) is the (lat, lon) coordinate
+   *         of the point (xcoords[i], ycoords[j])
+   */
+  public double[][] projToLatLon(double[] xcoords, double[] ycoords) {
+    int nx = xcoords.length;
+    int ny = ycoords.length;
+    double[][] to = new double[2][nx * ny];
+    if (nx * ny <= parallelThreshold) {
+      projToLatLonRows(xcoords, ycoords, 0, ny, to);
+      return to;
+    }
+
+    int rowsPerBlock = Math.max(1, PARALLEL_BLOCK / nx);
+    int nblocks = (ny + rowsPerBlock - 1) / rowsPerBlock;
+    IntStream.range(0, nblocks).parallel().forEach(block -> {
+      int start = block * rowsPerBlock;
+      projToLatLonRows(xcoords, ycoords, start, Math.min(ny, start + rowsPerBlock), to);
+    });
+    return to;
+  }
+
+  // convert rows [startRow, endRow) of the grid into the same place in to[][]
+  private void projToLatLonRows(double[] xcoords, double[] ycoords, int startRow, int endRow, double[][] to) {
+    int nx = xcoords.length;
+    int n = (endRow - startRow) * nx;
+    double[][] from = new double[2][n];
+    for (int j = startRow, k = 0; j < endRow; j++) {
+      for (int i = 0; i < nx; i++, k++) {
+        from[INDEX_X][k] = xcoords[i];
+        from[INDEX_Y][k] = ycoords[j];
+      }
+    }
+
+    double[][] latlon = projToLatLon(from, new double[2][n]);
+    System.arraycopy(latlon[INDEX_LAT], 0, to[INDEX_LAT], startRow * nx, n);
+    System.arraycopy(latlon[INDEX_LON], 0, to[INDEX_LON], startRow * nx, n);
+  }
+
   // bounding box utilities
 
   /**
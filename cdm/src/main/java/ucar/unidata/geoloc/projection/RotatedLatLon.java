@@ -210,6 +210,65 @@ public class RotatedLatLon extends ProjectionImpl {
     return destPoint;
   }
 
+  /**
+   * Convert lat/lon coordinates to projection coordinates.
+   *
+   * @param from     array of lat/lon coordinates: from[2][n], where
+   *                 (from[latIndex][i], from[lonIndex][i]) is the (lat,lon)
+   *                 coordinate of the ith point
+   * @param to       resulting array of projection coordinates: to[2][n]
+   *                 where (to[0][i], to[1][i]) is the (x,y) coordinate of
+   *                 the ith point
+   * @param latIndex index of lat coordinate; must be 0 or 1
+   * @param lonIndex index of lon coordinate; must be 0 or 1
+   * @return the "to" array
+   */
+  @Override
+  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
+    rotate(from[lonIndex], from[latIndex], to[INDEX_X], to[INDEX_Y], lonpole, polerotate, sinDlat);
+    return to;
+  }
+
+  /**
+   * Convert projection coordinates to lat/lon coordinates.
+   *
+   * @param from array of projection coordinates: from[2][n], where
+   *             (from[0][i], from[1][i]) is the (x, y) coordinate
+   *             of the ith point
+   * @param to   resulting array of lat/lon coordinates: to[2][n] where
+   *             (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+   *             the ith point
+   * @return the "to" array
+   */
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    rotate(from[INDEX_X], from[INDEX_Y], to[INDEX_LON], to[INDEX_LAT], -polerotate, -lonpole, -sinDlat);
+    double[] toLonA = to[INDEX_LON];
+    for (int i = 0; i < toLonA.length; i++)
+      toLonA[i] = LatLonPointImpl.lonNormal(toLonA[i]);
+    return to;
+  }
+
+  // array version of rotate(), without allocating for each point
+  private void rotate(double[] lonA, double[] latA, double[] rlonA, double[] rlatA, double rot1, double rot2, double s) {
+    int cnt = lonA.length;
+    for (int i = 0; i < cnt; i++) {
+      double e = Math.toRadians(lonA[i] - rot1); //east
+      double n = Math.toRadians(latA[i]); //north
+      double cn = Math.cos(n);
+      double x = cn * Math.cos(e);
+      double y = cn * Math.sin(e);
+      double z = Math.sin(n);
+      double x2 = cosDlat * x + s * z;
+      double z2 = -s * x + cosDlat * z;
+      double R = Math.sqrt(x2 * x2 + y * y);
+      double e2 = Math.atan2(y, x2);
+      double n2 = Math.atan2(z2, R);
+      rlonA[i] = Math.toDegrees(e2) - rot2;
+      rlatA[i] = Math.toDegrees(n2);
+    }
+  }
+
   // Tor's transform algorithm renamed to rotate for clarity
   private double[] rotate(double[] lonlat, double rot1, double rot2, double s) {
 
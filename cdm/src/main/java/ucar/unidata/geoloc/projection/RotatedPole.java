@@ -232,6 +232,97 @@ public class RotatedPole extends ProjectionImpl {
     return destPoint;
   }
 
+  /**
+   * Convert lat/lon coordinates to projection coordinates.
+   *
+   * @param from     array of lat/lon coordinates: from[2][n], where
+   *                 (from[latIndex][i], from[lonIndex][i]) is the (lat,lon)
+   *                 coordinate of the ith point
+   * @param to       resulting array of projection coordinates: to[2][n]
+   *                 where (to[0][i], to[1][i]) is the (x,y) coordinate of
+   *                 the ith point
+   * @param latIndex index of lat coordinate; must be 0 or 1
+   * @param lonIndex index of lon coordinate; must be 0 or 1
+   * @return the "to" array
+   */
+  @Override
+  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
+    int cnt = from[0].length;
+    double[] fromLatA = from[latIndex];
+    double[] fromLonA = from[lonIndex];
+    double[] resultXA = to[INDEX_X];
+    double[] resultYA = to[INDEX_Y];
+
+    for (int i = 0; i < cnt; i++) {
+      double lat = fromLatA[i] * RAD_PER_DEG;
+      double lon = fromLonA[i] * RAD_PER_DEG;
+
+      //	Lon-lat pair to xyz coordinates on sphere with radius 1
+      double p0x = Math.cos(lat) * Math.cos(lon);
+      double p0y = Math.cos(lat) * Math.sin(lon);
+      double p0z = Math.sin(lat);
+
+      //	Rotate around Z-axis
+      double p1x = rotZ[0][0] * p0x + rotZ[0][1] * p0y + rotZ[0][2] * p0z;
+      double p1y = rotZ[1][0] * p0x + rotZ[1][1] * p0y + rotZ[1][2] * p0z;
+      double p1z = rotZ[2][0] * p0x + rotZ[2][1] * p0y + rotZ[2][2] * p0z;
+
+      //	Rotate around Y-axis
+      double p2x = rotY[0][0] * p1x + rotY[0][1] * p1y + rotY[0][2] * p1z;
+      double p2y = rotY[1][0] * p1x + rotY[1][1] * p1y + rotY[1][2] * p1z;
+      double p2z = rotY[2][0] * p1x + rotY[2][1] * p1y + rotY[2][2] * p1z;
+
+      resultXA[i] = LatLonPointImpl.range180(Math.atan2(p2y, p2x) * DEG_PER_RAD);
+      resultYA[i] = Math.asin(p2z) * DEG_PER_RAD;
+    }
+    return to;
+  }
+
+  /**
+   * Convert projection coordinates to lat/lon coordinates.
+   *
+   * @param from array of projection coordinates: from[2][n], where
+   *             (from[0][i], from[1][i]) is the (x, y) coordinate
+   *             of the ith point
+   * @param to   resulting array of lat/lon coordinates: to[2][n] where
+   *             (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+   *             the ith point
+   * @return the "to" array
+   */
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    int cnt = from[0].length;
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+
+    for (int i = 0; i < cnt; i++) {
+      //	"x" and "y" input for rotated pole coords are actually a lon-lat pair
+      double lonR = LatLonPointImpl.range180(fromXA[i]) * RAD_PER_DEG;
+      double latR = fromYA[i] * RAD_PER_DEG;
+
+      //	Lon-lat pair to xyz coordinates on sphere with radius 1
+      double p0x = Math.cos(latR) * Math.cos(lonR);
+      double p0y = Math.cos(latR) * Math.sin(lonR);
+      double p0z = Math.sin(latR);
+
+      //	Inverse rotate around Y-axis (using transpose of Y matrix)
+      double p1x = rotY[0][0] * p0x + rotY[1][0] * p0y + rotY[2][0] * p0z;
+      double p1y = rotY[0][1] * p0x + rotY[1][1] * p0y + rotY[2][1] * p0z;
+      double p1z = rotY[0][2] * p0x + rotY[1][2] * p0y + rotY[2][2] * p0z;
+
+      //	Inverse rotate around Z-axis (using transpose of Z matrix)
+      double p2x = rotZ[0][0] * p1x + rotZ[1][0] * p1y + rotZ[2][0] * p1z;
+      double p2y = rotZ[0][1] * p1x + rotZ[1][1] * p1y + rotZ[2][1] * p1z;
+      double p2z = rotZ[0][2] * p1x + rotZ[1][2] * p1y + rotZ[2][2] * p1z;
+
+      toLonA[i] = Math.atan2(p2y, p2x) * DEG_PER_RAD;
+      toLatA[i] = Math.asin(p2z) * DEG_PER_RAD;
+    }
+    return to;
+  }
+
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
      return Math.abs(pt1.getX() - pt2.getX()) > 270.0;
   }
@@ -306,6 +306,91 @@ public class Sinusoidal extends ProjectionImpl {
         return result;
     }
 
+    /**
+     * Convert lat/lon coordinates to projection coordinates.
+     *
+     * @param from     array of lat/lon coordinates: from[2][n], where
+     *                 (from[latIndex][i], from[lonIndex][i]) is the (lat,lon)
+     *                 coordinate of the ith point
+     * @param to       resulting array of projection coordinates: to[2][n]
+     *                 where (to[0][i], to[1][i]) is the (x,y) coordinate of
+     *                 the ith point
+     * @param latIndex index of lat coordinate; must be 0 or 1
+     * @param lonIndex index of lon coordinate; must be 0 or 1
+     * @return the "to" array
+     */
+    @Override
+    public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
+        int cnt = from[0].length;
+        double[] fromLatA = from[latIndex];
+        double[] fromLonA = from[lonIndex];
+        double[] resultXA = to[INDEX_X];
+        double[] resultYA = to[INDEX_Y];
+
+        for (int i = 0; i < cnt; i++) {
+            double deltaLon_d = LatLonPointImpl.range180(fromLonA[i] - centMeridian);
+            double fromLat_r = Math.toRadians(fromLatA[i]);
+            resultXA[i] = earthRadius * Math.toRadians(deltaLon_d) * Math.cos(fromLat_r) + falseEasting;
+            resultYA[i] = earthRadius * fromLat_r + falseNorthing;
+        }
+        return to;
+    }
+
+    /**
+     * Convert projection coordinates to lat/lon coordinates.
+     *
+     * @param from array of projection coordinates: from[2][n], where
+     *             (from[0][i], from[1][i]) is the (x, y) coordinate
+     *             of the ith point
+     * @param to   resulting array of lat/lon coordinates: to[2][n] where
+     *             (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+     *             the ith point
+     * @return the "to" array
+     */
+    @Override
+    public double[][] projToLatLon(double[][] from, double[][] to) {
+        int cnt = from[0].length;
+        double[] fromXA = from[INDEX_X];
+        double[] fromYA = from[INDEX_Y];
+        double[] toLatA = to[INDEX_LAT];
+        double[] toLonA = to[INDEX_LON];
+        double centMeridian_r = Math.toRadians(centMeridian);
+
+        for (int i = 0; i < cnt; i++) {
+            double fromX = fromXA[i] - falseEasting;
+            double fromY = fromYA[i] - falseNorthing;
+
+            double toLat_r = fromY / earthRadius;
+            double toLon_r;
+            boolean valid = true;
+
+            if (Misc.closeEnough(Math.abs(toLat_r), PI_OVER_2, 1e-10)) {
+                toLat_r = toLat_r < 0 ? -PI_OVER_2 : +PI_OVER_2;
+                toLon_r = centMeridian_r;
+            } else if (Math.abs(toLat_r) < PI_OVER_2) {
+                toLon_r = centMeridian_r + fromX / (earthRadius * Math.cos(toLat_r));
+            } else {
+                toLon_r = 0;
+                valid = false;  // off the map
+            }
+
+            if (Misc.closeEnough(Math.abs(toLon_r), PI, 1e-10)) {
+                toLon_r = toLon_r < 0 ? -PI : +PI;
+            } else if (Math.abs(toLon_r) > PI) {
+                valid = false;  // off the map
+            }
+
+            if (valid) {
+                toLatA[i] = Math.toDegrees(toLat_r);
+                toLonA[i] = Math.toDegrees(toLon_r);
+            } else {
+                toLatA[i] = INVALID.getLatitude();
+                toLonA[i] = INVALID.getLongitude();
+            }
+        }
+        return to;
+    }
+
     @Override
     public LatLonRect projToLatLonBB(ProjectionRect projBB) {
         List<ProjectionPoint> pointsOfInterest = new LinkedList<>();
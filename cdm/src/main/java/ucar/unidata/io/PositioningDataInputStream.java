@@ -33,6 +33,7 @@
 package ucar.unidata.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * Similar to a DataInputStream that keeps track of position.
@@ -44,6 +45,8 @@ import java.io.*;
 public class PositioningDataInputStream {
   private DataInputStream delegate;
   private long cpos = 0;
+  private ByteBuffer bulkBuffer; // scratch space for the primitive array reads
+  static private final int maxBulkSize = 64 * 1000;
 
   public PositioningDataInputStream(InputStream is) {
     if (is instanceof DataInputStream)
@@ -69,36 +72,62 @@ public class PositioningDataInputStream {
 
   public void readShort(long pos, short dest[], int off, int len) throws IOException {
     seek(pos);
-    for (int i=0; i<len; i++)
-      dest[off+i] = delegate.readShort();
-    cpos += len * 2;
+    while (len > 0) {
+      int count = Math.min(len, maxBulkSize / 2);
+      readBulk(count * 2).asShortBuffer().get(dest, off, count);
+      off += count;
+      len -= count;
+    }
   }
 
   public void readInt(long pos, int dest[], int off, int len) throws IOException {
     seek(pos);
-    for (int i=0; i<len; i++)
-      dest[off+i] = delegate.readInt();
-    cpos += len * 4;
+    while (len > 0) {
+      int count = Math.min(len, maxBulkSize / 4);
+      readBulk(count * 4).asIntBuffer().get(dest, off, count);
+      off += count;
+      len -= count;
+    }
   }
 
   public void readLong(long pos, long dest[], int off, int len) throws IOException {
     seek(pos);
-    for (int i=0; i<len; i++)
-      dest[off+i] = delegate.readLong();
-    cpos += len * 8;
+    while (len > 0) {
+      int count = Math.min(len, maxBulkSize / 8);
+      readBulk(count * 8).asLongBuffer().get(dest, off, count);
+      off += count;
+      len -= count;
+    }
   }
 
   public void readFloat(long pos, float dest[], int off, int len) throws IOException {
     seek(pos);
-    for (int i=0; i<len; i++)
-      dest[off+i] = delegate.readFloat();
-    cpos += len * 4;
+    while (len > 0) {
+      int count = Math.min(len, maxBulkSize / 4);
+      readBulk(count * 4).asFloatBuffer().get(dest, off, count);
+      off += count;
+      len -= count;
+    }
   }
 
   public void readDouble(long pos, double dest[], int off, int len) throws IOException {
     seek(pos);
-    for (int i=0; i<len; i++)
-      dest[off+i] = delegate.readDouble();
-    cpos += len * 8;
+    while (len > 0) {
+      int count = Math.min(len, maxBulkSize / 8);
+      readBulk(count * 8).asDoubleBuffer().get(dest, off, count);
+      off += count;
+      len -= count;
+    }
+  }
+
+  // read nbytes into the (big endian) scratch buffer
+  private ByteBuffer readBulk(int nbytes) throws IOException {
+    if (bulkBuffer == null || bulkBuffer.capacity() < nbytes)
+      bulkBuffer = ByteBuffer.allocate(Math.max(nbytes, 1000));
+    delegate.readFully(bulkBuffer.array(), 0, nbytes);
+    cpos += nbytes;
+    bulkBuffer.clear();
+    bulkBuffer.limit(nbytes);
+    return bulkBuffer;
   }
 }
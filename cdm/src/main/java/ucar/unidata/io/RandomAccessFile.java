@@ -44,6 +44,7 @@ import ucar.unidata.util.StringUtil2;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
@@ -299,6 +300,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    */
   boolean bufferModified = false;
 
+  /**
+   * Scratch space for the primitive array reads, allocated when first needed.
+   */
+  private ByteBuffer bulkBuffer;
+  static private final int maxBulkSize = 64 * 1000;
+
   /**
    * make sure file is at least this long when closed
    */
@@ -586,6 +593,15 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     this.bigEndian = bo.equals(ByteOrder.BIG_ENDIAN);
   }
 
+  /**
+   * The current endian mode, as set by order().
+   *
+   * @return ByteOrder.BIG_ENDIAN or ByteOrder.LITTLE_ENDIAN
+   */
+  public ByteOrder getByteOrder() {
+    return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
   /**
    * Copy the contents of the buffer to the disk.
    *
@@ -1134,8 +1150,11 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readShort(short[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readShort();
+    while (n > 0) {
+      int count = Math.min(n, maxBulkSize / 2);
+      readBulk(count * 2).asShortBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1287,8 +1306,11 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readInt(int[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readInt();
+    while (n > 0) {
+      int count = Math.min(n, maxBulkSize / 4);
+      readBulk(count * 4).asIntBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1353,8 +1375,11 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readLong(long[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readLong();
+    while (n > 0) {
+      int count = Math.min(n, maxBulkSize / 8);
+      readBulk(count * 8).asLongBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1390,8 +1415,11 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readFloat(float[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Float.intBitsToFloat(readInt());
+    while (n > 0) {
+      int count = Math.min(n, maxBulkSize / 4);
+      readBulk(count * 4).asFloatBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1427,11 +1455,33 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readDouble(double[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Double.longBitsToDouble(readLong());
+    while (n > 0) {
+      int count = Math.min(n, maxBulkSize / 8);
+      readBulk(count * 8).asDoubleBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
+  /**
+   * Read nbytes (at most maxBulkSize) into the scratch ByteBuffer, set to the current byte order.
+   * The array reads above convert a whole block at a time from this, instead of calling readInt() etc
+   * for each element.
+   *
+   * @param nbytes number of bytes to read
+   * @return the scratch buffer, positioned at 0 with limit nbytes
+   * @throws IOException on read error, EOFException if the file ends first
+   */
+  private ByteBuffer readBulk(int nbytes) throws IOException {
+    if (bulkBuffer == null || bulkBuffer.capacity() < nbytes)
+      bulkBuffer = ByteBuffer.allocate(Math.max(nbytes, 1000));
+    readFully(bulkBuffer.array(), 0, nbytes);
+    bulkBuffer.clear();
+    bulkBuffer.limit(nbytes);
+    bulkBuffer.order(getByteOrder());
+    return bulkBuffer;
+  }
+
   /**
    * Reads the next line of text from this file.  This method successively
    * reads bytes from the file, starting at the current file pointer,
@@ -37,19 +37,40 @@ import org.apache.http.Header;
 import ucar.httpservices.HTTPFactory;
 import ucar.httpservices.HTTPMethod;
 import ucar.httpservices.HTTPSession;
+import ucar.nc2.util.DiskCache2;
 import ucar.unidata.util.Urlencoded;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Gives access to files over HTTP, using "Accept-Ranges" HTTP header to do random access.
  * This version uses a single instance of HttpClient, following performance guidelines at
  * http://jakarta.apache.org/commons/httpclient/performance.html
  * Plus other improvements.
+ * <p>
+ * Files too big to read in one gulp are read through a block cache: reads are rounded out to whole blocks,
+ * missing blocks next to each other are fetched with a single Range request, sequential reads trigger a growing
+ * read-ahead, and multiple ranges are fetched in parallel over the session's connection pool.
+ * Blocks may also be kept on disk, see setDiskCache().
  *
  * @author John Caron, based on work by Donald Denbo
  */
@@ -59,11 +80,96 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
   static public final int maxHTTPBufferSize = 10 * 1000 * 1000;     // 10 M
   static private final boolean debug = false, debugDetails = false;
 
+  // block cache settings, used by files opened afterwards
+  static private volatile int defaultBlockSize = 256 * 1024;            // 0 = no block cache
+  static private volatile long defaultMaxCacheBytes = 16 * 1024 * 1024; // per open file
+  static private volatile int defaultMaxReadAhead = 4 * 1024 * 1024;
+  static private volatile int maxParallelRequests = 4;
+  static private volatile DiskCache2 diskCache = null;
+
+  static private final AtomicLong totalRequests = new AtomicLong();
+  static private final AtomicLong totalBytesFetched = new AtomicLong();
+  static private final AtomicLong totalBytesServed = new AtomicLong();
+
+  static private final int FETCH_THREADS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+  static private ExecutorService fetchExecutor;
+
+  /**
+   * Set the block cache used by files opened after this call.
+   *
+   * @param blockSize     size of a cached block in bytes, 0 to turn off the block cache
+   * @param maxCacheBytes maximum bytes kept in memory for each open file
+   * @param maxReadAhead  maximum bytes read ahead when reading sequentially
+   */
+  static public void setBlockCache(int blockSize, long maxCacheBytes, int maxReadAhead) {
+    defaultBlockSize = Math.max(blockSize, 0);
+    defaultMaxCacheBytes = maxCacheBytes;
+    defaultMaxReadAhead = maxReadAhead;
+  }
+
+  /**
+   * Set the maximum number of Range requests a single read may have in flight.
+   * The connection pool may allow fewer, see HTTPSession.setGlobalMaxConnections().
+   *
+   * @param n maximum number of parallel requests, 1 for no parallel requests.
+   */
+  static public void setMaxParallelRequests(int n) {
+    maxParallelRequests = Math.max(n, 1);
+  }
+
+  /**
+   * Also keep blocks on local disk, so they survive the file being closed.
+   * Blocks are keyed by url, file length, the server's ETag or else Last-Modified header, and block number,
+   * so they are not used once the remote file changes. Files whose server sends neither header are not kept on disk.
+   *
+   * @param dc use this DiskCache2, or null to not keep blocks on disk.
+   */
+  static public void setDiskCache(DiskCache2 dc) {
+    diskCache = dc;
+  }
+
+  /**
+   * Show the number of requests issued and bytes fetched and served by all files.
+   *
+   * @param f add to this
+   */
+  static public void showGlobalStats(Formatter f) {
+    f.format("HTTPRandomAccessFile: requests= %d bytesFetched= %d bytesServed= %d%n",
+            totalRequests.get(), totalBytesFetched.get(), totalBytesServed.get());
+  }
+
+  // a fixed number of daemon threads shared by all files, which go away when idle; fetches beyond that wait
+  // their turn, while the thread asking for them fetches its own first range
+  static private synchronized ExecutorService getFetchExecutor() {
+    if (fetchExecutor == null) {
+      ThreadPoolExecutor exec = new ThreadPoolExecutor(FETCH_THREADS, FETCH_THREADS, 60, TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(), r -> {
+        Thread t = new Thread(r, "HTTPRandomAccessFile-fetch");
+        t.setDaemon(true);
+        return t;
+      });
+      exec.allowCoreThreadTimeOut(true);
+      fetchExecutor = exec;
+    }
+    return fetchExecutor;
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////
 
   private String url;
   private HTTPSession session = null;
   private long total_length = 0;
+  private String version; // ETag or Last-Modified, null if the server sent neither
+
+  private int blockSize;
+  private int maxCacheBlocks, maxReadAheadBlocks;
+  private Map<Long, byte[]> blocks; // LRU, null if not using the block cache
+  private long lastBlock = -2;      // last block of the previous read
+  private int readAhead = 0;        // current read-ahead, in blocks
+
+  private final AtomicLong nrequests = new AtomicLong();
+  private final AtomicLong bytesFetched = new AtomicLong();
+  private long bytesServed;
 
   public HTTPRandomAccessFile(String url) throws IOException {
     this(url, defaultHTTPBufferSize);
@@ -113,12 +219,31 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
         throw new IOException("Server has malformed Content-Length header");
       }
 
+      head = method.getResponseHeader("ETag");
+      if (head == null)
+        head = method.getResponseHeader("Last-Modified");
+      if (head != null && head.getValue() != null)
+        version = head.getValue().replaceAll("[^A-Za-z0-9._-]", "_");
+
     }
 
     if (needtest && !rangeOk(url))
       throw new IOException("Server does not support byte Ranges");
 
-    if (total_length > 0) {
+    if (total_length > maxHTTPBufferSize && defaultBlockSize > 0) {
+      // too big to read in one gulp: use a small buffer over the block cache
+      blockSize = defaultBlockSize;
+      maxCacheBlocks = (int) Math.max(defaultMaxCacheBytes / blockSize, 4);
+      maxReadAheadBlocks = Math.min(defaultMaxReadAhead / blockSize, maxCacheBlocks / 2);
+      blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+          return size() > maxCacheBlocks;
+        }
+      };
+      setBufferSize(defaultHTTPBufferSize);
+
+    } else if (total_length > 0) {
       // this means that we will read the file in one gulp then deal with it in memory
       int useBuffer = (int) Math.min(total_length, maxHTTPBufferSize); // entire file size if possible
       useBuffer = Math.max(useBuffer, defaultHTTPBufferSize); // minimum buffer
@@ -136,6 +261,28 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
       session.close();
       session = null;
     }
+    blocks = null;
+  }
+
+  /**
+   * @return number of HTTP Range requests issued for this file
+   */
+  public long getRequestCount() {
+    return nrequests.get();
+  }
+
+  /**
+   * @return number of bytes fetched over the network for this file
+   */
+  public long getBytesFetched() {
+    return bytesFetched.get();
+  }
+
+  /**
+   * @return number of bytes delivered for this file, into the buffer or straight to the caller
+   */
+  public long getBytesServed() {
+    return bytesServed;
   }
 
   private boolean rangeOk(String url)
@@ -198,6 +345,214 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
    */
   @Override
   protected int read_(long pos, byte[] buff, int offset, int len) throws IOException {
+    int n;
+    if (blocks == null) {
+      n = fetch(pos, buff, offset, len);
+
+    } else if (pos >= total_length) {
+      return -1;
+
+    } else if (len > (long) maxCacheBlocks * blockSize / 4) {
+      // too big to cache, split it into parallel requests
+      List<Range> ranges = new ArrayList<>();
+      int want = (int) Math.min(len, total_length - pos);
+      int pieceLen = Math.max(blockSize, (want + maxParallelRequests - 1) / maxParallelRequests);
+      for (int done = 0; done < want; done += pieceLen)
+        ranges.add(new Range(pos + done, buff, offset + done, Math.min(pieceLen, want - done)));
+      fetchAll(ranges);
+      n = 0;
+      for (Range r : ranges) {
+        n += r.nread;
+        if (r.nread < r.len) break;
+      }
+
+    } else {
+      n = readBlocks(pos, buff, offset, len);
+    }
+
+    if (n > 0) {
+      bytesServed += n;
+      totalBytesServed.addAndGet(n);
+    }
+    return n;
+  }
+
+  // read through the block cache
+  private int readBlocks(long pos, byte[] buff, int offset, int len) throws IOException {
+    long end = Math.min(pos + len, total_length); // exclusive
+    long first = pos / blockSize;
+    long last = (end - 1) / blockSize;
+    long lastInFile = (total_length - 1) / blockSize;
+
+    boolean sequential = (first == lastBlock || first == lastBlock + 1);
+    lastBlock = last;
+
+    // hold on to the blocks we need, in case fetching evicts them
+    byte[][] want = new byte[(int) (last - first + 1)][];
+    List<Long> missing = new ArrayList<>();
+    for (long b = first; b <= last; b++) {
+      want[(int) (b - first)] = getCachedBlock(b);
+      if (want[(int) (b - first)] == null)
+        missing.add(b);
+    }
+
+    if (!missing.isEmpty()) {
+      // adaptive read-ahead: grow while the reads are sequential, drop it after a seek
+      readAhead = sequential ? Math.min(Math.max(2 * readAhead, 1), maxReadAheadBlocks) : 0;
+      for (long b = last + 1; b <= Math.min(last + readAhead, lastInFile); b++) {
+        if (getCachedBlock(b) == null)
+          missing.add(b);
+      }
+      fetchBlocks(missing);
+      for (long b = first; b <= last; b++) {
+        if (want[(int) (b - first)] == null)
+          want[(int) (b - first)] = blocks.get(b);
+      }
+    }
+
+    // copy out, stopping at the first block we could not get
+    int done = 0;
+    for (long b = first; b <= last; b++) {
+      byte[] data = want[(int) (b - first)];
+      if (data == null) break;
+      long blockStart = b * blockSize;
+      int from = (int) (Math.max(pos, blockStart) - blockStart);
+      int to = (int) Math.min(end - blockStart, data.length);
+      if (to <= from) break;
+      System.arraycopy(data, from, buff, offset + done, to - from);
+      done += to - from;
+      if (to < blockSize && b < lastInFile) break; // short block
+    }
+    return done;
+  }
+
+  private byte[] getCachedBlock(long b) {
+    byte[] data = blocks.get(b);
+    if (data == null) {
+      data = readDiskBlock(b);
+      if (data != null) blocks.put(b, data);
+    }
+    return data;
+  }
+
+  private int blockLength(long b) {
+    return (int) Math.min(blockSize, total_length - b * blockSize);
+  }
+
+  // fetch the blocks into the cache, coalescing neighbors into one request
+  private void fetchBlocks(List<Long> missing) throws IOException {
+    int maxRun = Math.max(1, (missing.size() + maxParallelRequests - 1) / maxParallelRequests);
+    List<Range> ranges = new ArrayList<>();
+    List<Long> firstBlocks = new ArrayList<>();
+    int i = 0;
+    while (i < missing.size()) {
+      long start = missing.get(i);
+      int count = 1;
+      while (i + count < missing.size() && count < maxRun && missing.get(i + count) == start + count)
+        count++;
+      int len = 0;
+      for (long b = start; b < start + count; b++)
+        len += blockLength(b);
+      ranges.add(new Range(start * blockSize, new byte[len], 0, len));
+      firstBlocks.add(start);
+      i += count;
+    }
+
+    fetchAll(ranges);
+
+    for (int r = 0; r < ranges.size(); r++) {
+      Range range = ranges.get(r);
+      int off = 0;
+      for (long b = firstBlocks.get(r); off < range.len; b++) {
+        int blen = blockLength(b);
+        if (off + blen > range.nread) break; // dont cache partial blocks
+        byte[] data = new byte[blen];
+        System.arraycopy(range.buff, off, data, 0, blen);
+        blocks.put(b, data);
+        writeDiskBlock(b, data);
+        off += blen;
+      }
+    }
+  }
+
+  private static class Range {
+    final long pos;
+    final byte[] buff;
+    final int offset, len;
+    int nread;
+
+    Range(long pos, byte[] buff, int offset, int len) {
+      this.pos = pos;
+      this.buff = buff;
+      this.offset = offset;
+      this.len = len;
+    }
+  }
+
+  // fetch the ranges, in parallel if more than one
+  private void fetchAll(List<Range> ranges) throws IOException {
+    if (ranges.size() == 1 || maxParallelRequests == 1) {
+      for (Range r : ranges)
+        r.nread = fetch(r.pos, r.buff, r.offset, r.len);
+      return;
+    }
+
+    ExecutorService exec = getFetchExecutor();
+    for (int start = 0; start < ranges.size(); start += maxParallelRequests) {
+      List<Future<Integer>> futures = new ArrayList<>();
+      int stop = Math.min(start + maxParallelRequests, ranges.size());
+      for (int i = start + 1; i < stop; i++) {
+        Range r = ranges.get(i);
+        futures.add(exec.submit(() -> fetch(r.pos, r.buff, r.offset, r.len)));
+      }
+      Range first = ranges.get(start);
+      first.nread = fetch(first.pos, first.buff, first.offset, first.len); // use this thread too
+      for (int i = start + 1; i < stop; i++) {
+        try {
+          ranges.get(i).nread = futures.get(i - start - 1).get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted reading " + url, e);
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) throw (IOException) cause;
+          throw new IOException(cause);
+        }
+      }
+    }
+  }
+
+  private File getDiskBlockFile(long b) {
+    DiskCache2 dc = diskCache;
+    if (dc == null || version == null) return null; // cant tell if a kept block is stale
+    return dc.getCacheFile(url + "@" + total_length + "-" + version + "-" + blockSize + "-" + b);
+  }
+
+  private byte[] readDiskBlock(long b) {
+    File f = getDiskBlockFile(b);
+    if (f == null || f.length() != blockLength(b)) return null;
+    try {
+      return Files.readAllBytes(f.toPath());
+    } catch (IOException e) {
+      return null; // just fetch it again
+    }
+  }
+
+  private void writeDiskBlock(long b, byte[] data) {
+    File f = getDiskBlockFile(b);
+    if (f == null) return;
+    File tmp = new File(f.getPath() + ".tmp");
+    try {
+      Files.write(tmp.toPath(), data);
+      Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      // the disk cache is optional
+      tmp.delete();
+    }
+  }
+
+  // one HTTP Range request
+  private int fetch(long pos, byte[] buff, int offset, int len) throws IOException {
     long end = pos + len - 1;
     if (end >= total_length)
       end = total_length - 1;
@@ -222,6 +577,10 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
 
       InputStream is = method.getResponseAsStream();
       readLen = copy(is, buff, offset, readLen);
+      nrequests.incrementAndGet();
+      bytesFetched.addAndGet(readLen);
+      totalRequests.incrementAndGet();
+      totalBytesFetched.addAndGet(readLen);
       return readLen;
 
     }
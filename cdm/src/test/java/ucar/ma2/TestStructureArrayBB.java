@@ -38,6 +38,7 @@ import ucar.unidata.util.test.UtilsTestStructureArray;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 
 public class TestStructureArrayBB {
@@ -144,6 +145,61 @@ public class TestStructureArrayBB {
     assert (val == srecno * sreclen + n1recno * n1reclen + n2recno * n2reclen + 15 + 10) : val;
   }
 
+  @Test
+  public void testCursor() {
+    StructureMembers members = new StructureMembers("obs");
+    StructureMembers.Member d = members.addMember("d", "desc", "units", DataType.DOUBLE, new int[0]);
+    StructureMembers.Member f = members.addMember("f", "desc", "units", DataType.FLOAT, new int[0]);
+    StructureMembers.Member i = members.addMember("i", "desc", "units", DataType.INT, new int[0]);
+    StructureMembers.Member us = members.addMember("us", "desc", "units", DataType.USHORT, new int[0]);
+    StructureMembers.Member ub = members.addMember("ub", "desc", "units", DataType.UBYTE, new int[0]);
+    StructureMembers.Member l = members.addMember("l", "desc", "units", DataType.LONG, new int[0]);
+    for (StructureMembers.Member m : members.getMembers())
+      m.setDataObject(ByteOrder.BIG_ENDIAN);
+    l.setDataObject(ByteOrder.LITTLE_ENDIAN);
+    ArrayStructureBB.setOffsets(members);
+
+    int nrecs = 5;
+    ArrayStructureBB sa = new ArrayStructureBB(members, new int[]{nrecs});
+    ByteBuffer bb = sa.getByteBuffer();
+    for (int rec = 0; rec < nrecs; rec++) {
+      int start = rec * members.getStructureSize();
+      bb.order(ByteOrder.BIG_ENDIAN);
+      bb.putDouble(start + d.getDataParam(), rec + .25);
+      bb.putFloat(start + f.getDataParam(), rec - .5f);
+      bb.putInt(start + i.getDataParam(), -rec);
+      bb.putShort(start + us.getDataParam(), (short) (65535 - rec));
+      bb.put(start + ub.getDataParam(), (byte) (200 + rec));
+      bb.order(ByteOrder.LITTLE_ENDIAN);
+      bb.putLong(start + l.getDataParam(), 1000L * rec);
+    }
+    bb.order(ByteOrder.BIG_ENDIAN);
+
+    ArrayStructureBB.Cursor cursor = sa.getCursor();
+    for (int rec = nrecs - 1; rec >= 0; rec--) {
+      cursor.setRecnum(rec);
+      Assert.assertEquals(rec + .25, cursor.getDouble(d), 0.0);
+      Assert.assertEquals(rec - .5f, cursor.getFloat(f), 0.0f);
+      Assert.assertEquals(-rec, cursor.getInt(i));
+      Assert.assertEquals((short) (65535 - rec), cursor.getShort(us));
+      Assert.assertEquals((byte) (200 + rec), cursor.getByte(ub));
+      Assert.assertEquals(1000L * rec, cursor.getLong(l));
+      Assert.assertSame(sa.getStructureData(rec), cursor.getStructureData());
+
+      // conversions are the same as ArrayStructure's
+      StructureData sdata = sa.getStructureData(rec);
+      for (StructureMembers.Member m : members.getMembers()) {
+        Assert.assertEquals(m.getName(), ((Number) sa.getScalarObject(rec, m)).doubleValue(), cursor.convertDouble(m), 0.0);
+        Assert.assertEquals(m.getName(), cursor.convertDouble(m), sdata.convertScalarDouble(m), 0.0);
+        Assert.assertEquals(m.getName(), cursor.convertFloat(m), sdata.convertScalarFloat(m), 0.0f);
+        Assert.assertEquals(m.getName(), cursor.convertInt(m), sdata.convertScalarInt(m));
+        Assert.assertEquals(m.getName(), cursor.convertLong(m), sdata.convertScalarLong(m));
+      }
+      Assert.assertEquals(65535 - rec, cursor.convertInt(us));
+      Assert.assertEquals(200 + rec, cursor.convertLong(ub));
+    }
+  }
+
   private void fillStructureArray(ArrayStructureBB sa) {
     ByteBuffer bb = sa.getByteBuffer();
     IntBuffer ibb = bb.asIntBuffer();
@@ -133,6 +133,47 @@ public class TestScaleOffset {
     }
   }
 
+  // the bulk and lookup table conversions must agree with the scalar conversion, also for non-canonical sections
+  @Test
+  public void testBulkConversion() throws Exception {
+    for (DataType dt : new DataType[]{DataType.BYTE, DataType.SHORT, DataType.INT}) {
+      for (boolean unsigned : new boolean[]{false, true}) {
+        NetcdfDataset ds = new NetcdfDataset();
+        VariableDS v = new VariableDS(ds, null, null, "packed", dt, "", null, null);
+        v.addAttribute(new Attribute(CDM.SCALE_FACTOR, 0.5));
+        v.addAttribute(new Attribute(CDM.ADD_OFFSET, 10.0));
+        v.addAttribute(new Attribute(CDM.MISSING_VALUE, 10.0 + 0.5 * 7));
+        if (unsigned) v.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+        EnhanceScaleMissingImpl esm = new EnhanceScaleMissingImpl(v, true, true, true, true);
+
+        int n = 300000; // big enough to use the lookup tables
+        Array packed = Array.factory(dt, new int[]{n});
+        for (int i = 0; i < n; i++)
+          packed.setInt(i, i * 7919);
+
+        checkBulk(esm, packed);
+        checkBulk(esm, packed.section(new int[]{1}, new int[]{n / 2}, new int[]{2})); // non-canonical
+        checkBulk(esm, packed.section(new int[]{0}, new int[]{100})); // small
+      }
+    }
+  }
+
+  private void checkBulk(EnhanceScaleMissingImpl esm, Array packed) {
+    Array converted = esm.convertScaleOffsetMissing(packed);
+    assert converted.getSize() == packed.getSize();
+    IndexIterator iterp = packed.getIndexIterator();
+    IndexIterator iterc = converted.getIndexIterator();
+    while (iterp.hasNext()) {
+      double want;
+      if (packed.getElementType() == byte.class) want = esm.convertScaleOffsetMissing(iterp.getByteNext());
+      else if (packed.getElementType() == short.class) want = esm.convertScaleOffsetMissing(iterp.getShortNext());
+      else want = esm.convertScaleOffsetMissing(iterp.getIntNext());
+      double got = iterc.getDoubleNext();
+      if (converted.getElementType() == float.class) want = (float) want;
+      assert (Double.isNaN(want) && Double.isNaN(got)) || want == got : want + " != " + got;
+    }
+  }
+
   // check section of scale/offset only applies it once
   private void doSubset(String filename) throws IOException, InvalidRangeException {
     // read the packed form, enhance using scale/offset, compare to original
@@ -0,0 +1,222 @@
+package ucar.nc2.ft.point.collection;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.constants.CF;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.FeatureDatasetFactoryManager;
+import ucar.nc2.ft.FeatureDatasetPoint;
+import ucar.nc2.ft.PointFeature;
+import ucar.nc2.ft.PointFeatureCollection;
+import ucar.nc2.ft.PointFeatureIterator;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateRange;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Compare reading a CompositePointCollection with read ahead to reading it one dataset at a time.
+ */
+public class TestCompositePointReadAhead {
+  static private final int NDAYS = 8;
+  static private final int NOBS = 2500; // more than a reader queues
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static String spec;
+
+  @BeforeClass
+  public static void makeDatasets() throws Exception {
+    File dir = tempFolder.newFolder("points");
+    for (int day = 1; day <= NDAYS; day++) {
+      String location = new File(dir, String.format("201601%02d_pt.nc", day)).getPath();
+      try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, location)) {
+        writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.6"));
+        writer.addGroupAttribute(null, new Attribute(CF.FEATURE_TYPE, CF.FeatureType.point.name()));
+        Dimension obs = writer.addDimension(null, "obs", NOBS);
+        List<Dimension> dims = Arrays.asList(obs);
+
+        writer.addVariable(null, "time", DataType.DOUBLE, dims)
+                .addAttribute(new Attribute(CDM.UNITS, String.format("seconds since 2016-01-%02d 00:00:00", day)));
+        writer.addVariable(null, "lat", DataType.FLOAT, dims).addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+        writer.addVariable(null, "lon", DataType.FLOAT, dims).addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+        writer.addVariable(null, "strength", DataType.FLOAT, dims).addAttribute(new Attribute(CF.COORDINATES, "time lat lon"));
+        writer.create();
+
+        ArrayDouble.D1 time = new ArrayDouble.D1(NOBS);
+        ArrayFloat.D1 lat = new ArrayFloat.D1(NOBS);
+        ArrayFloat.D1 lon = new ArrayFloat.D1(NOBS);
+        ArrayFloat.D1 strength = new ArrayFloat.D1(NOBS);
+        for (int i = 0; i < NOBS; i++) {
+          time.set(i, 86400.0 * i / NOBS);
+          lat.set(i, (i * 37 + day) % 90);
+          lon.set(i, (i * 71 + day * 3) % 180 - 90);
+          strength.set(i, day * 1000 + i);
+        }
+        writer.write("time", time);
+        writer.write("lat", lat);
+        writer.write("lon", lon);
+        writer.write("strength", strength);
+      }
+    }
+    spec = CompositeDatasetFactory.SCHEME + dir.getPath().replace('\\', '/') + "/#yyyyMMdd#_pt\\.nc";
+  }
+
+  @Test
+  public void testReadAhead() throws IOException {
+    LatLonRect bbox = new LatLonRect(new LatLonPointImpl(10.0, -50.0), new LatLonPointImpl(60.0, 40.0));
+
+    try (FeatureDatasetPoint fd = open()) {
+      CompositePointCollection pc = (CompositePointCollection) fd.getPointFeatureCollectionList().get(0);
+      List<String> all = read(pc);
+      List<String> subset = read(pc.subset(bbox, null));
+      Assert.assertEquals(NDAYS * NOBS, all.size());
+      Assert.assertTrue(subset.size() > 0 && subset.size() < all.size());
+
+      pc.setReadAhead(3, true);
+      Assert.assertEquals(all, read(pc));
+      Assert.assertEquals(subset, read(pc.subset(bbox, null)));
+
+      pc.setReadAhead(3, false);
+      List<String> unordered = read(pc);
+      Collections.sort(unordered);
+      List<String> sorted = new ArrayList<>(all);
+      Collections.sort(sorted);
+      Assert.assertEquals(sorted, unordered);
+    }
+  }
+
+  @Test
+  public void testSubsets() throws IOException {
+    LatLonRect bbox = new LatLonRect(new LatLonPointImpl(10.0, -50.0), new LatLonPointImpl(60.0, 40.0));
+    LatLonRect bbox2 = new LatLonRect(new LatLonPointImpl(30.0, -80.0), new LatLonPointImpl(80.0, 0.0));
+    CalendarDateRange dates = CalendarDateRange.of(CalendarDate.parseISOformat(null, "2016-01-03T12:00:00Z"),
+            CalendarDate.parseISOformat(null, "2016-01-06T06:00:00Z"));
+
+    try (FeatureDatasetPoint fd = open()) {
+      CompositePointCollection pc = (CompositePointCollection) fd.getPointFeatureCollectionList().get(0);
+      List<String> byDate = read(pc.subset(null, dates));
+      List<String> bboxByDate = read(pc.subset(bbox, null).subset(null, dates));
+      List<String> bboxByBbox2 = read(pc.subset(bbox, dates).subset(bbox2, null));
+      Assert.assertTrue(byDate.size() > 0 && byDate.size() < NDAYS * NOBS);
+      Assert.assertTrue(bboxByDate.size() > 0 && bboxByDate.size() < byDate.size());
+      Assert.assertTrue(bboxByBbox2.size() > 0 && bboxByBbox2.size() < bboxByDate.size());
+
+      for (boolean timeOrdered : new boolean[] {true, false}) {
+        pc.setReadAhead(3, timeOrdered);
+        PointFeatureCollection subset = pc.subset(bbox, null).subset(null, dates);
+        Assert.assertTrue(subset instanceof CompositePointCollection); // still reading ahead
+
+        Assert.assertEquals(byDate, sorted(read(pc.subset(null, dates)), !timeOrdered, byDate));
+        Assert.assertEquals(bboxByDate, sorted(read(subset), !timeOrdered, bboxByDate));
+        Assert.assertEquals(bboxByBbox2, sorted(read(pc.subset(bbox, dates).subset(bbox2, null)), !timeOrdered, bboxByBbox2));
+
+        // disjoint filters
+        LatLonRect south = new LatLonRect(new LatLonPointImpl(-80.0, -50.0), new LatLonPointImpl(-70.0, 40.0));
+        Assert.assertEquals(0, read(pc.subset(bbox, null).subset(south, null)).size());
+      }
+    }
+  }
+
+  // compare unordered results sorted
+  private static List<String> sorted(List<String> result, boolean sort, List<String> expected) {
+    if (sort) {
+      Collections.sort(result);
+      Collections.sort(expected);
+    }
+    return result;
+  }
+
+  @Test(timeout = 5 * 60 * 1000)
+  public void testPointsNotTaken() throws IOException {
+    try (FeatureDatasetPoint fd = open()) {
+      CompositePointCollection pc = (CompositePointCollection) fd.getPointFeatureCollectionList().get(0);
+      List<String> all = read(pc);
+
+      // many iterators whose readers fill their queues and are not read from: more readers than pool threads
+      pc.setReadAhead(NDAYS, false);
+      List<PointFeatureIterator> idle = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        PointFeatureIterator iter = pc.getPointFeatureIterator();
+        Assert.assertTrue(iter.hasNext());
+        idle.add(iter);
+      }
+
+      // which dont hold up another one
+      pc.setReadAhead(NDAYS, true);
+      Assert.assertEquals(all, read(pc));
+      for (PointFeatureIterator iter : idle)
+        iter.close();
+    }
+  }
+
+  @Test
+  public void testCloseEarly() throws IOException {
+    try (FeatureDatasetPoint fd = open()) {
+      CompositePointCollection pc = (CompositePointCollection) fd.getPointFeatureCollectionList().get(0);
+      pc.setReadAhead(4, true);
+      PointFeatureIterator iter = pc.getPointFeatureIterator();
+      for (int i = 0; i < 10; i++)
+        Assert.assertTrue(iter.hasNext());
+      Assert.assertNotNull(iter.next());
+      iter.close();
+      Assert.assertFalse(iter.hasNext());
+    }
+  }
+
+  @Test
+  public void testSharedPool() throws IOException {
+    try (FeatureDatasetPoint fd = open()) {
+      CompositePointCollection pc = (CompositePointCollection) fd.getPointFeatureCollectionList().get(0);
+      List<String> all = read(pc);
+
+      // two iterators reading every dataset at once, which may be more than the threads of the pool
+      pc.setReadAhead(NDAYS, true);
+      PointFeatureIterator other = pc.getPointFeatureIterator();
+      Assert.assertEquals(all, read(pc));
+      other.close();
+
+      // the pool is made again after shutdown
+      CompositePointCollection.shutdown();
+      Assert.assertEquals(all, read(pc));
+    }
+  }
+
+  private FeatureDatasetPoint open() throws IOException {
+    Formatter errlog = new Formatter();
+    FeatureDatasetPoint fd = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, spec, null, errlog);
+    Assert.assertNotNull(errlog.toString(), fd);
+    return fd;
+  }
+
+  private List<String> read(PointFeatureCollection pc) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (PointFeatureIterator iter = pc.getPointFeatureIterator()) {
+      while (iter.hasNext()) {
+        PointFeature pf = iter.next();
+        result.add(String.format("%s %s %s", pf.getObservationTimeAsCalendarDate(), pf.getLocation().getLatLon(),
+                pf.getDataAll().getScalarFloat("strength")));
+      }
+    }
+    return result;
+  }
+}
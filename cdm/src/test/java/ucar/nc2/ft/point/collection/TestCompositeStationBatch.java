@@ -0,0 +1,181 @@
+package ucar.nc2.ft.point.collection;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.ArrayChar;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.ArrayInt;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.constants.CF;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.FeatureDatasetFactoryManager;
+import ucar.nc2.ft.FeatureDatasetPoint;
+import ucar.nc2.ft.PointFeature;
+import ucar.nc2.ft.PointFeatureIterator;
+import ucar.nc2.ft.StationTimeSeriesFeature;
+import ucar.nc2.ft.StationTimeSeriesFeatureCollection;
+import ucar.nc2.ft.point.StationFeature;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateRange;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Compare reading a CompositeStationCollection subset of many stations, whose observations are read in batches,
+ * to reading the same stations one at a time, each opening every dataset.
+ */
+public class TestCompositeStationBatch {
+  static private final int NDAYS = 4;
+  static private final int NSTNS = 25; // more than the first run of ten
+  static private final int NOBS = 300;
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static String spec;
+
+  // indexed ragged array files, with the observations of a station out of time order
+  @BeforeClass
+  public static void makeDatasets() throws Exception {
+    File dir = tempFolder.newFolder("stations");
+    for (int day = 1; day <= NDAYS; day++) {
+      String location = new File(dir, String.format("201601%02d_stn.nc", day)).getPath();
+      try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, location)) {
+        writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.6"));
+        writer.addGroupAttribute(null, new Attribute(CF.FEATURE_TYPE, CF.FeatureType.timeSeries.name()));
+        Dimension stn = writer.addDimension(null, "station", NSTNS);
+        Dimension strlen = writer.addDimension(null, "name_strlen", 8);
+        Dimension obs = writer.addDimension(null, "obs", NOBS);
+
+        writer.addVariable(null, "station_name", DataType.CHAR, Arrays.asList(stn, strlen))
+                .addAttribute(new Attribute(CF.CF_ROLE, CF.TIMESERIES_ID));
+        writer.addVariable(null, "lat", DataType.FLOAT, Arrays.asList(stn)).addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+        writer.addVariable(null, "lon", DataType.FLOAT, Arrays.asList(stn)).addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+        writer.addVariable(null, "stationIndex", DataType.INT, Arrays.asList(obs))
+                .addAttribute(new Attribute(CF.INSTANCE_DIMENSION, "station"));
+        writer.addVariable(null, "time", DataType.DOUBLE, Arrays.asList(obs))
+                .addAttribute(new Attribute(CDM.UNITS, String.format("seconds since 2016-01-%02d 00:00:00", day)));
+        writer.addVariable(null, "temp", DataType.FLOAT, Arrays.asList(obs))
+                .addAttribute(new Attribute(CF.COORDINATES, "time lat lon"));
+        writer.create();
+
+        ArrayChar.D2 names = new ArrayChar.D2(NSTNS, 8);
+        ArrayFloat.D1 lat = new ArrayFloat.D1(NSTNS);
+        ArrayFloat.D1 lon = new ArrayFloat.D1(NSTNS);
+        for (int s = 0; s < NSTNS; s++) {
+          names.setString(s, stationName(s));
+          lat.set(s, 30 + s);
+          lon.set(s, -120 + 2 * s);
+        }
+        ArrayInt.D1 index = new ArrayInt.D1(NOBS, false);
+        ArrayDouble.D1 time = new ArrayDouble.D1(NOBS);
+        ArrayFloat.D1 temp = new ArrayFloat.D1(NOBS);
+        for (int i = 0; i < NOBS; i++) {
+          index.set(i, (i * 7) % NSTNS);
+          time.set(i, 86400.0 * ((i * 13) % NOBS) / NOBS);
+          temp.set(i, day * 1000 + i);
+        }
+        writer.write("station_name", names);
+        writer.write("lat", lat);
+        writer.write("lon", lon);
+        writer.write("stationIndex", index);
+        writer.write("time", time);
+        writer.write("temp", temp);
+      }
+    }
+    spec = CompositeDatasetFactory.SCHEME + dir.getPath().replace('\\', '/') + "/#yyyyMMdd#_stn\\.nc";
+  }
+
+  static private String stationName(int s) {
+    return String.format("STN%02d", s);
+  }
+
+  @Test
+  public void testSameAsPerStation() throws IOException {
+    compare(null);
+  }
+
+  @Test
+  public void testSameAsPerStationWithDateRange() throws IOException {
+    compare(CalendarDateRange.of(CalendarDate.parseISOformat(null, "2016-01-02T06:00:00Z"),
+            CalendarDate.parseISOformat(null, "2016-01-03T18:00:00Z")));
+  }
+
+  // read as the NCSS station writers do: subsetFeatures(), then each station's subset(dateRange)
+  private void compare(CalendarDateRange dateRange) throws IOException {
+    try (FeatureDatasetPoint fd = open()) {
+      StationTimeSeriesFeatureCollection sc = (StationTimeSeriesFeatureCollection) fd.getPointFeatureCollectionList().get(0);
+
+      // not in the collection's order, and skipping some
+      List<String> wantNames = new ArrayList<>();
+      for (int s = NSTNS - 1; s >= 0; s -= 2)
+        wantNames.add(stationName(s));
+      for (int s = 1; s < NSTNS; s += 4)
+        wantNames.add(stationName(s));
+      List<StationFeature> wanted = sc.getStationFeatures(wantNames);
+
+      StationTimeSeriesFeatureCollection batched = sc.subsetFeatures(wanted);
+      Assert.assertNotNull(((CompositeStationCollection) batched).getStationBatch());
+      List<String> result = new ArrayList<>();
+      int count = 0;
+      for (StationTimeSeriesFeature stnFeat : batched) {
+        List<String> obs = read(stnFeat.subset(dateRange));
+        Assert.assertTrue(stnFeat.getName(), obs.size() > 0);
+        result.add(stnFeat.getName());
+        result.addAll(obs);
+        count++;
+      }
+      Assert.assertEquals(wanted.size(), count);
+
+      // each station by itself, streaming from each dataset in turn, in file order
+      List<String> expected = new ArrayList<>();
+      for (StationFeature want : wanted) {
+        StationTimeSeriesFeatureCollection single = sc.subsetFeatures(Collections.singletonList(want));
+        Assert.assertNull(((CompositeStationCollection) single).getStationBatch());
+        for (StationTimeSeriesFeature stnFeat : single) {
+          List<String> obs = read(stnFeat.subset(dateRange));
+          obs.sort(Comparator.naturalOrder()); // times sort as strings
+          expected.add(stnFeat.getName());
+          expected.addAll(obs);
+        }
+      }
+
+      Assert.assertEquals(expected, result);
+    }
+  }
+
+  private FeatureDatasetPoint open() throws IOException {
+    Formatter errlog = new Formatter();
+    FeatureDatasetPoint fd = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.STATION, spec, null, errlog);
+    Assert.assertNotNull(errlog.toString(), fd);
+    return fd;
+  }
+
+  // the observations of one station
+  private List<String> read(StationTimeSeriesFeature stnFeat) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (PointFeatureIterator iter = stnFeat.getPointFeatureIterator()) {
+      while (iter.hasNext()) {
+        PointFeature pf = iter.next();
+        result.add(String.format("%s %s %s", pf.getObservationTimeAsCalendarDate(), pf.getLocation().getLatLon(),
+                pf.getDataAll().getScalarFloat("temp")));
+      }
+    }
+    return result;
+  }
+}
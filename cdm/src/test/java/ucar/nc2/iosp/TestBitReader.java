@@ -35,16 +35,25 @@ package ucar.nc2.iosp;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Random;
 
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.unidata.io.RandomAccessFile;
 
 /**
  * from https://github.com/lost-carrier 6/12/2014
  */
 public class TestBitReader {
 
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
 	@Test
 	public void testUcar() throws IOException {
 		BitReader bu = new BitReader(new byte[] {-1,2,4,8});
@@ -82,4 +91,62 @@ public class TestBitReader {
 		assertEquals(-344, (int) bu.bits2SInt(10));
 	}
 
+	@Test
+	public void testBulkSameAsScalar() throws IOException {
+		byte[] data = new byte[1000];
+		new Random(17).nextBytes(data);
+		for (int nb = 0; nb <= 32; nb++) {
+			for (int skip = 0; skip < 8; skip++) {
+				BitReader scalar = new BitReader(data);
+				BitReader bulk = new BitReader(data);
+				scalar.bits2UInt(skip);
+				bulk.bits2UInt(skip);
+
+				int n = 201;
+				int[] result = new int[n];
+				bulk.bits2UInt(nb, result, 0, n);
+				for (int i = 0; i < n; i++)
+					assertEquals("nb=" + nb + " skip=" + skip + " i=" + i, (int) scalar.bits2UInt(nb), result[i]);
+
+				// left in the same place
+				assertEquals(scalar.bits2UInt(13), bulk.bits2UInt(13));
+			}
+		}
+	}
+
+	@Test
+	public void testBulkSameAsScalarRaf() throws IOException {
+		byte[] data = new byte[3000];
+		new Random(19).nextBytes(data);
+		File file = tempFolder.newFile();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(data);
+		}
+
+		// small RAF buffer, so the bulk reads cross it
+		try (RandomAccessFile rafScalar = new RandomAccessFile(file.getPath(), "r", 100);
+			RandomAccessFile rafBulk = new RandomAccessFile(file.getPath(), "r", 100)) {
+			for (int nb = 0; nb <= 32; nb++) {
+				for (int skip = 0; skip < 8; skip++) {
+					BitReader scalar = new BitReader(rafScalar, 17);
+					BitReader bulk = new BitReader(rafBulk, 17);
+					scalar.bits2UInt(skip);
+					bulk.bits2UInt(skip);
+
+					// two calls in a row, the second starting wherever the first left off
+					int n = 201;
+					int[] result = new int[2 * n];
+					bulk.bits2UInt(nb, result, 0, n);
+					bulk.bits2UInt(nb, result, n, n);
+					for (int i = 0; i < 2 * n; i++)
+						assertEquals("nb=" + nb + " skip=" + skip + " i=" + i, (int) scalar.bits2UInt(nb), result[i]);
+
+					// left in the same place
+					assertEquals(scalar.bits2UInt(13), bulk.bits2UInt(13));
+					assertEquals(rafScalar.getFilePointer(), rafBulk.getFilePointer());
+				}
+			}
+		}
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package ucar.nc2.iosp;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compare IospHelper.readData with ChunkCoalescer on and off, for contiguous, chunked and sparse layouts.
+ */
+public class TestChunkCoalescer {
+  static private final int FILE_SIZE = 100 * 1000;
+  static private final DataType[] TYPES = {DataType.BYTE, DataType.CHAR, DataType.SHORT, DataType.INT, DataType.LONG,
+          DataType.FLOAT, DataType.DOUBLE};
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private interface LayoutMaker {
+    Layout make(int elemSize) throws InvalidRangeException;
+  }
+
+  @Test
+  public void testContiguous() throws Exception {
+    compare("contiguous", elemSize -> new LayoutRegular(100, elemSize, new int[] {40, 50}, new Section("0:39,0:49")));
+    compare("contiguous inner", elemSize -> new LayoutRegular(100, elemSize, new int[] {40, 50}, new Section("5:30,10:19")));
+  }
+
+  @Test
+  public void testSparse() throws Exception {
+    compare("strided", elemSize -> new LayoutRegular(100, elemSize, new int[] {40, 50}, new Section("3:37:4,1:48:7")));
+    compare("record", elemSize -> new LayoutRegularSegmented(100, elemSize, 150 * elemSize, new int[] {20, 50},
+            new Section("2:17:2,5:44")));
+  }
+
+  @Test
+  public void testChunked() throws Exception {
+    // segments stored out of order, with gaps between them, as chunks are in HDF5 or netCDF-4
+    int nsegs = 10;
+    int segElems = 200;
+    int[] order = {3, 0, 7, 1, 9, 4, 2, 8, 6, 5};
+    compare("chunked", elemSize -> {
+      long[] segPos = new long[nsegs];
+      int[] segSize = new int[nsegs];
+      for (int i = 0; i < nsegs; i++) {
+        segPos[i] = 50 + order[i] * (segElems * elemSize + 37);
+        segSize[i] = segElems * elemSize;
+      }
+      return new LayoutSegmented(segPos, segSize, elemSize, new int[] {nsegs * segElems}, new Section("100:1899:3"));
+    });
+  }
+
+  // read each layout with coalescing off, on, and on with reads split often, in both byte orders
+  private void compare(String what, LayoutMaker maker) throws IOException, InvalidRangeException {
+    File file = makeFile();
+    int saveGap = ChunkCoalescer.getMaxGap();
+    int saveReadSize = ChunkCoalescer.getMaxReadSize();
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r", 1000)) {
+      for (int byteOrder : new int[] {RandomAccessFile.BIG_ENDIAN, RandomAccessFile.LITTLE_ENDIAN}) {
+        for (DataType dataType : TYPES) {
+          String msg = what + " " + dataType + " order " + byteOrder;
+          Layout layout = maker.make(dataType.getSize());
+          int n = (int) layout.getTotalNelems();
+
+          ChunkCoalescer.setMaxGap(-1);
+          Object expected = IospHelper.readData(raf, layout, dataType, IospHelper.makePrimitiveArray(n, dataType), byteOrder, true);
+
+          ChunkCoalescer.setMaxGap(ChunkCoalescer.DEFAULT_MAX_GAP);
+          Object merged = IospHelper.readData(raf, maker.make(dataType.getSize()), dataType, IospHelper.makePrimitiveArray(n, dataType), byteOrder, true);
+          Assert.assertTrue(msg, Arrays.deepEquals(new Object[] {expected}, new Object[] {merged}));
+
+          ChunkCoalescer.setMaxReadSize(100);
+          Object split = IospHelper.readData(raf, maker.make(dataType.getSize()), dataType, IospHelper.makePrimitiveArray(n, dataType), byteOrder, true);
+          Assert.assertTrue(msg + " split", Arrays.deepEquals(new Object[] {expected}, new Object[] {split}));
+          ChunkCoalescer.setMaxReadSize(saveReadSize);
+        }
+      }
+    } finally {
+      ChunkCoalescer.setMaxGap(saveGap);
+      ChunkCoalescer.setMaxReadSize(saveReadSize);
+    }
+  }
+
+  private File makeFile() throws IOException {
+    File file = tempFolder.newFile();
+    byte[] bytes = new byte[FILE_SIZE];
+    new Random(17).nextBytes(bytes);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(bytes);
+    }
+    return file;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.MAMath;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Open an HDF5 file twice with header snapshots on, and check the second open comes from the snapshot
+ * and reads the same data.
+ */
+public class TestHeaderSnapshot {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    HeaderSnapshot.setDiskCache(null);
+  }
+
+  @Test
+  public void testSnapshot() throws IOException {
+    File data = tempFolder.newFile("chunked.h5");
+    Files.copy(new File(TestDir.cdmLocalTestDataDir + "chunked.h5").toPath(), data.toPath(),
+            java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    DiskCache2 dc = new DiskCache2(tempFolder.newFolder("snapshots").getPath(), false, 0, 0);
+    dc.setAlwaysUseCache(true);
+    HeaderSnapshot.setDiskCache(dc);
+    String location = data.getPath();
+
+    try (NetcdfFile real = NetcdfFile.open(location)) {
+      Assert.assertFalse(real.getIosp() instanceof HeaderSnapshotIosp);
+
+      // NetcdfFile.open always uses the real IOSP, only metadata callers get the snapshot
+      try (NetcdfFile again = NetcdfFile.open(location)) {
+        Assert.assertFalse(again.getIosp() instanceof HeaderSnapshotIosp);
+      }
+
+      try (NetcdfFile snap = HeaderSnapshot.open(location)) {
+        Assert.assertNotNull(snap);
+        Assert.assertTrue(snap.getIosp() instanceof HeaderSnapshotIosp);
+        // the metadata does not need the real file
+        Assert.assertTrue(snap.getIosp().getDetailInfo(), snap.getIosp().getDetailInfo().contains("not open"));
+        Assert.assertEquals(real.getFileTypeId(), snap.getFileTypeId());
+        Assert.assertEquals(real.getVariables().size(), snap.getVariables().size());
+        for (Variable v : real.getVariables()) {
+          Variable sv = snap.findVariable(v.getFullNameEscaped());
+          Assert.assertNotNull(v.getFullName(), sv);
+          Assert.assertArrayEquals(v.getShape(), sv.getShape());
+          Assert.assertEquals(v.getAttributes().size(), sv.getAttributes().size());
+          Array a = v.read();
+          Array b = sv.read();
+          Assert.assertTrue(v.getFullName(), MAMath.equals(a, b));
+        }
+      }
+    }
+
+    // a changed file does not use the old snapshot
+    Assert.assertTrue(data.setLastModified(data.lastModified() - 10000));
+    Assert.assertNull(HeaderSnapshot.open(location));
+    try (NetcdfFile ncfile = NetcdfFile.open(location)) {
+      Assert.assertFalse(ncfile.getIosp() instanceof HeaderSnapshotIosp);
+    }
+    try (NetcdfFile snap = HeaderSnapshot.open(location)) {
+      Assert.assertNotNull(snap); // rewritten
+    }
+
+    // netCDF-3 files dont get a snapshot
+    String nc3 = TestDir.cdmLocalTestDataDir + "testWrite.nc";
+    try (NetcdfFile ncfile = NetcdfFile.open(nc3)) {
+      Assert.assertEquals("NetCDF", ncfile.getFileTypeId());
+    }
+    Assert.assertNull(HeaderSnapshot.open(nc3));
+  }
+}
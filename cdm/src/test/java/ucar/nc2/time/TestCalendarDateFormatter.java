@@ -94,6 +94,33 @@ public class TestCalendarDateFormatter {
     assertEquals(mstDate.getTime(), utcDate.getTime()); //This fails!!
   }
 
+  // the hand written parser must give the same answer as the regexp, including when it fails
+  @Test
+  public void testSameAsRegexp() {
+    String[] tests = {"1997", "1997-07-16T19:20:30.45+01:00", "1992-10-8 15:15:42.5 -6:00", "1992-10-8 15:15:42.5 +6",
+        "1992-10-8 15", "1992-10-8T7 -6:00", "+1101-10-8", "-1101-10-8", "0000-01-01", "2012-04-27T16:00:00+0200",
+        "2012-04-27T14:00:00-013", " 2012-04-27 14:00:00 UTC ", "2012-04-27 14:00:00 gmt", "2012-04-27T14:00z",
+        "2012-04-27T14:00:00.29Z", "1997-07-16T19:20:61", "1997-07-16 +01:00", "1997-07-16-01", "1997--07",
+        "1143848700", "1997-13-01", "1997-07-16T24:00", "1997-07-16Z", "1997-07-16T", "2012-04-27T14:00utc",
+        "2012-04-27T14:00:00+01:", "1997-07-16T19.5", "1997-02-30", "abc"};
+    for (Calendar cal : new Calendar[] {null, Calendar.gregorian, Calendar.noleap, Calendar.uniform30day}) {
+      for (String s : tests) {
+        String regexp, result;
+        try {
+          regexp = Long.toString(CalendarDateFormatter.parseIsoTimeStringRegexp(cal, s).getMillis());
+        } catch (IllegalArgumentException e) {
+          regexp = e.getMessage();
+        }
+        try {
+          result = Long.toString(CalendarDateFormatter.isoStringToCalendarDate(cal, s).getMillis());
+        } catch (IllegalArgumentException e) {
+          result = e.getMessage();
+        }
+        assertEquals(s + " " + cal, regexp, result);
+      }
+    }
+  }
+
   private void claimGood(String s) {
     try {
       CalendarDate result = CalendarDateFormatter.isoStringToCalendarDate(null, s);
@@ -0,0 +1,54 @@
+package ucar.nc2.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Formatter;
+
+/**
+ * Test Metrics counters, histograms and the Prometheus text output
+ */
+public class TestMetrics {
+
+  @Test
+  public void testCounter() {
+    Metrics.Family<Metrics.Counter> fam = Metrics.counter("test_bytes_total", "bytes read", "iosp");
+    fam.labels("N3iosp").inc(100);
+    fam.labels("N3iosp").inc(28);
+    fam.labels("H5iosp").inc();
+    Assert.assertEquals(128.0, fam.labels("N3iosp").get(), 0.0);
+    Assert.assertSame(fam, Metrics.counter("test_bytes_total", "bytes read", "iosp"));
+
+    Formatter f = new Formatter();
+    Metrics.writePrometheus(f);
+    String out = f.toString();
+    Assert.assertTrue(out, out.contains("# TYPE test_bytes_total counter"));
+    Assert.assertTrue(out, out.contains("test_bytes_total{iosp=\"N3iosp\"} 128"));
+    Assert.assertTrue(out, out.contains("test_bytes_total{iosp=\"H5iosp\"} 1"));
+  }
+
+  @Test
+  public void testHistogram() {
+    Metrics.Family<Metrics.Histogram> fam = Metrics.histogram("test_seconds", "time", new double[]{.1, 1}, "a", "b");
+    Metrics.Histogram h = fam.labels("x", "y\"z");
+    h.observe(.05);
+    h.observe(.1);
+    h.observe(.5);
+    h.observe(3);
+    Assert.assertEquals(4, h.getCount());
+    Assert.assertEquals(3.65, h.getSum(), 1e-9);
+
+    Formatter f = new Formatter();
+    Metrics.writePrometheus(f);
+    String out = f.toString();
+    Assert.assertTrue(out, out.contains("test_seconds_bucket{a=\"x\",b=\"y\\\"z\",le=\"0.1\"} 2"));
+    Assert.assertTrue(out, out.contains("test_seconds_bucket{a=\"x\",b=\"y\\\"z\",le=\"1\"} 3"));
+    Assert.assertTrue(out, out.contains("test_seconds_bucket{a=\"x\",b=\"y\\\"z\",le=\"+Inf\"} 4"));
+    Assert.assertTrue(out, out.contains("test_seconds_count{a=\"x\",b=\"y\\\"z\"} 4"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongLabels() {
+    Metrics.counter("test_wrong_total", "wrong", "a", "b").labels("only one");
+  }
+}
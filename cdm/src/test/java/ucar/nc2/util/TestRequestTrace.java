@@ -0,0 +1,92 @@
+package ucar.nc2.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test RequestTrace span nesting and summaries
+ */
+public class TestRequestTrace {
+
+  @Test
+  public void testNoTrace() {
+    Assert.assertFalse(RequestTrace.isActive());
+    try (RequestTrace.Span span = RequestTrace.span("Variable.read")) {
+      Assert.assertNotNull(span);
+    }
+    Assert.assertNull(RequestTrace.finish());
+  }
+
+  @Test
+  public void testNesting() throws InterruptedException {
+    RequestTrace trace = RequestTrace.start("42");
+    try (RequestTrace.Span outer = RequestTrace.span("Variable.read")) {
+      for (int i = 0; i < 3; i++) {
+        try (RequestTrace.Span inner = RequestTrace.span("H5tiledLayoutBB.decompress")) {
+          Thread.sleep(5);
+        }
+      }
+    }
+    Assert.assertSame(trace, RequestTrace.finish());
+    Assert.assertFalse(RequestTrace.isActive());
+
+    Assert.assertEquals(2, trace.getSpanNames().size());
+    Assert.assertEquals(1, trace.getCount("Variable.read"));
+    Assert.assertEquals(3, trace.getCount("H5tiledLayoutBB.decompress"));
+    double inner = trace.getTotalMsecs("H5tiledLayoutBB.decompress");
+    Assert.assertTrue(inner >= 15);
+    Assert.assertEquals(inner, trace.getSelfMsecs("H5tiledLayoutBB.decompress"), 1e-9);
+    Assert.assertEquals(trace.getTotalMsecs("Variable.read") - inner, trace.getSelfMsecs("Variable.read"), 1e-6);
+
+    String summary = trace.toString();
+    Assert.assertTrue(summary, summary.startsWith("trace 42 total="));
+    Assert.assertTrue(summary, summary.contains("; H5tiledLayoutBB.decompress 3x "));
+  }
+
+  @Test
+  public void testNestedSameName() throws InterruptedException {
+    RequestTrace trace = RequestTrace.start("nested");
+    try (RequestTrace.Span outer = RequestTrace.span("Variable.read")) {
+      Thread.sleep(5);
+      try (RequestTrace.Span decompress = RequestTrace.span("H5tiledLayoutBB.decompress")) {
+        try (RequestTrace.Span inner = RequestTrace.span("Variable.read")) { // eg a structure member read
+          Thread.sleep(10);
+        }
+      }
+    }
+    RequestTrace.finish();
+
+    // the inner read is inside the outer one, so it is not counted again
+    Assert.assertEquals(1, trace.getCount("Variable.read"));
+    double total = trace.getTotalMsecs("Variable.read");
+    Assert.assertTrue(total >= 15);
+    Assert.assertTrue(total <= trace.getElapsedMsecs());
+    Assert.assertEquals(total - trace.getSelfMsecs("H5tiledLayoutBB.decompress"), trace.getSelfMsecs("Variable.read"), 1e-6);
+
+    // and once closed, the next one is outermost again
+    RequestTrace again = RequestTrace.start("again");
+    RequestTrace.span("Variable.read").close();
+    RequestTrace.span("Variable.read").close();
+    RequestTrace.finish();
+    Assert.assertEquals(2, again.getCount("Variable.read"));
+  }
+
+  @Test
+  public void testUnclosedSpan() {
+    RequestTrace trace = RequestTrace.start("unclosed");
+    RequestTrace.Span outer = RequestTrace.span("FileCache.acquire");
+    RequestTrace.span("NetcdfFile.open"); // eg an exception skipped close()
+    outer.close();
+    try (RequestTrace.Span next = RequestTrace.span("Variable.read")) {
+      Assert.assertNotNull(next);
+    }
+    RequestTrace.finish();
+
+    Assert.assertEquals(1, trace.getCount("FileCache.acquire"));
+    Assert.assertEquals(0, trace.getCount("NetcdfFile.open"));
+    Assert.assertEquals(1, trace.getCount("Variable.read"));
+    Assert.assertFalse(trace.toString(), trace.toString().contains("NetcdfFile.open"));
+    // Variable.read was not nested inside the leaked span
+    Assert.assertEquals(trace.getTotalMsecs("FileCache.acquire"), trace.getSelfMsecs("FileCache.acquire"), 1e-9);
+  }
+}
@@ -464,6 +464,48 @@ public class TestProjections {
       System.out.println("Tested " + n + " pts for UTM projection ");
   }
 
+  // the array conversions, including the parallel grid, must agree with the point conversions
+  @Test
+  public void testArrays() {
+    testArrays(new LambertConformal(40, -100, 25, 25), 3000);
+    testArrays(new Mercator(-105, 20), 3000);
+    testArrays(new Sinusoidal(0, 0, 0, 6371.007), 3000);
+    testArrays(new RotatedPole(37, 177), 50);
+    testArrays(new RotatedLatLon(-30, -15, 0), 50);
+    testArrays(new AlbersEqualAreaEllipse(), 3000);
+  }
+
+  private void testArrays(ProjectionImpl proj, double range) {
+    int nx = 200, ny = 300;
+    double[] xcoords = new double[nx];
+    double[] ycoords = new double[ny];
+    for (int i = 0; i < nx; i++) xcoords[i] = range * (2.0 * i / nx - 1);
+    for (int j = 0; j < ny; j++) ycoords[j] = range * (2.0 * j / ny - 1);
+
+    int save = ProjectionImpl.parallelThreshold;
+    double[][] latlon;
+    try {
+      ProjectionImpl.parallelThreshold = 1000;
+      latlon = proj.projToLatLon(xcoords, ycoords);
+    } finally {
+      ProjectionImpl.parallelThreshold = save;
+    }
+    double[][] xy = proj.latLonToProj(latlon, new double[2][nx * ny], ProjectionImpl.INDEX_LAT, ProjectionImpl.INDEX_LON);
+
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        int k = j * nx + i;
+        LatLonPoint ll = proj.projToLatLon(xcoords[i], ycoords[j]);
+        Assert.assertEquals(proj.getClassName(), ll.getLatitude(), latlon[0][k], 1.0e-9);
+        Assert.assertEquals(proj.getClassName(), ll.getLongitude(), latlon[1][k], 1.0e-9);
+
+        ProjectionPoint p = proj.latLonToProj(ll);
+        Assert.assertEquals(proj.getClassName(), p.getX(), xy[0][k], 1.0e-6);
+        Assert.assertEquals(proj.getClassName(), p.getY(), xy[1][k], 1.0e-6);
+      }
+    }
+  }
+
   public void utestVerticalPerspectiveView() {
     testProjectionLonMax(new VerticalPerspectiveView(), 66, 60);
     VerticalPerspectiveView p = new VerticalPerspectiveView();
@@ -0,0 +1,106 @@
+package ucar.unidata.io;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Compare the RandomAccessFile primitive array reads to reading one value at a time,
+ * in both byte orders, starting at odd offsets so the reads cross the RAF buffer,
+ * and long enough to take several bulk reads.
+ */
+public class TestRandomAccessFileBulk {
+  static private final int BUFFER_SIZE = 1000;  // much smaller than the bulk read size
+  static private final int FILE_SIZE = 200 * 1000;
+  static private final int[] OFFSETS = {0, 3, 997, 1001};
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static File makeFile() throws IOException {
+    File file = tempFolder.newFile();
+    byte[] bytes = new byte[FILE_SIZE];
+    new Random(31).nextBytes(bytes);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(bytes);
+    }
+    return file;
+  }
+
+  @Test
+  public void testBulkReads() throws IOException {
+    File file = makeFile();
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      try (RandomAccessFile bulk = new RandomAccessFile(file.getPath(), "r", BUFFER_SIZE);
+           RandomAccessFile single = new RandomAccessFile(file.getPath(), "r", BUFFER_SIZE)) {
+        bulk.order(order);
+        single.order(order);
+        for (int offset : OFFSETS) {
+          String what = order + " offset " + offset;
+
+          int n = (FILE_SIZE - offset) / 2 - 1;
+          short[] shorts = new short[n + 1];
+          bulk.seek(offset);
+          bulk.readShort(shorts, 1, n);
+          single.seek(offset);
+          for (int i = 0; i < n; i++)
+            Assert.assertEquals(what + " short " + i, single.readShort(), shorts[i + 1]);
+          Assert.assertEquals(what, single.getFilePointer(), bulk.getFilePointer());
+
+          n = (FILE_SIZE - offset) / 4;
+          int[] ints = new int[n];
+          bulk.seek(offset);
+          bulk.readInt(ints, 0, n);
+          single.seek(offset);
+          for (int i = 0; i < n; i++)
+            Assert.assertEquals(what + " int " + i, single.readInt(), ints[i]);
+
+          float[] floats = new float[n];
+          bulk.seek(offset);
+          bulk.readFloat(floats, 0, n);
+          single.seek(offset);
+          for (int i = 0; i < n; i++)
+            Assert.assertEquals(what + " float " + i, Float.floatToRawIntBits(single.readFloat()), Float.floatToRawIntBits(floats[i]));
+
+          n = (FILE_SIZE - offset) / 8;
+          long[] longs = new long[n];
+          bulk.seek(offset);
+          bulk.readLong(longs, 0, n);
+          single.seek(offset);
+          for (int i = 0; i < n; i++)
+            Assert.assertEquals(what + " long " + i, single.readLong(), longs[i]);
+
+          double[] doubles = new double[n];
+          bulk.seek(offset);
+          bulk.readDouble(doubles, 0, n);
+          single.seek(offset);
+          for (int i = 0; i < n; i++)
+            Assert.assertEquals(what + " double " + i, Double.doubleToRawLongBits(single.readDouble()), Double.doubleToRawLongBits(doubles[i]));
+          Assert.assertEquals(what, single.getFilePointer(), bulk.getFilePointer());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReadPastEnd() throws IOException {
+    File file = makeFile();
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r", BUFFER_SIZE)) {
+      raf.seek(FILE_SIZE - 10);
+      try {
+        raf.readInt(new int[3], 0, 3);
+        Assert.fail("expected EOFException");
+      } catch (EOFException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.unidata.io.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.util.DiskCache2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read a file served by a local HTTP server through the HTTPRandomAccessFile block cache,
+ * checking the bytes and the number of Range requests.
+ */
+public class TestHTTPRandomAccessFileBlocks {
+  static private final int FILE_SIZE = 12 * 1000 * 1000 + 123; // bigger than maxHTTPBufferSize
+  static private volatile byte[] content;
+  static private volatile String etag = "\"v1\"";
+  static private HttpServer server;
+  static private String url;
+  static private final AtomicInteger ngets = new AtomicInteger();
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @BeforeClass
+  static public void startServer() throws IOException {
+    content = new byte[FILE_SIZE];
+    new Random(17).nextBytes(content);
+
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/data.bin", TestHTTPRandomAccessFileBlocks::handle);
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/data.bin";
+  }
+
+  @AfterClass
+  static public void stopServer() {
+    if (server != null) server.stop(0);
+  }
+
+  static private void handle(HttpExchange ex) throws IOException {
+    ex.getResponseHeaders().add("Accept-Ranges", "bytes");
+    ex.getResponseHeaders().add("ETag", etag);
+    if (ex.getRequestMethod().equals("HEAD")) {
+      ex.getResponseHeaders().add("Content-Length", Integer.toString(FILE_SIZE));
+      ex.sendResponseHeaders(200, -1);
+      ex.close();
+      return;
+    }
+    ngets.incrementAndGet();
+    String range = ex.getRequestHeaders().getFirst("Range"); // bytes=start-end
+    String[] se = range.substring(range.indexOf('=') + 1).split("-");
+    int start = Integer.parseInt(se[0]);
+    int end = Math.min(Integer.parseInt(se[1]), FILE_SIZE - 1);
+    ex.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + FILE_SIZE);
+    ex.sendResponseHeaders(206, end - start + 1);
+    try (OutputStream out = ex.getResponseBody()) {
+      out.write(content, start, end - start + 1);
+    }
+  }
+
+  @Test
+  public void testSequentialRead() throws IOException {
+    ngets.set(0);
+    byte[] result = new byte[FILE_SIZE];
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      for (int pos = 0; pos < FILE_SIZE; pos += 1000)
+        raf.readFully(result, pos, Math.min(1000, FILE_SIZE - pos));
+      Assert.assertEquals(FILE_SIZE, raf.getBytesServed());
+      Assert.assertEquals(FILE_SIZE, raf.getBytesFetched());
+    }
+    Assert.assertArrayEquals(content, result);
+    // one request per 20K buffer would be 600; read-ahead makes it a lot less
+    Assert.assertTrue("requests=" + ngets.get(), ngets.get() < 50);
+  }
+
+  @Test
+  public void testRandomReads() throws IOException {
+    Random r = new Random(42);
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      byte[] buff = new byte[50 * 1000];
+      for (int i = 0; i < 200; i++) {
+        int len = r.nextInt(buff.length) + 1;
+        int pos = r.nextInt(FILE_SIZE - len);
+        raf.seek(pos);
+        raf.readFully(buff, 0, len);
+        Assert.assertArrayEquals("pos=" + pos, Arrays.copyOfRange(content, pos, pos + len), Arrays.copyOf(buff, len));
+      }
+
+      // rereading a block does not go back to the server; the positions are further apart than the 20K buffer,
+      // but in the same block, so each read misses the buffer and is served from the block cache
+      raf.seek(100);
+      raf.readFully(buff, 0, 10);
+      long nrequests = raf.getRequestCount();
+      long served = raf.getBytesServed();
+      raf.seek(100 * 1000);
+      raf.readFully(buff, 0, 10);
+      Assert.assertArrayEquals(Arrays.copyOfRange(content, 100 * 1000, 100 * 1000 + 10), Arrays.copyOf(buff, 10));
+      raf.seek(200);
+      raf.readFully(buff, 0, 10);
+      Assert.assertArrayEquals(Arrays.copyOfRange(content, 200, 210), Arrays.copyOf(buff, 10));
+      Assert.assertTrue("not read through the block cache", raf.getBytesServed() >= served + 2 * 10);
+      Assert.assertEquals(nrequests, raf.getRequestCount());
+
+      // a read that is too big to cache is split into parallel requests
+      byte[] big = new byte[FILE_SIZE - 10];
+      raf.seek(10);
+      raf.readFully(big);
+      Assert.assertArrayEquals(Arrays.copyOfRange(content, 10, FILE_SIZE), big);
+    }
+  }
+
+  @Test
+  public void testDiskCache() throws IOException {
+    int len = 2 * 1000 * 1000;
+    byte[] save = content;
+    DiskCache2 dc = new DiskCache2(tempFolder.newFolder().getPath(), false, 0, 0);
+    dc.setAlwaysUseCache(true);
+    HTTPRandomAccessFile.setDiskCache(dc);
+    try {
+      Assert.assertArrayEquals(Arrays.copyOf(content, len), readStart(len));
+
+      // a new file reads the kept blocks, without going back to the server
+      ngets.set(0);
+      Assert.assertArrayEquals(Arrays.copyOf(content, len), readStart(len));
+      Assert.assertEquals(0, ngets.get());
+
+      // the remote file changes: the kept blocks are not used
+      byte[] changed = new byte[FILE_SIZE];
+      new Random(18).nextBytes(changed);
+      content = changed;
+      etag = "\"v2\"";
+      Assert.assertArrayEquals(Arrays.copyOf(changed, len), readStart(len));
+      Assert.assertTrue(ngets.get() > 0);
+
+    } finally {
+      HTTPRandomAccessFile.setDiskCache(null);
+      content = save;
+      etag = "\"v1\"";
+    }
+  }
+
+  private byte[] readStart(int len) throws IOException {
+    byte[] result = new byte[len];
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      for (int pos = 0; pos < len; pos += 1000)
+        raf.readFully(result, pos, 1000);
+    }
+    return result;
+  }
+}
@@ -9,10 +9,11 @@ package dap4.dap4lib;
  * DMR  => compute checksums for DMR requests only
  * DAP => compute checksums for Note requests only
  * ALL  => compute checksums for both kinds of requests
+ * NONE => do not compute checksums at all
  */
 public enum ChecksumMode
 {
-    DMR, DAP, ALL;
+    DMR, DAP, ALL, NONE;
 
     static public boolean
     enabled(RequestMode rqm, ChecksumMode ckm)
@@ -21,6 +22,7 @@ public enum ChecksumMode
         case DMR:  return rqm == RequestMode.DMR;
         case DAP: return rqm == RequestMode.DAP;
         case ALL: return rqm == RequestMode.DMR || rqm == RequestMode.DAP;
+        case NONE: return false;
         }
         return false;
     }
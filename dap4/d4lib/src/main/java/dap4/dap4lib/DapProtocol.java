@@ -20,6 +20,7 @@ abstract public class DapProtocol implements DapCodes
     static public final String X_DAP_VERSION = "4.0";
 
     static public final String CONSTRAINTTAG = "dap4.ce";
+    static public final String CHECKSUMTAG = "dap4.checksum";
 
     static public Map<RequestMode, ContentType> contenttypes;
 
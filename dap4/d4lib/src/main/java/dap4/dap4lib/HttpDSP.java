@@ -181,11 +181,16 @@ public class HttpDSP extends D4DSP
     build()
             throws DapException
     {
-        String methodurl = buildURL(this.xuri.assemble(XURI.URLONLY), DATASUFFIX, this.dmr, this.basece);
         this.checksummode = ChecksumMode.modeFor(xuri.getFragFields().get(CHECKSUMTAG));
         if(this.checksummode == null) {
             this.checksummode = ChecksumMode.DAP;
         }
+        String methodurl = buildURL(this.xuri.assemble(XURI.URLONLY), DATASUFFIX, this.dmr, this.basece);
+        if(!ChecksumMode.enabled(RequestMode.DAP, this.checksummode)) {
+            // Tell the server not to bother computing them
+            methodurl += (methodurl.contains(QUERYSTART) ? "&" : QUERYSTART)
+                    + DapProtocol.CHECKSUMTAG + "=" + ChecksumMode.NONE.name().toLowerCase();
+        }
 
         InputStream stream;
         // Make the request and return an input stream for accessing the databuffer
@@ -16,6 +16,7 @@ import java.io.OutputStream;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
 
 public class ChunkWriter extends OutputStream
 {
@@ -32,6 +33,36 @@ public class ChunkWriter extends OutputStream
 
     static public final byte[] CRLF8 = DapUtil.extract(DapUtil.UTF8.encode(DapUtil.CRLF));
 
+    // Max number of idle chunk buffers kept for reuse across requests
+    static final int MAXPOOLSIZE = 32;
+
+    //////////////////////////////////////////////////
+    // Static variables
+
+    // Chunk buffers of size MAXCHUNKSIZE are recycled
+    // rather than allocated per request.
+    static protected final ArrayBlockingQueue<ByteBuffer> bufferpool
+            = new ArrayBlockingQueue<>(MAXPOOLSIZE);
+
+    static protected ByteBuffer
+    acquireBuffer(int size)
+    {
+        ByteBuffer buf = null;
+        if(size == MAXCHUNKSIZE)
+            buf = bufferpool.poll();
+        if(buf == null)
+            buf = ByteBuffer.allocate(size);
+        buf.clear();
+        return buf;
+    }
+
+    static protected void
+    releaseBuffer(ByteBuffer buf)
+    {
+        if(buf != null && buf.capacity() == MAXCHUNKSIZE)
+            bufferpool.offer(buf); // drop it if the pool is full
+    }
+
     //////////////////////////////////////////////////
     // Type declarations
 
@@ -58,6 +89,7 @@ public class ChunkWriter extends OutputStream
     protected ByteOrder order = null;
     protected RequestMode mode = null;
     protected byte[] dmr8 = null; // dmr in utf-8 form
+    protected byte[] onebyte = new byte[1]; // for write(int)
 
     //////////////////////////////////////////////////
     // Constructor(s)
@@ -204,7 +236,7 @@ public class ChunkWriter extends OutputStream
                 flags |= DapUtil.CHUNK_LITTLE_ENDIAN;
             chunkheader(dxr8.length, flags, header);
             // write the header
-            output.write(DapUtil.extract(header));
+            output.write(header.array(), 0, SIZEOF_INTEGER);
             state = State.DATA;
         }
         // write the DXR
@@ -239,12 +271,14 @@ public class ChunkWriter extends OutputStream
         if(mode == RequestMode.DMR) {
             sendDXR(errbody8);
         } else {//mode == DATA
-            // clear any partial chunk
-            chunk.clear();
+            // discard any partial chunk; give the buffer back
+            // since nothing more can be written after an error
+            releaseBuffer(chunk);
+            chunk = null;
             // create an error header
             int flags = DapUtil.CHUNK_ERROR | DapUtil.CHUNK_END;
             chunkheader(errbody8.length, flags, header);
-            output.write(DapUtil.extract(header));
+            output.write(header.array(), 0, SIZEOF_INTEGER);
             output.write(errbody8);
             output.flush();
         }
@@ -265,13 +299,13 @@ public class ChunkWriter extends OutputStream
         // and amount to write is zero,
         // go ahead and write the zero size chunk.
         if(chunk == null)
-            chunk = ByteBuffer.allocate(maxbuffersize);
+            chunk = acquireBuffer(maxbuffersize).order(getOrder());
 
         int buffersize = chunk.position();
         chunkheader(buffersize, flags, header);
         // output the header followed by the data (if any)
         // Zero size chunk is ok.
-        output.write(DapUtil.extract(header));
+        output.write(header.array(), 0, SIZEOF_INTEGER);
         if(buffersize > 0)
             output.write(chunk.array(), 0, buffersize);
         if(DEBUG)
@@ -333,21 +367,28 @@ public class ChunkWriter extends OutputStream
         // If there is no partial chunk to write then
         // we are done; else verify we can write and write the last
         // chunk; => multiple closes are ok.
-        if(chunk == null || chunk.position() == 0)
+        if(chunk == null)
             return;
+        try {
+            if(chunk.position() == 0)
+                return;
 
-        // There is data left to write.
-        verifystate(); // are we in a state supporting data write?
+            // There is data left to write.
+            verifystate(); // are we in a state supporting data write?
 
-        // Force out the current chunk (might be empty)
-        // but do not close the underlying output stream
-        state = State.DATA; // pretend
-
-        int flags = DapUtil.CHUNK_END;
-        writeChunk(flags);
-        state = State.END;
-        output.flush(); // Do not close
+            // Force out the current chunk (might be empty)
+            // but do not close the underlying output stream
+            state = State.DATA; // pretend
 
+            int flags = DapUtil.CHUNK_END;
+            writeChunk(flags);
+            state = State.END;
+            output.flush(); // Do not close
+        } finally {
+            // Give the chunk buffer back for use by other requests
+            releaseBuffer(chunk);
+            chunk = null;
+        }
     }
 
     /**
@@ -393,9 +434,8 @@ public class ChunkWriter extends OutputStream
     public void write(int b)
             throws IOException
     {
-        byte[] buf = new byte[1];
-        buf[0] = (byte) (b & 0xff);
-        write(buf, 0, 1);
+        onebyte[0] = (byte) (b & 0xff);
+        write(onebyte, 0, 1);
     }
 
     /**
@@ -421,7 +461,7 @@ public class ChunkWriter extends OutputStream
             throw new DapException("Attempt to write too much data: limit=" + writecount + len)
                     .setCode(DapCodes.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
         if(chunk == null)
-            chunk = ByteBuffer.allocate(maxbuffersize).order(getOrder());
+            chunk = acquireBuffer(maxbuffersize).order(getOrder());
         if(state == State.DMR) {
             chunk.clear(); // reset
             state = State.DATA;
@@ -439,7 +479,8 @@ public class ChunkWriter extends OutputStream
                     avail = chunk.remaining();
                 }
                 int towrite = (left < avail ? left : avail);
-                chunk.put(b, off, towrite);
+                chunk.put(b, offset, towrite);
+                offset += towrite;
                 left -= towrite;
                 avail -= towrite;
             } while(left > 0);
@@ -12,17 +12,30 @@ import dap4.dap4lib.DapCodes;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Formatter;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
- * Provide an LRU cache of DSPs.
+ * Provide a bounded LRU cache of DSPs, keyed by path.
  * It is expected (for now) that this is only used on the server side.
- * The cache key is assumed to be the DSP object.
- * The cache is synchronized to avoid race conditions.
- * Note that we do not have to release because Java
- * uses garbage collection and entries will be purged
- * if the LRU cache is full.
+ * <p>
+ * Opens of different paths proceed concurrently; concurrent
+ * opens of the same path share a single open (single-flight).
+ * Each open() should be matched by a release() when the
+ * caller is finished with the DSP; entries in use are never
+ * closed by eviction. Entries are evicted when the cache
+ * exceeds MAXFILES or when they have been idle longer than
+ * MAXIDLE; an evicted entry is closed at once if unpinned,
+ * else by the release() that unpins it.
  * Singleton class
  */
 
@@ -34,8 +47,43 @@ abstract public class DapCache
 
     static final int MAXFILES = 100; // size of the cache
 
+    static final long MAXIDLE = TimeUnit.MINUTES.toMillis(10); // idle time bound
+
+    static final long PURGEINTERVAL = TimeUnit.MINUTES.toMillis(1); // idle check on cache hits
+
     static public final String MATCHMETHOD = "dspMatch";
 
+    //////////////////////////////////////////////////
+    // Type Decls
+
+    static protected class Entry
+    {
+        final String path;
+        final FutureTask<DSP> opener;
+        final AtomicInteger refcount = new AtomicInteger(0);
+        volatile long lastused = System.currentTimeMillis();
+        volatile boolean removed = false; // no longer in the cache
+        final AtomicBoolean closed = new AtomicBoolean(false);
+
+        Entry(String path, FutureTask<DSP> opener)
+        {
+            this.path = path;
+            this.opener = opener;
+        }
+
+        // Return the DSP if the open has completed successfully, else null.
+        DSP peek()
+        {
+            if(!opener.isDone())
+                return null;
+            try {
+                return opener.get();
+            } catch (InterruptedException | ExecutionException e) {
+                return null;
+            }
+        }
+    }
+
     //////////////////////////////////////////////////
     // Static variables
 
@@ -45,13 +93,26 @@ abstract public class DapCache
     static public DSPRegistry dspregistry = new DSPRegistry();
 
     /**
-     * Define an lru cache of known DSP objects: oldest first.
+     * Define the cache of known DSP objects.
      */
-    static protected List<DSP> lru = new ArrayList<DSP>();
+    static protected final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The entry of each opened DSP, including evicted entries
+     * that are still pinned; used by release().
+     */
+    static protected final Map<DSP, Entry> entries = new ConcurrentHashMap<>();
 
     // This should be set by any subclass
     static protected DSPFactory factory = null;
 
+    // Statistics
+    static protected final AtomicLong hits = new AtomicLong();
+    static protected final AtomicLong misses = new AtomicLong();
+    static protected final AtomicLong evictions = new AtomicLong();
+    static protected final AtomicLong opentime = new AtomicLong(); // nanoseconds
+    static protected final AtomicLong lastpurge = new AtomicLong(System.currentTimeMillis());
+
     static public void setFactory(DSPFactory f)
     {
         factory = f;
@@ -62,47 +123,205 @@ abstract public class DapCache
         return factory;
     }
 
-    static public synchronized DSP open(String path, DapContext cxt)
+    /**
+     * Get the DSP for a path, opening it if necessary.
+     * The caller should pass the result to release() when done.
+     *
+     * @param path the absolute path to open
+     * @param cxt  the request context
+     * @return the open DSP
+     * @throws IOException if no DSP matches or the open fails
+     */
+    static public DSP open(final String path, final DapContext cxt)
             throws IOException
     {
         assert cxt != null;
-        int lrusize = lru.size();
-        for(int i = lrusize - 1; i >= 0; i--) {
-            DSP dsp = lru.get(i);
-            String dsppath = dsp.getLocation();
-            if(dsppath.equals(path)) {
-                // move to the front of the queue to maintain LRU property
-                lru.remove(i);
-                lru.add(dsp);
-                return dsp;
+        Entry entry;
+        boolean opener = false;
+        for(; ; ) {
+            entry = cache.get(path);
+            if(entry == null) {
+                FutureTask<DSP> task = new FutureTask<>(() -> create(path, cxt));
+                Entry newentry = new Entry(path, task);
+                entry = cache.putIfAbsent(path, newentry);
+                if(entry == null) {
+                    entry = newentry;
+                    opener = true;
+                }
             }
+            // pin it; retry if it was evicted in the meantime
+            entry.refcount.incrementAndGet();
+            if(cache.get(path) == entry)
+                break;
+            unpin(entry);
+            opener = false;
         }
-        // No match found, create and initialize it.
-        // If cache is full, remove oldest entry
-        if(lrusize == MAXFILES) {
-            // make room
-            lru.remove(0);
-            CEConstraint.release(lru.get(0).getDMR());
+        entry.lastused = System.currentTimeMillis();
+        if(opener) {
+            misses.incrementAndGet();
+            long start = System.nanoTime();
+            entry.opener.run();
+            opentime.addAndGet(System.nanoTime() - start);
+            purge();
+        } else {
+            hits.incrementAndGet();
+            long last = lastpurge.get();
+            if(entry.lastused - last > PURGEINTERVAL
+                    && lastpurge.compareAndSet(last, entry.lastused))
+                purge(); // so idle entries go even without misses
         }
+        try {
+            DSP dsp = entry.opener.get(); // waits for any open in progress
+            entries.putIfAbsent(dsp, entry);
+            return dsp;
+        } catch (ExecutionException ee) {
+            // do not cache failures
+            entry.refcount.decrementAndGet();
+            cache.remove(path, entry);
+            Throwable cause = ee.getCause();
+            if(cause instanceof IOException)
+                throw (IOException) cause;
+            throw new DapException(cause);
+        } catch (InterruptedException ie) {
+            unpin(entry);
+            throw new DapException(ie);
+        }
+    }
+
+    /**
+     * Indicate that the caller is finished with a DSP
+     * obtained from open(). The DSP stays cached.
+     *
+     * @param dsp as returned by open(); null is ignored
+     */
+    static public void release(DSP dsp)
+    {
+        if(dsp == null) return;
+        Entry entry = entries.get(dsp);
+        if(entry == null) return;
+        entry.lastused = System.currentTimeMillis();
+        unpin(entry);
+    }
+
+    // Drop one pin; the last holder of an evicted entry closes it
+    static protected void unpin(Entry entry)
+    {
+        if(entry.refcount.decrementAndGet() == 0 && entry.removed)
+            close(entry);
+    }
+
+    static protected DSP create(String path, DapContext cxt)
+            throws IOException
+    {
         // Find dsp that can process this path
-        DSP dsp = dspregistry.findMatchingDSP(path,cxt);
+        DSP dsp = dspregistry.findMatchingDSP(path, cxt);
         if(dsp == null)
             throw new DapException("Resource has no matching DSP: " + path)
                     .setCode(DapCodes.SC_FORBIDDEN);
         dsp.setContext(cxt);
         dsp.open(path);
-        lru.add(dsp);
         return dsp;
     }
 
-    static synchronized public void flush() // for testing
-            throws Exception
+    /**
+     * Close entries that have been idle too long,
+     * then, if still over capacity, close the least recently
+     * used unpinned entries.
+     */
+    static protected void purge()
     {
-        while(lru.size() > 0) {
-            DSP dsp = lru.get(0);
+        long now = System.currentTimeMillis();
+        List<Entry> idle = new ArrayList<>();
+        for(Entry entry : cache.values()) {
+            if(entry.refcount.get() == 0 && entry.opener.isDone())
+                idle.add(entry);
+        }
+        int excess = cache.size() - MAXFILES;
+        idle.sort((a, b) -> Long.compare(a.lastused, b.lastused)); // oldest first
+        for(Entry entry : idle) {
+            if(excess <= 0 && now - entry.lastused < MAXIDLE)
+                break;
+            if(evict(entry))
+                excess--;
+        }
+    }
+
+    static protected boolean evict(Entry entry)
+    {
+        if(entry.refcount.get() != 0 || !cache.remove(entry.path, entry))
+            return false;
+        entry.removed = true;
+        evictions.incrementAndGet();
+        // Someone may have pinned it just before removal; if so
+        // leave it open for them, and their release() closes it.
+        if(entry.refcount.get() == 0)
+            close(entry);
+        return true;
+    }
+
+    // Close an entry's DSP, once
+    static protected void close(Entry entry)
+    {
+        if(!entry.closed.compareAndSet(false, true))
+            return;
+        DSP dsp = entry.peek();
+        if(dsp == null) return;
+        entries.remove(dsp, entry);
+        try {
             CEConstraint.release(dsp.getDMR());
             dsp.close();
-            lru.remove(0);
+        } catch (IOException ioe) {
+            // ignore; it is being discarded
+        }
+    }
+
+    //////////////////////////////////////////////////
+    // Statistics
+
+    static public long getHits()
+    {
+        return hits.get();
+    }
+
+    static public long getMisses()
+    {
+        return misses.get();
+    }
+
+    static public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * @return total time spent opening DSPs, in milliseconds
+     */
+    static public long getOpenTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(opentime.get());
+    }
+
+    /**
+     * Add stat report (hits, misses, etc) to formatter.
+     *
+     * @param format add to this
+     */
+    static public void showStats(Formatter format)
+    {
+        long nopens = misses.get();
+        format.format("  hits= %d miss= %d evictions= %d entries= %d opentime= %d msecs (avg %.2f)%n",
+                hits.get(), nopens, evictions.get(), cache.size(), getOpenTime(),
+                nopens == 0 ? 0.0 : ((double) getOpenTime()) / nopens);
+    }
+
+    static public void flush() // for testing
+            throws Exception
+    {
+        for(Entry entry : new ArrayList<>(cache.values())) {
+            if(cache.remove(entry.path, entry)) {
+                entry.removed = true;
+                close(entry);
+            }
         }
     }
 
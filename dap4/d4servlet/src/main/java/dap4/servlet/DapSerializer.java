@@ -33,6 +33,7 @@ public class DapSerializer
     protected DSP dsp = null;
     protected CEConstraint ce = null;
     protected ByteOrder order = null;
+    protected boolean checksumming = true;
 
     //////////////////////////////////////////////////
     // Constructor(s)
@@ -59,11 +60,24 @@ public class DapSerializer
         this.ce = constraint;
     }
 
+    /**
+     * Control whether per-variable checksums are computed
+     * and written; the client must have asked for no checksums.
+     *
+     * @param tf false => omit checksums
+     */
+    public void
+    computeChecksums(boolean tf)
+    {
+        this.checksumming = tf;
+    }
+
     public void
     write(DapDataset dmr)
             throws IOException
     {
         writer = new SerialWriter(this.stream, this.order);
+        writer.computeChecksums(this.checksumming);
         writer.flush(); // If stream is ChunkWriter, then dump DMR
         // Iterate over the top-level variables in the constraint
         for(DapVariable var : dmr.getTopVariables()) {
@@ -43,6 +43,9 @@ public class SerialWriter
 
     static final int COUNTSIZE = 8;
 
+    // Largest encoding buffer we will hold on to between writes
+    static final int MAXSCRATCHSIZE = 1 << 20;
+
     //////////////////////////////////////////////////
     // Instance variables
 
@@ -56,6 +59,7 @@ public class SerialWriter
     protected StringBuilder lastchecksum = new StringBuilder(); // checksum from last variable
 
     protected ByteBuffer longbuffer = null;
+    protected ByteBuffer scratch = null; // reused across writeAtomicArray calls
 
     //////////////////////////////////////////////////
     // Constructor(s)
@@ -107,11 +111,35 @@ public class SerialWriter
     static public ByteBuffer
     encodeArray(DapType vtype, Object values, ByteOrder order)
             throws IOException
+    {
+        return encodeArray(vtype, values, order, null);
+    }
+
+    /**
+     * Encode an array of primitive values, reusing
+     * the given buffer if it is large enough.
+     *
+     * @param vtype  The type of the object
+     * @param values The value array
+     * @param reuse  Buffer to encode into if big enough; may be null
+     * @return bytebuffer encoding of the array; position is
+     *         the number of encoded bytes.
+     */
+
+    static public ByteBuffer
+    encodeArray(DapType vtype, Object values, ByteOrder order, ByteBuffer reuse)
+            throws IOException
     {
         TypeSort atomtype = vtype.getAtomicType();
         int count = Array.getLength(values);
         int total = (int) TypeSort.getSize(atomtype) * count;
-        ByteBuffer buf = ByteBuffer.allocate(total).order(order);
+        ByteBuffer buf;
+        if(reuse != null && reuse.capacity() >= total) {
+            buf = reuse;
+            buf.clear();
+            buf.order(order);
+        } else
+            buf = ByteBuffer.allocate(total).order(order);
         switch (atomtype) {
         case Char:
             char[] datac = (char[]) values;
@@ -290,7 +318,9 @@ public class SerialWriter
     writeAtomicArray(DapType daptype, Object values)
             throws IOException
     {
-        ByteBuffer buf = SerialWriter.encodeArray(daptype, values,this.order);
+        ByteBuffer buf = SerialWriter.encodeArray(daptype, values, this.order, this.scratch);
+        if(buf.capacity() <= MAXSCRATCHSIZE)
+            this.scratch = buf; // keep for the next variable
         byte[] bytes = buf.array();
         int len = buf.position();
         if(checksumming)
@@ -0,0 +1,190 @@
+/* Copyright 2012, UCAR/Unidata.
+   See the LICENSE file for more information.
+*/
+
+package dap4.test;
+
+import dap4.core.data.DSP;
+import dap4.core.data.DataCursor;
+import dap4.core.dmr.DapDataset;
+import dap4.core.dmr.DapVariable;
+import dap4.core.util.DapContext;
+import dap4.servlet.DapCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pin, release and evict DapCache entries from many threads
+ * and check that every DSP is closed exactly once, and never
+ * while someone holds it.
+ */
+public class TestDapCache
+{
+    //////////////////////////////////////////////////
+    // Constants
+
+    static final String PREFIX = "testdapcache:";
+    static final int NTHREADS = 8;
+    static final int NOPENS = 5000;
+    static final int NPATHS = 300; // more than DapCache.MAXFILES
+
+    //////////////////////////////////////////////////
+    // Type decls
+
+    // A DSP that counts its uses and closes
+    static public class CountingDSP implements DSP
+    {
+        static final Map<CountingDSP, Boolean> all = new ConcurrentHashMap<>();
+        static final AtomicInteger errors = new AtomicInteger();
+
+        final AtomicInteger users = new AtomicInteger();
+        final AtomicInteger closes = new AtomicInteger();
+        String location;
+        DapContext context;
+
+        public CountingDSP()
+        {
+        }
+
+        public boolean dspMatch(String path, DapContext context)
+        {
+            return path.startsWith(PREFIX);
+        }
+
+        public DSP open(String path)
+        {
+            this.location = path;
+            all.put(this, Boolean.TRUE);
+            return this;
+        }
+
+        public String getLocation()
+        {
+            return location;
+        }
+
+        public void setLocation(String location)
+        {
+            this.location = location;
+        }
+
+        public Object getContext()
+        {
+            return context;
+        }
+
+        public void setContext(DapContext cxt)
+        {
+            this.context = cxt;
+        }
+
+        public DapDataset getDMR()
+        {
+            return null;
+        }
+
+        public DataCursor getVariableData(DapVariable var)
+        {
+            return null;
+        }
+
+        public void close()
+                throws IOException
+        {
+            if(users.get() != 0)
+                errors.incrementAndGet(); // closed while in use
+            closes.incrementAndGet();
+        }
+    }
+
+    //////////////////////////////////////////////////
+    // Junit test methods
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        DapCache.flush();
+        CountingDSP.all.clear();
+        CountingDSP.errors.set(0);
+        DapCache.dspregistry.register(CountingDSP.class, false);
+    }
+
+    @After
+    public void cleanup()
+            throws Exception
+    {
+        DapCache.flush();
+        DapCache.dspregistry.unregister(CountingDSP.class);
+    }
+
+    @Test
+    public void testPinEvict()
+            throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(NTHREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for(int t = 0; t < NTHREADS; t++) {
+            final int seed = t;
+            results.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for(int i = 0; i < NOPENS; i++) {
+                    // mostly a few hot paths, sometimes a cold one to force eviction
+                    int p = random.nextInt(4) == 0 ? random.nextInt(NPATHS) : random.nextInt(4);
+                    CountingDSP dsp = (CountingDSP) DapCache.open(PREFIX + p, new DapContext());
+                    dsp.users.incrementAndGet();
+                    if(dsp.closes.get() != 0)
+                        CountingDSP.errors.incrementAndGet(); // handed out after close
+                    Thread.yield();
+                    dsp.users.decrementAndGet();
+                    DapCache.release(dsp);
+                }
+                return null;
+            }));
+        }
+        for(Future<?> f : results)
+            f.get(); // rethrows any failure
+        pool.shutdown();
+
+        Assert.assertEquals("DSPs closed while in use", 0, CountingDSP.errors.get());
+        Assert.assertTrue("no evictions", DapCache.getEvictions() > 0);
+
+        DapCache.flush();
+        for(CountingDSP dsp : CountingDSP.all.keySet())
+            Assert.assertEquals(dsp.getLocation() + " closes", 1, dsp.closes.get());
+    }
+
+    @Test
+    public void testPinnedNotEvicted()
+            throws Exception
+    {
+        CountingDSP pinned = (CountingDSP) DapCache.open(PREFIX + "pinned", new DapContext());
+        // it is not evicted, nor closed, while pinned
+        for(int p = 0; p < NPATHS; p++)
+            DapCache.release(DapCache.open(PREFIX + p, new DapContext()));
+        Assert.assertEquals(0, pinned.closes.get());
+
+        // a new open of the path gets a usable DSP
+        CountingDSP again = (CountingDSP) DapCache.open(PREFIX + "pinned", new DapContext());
+        Assert.assertEquals(0, again.closes.get());
+        DapCache.release(again);
+
+        DapCache.release(pinned);
+        DapCache.flush();
+        Assert.assertEquals(1, pinned.closes.get());
+        Assert.assertEquals(1, again.closes.get());
+    }
+}
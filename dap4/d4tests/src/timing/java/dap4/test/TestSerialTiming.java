@@ -0,0 +1,97 @@
+/* Copyright 2012, UCAR/Unidata.
+   See the LICENSE file for more information.
+*/
+
+package dap4.test;
+
+import dap4.core.dmr.DapType;
+import dap4.dap4lib.RequestMode;
+import dap4.servlet.ChunkWriter;
+import dap4.servlet.SerialWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+
+/**
+ * Time the serialization of large Float32 arrays
+ * through SerialWriter and ChunkWriter, with and
+ * without checksums, in both byte orders.
+ * Kept under src/timing, which the build does not compile or run;
+ * run it by hand against the d4tests test classpath.
+ */
+public class TestSerialTiming extends DapTestCommon
+{
+    //////////////////////////////////////////////////
+    // Constants
+
+    static final int NVALUES = 10 * 1000 * 1000; // 40 MB of Float32
+    static final int NVARS = 5;
+    static final int REPEAT = 5;
+
+    static final String DMR = "<Dataset name=\"timing\"/>";
+
+    //////////////////////////////////////////////////
+    // Type decls
+
+    // Discard all output
+    static class NullOutputStream extends OutputStream
+    {
+        long count = 0;
+
+        public void write(int b)
+        {
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len)
+        {
+            count += len;
+        }
+    }
+
+    //////////////////////////////////////////////////
+    // Junit test method
+
+    @Test
+    public void testSerialTiming()
+            throws Exception
+    {
+        float[] data = new float[NVALUES];
+        for(int i = 0; i < data.length; i++) {
+            data[i] = (float) i / 7.0f;
+        }
+        for(ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            timeit(data, order, true);
+            timeit(data, order, false);
+        }
+    }
+
+    protected void
+    timeit(float[] data, ByteOrder order, boolean checksums)
+            throws IOException
+    {
+        long nbytes = 0;
+        long start = System.nanoTime();
+        for(int r = 0; r < REPEAT; r++) {
+            NullOutputStream sink = new NullOutputStream();
+            ChunkWriter cw = new ChunkWriter(sink, RequestMode.DAP, order);
+            cw.setWriteLimit(Long.MAX_VALUE);
+            cw.writeDMR(DMR);
+            cw.flush();
+            SerialWriter writer = new SerialWriter(cw, order);
+            writer.computeChecksums(checksums);
+            for(int v = 0; v < NVARS; v++) {
+                writer.startVariable();
+                writer.writeAtomicArray(DapType.FLOAT32, data);
+                writer.endVariable();
+            }
+            cw.close();
+            nbytes += sink.count;
+        }
+        double secs = (System.nanoTime() - start) / 1.0e9;
+        System.out.printf("order=%s checksums=%s: %d bytes in %.3f secs = %.1f MB/sec%n",
+                order, checksums, nbytes, secs, (nbytes / 1.0e6) / secs);
+    }
+}
@@ -35,10 +35,12 @@ package ucar.nc2.grib.collection;
 
 import jdk.nashorn.internal.ir.annotations.Immutable;
 import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.filesystem.DirectorySnapshot;
 import thredds.inventory.CollectionManager;
 import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
 import thredds.inventory.MFile;
+import thredds.inventory.partition.DirectoryCollection;
 import thredds.inventory.partition.PartitionManager;
 import thredds.inventory.partition.PartitionManagerFromIndexList;
 import ucar.coord.Coordinate;
@@ -102,6 +104,11 @@ abstract class GribCollectionBuilder {
     long collectionLastModified = collectionIndexFile.lastModified();
     Set<String> newFileSet = new HashSet<>();
 
+    // if no file was added, deleted, or changed in size or lastModified since we last checked this index, we are done
+    DirectorySnapshot snapshot = (dcm instanceof DirectoryCollection) ? ((DirectoryCollection) dcm).getSnapshot() : null;
+    String indexKey = collectionIndexFile.getPath();
+    if (snapshot != null && snapshot.isVerified(indexKey, collectionLastModified)) return false;
+
     CollectionManager.ChangeChecker cc = GribIndex.getChangeChecker();
     try (CloseableIterator<MFile> iter = dcm.getFileIterator()) {
       while (iter != null && iter.hasNext()) {
@@ -129,6 +136,7 @@ abstract class GribCollectionBuilder {
         return true;              // got added - must recreate the index
     }
 
+    if (snapshot != null) snapshot.setVerified(indexKey, collectionLastModified);
     return false;
   }
 
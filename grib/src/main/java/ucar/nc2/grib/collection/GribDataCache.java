@@ -0,0 +1,179 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import ucar.unidata.io.RandomAccessFile;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.Formatter;
+
+/**
+ * A memory-bounded cache of decoded GRIB fields, shared by all readers in the JVM.
+ * Keyed by data file, data section position and bitmap position; eviction is by total size in bytes.
+ * Disabled until init() is called.
+ * <p>
+ * Cached arrays are shared, so callers must not modify them.
+ */
+@ThreadSafe
+public class GribDataCache {
+  static private final int ENTRY_OVERHEAD = 100; // key, entry and array header, roughly
+  static private final int MAX_FRACTION = 10;     // dont cache a field bigger than 1/10 of the cache
+
+  static private volatile Cache<Key, float[]> cache;
+  static private volatile long maxBytes;
+
+  /**
+   * Enable the cache, discarding any existing contents.
+   *
+   * @param maxSizeBytes maximum total size of the cached fields; if <= 0, disable the cache.
+   */
+  static public synchronized void init(long maxSizeBytes) {
+    if (maxSizeBytes <= 0) {
+      disable();
+      return;
+    }
+    maxBytes = maxSizeBytes;
+    cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxSizeBytes)
+            .weigher((Key key, float[] data) -> weight(data))
+            .recordStats()
+            .build();
+  }
+
+  static public synchronized void disable() {
+    if (cache != null) cache.invalidateAll();
+    cache = null;
+    maxBytes = 0;
+  }
+
+  static public boolean isEnabled() {
+    return cache != null;
+  }
+
+  static public void clearCache() {
+    Cache<Key, float[]> c = cache;
+    if (c != null) c.invalidateAll();
+  }
+
+  /**
+   * Get the decoded field at the given position, from the cache if present, else from the reader.
+   *
+   * @param raf     the data file
+   * @param lastModified raf.getLastModified(), taken once when the file was opened or taken from the file cache,
+   *                     rather than a stat on every record
+   * @param dataPos starting position of the data section (GRIB2: Section 5)
+   * @param bmsPos  starting position of the bitmap section, or 0 if none
+   * @param reader  reads the field when its not in the cache
+   * @return the decoded field, must not be modified
+   * @throws IOException on read error
+   */
+  static public float[] getData(RandomAccessFile raf, long lastModified, long dataPos, long bmsPos, Reader reader) throws IOException {
+    Cache<Key, float[]> c = cache;
+    if (c == null)
+      return reader.read();
+
+    Key key = new Key(raf.getLocation(), lastModified, dataPos, bmsPos);
+    float[] data = c.getIfPresent(key);
+    if (data == null) {
+      data = reader.read();
+      if (data != null && weight(data) <= maxBytes / MAX_FRACTION)
+        c.put(key, data);
+    }
+    return data;
+  }
+
+  static public CacheStats getStats() {
+    Cache<Key, float[]> c = cache;
+    return (c == null) ? null : c.stats();
+  }
+
+  static public void showCache(Formatter f) {
+    Cache<Key, float[]> c = cache;
+    if (c == null) {
+      f.format("%nGribDataCache : turned off%n");
+      return;
+    }
+    long bytes = 0;
+    for (float[] data : c.asMap().values())
+      bytes += weight(data);
+    CacheStats stats = c.stats();
+    f.format("%nGribDataCache: %d fields, %d / %d Kbytes%n", c.size(), bytes / 1000, maxBytes / 1000);
+    f.format("  hits= %d miss= %d hitRate= %.3f evictions= %d%n", stats.hitCount(), stats.missCount(),
+            stats.hitRate(), stats.evictionCount());
+  }
+
+  static private int weight(float[] data) {
+    return (int) Math.min(Integer.MAX_VALUE, 4L * data.length + ENTRY_OVERHEAD);
+  }
+
+  /** Reads the field on a cache miss. */
+  public interface Reader {
+    float[] read() throws IOException;
+  }
+
+  private static class Key {
+    final String location;
+    final long lastModified;
+    final long dataPos, bmsPos;
+
+    Key(String location, long lastModified, long dataPos, long bmsPos) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.dataPos = dataPos;
+      this.bmsPos = bmsPos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return lastModified == key.lastModified && dataPos == key.dataPos && bmsPos == key.bmsPos &&
+              location.equals(key.location);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = location.hashCode();
+      result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+      result = 31 * result + (int) (dataPos ^ (dataPos >>> 32));
+      result = 31 * result + (int) (bmsPos ^ (bmsPos >>> 32));
+      return result;
+    }
+  }
+}
@@ -51,6 +51,7 @@ import ucar.nc2.grib.grib2.Grib2Record;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
 import ucar.nc2.grib.grib2.table.Grib2Customizer;
 import ucar.nc2.util.Misc;
+import ucar.nc2.util.RequestTrace;
 import ucar.unidata.io.RandomAccessFile;
 
 import javax.annotation.concurrent.Immutable;
@@ -103,10 +104,12 @@ public abstract class GribDataReader {
    */
   public Array readData(SectionIterable want) throws IOException, InvalidRangeException {
     // System.out.printf("%nGribDataReader.want=%n%s%n", want.show());
-    if (vindex instanceof PartitionCollectionImmutable.VariableIndexPartitioned)
-      return readDataFromPartition((PartitionCollectionImmutable.VariableIndexPartitioned) vindex, want);
-    else
-      return readDataFromCollection(vindex, want);
+    try (RequestTrace.Span span = RequestTrace.span("GribDataReader.read")) {
+      if (vindex instanceof PartitionCollectionImmutable.VariableIndexPartitioned)
+        return readDataFromPartition((PartitionCollectionImmutable.VariableIndexPartitioned) vindex, want);
+      else
+        return readDataFromCollection(vindex, want);
+    }
   }
 
   /*
@@ -197,10 +200,12 @@ public abstract class GribDataReader {
   // Coordinate based subsetting for Coverage
 
   public Array readData2(CoordsSet want, RangeIterator yRange, RangeIterator xRange) throws IOException, InvalidRangeException {
-    if (vindex instanceof PartitionCollectionImmutable.VariableIndexPartitioned)
-      return readDataFromPartition2((PartitionCollectionImmutable.VariableIndexPartitioned) vindex, want, yRange, xRange);
-    else
-      return readDataFromCollection2(vindex, want, yRange, xRange);
+    try (RequestTrace.Span span = RequestTrace.span("GribDataReader.read")) {
+      if (vindex instanceof PartitionCollectionImmutable.VariableIndexPartitioned)
+        return readDataFromPartition2((PartitionCollectionImmutable.VariableIndexPartitioned) vindex, want, yRange, xRange);
+      else
+        return readDataFromCollection2(vindex, want, yRange, xRange);
+    }
   }
 
   private Array readDataFromCollection2(GribCollectionImmutable.VariableIndex vindex, CoordsSet want, RangeIterator yRange, RangeIterator xRange) throws IOException, InvalidRangeException {
@@ -271,6 +276,7 @@ public abstract class GribDataReader {
 
     int currFile = -1;
     RandomAccessFile rafData = null;
+    long rafModified = 0;
     try {
       for (DataRecord dr : records) {
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
@@ -285,6 +291,7 @@ public abstract class GribDataReader {
         if (dr.record.fileno != currFile) {
           if (rafData != null) rafData.close();
           rafData = gribCollection.getDataRaf(dr.record.fileno);
+          rafModified = lastModified(rafData);
           currFile = dr.record.fileno;
         }
 
@@ -298,7 +305,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
+        float[] data = readCachedData(rafData, rafModified, dr);
         GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
         dataReceiver.addData(data, dr.resultIndex, hcs.nx);
       }
@@ -318,6 +325,7 @@ public abstract class GribDataReader {
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
+    long rafModified = 0;
     try {
 
       for (DataRecord dr : records) {
@@ -332,6 +340,7 @@ public abstract class GribDataReader {
         if ((rafData == null) || !drp.usesSameFile(lastRecord)) {
           if (rafData != null) rafData.close();
           rafData = drp.usePartition.getRaf(drp.partno, dr.record.fileno);
+          rafModified = lastModified(rafData);
         }
         lastRecord = drp;
 
@@ -344,7 +353,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
+        float[] data = readCachedData(rafData, rafModified, dr);
         GdsHorizCoordSys hcs = dr.hcs;
         dataReceiver.addData(data, dr.resultIndex, hcs.nx);
       }
@@ -354,6 +363,18 @@ public abstract class GribDataReader {
     }
   }
 
+  // consult the shared GribDataCache before reading and decoding the record
+  private float[] readCachedData(RandomAccessFile rafData, long rafModified, DataRecord dr) throws IOException {
+    long dataPos = dr.record.pos + dr.record.drsOffset;
+    long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : 0;
+    return GribDataCache.getData(rafData, rafModified, dataPos, bmsPos, () -> readData(rafData, dr));
+  }
+
+  // part of the GribDataCache key; stat the file once when its opened, not on every record
+  private static long lastModified(RandomAccessFile rafData) {
+    return (rafData != null) ? rafData.getLastModified() : 0;
+  }
+
   static public class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     GribCollectionImmutable.Record record;
@@ -36,6 +36,7 @@ package ucar.nc2.grib.grib1;
 import ucar.nc2.grib.GribData;
 import ucar.nc2.grib.GribNumbers;
 import ucar.nc2.iosp.BitReader;
+import ucar.nc2.util.Metrics;
 import ucar.nc2.util.Misc;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -51,6 +52,8 @@ import java.util.Formatter;
  */
 public class Grib1DataReader {
   static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Grib1DataReader.class);
+  static private final Metrics.Family<Metrics.Histogram> decodeTime =
+          Metrics.histogram("grib_decode_seconds", "Time to read and unpack a GRIB data section", "template");
   static private final float staticMissingValue = Float.NaN;
 
   ///////////////////////////////// Grib1Data
@@ -119,11 +122,17 @@ public class Grib1DataReader {
     boolean isSimplePacking = !GribNumbers.testBitIsSet(info.flag, 2);
 
     if (isGridPointData && isSimplePacking) {
-      return readSimplePacking(raf, bitmap, info);
+      long startNanos = System.nanoTime();
+      float[] data = readSimplePacking(raf, bitmap, info);
+      decodeTime.labels("grib1-simple").observeNanos(System.nanoTime() - startNanos);
+      return data;
     }
 
     if (isGridPointData && !isSimplePacking) {
-      return readExtendedComplexPacking(raf, bitmap, info);
+      long startNanos = System.nanoTime();
+      float[] data = readExtendedComplexPacking(raf, bitmap, info);
+      decodeTime.labels("grib1-complex").observeNanos(System.nanoTime() - startNanos);
+      return data;
     }
 
     logger.warn("Grib1BinaryDataSection: (octet 4, 1st half) not grid point data and simple packing for {}", raf.getLocation());
@@ -159,11 +168,21 @@ public class Grib1DataReader {
         throw new IllegalStateException("Bitmap section length!= grid length");
       }
       BitReader reader = new BitReader(raf, startPos + 11);
+      int[] packed = null;
+      int count = 0;
+      if (!isConstant) {
+        int npacked = 0;
+        for (int i = 0; i < nPts; i++) {
+          if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) npacked++;
+        }
+        packed = new int[npacked];
+        reader.bits2UInt(info.numberOfBits, packed, 0, npacked);
+      }
       values = new float[nPts];
       for (int i = 0; i < nPts; i++) {
         if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
           if (!isConstant) {
-            values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
+            values[i] = ref + scale * (packed[count++] & 0xFFFFFFFFL);
           } else {  // rdg - added this to handle a constant valued parameter
             values[i] = ref;
           }
@@ -184,8 +203,10 @@ public class Grib1DataReader {
           values = new float[nPts];
         }
         BitReader reader = new BitReader(raf, startPos + 11);
+        int[] packed = new int[values.length];
+        reader.bits2UInt(info.numberOfBits, packed, 0, packed.length);
         for (int i = 0; i < values.length; i++) {
-          values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
+          values[i] = ref + scale * (packed[i] & 0xFFFFFFFFL);
         }
         scanningModeCheck(values, scanMode, nxRaw);
 
@@ -0,0 +1,288 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.grib2;
+
+import java.io.IOException;
+
+/**
+ * Decodes CCSDS 121.0-B adaptive entropy coded (Rice) data, as used by GRIB2 DRS template 5.42.
+ * Follows the stream layout of libaec, which is what GRIB writers use: a block option id, an optional
+ * reference sample at the start of each reference sample interval, then the zero block, second extension,
+ * split sample or uncompressed block. Samples are returned as ints; the byte layout flags (3 byte, msb) only
+ * matter to libaec's output buffer and are ignored.
+ */
+public class Grib2CcsdsDecoder {
+  // CCSDS compression options mask, DRS template 5.42 octet 22, same as the libaec flags
+  public static final int DATA_SIGNED = 1;
+  public static final int DATA_3BYTE = 2;
+  public static final int DATA_MSB = 4;
+  public static final int DATA_PREPROCESS = 8;
+  public static final int RESTRICTED = 16;
+  public static final int PAD_RSI = 32;
+
+  private static final int ROS = 5; // zero block fs code meaning "to the end of the segment"
+
+  // second extension: fs code -> (sum of the pair, fs code of the first pair with that sum)
+  private static final int[] seTable = new int[2 * 91];
+
+  static {
+    int k = 0;
+    for (int i = 0; i < 13; i++) {
+      int ms = k;
+      for (int j = 0; j <= i; j++) {
+        seTable[2 * k] = i;
+        seTable[2 * k + 1] = ms;
+        k++;
+      }
+    }
+  }
+
+  private final int nbits, blockSize, rsi, flags;
+  private final int idLen;
+  private final boolean preprocess, signed;
+  private final long xmax;
+  private final int[] block;
+
+  // bit input: the valid bits are the low accBits bits of acc
+  private byte[] buf;
+  private int pos, end;
+  private long acc;
+  private int accBits;
+
+  // output
+  private int[] result;
+  private int n, count;
+  private int rsiCount; // samples so far in this reference sample interval
+  private long last; // last output sample, for preprocessing
+
+  /**
+   * Constructor.
+   *
+   * @param nbits     bits per sample, 1 to 32
+   * @param blockSize samples in a block, usually 8, 16, 32 or 64
+   * @param rsi       blocks in a reference sample interval
+   * @param flags     CCSDS compression options mask
+   */
+  public Grib2CcsdsDecoder(int nbits, int blockSize, int rsi, int flags) {
+    if (nbits < 1 || nbits > 32)
+      throw new IllegalArgumentException("CCSDS bits per sample must be 1 to 32, not " + nbits);
+    if (blockSize < 1 || rsi < 1)
+      throw new IllegalArgumentException("CCSDS bad block size " + blockSize + " or rsi " + rsi);
+    this.nbits = nbits;
+    this.blockSize = blockSize;
+    this.rsi = rsi;
+    this.flags = flags;
+    this.preprocess = (flags & DATA_PREPROCESS) != 0;
+    this.signed = (flags & DATA_SIGNED) != 0;
+    this.xmax = signed ? (1L << (nbits - 1)) - 1 : (1L << nbits) - 1;
+    this.block = new int[blockSize];
+
+    if (nbits > 16) {
+      idLen = 5;
+    } else if (nbits > 8) {
+      idLen = 4;
+    } else if ((flags & RESTRICTED) != 0 && nbits <= 4) {
+      idLen = (nbits <= 2) ? 1 : 2;
+    } else {
+      idLen = 3;
+    }
+  }
+
+  /**
+   * Decode n samples.
+   *
+   * @param buf    encoded data
+   * @param offset starting here
+   * @param length number of bytes
+   * @param result put the samples here, must have length >= n
+   * @param n      number of samples to decode
+   * @throws IOException if the data is truncated or corrupt
+   */
+  public void decode(byte[] buf, int offset, int length, int[] result, int n) throws IOException {
+    this.buf = buf;
+    this.pos = offset;
+    this.end = offset + length;
+    this.acc = 0;
+    this.accBits = 0;
+    this.result = result;
+    this.n = n;
+    this.count = 0;
+    this.rsiCount = 0;
+
+    int uncompId = (1 << idLen) - 1;
+    while (count < n) {
+      boolean ref = preprocess && rsiCount == 0;
+      int id = get(idLen);
+
+      if (id == 0) { // low entropy
+        boolean secondExtension = get(1) == 1;
+        if (ref) put(get(nbits));
+        if (secondExtension)
+          secondExtension(ref);
+        else
+          zeroBlocks(ref);
+
+      } else if (id == uncompId) {
+        for (int i = 0; i < blockSize; i++)
+          put(get(nbits));
+
+      } else { // split sample, k = id - 1
+        int k = id - 1;
+        int start = ref ? 1 : 0;
+        if (ref) block[0] = get(nbits);
+        for (int i = start; i < blockSize; i++)
+          block[i] = fs() << k;
+        if (k > 0) {
+          for (int i = start; i < blockSize; i++)
+            block[i] |= get(k);
+        }
+        for (int i = 0; i < blockSize; i++)
+          put(block[i]);
+      }
+    }
+    this.buf = null;
+    this.result = null;
+  }
+
+  private void secondExtension(boolean ref) throws IOException {
+    int i = ref ? 1 : 0;
+    while (i < blockSize) {
+      int m = fs();
+      if (m > 90)
+        throw new IOException("CCSDS bad second extension code " + m);
+      int d1 = m - seTable[2 * m + 1];
+      if ((i & 1) == 0) {
+        put(seTable[2 * m] - d1);
+        i++;
+      }
+      put(d1);
+      i++;
+    }
+  }
+
+  private void zeroBlocks(boolean ref) throws IOException {
+    int zeroBlocks = fs() + 1;
+    if (zeroBlocks == ROS) {
+      int b = rsiCount / blockSize;
+      zeroBlocks = Math.min(rsi - b, 64 - (b % 64));
+    } else if (zeroBlocks > ROS) {
+      zeroBlocks--;
+    }
+    int nzeros = zeroBlocks * blockSize - (ref ? 1 : 0);
+    for (int i = 0; i < nzeros; i++)
+      put(0);
+  }
+
+  // add the next sample to the output, undoing the preprocessing
+  private void put(int sample) {
+    long d = sample & 0xffffffffL;
+    long x;
+    if (!preprocess) {
+      x = signed ? signExtend(d) : d;
+
+    } else if (rsiCount == 0) { // reference sample
+      x = signed ? signExtend(d) : d;
+
+    } else {
+      long halfd = (d >>> 1) + (d & 1);
+      long delta = ((d & 1) == 0) ? (d >>> 1) : -((d + 1) >>> 1);
+      if (signed) {
+        if (last < 0)
+          x = (halfd <= xmax + last + 1) ? last + delta : d - xmax - 1;
+        else
+          x = (halfd <= xmax - last) ? last + delta : xmax - d;
+      } else {
+        long mask = ((last & (xmax / 2 + 1)) != 0) ? xmax : 0;
+        x = (halfd <= (mask ^ last)) ? last + delta : mask ^ d;
+      }
+    }
+    last = x;
+
+    if (count < n)
+      result[count] = (int) x;
+    count++;
+
+    if (++rsiCount == rsi * blockSize) {
+      rsiCount = 0;
+      if ((flags & PAD_RSI) != 0)
+        accBits -= accBits % 8; // next interval starts on a byte boundary
+    }
+  }
+
+  private long signExtend(long x) {
+    long m = 1L << (nbits - 1);
+    return (x ^ m) - m;
+  }
+
+  //////////////////////////////////////////////////////
+  // bit input, most significant bit first
+
+  private void fill() throws IOException {
+    while (accBits <= 48) {
+      if (pos < end) {
+        acc = (acc << 8) | (buf[pos] & 0xff);
+      } else if (pos < end + 8) { // let the last few codes be read without a special case
+        acc <<= 8;
+      } else {
+        throw new IOException("CCSDS data truncated at sample " + count + " of " + n);
+      }
+      pos++;
+      accBits += 8;
+    }
+  }
+
+  // the next nb bits, 1 <= nb <= 32
+  private int get(int nb) throws IOException {
+    if (accBits < nb) fill();
+    accBits -= nb;
+    return (int) ((acc >>> accBits) & ((1L << nb) - 1));
+  }
+
+  // fundamental sequence: the number of 0 bits before the next 1 bit
+  private int fs() throws IOException {
+    int fs = 0;
+    while (true) {
+      if (accBits == 0) fill();
+      long bits = acc & ((1L << accBits) - 1);
+      if (bits == 0) {
+        fs += accBits;
+        accBits = 0;
+      } else {
+        int zeros = Long.numberOfLeadingZeros(bits) - (64 - accBits);
+        fs += zeros;
+        accBits -= zeros + 1;
+        return fs;
+      }
+    }
+  }
+}
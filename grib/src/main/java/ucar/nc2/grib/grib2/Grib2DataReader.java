@@ -107,6 +107,12 @@ public class Grib2DataReader {
       case 40:
         data = getData40(raf, (Grib2Drs.Type40) gdrs);
         break;
+      case 41:
+        data = getData41(raf, (Grib2Drs.Type0) gdrs);
+        break;
+      case 42:
+        data = getData42(raf, (Grib2Drs.Type42) gdrs);
+        break;
       case 50002:
         data = getData50002(raf, (Grib2Drs.Type50002) gdrs);
         break;
@@ -195,14 +201,23 @@ public class Grib2DataReader {
 
     BitReader reader = new BitReader(raf, startPos+5);
     if (bitmap == null) {
+      int[] X2 = new int[totalNPoints];
+      reader.bits2UInt(nb, X2, 0, totalNPoints);
       for (int i = 0; i < totalNPoints; i++) {
         //data[ i ] = (R + ( X1 + X2) * EE)/DD ;
-        data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+        data[i] = (R + (X2[i] & 0xFFFFFFFFL) * EE) / DD;
       }
     } else {
+      int npacked = 0;
+      for (int i = 0; i < totalNPoints; i++) {
+        if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) npacked++;
+      }
+      int[] X2 = new int[npacked];
+      reader.bits2UInt(nb, X2, 0, npacked);
+      int count = 0;
       for (int i = 0; i < totalNPoints; i++) {
         if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
-          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          data[i] = (R + (X2[count++] & 0xFFFFFFFFL) * EE) / DD;
         } else {
           data[i] = staticMissingValue;  // LOOK ??
           //data[i] = R / DD;
@@ -256,8 +271,7 @@ public class Grib2DataReader {
     int[] X1 = new int[NG];
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
-      for (int i = 0; i < NG; i++)
-        X1[i] = (int) reader.bits2UInt(nb);
+      reader.bits2UInt(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -265,8 +279,7 @@ public class Grib2DataReader {
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++)
-        NB[i] = (int) reader.bits2UInt(nb);
+      reader.bits2UInt(nb, NB, 0, NG);
     }
 
     // [yy +1 ]-zz Get the scaled group lengths using formula
@@ -279,8 +292,9 @@ public class Grib2DataReader {
     nb = gdrs.bitsScaledGroupLength;
 
     reader.incrByte();
+    reader.bits2UInt(nb, L, 0, NG);
     for (int i = 0; i < NG; i++)
-      L[i] = ref + (int) reader.bits2UInt(nb) * len_inc;
+      L[i] = ref + L[i] * len_inc;
     L[NG - 1] = gdrs.lengthLastGroup; // enter Length of Last Group
 
     int D = gdrs.decimalScaleFactor;
@@ -302,8 +316,11 @@ public class Grib2DataReader {
 //                     E = THE BINARY SCALE FACTOR
 //                     D = THE DECIMAL SCALE FACTOR
     int count = 0;
+    int[] groupX2 = new int[Grib2DataReader2.maxGroupLength(NB, L, totalNPoints)];
     reader.incrByte();
     for (int i = 0; i < NG; i++) {
+      if (NB[i] != 0)
+        reader.bits2UInt(NB[i], groupX2, 0, L[i]);
       for (int j = 0; j < L[i]; j++) {
         if (NB[i] == 0) {
           if (mvm == 0) {  // X2 = 0
@@ -312,7 +329,7 @@ public class Grib2DataReader {
             data[count++] = mv;
           }
         } else {
-          int X2 = (int) reader.bits2UInt(NB[i]);
+          int X2 = groupX2[j];
           if (mvm == 0) {
             data[count++] = (R + (X1[i] + X2) * EE) / DD;
           } else { //if (mvm == 1) || (mvm == 2 )
@@ -426,9 +443,7 @@ public class Grib2DataReader {
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.bits2UInt(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -437,9 +452,7 @@ public class Grib2DataReader {
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.bits2UInt(nb, NB, 0, NG);
     }
 
     int referenceGroupWidths = gdrs.referenceGroupWidths;
@@ -458,9 +471,7 @@ public class Grib2DataReader {
 
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        L[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.bits2UInt(nb, L, 0, NG);
     }
 
     int totalL = 0;
@@ -513,14 +524,16 @@ public class Grib2DataReader {
 //                     E = THE BINARY SCALE FACTOR
 //                     D = THE DECIMAL SCALE FACTOR
     int count = 0;
+    int[] groupX2 = new int[Grib2DataReader2.maxGroupLength(NB, L, totalNPoints)];
     reader.incrByte();
     int dataSize = 0;
     boolean[] dataBitMap = null;
     if (mvm == 0) {
       for (int i = 0; i < NG; i++) {
         if (NB[i] != 0) {
+          reader.bits2UInt(NB[i], groupX2, 0, L[i]);
           for (int j = 0; j < L[i]; j++)
-            data[count++] = (int) reader.bits2UInt(NB[i]) + X1[i];
+            data[count++] = groupX2[j] + X1[i];
         } else {
           for (int j = 0; j < L[i]; j++)
             data[count++] = X1[i];
@@ -535,8 +548,9 @@ public class Grib2DataReader {
         if (NB[i] != 0) {
           int msng1 = bitsmv1[NB[i]];
           int msng2 = msng1 - 1;
+          reader.bits2UInt(NB[i], groupX2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count] = (int) reader.bits2UInt(NB[i]);
+            data[count] = groupX2[j];
             if (data[count] == msng1 || mvm == 2 && data[count] == msng2) {
               dataBitMap[count] = false;
             } else {
@@ -726,6 +740,65 @@ public class Grib2DataReader {
     }
   }
 
+  // Grid point data - Portable Network Graphics (PNG)
+  public float[] getData41(RandomAccessFile raf, Grib2Drs.Type0 gdrs) throws IOException {
+    if (gdrs.numberOfBits == 0)
+      return constant(gdrs.referenceValue);
+
+    byte[] buf = new byte[dataLength - 5];
+    raf.readFully(buf);
+    return scaleSimple(new Grib2PngDecoder().decode(buf, 0, buf.length), gdrs);
+  }
+
+  // Grid point data - CCSDS recommended lossless compression (libaec)
+  public float[] getData42(RandomAccessFile raf, Grib2Drs.Type42 gdrs) throws IOException {
+    if (gdrs.numberOfBits == 0)
+      return constant(gdrs.referenceValue);
+
+    byte[] buf = new byte[dataLength - 5];
+    raf.readFully(buf);
+    int[] idata = new int[dataNPoints];
+    Grib2CcsdsDecoder decoder = new Grib2CcsdsDecoder(gdrs.numberOfBits, gdrs.blockSize,
+            gdrs.referenceSampleInterval, gdrs.compressionOptionsMask);
+    decoder.decode(buf, 0, buf.length, idata, dataNPoints);
+    return scaleSimple(idata, gdrs);
+  }
+
+  // no data to decode: the reference value where the bitmap says there is data, else missing
+  private float[] constant(float R) {
+    float[] data = new float[totalNPoints];
+    if (bitmap == null) {
+      for (int i = 0; i < dataNPoints; i++)
+        data[i] = R;
+    } else {
+      for (int i = 0; i < totalNPoints; i++)
+        data[i] = ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) ? R : staticMissingValue;
+    }
+    return data;
+  }
+
+  // Y * 10^D = R + X2 * 2^E, for already decoded X2
+  private float[] scaleSimple(int[] idata, Grib2Drs.Type0 gdrs) {
+    float DD = (float) java.lang.Math.pow((double) 10, (double) gdrs.decimalScaleFactor);
+    float R = gdrs.referenceValue;
+    float EE = (float) java.lang.Math.pow( 2.0, (double) gdrs.binaryScaleFactor);
+
+    float[] data = new float[totalNPoints];
+    if (bitmap == null) {
+      int n = Math.min(Math.min(dataNPoints, totalNPoints), idata.length);
+      for (int i = 0; i < n; i++)
+        data[i] = (R + (idata[i] & 0xFFFFFFFFL) * EE) / DD;
+    } else {
+      for (int i = 0, j = 0; i < totalNPoints; i++) {
+        if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0 && j < idata.length)
+          data[i] = (R + (idata[j++] & 0xFFFFFFFFL) * EE) / DD;
+        else
+          data[i] = staticMissingValue;
+      }
+    }
+    return data;
+  }
+
     // by jkaehler@meteomatics.com
   // ported from https://github.com/erdc-cm/grib_api/blob/master/src/grib_accessor_class_data_g1second_order_general_extended_packing.c
   public float[] getData50002(RandomAccessFile raf, Grib2Drs.Type50002 gdrs) throws IOException {
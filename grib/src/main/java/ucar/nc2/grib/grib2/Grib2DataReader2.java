@@ -36,15 +36,10 @@ package ucar.nc2.grib.grib2;
 import ucar.nc2.grib.GribNumbers;
 import ucar.nc2.grib.GribUtils;
 import ucar.nc2.iosp.BitReader;
+import ucar.nc2.util.Metrics;
 import ucar.unidata.io.RandomAccessFile;
 
-import java.awt.image.DataBuffer;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.util.Arrays;
 
 /**
@@ -58,6 +53,8 @@ import java.util.Arrays;
  */
 public class Grib2DataReader2 {
   static private final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Grib2DataReader2.class);
+  static private final Metrics.Family<Metrics.Histogram> decodeTime =
+          Metrics.histogram("grib_decode_seconds", "Time to read and unpack a GRIB data section", "template");
 
   private static final int bitsmv1[] = new int[31];
   static {
@@ -106,6 +103,7 @@ public class Grib2DataReader2 {
    */
 
   public float[] getData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs) throws IOException {
+    long startNanos = System.nanoTime();
     this.bitmap = bitmapSection.getBitmap(raf);
     this.bitmapIndicator = bitmapSection.getBitMapIndicator();
 
@@ -135,6 +133,9 @@ public class Grib2DataReader2 {
       case 41:
         data = getData41(raf, (Grib2Drs.Type0) gdrs);
         break;
+      case 42:
+        data = getData42(raf, (Grib2Drs.Type42) gdrs);
+        break;
       case 50002:
         data = getData50002(raf, (Grib2Drs.Type50002) gdrs);
         break;
@@ -146,6 +147,7 @@ public class Grib2DataReader2 {
     //int nx = gds.getGds().getNx();  // needs some smarts for different type Grids
     scanningModeCheck(data, scanMode, nx);
 
+    decodeTime.labels("5." + dataTemplate).observeNanos(System.nanoTime() - startNanos);
     return data;
   }
 
@@ -162,10 +164,20 @@ public class Grib2DataReader2 {
 
     raf.seek(startPos+5); // skip past first 5 bytes in data section, now ready to read
 
-    if (dataTemplate != 40) return null;
-
-    // LOOK jpeg2k only
-    return getData40raw(raf, (Grib2Drs.Type40) gdrs);
+    switch (dataTemplate) {
+      case 40:
+        return getData40raw(raf, (Grib2Drs.Type40) gdrs);
+      case 41: {
+        int nb = ((Grib2Drs.Type0) gdrs).numberOfBits;
+        return (nb == 0) ? null : rawData(decodePng(raf, nb), nb);
+      }
+      case 42: {
+        Grib2Drs.Type42 drs42 = (Grib2Drs.Type42) gdrs;
+        return (drs42.numberOfBits == 0) ? null : rawData(decodeCcsds(raf, drs42), drs42.numberOfBits);
+      }
+      default:
+        return null;
+    }
   }
 
   static private final boolean staticMissingValueInUse = true;
@@ -243,14 +255,23 @@ public class Grib2DataReader2 {
 
     BitReader reader = new BitReader(raf, startPos+5);
     if (bitmap == null) {
+      int[] X2 = new int[totalNPoints];
+      reader.bits2UInt(nb, X2, 0, totalNPoints);
       for (int i = 0; i < totalNPoints; i++) {
         //data[ i ] = (R + ( X1 + X2) * EE)/DD ;
-        data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+        data[i] = (R + (X2[i] & 0xFFFFFFFFL) * EE) / DD;
       }
     } else {
+      int npacked = 0;
+      for (int i = 0; i < totalNPoints; i++) {
+        if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) npacked++;
+      }
+      int[] X2 = new int[npacked];
+      reader.bits2UInt(nb, X2, 0, npacked);
+      int count = 0;
       for (int i = 0; i < totalNPoints; i++) {
         if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
-          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          data[i] = (R + (X2[count++] & 0xFFFFFFFFL) * EE) / DD;
         } else {
           data[i] = staticMissingValue;
           //data[i] = R / DD;
@@ -307,8 +328,7 @@ public class Grib2DataReader2 {
     int[] X1 = new int[NG];
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
-      for (int i = 0; i < NG; i++)
-        X1[i] = (int) reader.bits2UInt(nb);
+      reader.bits2UInt(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -316,8 +336,7 @@ public class Grib2DataReader2 {
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++)
-        NB[i] = (int) reader.bits2UInt(nb);
+      reader.bits2UInt(nb, NB, 0, NG);
     }
 
     // [yy +1 ]-zz Get the scaled group lengths using formula
@@ -330,8 +349,9 @@ public class Grib2DataReader2 {
     nb = gdrs.bitsScaledGroupLength;
 
     reader.incrByte();
+    reader.bits2UInt(nb, L, 0, NG);
     for (int i = 0; i < NG; i++)
-      L[i] = ref + (int) reader.bits2UInt(nb) * len_inc;
+      L[i] = ref + L[i] * len_inc;
     L[NG - 1] = gdrs.lengthLastGroup; // enter Length of Last Group
 
 
@@ -348,8 +368,11 @@ public class Grib2DataReader2 {
 //                     E = THE BINARY SCALE FACTOR
 //                     D = THE DECIMAL SCALE FACTOR
     int count = 0;
+    int[] groupX2 = new int[maxGroupLength(NB, L, totalNPoints)];
     reader.incrByte();
     for (int i = 0; i < NG; i++) {
+      if (NB[i] != 0)
+        reader.bits2UInt(NB[i], groupX2, 0, L[i]);
       for (int j = 0; j < L[i]; j++) {
         if (NB[i] == 0) {
           if (mvm == 0) {  // X2 = 0
@@ -358,7 +381,7 @@ public class Grib2DataReader2 {
             data[count++] = mv;
           }
         } else {
-          int X2 = (int) reader.bits2UInt(NB[i]);
+          int X2 = groupX2[j];
           if (mvm == 0) {
             data[count++] = (R + (X1[i] + X2) * EE) / DD;
           } else { //if (mvm == 1) || (mvm == 2 )
@@ -465,6 +488,17 @@ public class Grib2DataReader2 {
   (3) The position of overall minimum after initial data values is a choice that enables less software management.
   (4) Overall minimum will be negative in most cases. First bit should indicate the sign: 0 if positive, 1 if negative.
    */
+  // size of the buffer for unpacking the X2 values of one group; also used by Grib2DataReader
+  static int maxGroupLength(int[] NB, int[] L, int totalNPoints) {
+    int max = 0;
+    for (int i = 0; i < L.length; i++) {
+      if (NB[i] != 0 && L[i] > max) max = L[i];
+    }
+    if (max > totalNPoints)
+      throw new IllegalStateException("Group length " + max + " > number of points " + totalNPoints);
+    return max;
+  }
+
   private float[] getData3(RandomAccessFile raf, Grib2Drs.Type3 gdrs) throws IOException {
     int mvm = gdrs.missingValueManagement;
     float mv = getMissingValue(gdrs);
@@ -522,9 +556,7 @@ public class Grib2DataReader2 {
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.bits2UInt(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -533,9 +565,7 @@ public class Grib2DataReader2 {
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.bits2UInt(nb, NB, 0, NG);
     }
 
     int referenceGroupWidths = gdrs.referenceGroupWidths;
@@ -554,9 +584,7 @@ public class Grib2DataReader2 {
 
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        L[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.bits2UInt(nb, L, 0, NG);
     }
 
     int totalL = 0;
@@ -603,14 +631,16 @@ public class Grib2DataReader2 {
 //                     E = THE BINARY SCALE FACTOR
 //                     D = THE DECIMAL SCALE FACTOR
     int count = 0;
+    int[] groupX2 = new int[maxGroupLength(NB, L, totalNPoints)];
     reader.incrByte();
     int dataSize = 0;
     boolean[] dataBitMap = null;
     if (mvm == 0) {
       for (int i = 0; i < NG; i++) {
         if (NB[i] != 0) {
+          reader.bits2UInt(NB[i], groupX2, 0, L[i]);
           for (int j = 0; j < L[i]; j++)
-            data[count++] = (int) reader.bits2UInt(NB[i]) + X1[i];
+            data[count++] = groupX2[j] + X1[i];
         } else {
           for (int j = 0; j < L[i]; j++)
             data[count++] = X1[i];
@@ -625,8 +655,9 @@ public class Grib2DataReader2 {
         if (NB[i] != 0) {
           int msng1 = bitsmv1[NB[i]];
           int msng2 = msng1 - 1;
+          reader.bits2UInt(NB[i], groupX2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count] = (int) reader.bits2UInt(NB[i]);
+            data[count] = groupX2[j];
             if (data[count] == msng1 || mvm == 2 && data[count] == msng2) {
               dataBitMap[count] = false;
             } else {
@@ -748,56 +779,38 @@ public class Grib2DataReader2 {
     float EE = (float) java.lang.Math.pow( 2.0, (double) E);
     float ref_val = R / DD;
 
-    Grib2JpegDecoder g2j = null;
-    // try {
-      if (nb != 0) {  // there's data to decode
-        g2j = new Grib2JpegDecoder(nb, false);
-        byte[] buf = new byte[dataLength - 5];
-        raf.readFully(buf);
-        g2j.decode(buf);
-        gdrs.hasSignedProblem = g2j.hasSignedProblem();
-      }
+    float[] result = new float[totalNPoints];
 
-      float[] result = new float[totalNPoints];
+    // no data to decode, set to reference value
+    if (nb == 0) {
+      for (int i = 0; i < dataNPoints; i++)
+        result[i] = ref_val;
+      return result;
+    }
 
-      // no data to decode, set to reference value
-      if (nb == 0) {
-        for (int i = 0; i < dataNPoints; i++)
-          result[i] = ref_val;
-        return result;
-      }
+    // the pooled decoder goes back, without its data, however this ends
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.acquire(nb);
+    try {
+      g2j.decode(raf, dataLength - 5);
+      gdrs.hasSignedProblem = g2j.hasSignedProblem();
 
-      int[] idata = g2j.getGdata();
       if (bitmap == null) { // must be one decoded value in idata for every expected data point
-        if (idata.length != dataNPoints) {
-          log.debug("Number of points in the data record {} != {} expected from GDS", idata.length, dataNPoints);
+        if (g2j.getNumValues() != dataNPoints) {
+          log.debug("Number of points in the data record {} != {} expected from GDS", g2j.getNumValues(), dataNPoints);
           throw new IllegalStateException("Number of points in the data record {} != expected from GDS");
         }
-
-        for (int i = 0; i < dataNPoints; i++) {
-          // Y * 10^D = R + (X1 + X2) * 2^E ; // regulation 92.9.4
-          // Y = (R + ( 0 + X2) * EE)/DD ;
-          result[i] = (R + idata[i] * EE) / DD;
-        }
-        return result;
-
-      } else {  // use bitmap to skip missing values
-        for (int i = 0, j = 0; i < totalNPoints; i++) {
-          if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
-            if (j >= idata.length) {
-              System.out.printf("HEY jj2000 data count %d < bitmask count %d, i=%d, totalNPoints=%d%n", idata.length, j, i, totalNPoints);
-              break;
-            }
-            int indata = idata[j];
-            result[i] = (R + indata * EE) / DD;
-            j++;
-          } else {
-            result[i] = staticMissingValue;
-          }
-        }
       }
+
+      // Y * 10^D = R + (X1 + X2) * 2^E ; // regulation 92.9.4
+      // Y = (R + ( 0 + X2) * EE)/DD ;
+      // use bitmap to skip missing values
+      g2j.getData(result, R, EE, DD, bitmap, staticMissingValue);
       return result;
 
+    } finally {
+      Grib2JpegDecoder.release(g2j);
+    }
+
     /* } catch (NullPointerException npe) {
 
       log.error("Grib2DataReader2.jpeg2000Unpacking: bit rate too small nb =" + nb + " for file" + raf.getLocation());
@@ -856,23 +869,63 @@ public class Grib2DataReader2 {
   // Code taken from esupport ticket ZVT-415274
   public float[] getData41(RandomAccessFile raf, Grib2Drs.Type0 gdrs) throws IOException {
     int nb = gdrs.numberOfBits;
-    int D = gdrs.decimalScaleFactor;
-    float DD = (float) java.lang.Math.pow((double) 10, (double) D);
-    float R = gdrs.referenceValue;
-    int E = gdrs.binaryScaleFactor;
-    float EE = (float) java.lang.Math.pow( 2.0, (double) E);
 
-    // LOOK: can # datapoints differ from bitmap and data ?
-    // dataPoints are number of points encoded, it could be less than the
-    // totalNPoints in the grid record if bitMap is used, otherwise equal
-    float[] data = new float[totalNPoints];
+    // no data to decode, set to reference value
+    if (nb == 0) {
+      float[] data = new float[totalNPoints];
+      Arrays.fill(data, gdrs.referenceValue);
+      return data;
+    }
+
+    return scaleSimple(decodePng(raf, nb), gdrs);
+  }
+
+  private int[] decodePng(RandomAccessFile raf, int nb) throws IOException {
+    byte[] buf = new byte[dataLength - 5];
+    raf.readFully(buf);
+    Grib2PngDecoder png = new Grib2PngDecoder();
+    int[] idata = png.decode(buf, 0, buf.length);
+
+    if (nb != png.getPixelSize())
+      log.debug("PNG pixel size {} disagrees with grib number of bits {}", png.getPixelSize(), nb);
+    return idata;
+  }
+
+  // Grid point data - CCSDS recommended lossless compression (libaec)
+  public float[] getData42(RandomAccessFile raf, Grib2Drs.Type42 gdrs) throws IOException {
+    int nb = gdrs.numberOfBits;
 
     // no data to decode, set to reference value
     if (nb == 0) {
-      Arrays.fill(data, R);
+      float[] data = new float[totalNPoints];
+      Arrays.fill(data, gdrs.referenceValue);
       return data;
     }
 
+    return scaleSimple(decodeCcsds(raf, gdrs), gdrs);
+  }
+
+  private int[] decodeCcsds(RandomAccessFile raf, Grib2Drs.Type42 gdrs) throws IOException {
+    byte[] buf = new byte[dataLength - 5];
+    raf.readFully(buf);
+    int[] idata = new int[dataNPoints];
+    Grib2CcsdsDecoder decoder = new Grib2CcsdsDecoder(gdrs.numberOfBits, gdrs.blockSize,
+            gdrs.referenceSampleInterval, gdrs.compressionOptionsMask);
+    decoder.decode(buf, 0, buf.length, idata, dataNPoints);
+    return idata;
+  }
+
+  // simple packing of already decoded values
+  private float[] scaleSimple(int[] idata, Grib2Drs.Type0 gdrs) {
+    float DD = (float) java.lang.Math.pow((double) 10, (double) gdrs.decimalScaleFactor);
+    float R = gdrs.referenceValue;
+    float EE = (float) java.lang.Math.pow( 2.0, (double) gdrs.binaryScaleFactor);
+
+    // LOOK: can # datapoints differ from bitmap and data ?
+    // dataPoints are number of points encoded, it could be less than the
+    // totalNPoints in the grid record if bitMap is used, otherwise equal
+    float[] data = new float[totalNPoints];
+
     //  Y * 10**D = R + (X1 + X2) * 2**E
     //   E = binary scale factor
     //   D = decimal scale factor
@@ -881,26 +934,15 @@ public class Grib2DataReader2 {
     //   X2 = scaled encoded value
     //   data[ i ] = (R + ( X1 + X2) * EE)/DD ;
 
-    byte[] buf = new byte[dataLength - 5];
-    raf.readFully(buf);
-    InputStream in = new ByteArrayInputStream(buf);
-    BufferedImage image = ImageIO.read(in);
-
-    if (nb != image.getColorModel().getPixelSize())
-      log.debug("PNG pixel size disagrees with grib number of bits: ",
-              image.getColorModel().getPixelSize(), nb);
-
-    DataBuffer db = image.getRaster().getDataBuffer();
     if (bitmap == null) {
-      for (int i = 0; i < dataNPoints; i++) {
-//        data[i] = (R + imageData[i] * EE) / DD;
-        data[i] = (R + db.getElem(i) * EE) / DD;
+      int n = Math.min(Math.min(dataNPoints, totalNPoints), idata.length);
+      for (int i = 0; i < n; i++) {
+        data[i] = (R + (idata[i] & 0xFFFFFFFFL) * EE) / DD;
       }
     } else {
       for (int bitPt = 0, dataPt = 0; bitPt < totalNPoints; bitPt++) {
-        if ((bitmap[bitPt / 8] & GribNumbers.bitmask[bitPt % 8]) != 0) {
-//          data[i] = (R + imageData[i] * EE) / DD;
-          data[bitPt] = (R + db.getElem(dataPt++) * EE) / DD;
+        if ((bitmap[bitPt / 8] & GribNumbers.bitmask[bitPt % 8]) != 0 && dataPt < idata.length) {
+          data[bitPt] = (R + (idata[dataPt++] & 0xFFFFFFFFL) * EE) / DD;
         } else {
           data[bitPt] = staticMissingValue;
         }
@@ -910,6 +952,23 @@ public class Grib2DataReader2 {
     return data;
   }
 
+  // use bitmap to place the decoded values, missing values have all bits set
+  private int[] rawData(int[] idata, int nb) {
+    if (bitmap == null)
+      return idata;
+
+    int missing_value = (2 << nb - 1) - 1;
+    int[] result = new int[totalNPoints];
+    for (int i = 0, j = 0; i < totalNPoints; i++) {
+      if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0 && j < idata.length) {
+        result[i] = idata[j++];
+      } else {
+        result[i] = missing_value;
+      }
+    }
+    return result;
+  }
+
   // by jkaehler@meteomatics.com
   // ported from https://github.com/erdc-cm/grib_api/blob/master/src/grib_accessor_class_data_g1second_order_general_extended_packing.c
   public float[] getData50002(RandomAccessFile raf, Grib2Drs.Type50002 gdrs) throws IOException {
@@ -58,6 +58,8 @@ public abstract class Grib2Drs {
         return new Type3(raf);
       case 40:
         return new Type40(raf);
+      case 42:
+        return new Type42(raf);
       //case 51:    //
       //  return new Type51(raf);
       case 50002: // ECMWF's second order packing
@@ -418,6 +420,63 @@ public abstract class Grib2Drs {
     }
   }
 
+  /*
+  Data representation template 5.42 – Grid point and spectral data - CCSDS recommended lossless compression
+  12-21 same as template 5.0
+  22    CCSDS compression options mask
+  23    Block size
+  24-25 Reference sample interval
+
+  Note: the compression options mask bits are those of the libaec library: 1 signed, 2 3 byte, 4 msb first,
+  8 preprocessing, 16 restricted, 32 pad to byte at the end of each reference sample interval.
+   */
+  public static class Type42 extends Type0 {
+    public int compressionOptionsMask, blockSize, referenceSampleInterval;
+
+    Type42(RandomAccessFile raf) throws IOException {
+      super(raf);
+      this.compressionOptionsMask = raf.read();
+      this.blockSize = raf.read();
+      this.referenceSampleInterval = GribNumbers.uint2(raf);
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append(super.toString());
+      sb.append("\nType42");
+      sb.append("{compressionOptionsMask=").append(compressionOptionsMask);
+      sb.append(", blockSize=").append(blockSize);
+      sb.append(", referenceSampleInterval=").append(referenceSampleInterval);
+      sb.append('}');
+      return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      if (!super.equals(o)) return false;
+
+      Type42 type42 = (Type42) o;
+
+      if (compressionOptionsMask != type42.compressionOptionsMask) return false;
+      if (blockSize != type42.blockSize) return false;
+      if (referenceSampleInterval != type42.referenceSampleInterval) return false;
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = super.hashCode();
+      result = 31 * result + compressionOptionsMask;
+      result = 31 * result + blockSize;
+      result = 31 * result + referenceSampleInterval;
+      return result;
+    }
+  }
+
   // pull request #52 "lost-carrier" jkaehler@meteomatics.com
   public static class Type50002 extends Grib2Drs {
 	    public float referenceValue;
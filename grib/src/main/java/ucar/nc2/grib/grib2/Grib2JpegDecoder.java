@@ -50,14 +50,23 @@ import ucar.jpeg.colorspace.*;
 import ucar.jpeg.icc.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ucar.nc2.grib.GribNumbers;
+import ucar.unidata.io.RandomAccessFile;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.IOException;
 import java.io.EOFException;
 import java.io.ByteArrayInputStream;
 
 /**
  * Adaptation of jj2000.j2k.decoder.Decoder, in order to read input from memory.
+ * <p>
+ * The jj2000 codec objects are made new for each code stream, but the parameter lists are made once per rate
+ * and shared. acquire() and release() keep a few decoders in a bounded pool, so their input buffers are reused across messages.
+ * Single component images, which is all that GRIB uses, skip the component transform and colour space stages.
  *
  * @author robb kambic
  * @author caron  rewritten Aug 2014
@@ -65,6 +74,49 @@ import java.io.ByteArrayInputStream;
 public class Grib2JpegDecoder {
   static private final Logger logger = LoggerFactory.getLogger(Grib2JpegDecoder.class);
 
+  // dont hang on to input buffers bigger than this
+  static private final int maxPooledBuffer = 4 * 1000 * 1000;
+
+  // the parameter lists are only read by the decoder, so can be shared
+  static private final Map<Integer, ParameterList> paramLists = new ConcurrentHashMap<>();
+
+  // idle decoders; at most one per processor is kept, so at most that many input buffers
+  static private final BlockingQueue<Grib2JpegDecoder> pool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Get a decoder from the pool, or a new one if the pool is empty.
+   * Give it back with release() when done, in a finally block.
+   *
+   * @param nbits number of bits, used as the decoding rate
+   * @return decoder for the caller's use only
+   */
+  static public Grib2JpegDecoder acquire(int nbits) {
+    Grib2JpegDecoder decoder = pool.poll();
+    if (decoder == null) {
+      decoder = new Grib2JpegDecoder(nbits, false);
+    } else if (decoder.rate != nbits) {
+      decoder.rate = nbits;
+      decoder.pl = getParameterList(nbits);
+    }
+    return decoder;
+  }
+
+  /**
+   * Return a decoder to the pool, dropping its decoded data. If the pool is full, the decoder is discarded.
+   *
+   * @param decoder from acquire(); dont use it after this
+   */
+  static public void release(Grib2JpegDecoder decoder) {
+    decoder.data = null;
+    decoder.levShift = 0;
+    decoder.csMap = null;
+    pool.offer(decoder);
+  }
+
+  static private ParameterList getParameterList(int nbits) {
+    return paramLists.computeIfAbsent(nbits, Grib2JpegDecoder::makeParameterList);
+  }
+
   private boolean debug;
   private int rate;
 
@@ -89,19 +141,21 @@ public class Grib2JpegDecoder {
   private ParameterList pl;
 
   /**
-   * Instantiates a decoder object, width the 'argv' command
-   * line arguments. It also initializes the default parameters. If the
-   * argument list is empty an IllegalArgumentException is thrown. If an
-   * error occurs while parsing the arguments error messages are written to
-   * stderr and the run exit code is set to non-zero, see getExitCode()
+   * Instantiates a decoder object, using the parameter list for this rate.
+   * If an error occurs while parsing the arguments error messages are written to
+   * stderr.
    *
-   * @throws IllegalArgumentException If 'argv' is empty
+   * @param nbits number of bits, used as the decoding rate
+   * @param debug print stack traces of errors
    * @see Grib2JpegDecoder#getExitCode
    */
   public Grib2JpegDecoder(int nbits, boolean debug) {
     this.rate = nbits;
     this.debug = debug;
+    this.pl = getParameterList(nbits);
+  }
 
+  static private ParameterList makeParameterList(int nbits) {
     // not sure if these are needed in the bowels of jj2000
     String[] argv = new String[6];
     argv[0] = "-rate";
@@ -125,11 +179,7 @@ public class Grib2JpegDecoder {
     }
 
     // Create parameter list using defaults
-    pl = new ParameterList(defpl);
-
-    if (argv.length == 0) {
-      throw new IllegalArgumentException("No arguments!");
-    }
+    ParameterList pl = new ParameterList(defpl);
 
     // Parse arguments from argv
     try {
@@ -137,6 +187,7 @@ public class Grib2JpegDecoder {
     } catch (StringFormatException e) {
       System.err.println("An error occurred while parsing the arguments:\n" + e.getMessage());
     }
+    return pl;
   } // end Grib2JpegDecoder constructor
 
   /**
@@ -161,7 +212,33 @@ public class Grib2JpegDecoder {
    * @see #getExitCode
    */
   public void decode(byte buf[]) throws IOException {
-    // int dataSize = buf.length;
+    decode(buf, buf.length);
+  }
+
+  /**
+   * Read the code stream from raf and decode it. The input buffer is reused by the next call.
+   *
+   * @param raf read from here, at the current position
+   * @param n   number of bytes in the code stream
+   */
+  public void decode(RandomAccessFile raf, int n) throws IOException {
+    byte[] buf = inbuf;
+    if (buf == null || buf.length < n) {
+      buf = new byte[n];
+      if (n <= maxPooledBuffer) inbuf = buf;
+    }
+    raf.readFully(buf, 0, n);
+    decode(buf, n);
+  }
+  private byte[] inbuf;
+
+  private void decode(byte buf[], int dataSize) throws IOException {
+    exitCode = 0;
+    hasSignedProblem = false;
+    csMap = null;
+    data = null;
+    levShift = 0;
+
     final boolean verbose = false;
     int res; // resolution level to reconstruct
     FileFormatReader ff;
@@ -184,8 +261,8 @@ public class Grib2JpegDecoder {
     try {
 
       // create a ByteArrayInputStream from byte array for ISRandomAccessIO
-      ByteArrayInputStream bais = new ByteArrayInputStream(buf);
-      RandomAccessIO in = new ISRandomAccessIO(bais, buf.length, 1, buf.length);
+      ByteArrayInputStream bais = new ByteArrayInputStream(buf, 0, dataSize);
+      RandomAccessIO in = new ISRandomAccessIO(bais, dataSize, 1, dataSize);
 
       // **** File Format ****
       // If the codestream is wrapped in the jp2 fileformat, Read the
@@ -268,12 +345,15 @@ public class Grib2JpegDecoder {
       converter = new ImgDataConverter(invWT, 0);
 
       // **** Inverse component transformation ****
-      ictransf = new InvCompTransf(converter, decSpec, depth, pl);
+      // there is nothing to transform or colour map with one component
+      ictransf = (nCompCod == 1) ? null : new InvCompTransf(converter, decSpec, depth, pl);
 
       // **** Color space mapping ****
       String p = pl.getParameter("nocolorspace");
       boolean nocolorspace = (p != null) && p.equals("off"); // LOOK not sure what default is here
-      if (ff.JP2FFUsed && nocolorspace) {
+      if (ictransf == null) {
+        color = converter;
+      } else if (ff.JP2FFUsed && nocolorspace) {
         try {
           csMap = new ColorSpace(in, hd, pl);
           channels = hd.createChannelDefinitionMapper(ictransf, csMap);
@@ -296,7 +376,7 @@ public class Grib2JpegDecoder {
       // assigned by the last transformation:
       BlkImgDataSrc decodedImage = color;
       if (color == null) {
-        decodedImage = ictransf;
+        decodedImage = (ictransf == null) ? converter : ictransf;
       }
 
       int nCompImg = decodedImage.getNumComps();
@@ -330,14 +410,13 @@ public class Grib2JpegDecoder {
           data = iwa.getGdata();
           // unSigned data processing here
           //System.out.println("[INFO]: isSigned = " + isSigned);
+          // unsigned data is level shifted when it is used, see getGdata() and getData()
+          levShift = 0;
           if (!isSigned) {
             //float unSignIt = (float) java.lang.Math.pow((double) 2.0, fnb - 1); // LOOK WTF ?
             int nb = depth[i];
-            int levShift = 1 << (nb - 1);      // check
+            levShift = 1 << (nb - 1);      // check
             if (nb != rate) hasSignedProblem = true;
-
-            for (int j = 0; j < data.length; j++)
-              data[j] += levShift;
           }
           packBytes = iwa.getPackBytes();
         } catch (IOException e) {
@@ -408,9 +487,63 @@ public class Grib2JpegDecoder {
    * Return the "raw" decoded data as an int array
    */
   public int[] getGdata() {
+    if (data != null && levShift != 0) {
+      for (int j = 0; j < data.length; j++)
+        data[j] += levShift;
+      levShift = 0;
+    }
     return data;
   }
   private int[] data;
+  private int levShift;
+
+  /**
+   * Number of decoded values, or -1 if nothing was decoded.
+   */
+  public int getNumValues() {
+    return (data == null) ? -1 : data.length;
+  }
+
+  /**
+   * Put the decoded values X into result as (R + X * EE) / DD, level shifting in the same pass.
+   * If there is a bitmap, the values go where the bitmap is set, and the others are set to missing.
+   * The decoded data is released, so this can only be called once per decode.
+   *
+   * @param result  put values here
+   * @param R       reference value
+   * @param EE      binary scale, 2^E
+   * @param DD      decimal scale, 10^D
+   * @param bitmap  GRIB bitmap, or null if none
+   * @param missing value where the bitmap is not set
+   * @return number of decoded values used
+   */
+  public int getData(float[] result, float R, float EE, float DD, byte[] bitmap, float missing) {
+    int[] idata = data;
+    int shift = levShift;
+    data = null;
+    if (idata == null) return 0;
+
+    if (bitmap == null) {
+      int n = Math.min(idata.length, result.length);
+      for (int i = 0; i < n; i++)
+        result[i] = (R + (idata[i] + shift) * EE) / DD;
+      return n;
+    }
+
+    int j = 0;
+    for (int i = 0; i < result.length; i++) {
+      if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
+        if (j >= idata.length) {
+          logger.debug("jj2000 data count {} < bitmask count, i={}, totalNPoints={}", idata.length, i, result.length);
+          break;
+        }
+        result[i] = (R + (idata[j++] + shift) * EE) / DD;
+      } else {
+        result[i] = missing;
+      }
+    }
+    return j;
+  }
 
   /**
    * Returns all the parameters used in the decoding chain. It calls
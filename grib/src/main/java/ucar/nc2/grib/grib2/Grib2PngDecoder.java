@@ -0,0 +1,266 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.grib2;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the PNG image of a GRIB2 data section with DRS template 5.41.
+ * Only what GRIB writers produce is handled: a single non-interlaced image, whose pixels are read as
+ * unsigned big-endian integers of bitDepth * channels bits, as g2clib does.
+ * IDAT chunks are inflated straight into one buffer and unfiltered in place; no image objects are made.
+ */
+public class Grib2PngDecoder {
+  private static final byte[] signature = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+  private int width, height, bitDepth, colorType;
+
+  /**
+   * Decode the PNG image.
+   *
+   * @param buf    holds the PNG image
+   * @param offset starting here
+   * @param length number of bytes
+   * @return the pixels, in row order
+   * @throws IOException if not a PNG image, or one we cant decode
+   */
+  public int[] decode(byte[] buf, int offset, int length) throws IOException {
+    int end = offset + length;
+    for (int i = 0; i < signature.length; i++) {
+      if (offset + i >= end || buf[offset + i] != signature[i])
+        throw new IOException("Not a PNG image");
+    }
+
+    int pos = offset + signature.length;
+    byte[] raw = null;
+    int rawLen = 0;
+    Inflater inflater = new Inflater();
+    try {
+      while (pos + 8 <= end) {
+        int chunkLen = getInt(buf, pos);
+        int chunkType = getInt(buf, pos + 4);
+        int data = pos + 8;
+        if (chunkLen < 0 || data + chunkLen > end)
+          throw new IOException("PNG chunk extends past end of data");
+
+        if (chunkType == 0x49484452) { // IHDR
+          if (chunkLen < 13)
+            throw new IOException("PNG IHDR chunk too short: " + chunkLen);
+          width = getInt(buf, data);
+          height = getInt(buf, data + 4);
+          bitDepth = buf[data + 8] & 0xff;
+          colorType = buf[data + 9] & 0xff;
+          int interlace = buf[data + 12] & 0xff;
+          if (interlace != 0)
+            throw new IOException("Interlaced PNG not supported");
+          if (width <= 0 || height <= 0)
+            throw new IOException("Bad PNG dimensions " + width + " x " + height);
+          // the filtered rows and the unpacked pixels must each fit in an array
+          long rawSize = (long) height * (((long) width * getPixelSize() + 7) / 8 + 1);
+          if (rawSize > Integer.MAX_VALUE || (long) width * height > Integer.MAX_VALUE)
+            throw new IOException("PNG image too large " + width + " x " + height);
+          raw = new byte[(int) rawSize];
+
+        } else if (chunkType == 0x49444154) { // IDAT
+          if (raw == null)
+            throw new IOException("PNG IDAT before IHDR");
+          inflater.setInput(buf, data, chunkLen);
+          while (rawLen < raw.length) {
+            int n = inflater.inflate(raw, rawLen, raw.length - rawLen);
+            rawLen += n;
+            if (n == 0 && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary()))
+              break;
+          }
+
+        } else if (chunkType == 0x49454E44) { // IEND
+          break;
+        }
+        pos = data + chunkLen + 4; // skip crc
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Bad PNG compressed data", e);
+    } finally {
+      inflater.end();
+    }
+
+    if (raw == null)
+      throw new IOException("PNG has no IHDR");
+    if (rawLen < raw.length)
+      throw new IOException("PNG image data truncated: " + rawLen + " < " + raw.length);
+
+    unfilter(raw);
+    return unpack(raw);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return number of bits in each pixel
+   */
+  public int getPixelSize() {
+    return bitDepth * channels();
+  }
+
+  private int channels() {
+    switch (colorType) {
+      case 2:
+        return 3; // RGB
+      case 4:
+        return 2; // gray + alpha
+      case 6:
+        return 4; // RGBA
+      default:
+        return 1; // gray or palette index
+    }
+  }
+
+  private int rowBytes() {
+    return (int) (((long) width * getPixelSize() + 7) / 8);
+  }
+
+  // undo the per row filters, in place; the filter type byte at the start of each row is left alone
+  private void unfilter(byte[] raw) throws IOException {
+    int rowBytes = rowBytes();
+    int bpp = Math.max(1, getPixelSize() / 8); // bytes to the corresponding byte of the previous pixel
+    int stride = rowBytes + 1;
+
+    for (int row = 0; row < height; row++) {
+      int start = row * stride + 1;
+      int prev = start - stride; // previous row; < 0 on the first row, which counts as zeroes
+      int filter = raw[start - 1];
+
+      switch (filter) {
+        case 0: // None
+          break;
+
+        case 1: // Sub
+          for (int i = bpp; i < rowBytes; i++)
+            raw[start + i] += raw[start + i - bpp];
+          break;
+
+        case 2: // Up
+          if (prev >= 0) {
+            for (int i = 0; i < rowBytes; i++)
+              raw[start + i] += raw[prev + i];
+          }
+          break;
+
+        case 3: // Average
+          for (int i = 0; i < rowBytes; i++) {
+            int left = (i >= bpp) ? raw[start + i - bpp] & 0xff : 0;
+            int up = (prev >= 0) ? raw[prev + i] & 0xff : 0;
+            raw[start + i] += (left + up) >>> 1;
+          }
+          break;
+
+        case 4: // Paeth
+          for (int i = 0; i < rowBytes; i++) {
+            int left = (i >= bpp) ? raw[start + i - bpp] & 0xff : 0;
+            int up = (prev >= 0) ? raw[prev + i] & 0xff : 0;
+            int upLeft = (i >= bpp && prev >= 0) ? raw[prev + i - bpp] & 0xff : 0;
+            raw[start + i] += paeth(left, up, upLeft);
+          }
+          break;
+
+        default:
+          throw new IOException("Unknown PNG filter type " + filter);
+      }
+    }
+  }
+
+  private static int paeth(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) return a;
+    if (pb <= pc) return b;
+    return c;
+  }
+
+  private int[] unpack(byte[] raw) {
+    int nbits = getPixelSize();
+    int stride = rowBytes() + 1;
+    int[] result = new int[width * height];
+    int k = 0;
+
+    for (int row = 0; row < height; row++) {
+      int p = row * stride + 1;
+      switch (nbits) {
+        case 8:
+          for (int i = 0; i < width; i++)
+            result[k++] = raw[p++] & 0xff;
+          break;
+
+        case 16:
+          for (int i = 0; i < width; i++, p += 2)
+            result[k++] = ((raw[p] & 0xff) << 8) | (raw[p + 1] & 0xff);
+          break;
+
+        case 24:
+          for (int i = 0; i < width; i++, p += 3)
+            result[k++] = ((raw[p] & 0xff) << 16) | ((raw[p + 1] & 0xff) << 8) | (raw[p + 2] & 0xff);
+          break;
+
+        case 32:
+          for (int i = 0; i < width; i++, p += 4)
+            result[k++] = ((raw[p] & 0xff) << 24) | ((raw[p + 1] & 0xff) << 16) | ((raw[p + 2] & 0xff) << 8) | (raw[p + 3] & 0xff);
+          break;
+
+        default: // 1, 2 or 4 bits, or 48 and 64 bit pixels which are truncated to the low 32 bits
+          long bit = 0;
+          for (int i = 0; i < width; i++) {
+            long v = 0;
+            for (int b = 0; b < nbits; b++, bit++) {
+              v = (v << 1) | ((raw[p + (int) (bit >>> 3)] >>> (7 - (bit & 7))) & 1);
+            }
+            result[k++] = (int) v;
+          }
+          break;
+      }
+    }
+    return result;
+  }
+
+  private static int getInt(byte[] b, int pos) {
+    return ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check that GribDataCache only reads a field once, and respects its size limit.
+ */
+public class TestGribDataCache {
+
+  @After
+  public void cleanup() {
+    GribDataCache.disable();
+  }
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    GribDataCache.init(1000 * 1000);
+    File f = File.createTempFile("TestGribDataCache", ".grib2");
+    f.deleteOnExit();
+    AtomicInteger reads = new AtomicInteger();
+    GribDataCache.Reader reader = () -> {
+      reads.incrementAndGet();
+      return new float[1000];
+    };
+
+    try (RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r")) {
+      float[] first = GribDataCache.getData(raf, raf.getLastModified(), 100, 0, reader);
+      float[] second = GribDataCache.getData(raf, raf.getLastModified(), 100, 0, reader);
+      Assert.assertSame(first, second);
+      Assert.assertEquals(1, reads.get());
+
+      // a different bitmap is a different field
+      GribDataCache.getData(raf, raf.getLastModified(), 100, 50, reader);
+      Assert.assertEquals(2, reads.get());
+
+      // so is the same field in a file that has since changed
+      GribDataCache.getData(raf, raf.getLastModified() + 1000, 100, 0, reader);
+      Assert.assertEquals(3, reads.get());
+    }
+    Assert.assertEquals(1, GribDataCache.getStats().hitCount());
+    Assert.assertEquals(3, GribDataCache.getStats().missCount());
+
+    GribDataCache.clearCache();
+    try (RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r")) {
+      GribDataCache.getData(raf, raf.getLastModified(), 100, 0, reader);
+      Assert.assertEquals(4, reads.get());
+    }
+  }
+
+  @Test
+  public void testTooBigAndDisabled() throws IOException {
+    GribDataCache.init(100 * 1000);
+    File f = File.createTempFile("TestGribDataCache", ".grib2");
+    f.deleteOnExit();
+    AtomicInteger reads = new AtomicInteger();
+
+    try (RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r")) {
+      GribDataCache.Reader big = () -> {
+        reads.incrementAndGet();
+        return new float[100 * 1000];
+      };
+      GribDataCache.getData(raf, raf.getLastModified(), 0, 0, big);
+      GribDataCache.getData(raf, raf.getLastModified(), 0, 0, big);
+      Assert.assertEquals(2, reads.get());
+
+      GribDataCache.disable();
+      Assert.assertFalse(GribDataCache.isEnabled());
+      GribDataCache.Reader small = () -> {
+        reads.incrementAndGet();
+        return new float[10];
+      };
+      GribDataCache.getData(raf, raf.getLastModified(), 0, 0, small);
+      GribDataCache.getData(raf, raf.getLastModified(), 0, 0, small);
+      Assert.assertEquals(4, reads.get());
+    }
+  }
+}
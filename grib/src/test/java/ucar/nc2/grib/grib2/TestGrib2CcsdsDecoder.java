@@ -0,0 +1,326 @@
+/*
+ * Copyright 1998-2016 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.grib.grib2;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Round trip data through a small CCSDS encoder that uses every block option, and check that
+ * {@link Grib2CcsdsDecoder} gets it back.
+ */
+public class TestGrib2CcsdsDecoder {
+
+  @Test
+  public void testBlockOptions() throws IOException {
+    int[] nbits = {1, 3, 7, 8, 12, 16, 17, 24, 31, 32};
+    int[] blockSizes = {8, 16, 32, 64};
+    int[] flagSets = {
+            Grib2CcsdsDecoder.DATA_PREPROCESS | Grib2CcsdsDecoder.DATA_MSB | Grib2CcsdsDecoder.DATA_3BYTE, // usual GRIB2
+            0,
+            Grib2CcsdsDecoder.DATA_PREPROCESS | Grib2CcsdsDecoder.PAD_RSI,
+            Grib2CcsdsDecoder.DATA_PREPROCESS | Grib2CcsdsDecoder.DATA_SIGNED,
+            Grib2CcsdsDecoder.DATA_SIGNED | Grib2CcsdsDecoder.PAD_RSI,
+            Grib2CcsdsDecoder.DATA_PREPROCESS | Grib2CcsdsDecoder.RESTRICTED,
+    };
+
+    Random random = new Random(42);
+    for (int nb : nbits) {
+      for (int blockSize : blockSizes) {
+        for (int flags : flagSets) {
+          if ((flags & Grib2CcsdsDecoder.RESTRICTED) != 0 && nb > 4) continue;
+          for (int rsi : new int[]{1, 3, 128}) {
+            int n = 5000 + random.nextInt(blockSize);
+            int[] values = makeData(random, n, nb, (flags & Grib2CcsdsDecoder.DATA_SIGNED) != 0);
+            byte[] encoded = new Encoder(nb, blockSize, rsi, flags).encode(values);
+
+            int[] result = new int[n];
+            new Grib2CcsdsDecoder(nb, blockSize, rsi, flags).decode(encoded, 0, encoded.length, result, n);
+            Assert.assertArrayEquals("nb=" + nb + " blockSize=" + blockSize + " rsi=" + rsi + " flags=" + flags, values, result);
+          }
+        }
+      }
+    }
+  }
+
+  /*
+   * A stream assembled by hand from CCSDS 121.0-B-2, so it does not depend on the Encoder below.
+   * 8 bit samples, block size 8, rsi 2, preprocessing on. The mapped residuals d follow section 4 of the spec:
+   * with prev the previous sample and theta = min(prev - 0, 255 - prev), delta in [0, theta] maps to 2*delta,
+   * delta in [-theta, 0) to 2*|delta| - 1, otherwise to theta + |delta|.
+   */
+  private static final String[] HAND_ASSEMBLED = {
+          // rsi 1, block 1: 100 x 8. zero block: id 000, selector 0, reference 100, fs(1 zero block - 1 = 0)
+          "000", "0", "01100100", "1",
+          // rsi 1, block 2: 101 99 102 98 100 100 103 97, d = 2 3 6 7 4 0 6 11.
+          // split sample k=1: id 010, fs(d >> 1) = fs(1 1 3 3 2 0 3 5), then the low bits 0 1 0 1 0 0 0 1
+          "010", "01", "01", "0001", "0001", "001", "1", "0001", "000001", "01010001",
+          // rsi 2, block 3: 50 200 10 250 0 255 128 7, d = 200 245 250 255 255 127 241.
+          // uncompressed: id 111, reference 50, then the 7 residuals in 8 bits
+          "111", "00110010", "11001000", "11110101", "11111010", "11111111", "11111111", "01111111", "11110001",
+          // rsi 2, block 4: 7 7 8 8 8 7 7 7, d = 0 0 2 0 0 1 0 0.
+          // second extension: id 000, selector 1, pairs (0,0) (2,0) (0,1) (0,0) -> fs(0 3 2 0)
+          "000", "1", "1", "0001", "001", "1",
+  };
+
+  @Test
+  public void testHandAssembled() throws IOException {
+    StringBuilder bits = new StringBuilder();
+    for (String s : HAND_ASSEMBLED) bits.append(s);
+    byte[] encoded = new byte[(bits.length() + 7) / 8];
+    for (int i = 0; i < bits.length(); i++)
+      if (bits.charAt(i) == '1') encoded[i / 8] |= 0x80 >>> (i % 8);
+
+    int[] expected = {
+            100, 100, 100, 100, 100, 100, 100, 100,
+            101, 99, 102, 98, 100, 100, 103, 97,
+            50, 200, 10, 250, 0, 255, 128, 7,
+            7, 7, 8, 8, 8, 7, 7, 7,
+    };
+    int flags = Grib2CcsdsDecoder.DATA_PREPROCESS | Grib2CcsdsDecoder.DATA_MSB;
+    int[] result = new int[expected.length];
+    new Grib2CcsdsDecoder(8, 8, 2, flags).decode(encoded, 0, encoded.length, result, result.length);
+    Assert.assertArrayEquals(expected, result);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException {
+    int[] values = makeData(new Random(1), 1000, 16, false);
+    byte[] encoded = new Encoder(16, 32, 128, Grib2CcsdsDecoder.DATA_PREPROCESS).encode(values);
+    new Grib2CcsdsDecoder(16, 32, 128, Grib2CcsdsDecoder.DATA_PREPROCESS).decode(encoded, 0, encoded.length / 2, new int[1000], 1000);
+  }
+
+  // runs of constant values, smooth stretches, small noise and full range noise
+  private int[] makeData(Random random, int n, int nb, boolean signed) {
+    long max = signed ? (1L << (nb - 1)) - 1 : (1L << nb) - 1;
+    long min = signed ? -max - 1 : 0;
+    int[] values = new int[n];
+    int i = 0;
+    while (i < n) {
+      int len = Math.min(n - i, 1 + random.nextInt(700));
+      long base = min + (long) (random.nextDouble() * (max - min));
+      int kind = random.nextInt(5);
+      for (int j = 0; j < len; j++, i++) {
+        long v;
+        switch (kind) {
+          case 0: v = base; break;
+          case 1: v = base + (long) (Math.sin(j * 0.05) * Math.min(max - min, 100)); break;
+          case 2: v = base + random.nextInt(3) - 1; break;
+          case 3: v = base + random.nextInt(40) - 20; break;
+          default: v = min + (long) (random.nextDouble() * (max - min + 1)); break;
+        }
+        v = Math.max(min, Math.min(max, v));
+        values[i] = (int) v;
+      }
+    }
+    return values;
+  }
+
+  // Picks the cheapest of zero block, second extension, split sample and uncompressed for each block.
+  private static class Encoder {
+    private final int nb, blockSize, rsi, flags, idLen;
+    private final boolean pp, signed;
+    private final long xmax, xmin;
+    private final BitWriter out = new BitWriter();
+
+    Encoder(int nb, int blockSize, int rsi, int flags) {
+      this.nb = nb;
+      this.blockSize = blockSize;
+      this.rsi = rsi;
+      this.flags = flags;
+      this.pp = (flags & Grib2CcsdsDecoder.DATA_PREPROCESS) != 0;
+      this.signed = (flags & Grib2CcsdsDecoder.DATA_SIGNED) != 0;
+      this.xmax = signed ? (1L << (nb - 1)) - 1 : (1L << nb) - 1;
+      this.xmin = signed ? -xmax - 1 : 0;
+      if (nb > 16) idLen = 5;
+      else if (nb > 8) idLen = 4;
+      else if ((flags & Grib2CcsdsDecoder.RESTRICTED) != 0) idLen = (nb <= 2) ? 1 : 2;
+      else idLen = 3;
+    }
+
+    byte[] encode(int[] values) {
+      int nblocks = (values.length + blockSize - 1) / blockSize;
+      int[] padded = Arrays.copyOf(values, nblocks * blockSize);
+      for (int i = values.length; i < padded.length; i++)
+        padded[i] = values[values.length - 1];
+
+      int rsiSize = rsi * blockSize;
+      for (int start = 0; start < padded.length; start += rsiSize) {
+        int len = Math.min(rsiSize, padded.length - start);
+        encodeRsi(Arrays.copyOfRange(padded, start, start + len));
+        if ((flags & Grib2CcsdsDecoder.PAD_RSI) != 0)
+          out.align();
+      }
+      return out.toByteArray();
+    }
+
+    private void encodeRsi(int[] x) {
+      long[] d = new long[x.length]; // d[0] is the reference sample when preprocessing
+      for (int i = 0; i < x.length; i++) {
+        d[i] = (pp && i > 0) ? map(value(x[i]), value(x[i - 1])) : x[i] & ((1L << nb) - 1);
+      }
+
+      int nblocks = x.length / blockSize;
+      int b = 0;
+      while (b < nblocks) {
+        boolean ref = pp && b == 0;
+        int first = b * blockSize;
+
+        // a run of zero blocks, up to the end of the 64 block segment
+        int zeros = 0;
+        int segmentEnd = Math.min(nblocks, (b / 64 + 1) * 64);
+        while (b + zeros < segmentEnd && isZero(d, (b + zeros) * blockSize, (b + zeros == 0) && ref))
+          zeros++;
+        if (zeros > 0) {
+          out.put(0, idLen);
+          out.put(0, 1);
+          if (ref) out.put(d[0], nb);
+          int fs;
+          if (b + zeros == segmentEnd) fs = 4; // to the end of the segment or interval
+          else if (zeros >= 5) fs = zeros;
+          else fs = zeros - 1;
+          out.fs(fs);
+          b += zeros;
+          continue;
+        }
+
+        int start = ref ? 1 : 0;
+        int maxK = (1 << idLen) - 3;
+        long best = (long) nb * blockSize;
+        int bestK = -1; // uncompressed
+        for (int k = 0; k <= maxK && k < nb; k++) {
+          long bits = 0;
+          for (int i = start; i < blockSize; i++)
+            bits += (d[first + i] >>> k) + 1 + k;
+          if (bits < best) {
+            best = bits;
+            bestK = k;
+          }
+        }
+
+        long seBits = 0;
+        for (int i = start & ~1; i < blockSize; i += 2) {
+          long sum = d[first + i + 1] + ((i < start) ? 0 : d[first + i]);
+          if (sum > 12) {
+            seBits = Long.MAX_VALUE;
+            break;
+          }
+          seBits += sum * (sum + 1) / 2 + d[first + i + 1] + 1;
+        }
+
+        if (seBits < best) {
+          out.put(0, idLen);
+          out.put(1, 1);
+          if (ref) out.put(d[first], nb);
+          for (int i = start & ~1; i < blockSize; i += 2) {
+            long a = (i < start) ? 0 : d[first + i];
+            long s = a + d[first + i + 1];
+            out.fs((int) (s * (s + 1) / 2 + d[first + i + 1]));
+          }
+        } else if (bestK < 0) {
+          out.put((1 << idLen) - 1, idLen);
+          for (int i = 0; i < blockSize; i++)
+            out.put(d[first + i], nb);
+        } else {
+          out.put(bestK + 1, idLen);
+          if (ref) out.put(d[first], nb);
+          for (int i = start; i < blockSize; i++)
+            out.fs((int) (d[first + i] >>> bestK));
+          for (int i = start; i < blockSize; i++)
+            out.put(d[first + i], bestK);
+        }
+        b++;
+      }
+    }
+
+    private boolean isZero(long[] d, int first, boolean ref) {
+      for (int i = ref ? 1 : 0; i < blockSize; i++)
+        if (d[first + i] != 0) return false;
+      return true;
+    }
+
+    private long value(int x) {
+      return signed ? x : x & 0xffffffffL;
+    }
+
+    // CCSDS 121.0-B section 4.3 prediction error mapping
+    private long map(long x, long prev) {
+      long delta = x - prev;
+      long theta = Math.min(prev - xmin, xmax - prev);
+      if (delta >= 0 && delta <= theta) return 2 * delta;
+      if (delta < 0 && -delta <= theta) return -2 * delta - 1;
+      return theta + Math.abs(delta);
+    }
+  }
+
+  private static class BitWriter {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int current, nbits;
+
+    void put(long value, int nb) {
+      for (int i = nb - 1; i >= 0; i--)
+        bit((int) (value >>> i) & 1);
+    }
+
+    void fs(int zeros) {
+      for (int i = 0; i < zeros; i++)
+        bit(0);
+      bit(1);
+    }
+
+    void align() {
+      while (nbits != 0)
+        bit(0);
+    }
+
+    private void bit(int b) {
+      current = (current << 1) | b;
+      if (++nbits == 8) {
+        bytes.write(current);
+        current = 0;
+        nbits = 0;
+      }
+    }
+
+    byte[] toByteArray() {
+      align();
+      return bytes.toByteArray();
+    }
+  }
+}
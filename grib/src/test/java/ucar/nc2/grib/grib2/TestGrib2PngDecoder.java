@@ -0,0 +1,226 @@
+package ucar.nc2.grib.grib2;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.grib.GribNumbers;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compare {@link Grib2PngDecoder} to ImageIO, which was used before, on PNG images written by ImageIO,
+ * and decode DRS template 5.41 messages, with and without a bitmap, through Grib2DataReader2 and Grib2DataReader.
+ */
+public class TestGrib2PngDecoder {
+  private static final float R = 1.5f;
+  private static final int E = 1;
+  private static final int D = 1;
+
+  @Test
+  public void testSameAsImageIO() throws IOException {
+    Random random = new Random(41);
+    for (int nb : new int[] {1, 2, 4, 8, 16}) {
+      for (int[] size : new int[][] {{1, 1}, {37, 23}, {256, 3}, {5, 200}}) {
+        String what = "nb=" + nb + " " + size[0] + "x" + size[1];
+        byte[] png = makePng(random, nb, size[0], size[1]);
+
+        Grib2PngDecoder decoder = new Grib2PngDecoder();
+        int[] result = decoder.decode(png, 0, png.length);
+        Assert.assertEquals(what, size[0], decoder.getWidth());
+        Assert.assertEquals(what, size[1], decoder.getHeight());
+        Assert.assertArrayEquals(what, readImageIO(png), result);
+      }
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testShortHeader() throws IOException {
+    // IHDR with 10 of its 13 bytes, at the end of the data
+    byte[] png = makeHeader(10, 37, 23);
+    new Grib2PngDecoder().decode(png, 0, png.length);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTooLarge() throws IOException {
+    // height * (rowBytes + 1) overflows an int
+    byte[] png = makeHeader(13, 100000, 100000);
+    new Grib2PngDecoder().decode(png, 0, png.length);
+  }
+
+  @Test
+  public void testMessage() throws IOException {
+    Random random = new Random(42);
+    int nx = 30, ny = 20;
+    byte[] png = makePng(random, 16, nx, ny);
+    int[] values = readImageIO(png);
+
+    float[] expected = new float[nx * ny];
+    for (int i = 0; i < expected.length; i++)
+      expected[i] = scale(values[i]);
+
+    Assert.assertArrayEquals(expected, readMessage(png, null, 16, nx, ny, false), 0.0f);
+    Assert.assertArrayEquals(expected, readMessage(png, null, 16, nx, ny, true), 0.0f);
+  }
+
+  @Test
+  public void testMessageWithBitmap() throws IOException {
+    Random random = new Random(43);
+    int nx = 30, ny = 20;
+    byte[] bitmap = new byte[(nx * ny + 7) / 8];
+    random.nextBytes(bitmap);
+    int ndata = 0;
+    for (int i = 0; i < nx * ny; i++)
+      if (isSet(bitmap, i)) ndata++;
+
+    // the image only holds the points that are in the bitmap
+    byte[] png = makePng(random, 16, ndata, 1);
+    int[] values = readImageIO(png);
+
+    float[] expected = new float[nx * ny];
+    for (int i = 0, j = 0; i < expected.length; i++)
+      expected[i] = isSet(bitmap, i) ? scale(values[j++]) : Float.NaN;
+
+    Assert.assertArrayEquals(expected, readMessage(png, bitmap, 16, nx, ny, false), 0.0f);
+    Assert.assertArrayEquals(expected, readMessage(png, bitmap, 16, nx, ny, true), 0.0f);
+  }
+
+  @Test
+  public void testConstantWithBitmap() throws IOException {
+    int nx = 10, ny = 7;
+    byte[] bitmap = new byte[(nx * ny + 7) / 8];
+    new Random(44).nextBytes(bitmap);
+
+    float[] expected = new float[nx * ny];
+    for (int i = 0; i < expected.length; i++)
+      expected[i] = isSet(bitmap, i) ? R : Float.NaN;
+
+    // no bits, no image
+    Assert.assertArrayEquals(expected, readMessage(new byte[0], bitmap, 0, nx, ny, true), 0.0f);
+  }
+
+  private static boolean isSet(byte[] bitmap, int i) {
+    return (bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0;
+  }
+
+  // Y * 10^D = R + X * 2^E
+  private static float scale(int x) {
+    float EE = (float) Math.pow(2.0, E);
+    float DD = (float) Math.pow(10.0, D);
+    return (R + (x & 0xFFFFFFFFL) * EE) / DD;
+  }
+
+  // gray PNG, random pixels of nb bits
+  private static byte[] makePng(Random random, int nb, int width, int height) throws IOException {
+    BufferedImage image;
+    if (nb == 8) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    } else if (nb == 16) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+    } else {
+      int ncolors = 1 << nb;
+      byte[] gray = new byte[ncolors];
+      for (int i = 0; i < ncolors; i++)
+        gray[i] = (byte) (i * 255 / (ncolors - 1));
+      image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY, new IndexColorModel(nb, ncolors, gray, gray, gray));
+    }
+
+    // smooth rows with some noise, so the writer uses all its row filters
+    WritableRaster raster = image.getRaster();
+    int max = (1 << nb) - 1;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int v = (x * 7 + y * 3 + random.nextInt(4)) % (max + 1);
+        raster.setSample(x, y, 0, random.nextInt(10) == 0 ? random.nextInt(max + 1) : v);
+      }
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Assert.assertTrue(ImageIO.write(image, "png", out));
+    return out.toByteArray();
+  }
+
+  // PNG signature and an 8 bit gray IHDR chunk of the given length, with no crc
+  private static byte[] makeHeader(int chunkLen, int width, int height) throws IOException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bout);
+    out.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+    out.writeInt(chunkLen);
+    out.writeInt(0x49484452);
+    ByteArrayOutputStream ihdr = new ByteArrayOutputStream();
+    DataOutputStream hout = new DataOutputStream(ihdr);
+    hout.writeInt(width);
+    hout.writeInt(height);
+    hout.write(new byte[] {8, 0, 0, 0, 0}); // bit depth, color type, compression, filter, interlace
+    out.write(ihdr.toByteArray(), 0, chunkLen);
+    return bout.toByteArray();
+  }
+
+  private static int[] readImageIO(byte[] png) throws IOException {
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] result = new int[width * height];
+    for (int y = 0; y < height; y++)
+      for (int x = 0; x < width; x++)
+        result[y * width + x] = image.getRaster().getSample(x, y, 0);
+    return result;
+  }
+
+  // lay out bitmap section, DRS template 5.41 and data section, as in a GRIB2 message, and read the data
+  private static float[] readMessage(byte[] png, byte[] bitmap, int nb, int nx, int ny, boolean deprecated) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    // section 6
+    int bitmapLength = 6 + (bitmap == null ? 0 : bitmap.length);
+    out.writeInt(bitmapLength);
+    out.writeByte(6);
+    out.writeByte(bitmap == null ? 255 : 0);
+    if (bitmap != null) out.write(bitmap);
+
+    // template 5.41
+    int drsPos = out.size();
+    out.writeFloat(R);
+    out.writeShort(E);
+    out.writeShort(D);
+    out.writeByte(nb);
+    out.writeByte(0);
+
+    // section 7
+    int dataPos = out.size();
+    out.writeInt(5 + png.length);
+    out.writeByte(7);
+    out.write(png);
+    out.flush();
+
+    int ndata = nx * ny;
+    if (bitmap != null) {
+      ndata = 0;
+      for (int i = 0; i < nx * ny; i++)
+        if (isSet(bitmap, i)) ndata++;
+    }
+
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("test.grib2", bytes.toByteArray())) {
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      raf.seek(drsPos);
+      Grib2Drs drs = Grib2Drs.factory(41, raf);
+      if (deprecated) {
+        Grib2DataReader reader = new Grib2DataReader(41, nx * ny, ndata, 0, nx, dataPos, 5 + png.length);
+        return reader.getData(raf, bitmap, drs);
+      } else {
+        Grib2SectionBitMap bms = Grib2SectionBitMap.factory(raf, 0);
+        Grib2DataReader2 reader = new Grib2DataReader2(41, nx * ny, ndata, 0, nx, dataPos, 5 + png.length);
+        return reader.getData(raf, bms, drs);
+      }
+    }
+  }
+}
@@ -47,8 +47,10 @@ import org.springframework.core.io.Resource;
 import thredds.featurecollection.CollectionUpdater;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.featurecollection.FeatureCollectionType;
+import thredds.filesystem.DirectorySnapshot;
 import thredds.inventory.CollectionUpdateEvent;
 import thredds.inventory.CollectionUpdateType;
+import thredds.inventory.partition.DirectoryCollection;
 import thredds.util.ThreddsConfigReader;
 import ucar.httpservices.HTTPException;
 import ucar.httpservices.HTTPFactory;
@@ -207,6 +209,20 @@ public class Tdm {
     gribCache.setAlwaysUseCache(gribIndexAlwaysUse);
     gribCache.setNeverUseCache(gribIndexNeverUse);
     GribIndexCache.setDiskCache2(gribCache);
+
+    // same directory scanning as the TDS
+    if (reader.getBoolean("DirectoryScan.useSnapshots", false)) {
+      DirectorySnapshot.setFullScanInterval(1000L * reader.getSeconds("DirectoryScan.fullScan", 60 * 60));
+      if (reader.getBoolean("DirectoryScan.watch", false)) {
+        try {
+          DirectorySnapshot.enableWatch();
+        } catch (IOException ioe) {
+          tdmLogger.error("TDM DirectoryScan.watch failed", ioe);
+        }
+      }
+      DirectoryCollection.setUseSnapshots(true);
+      tdmLogger.info("TDM DirectoryScan.useSnapshots= true");
+    }
     tdmLogger.info("TDM initialized {}", gribCache);
 
     return true;
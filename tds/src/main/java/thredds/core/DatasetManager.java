@@ -60,6 +60,7 @@ import ucar.nc2.ft2.coverage.CoverageDatasetFactory;
 import ucar.nc2.ft2.coverage.FeatureDatasetCoverage;
 import ucar.nc2.ft2.coverage.CoverageCollection;
 import ucar.nc2.ncml.NcMLReader;
+import ucar.nc2.stream.HeaderSnapshot;
 import ucar.nc2.util.Optional;
 import ucar.nc2.util.cache.FileFactory;
 
@@ -132,6 +133,14 @@ public class DatasetManager implements InitializingBean {
     return dataRootManager.getLocationFromRequestPath(reqPath);
   }
 
+  // name of the feature collection that serves this path, or null if none
+  public String getFeatureCollectionName(String reqPath) {
+    DataRootManager.DataRootMatch match = dataRootManager.findDataRootMatch(reqPath);
+    if (match == null) return null;
+    FeatureCollectionRef fcr = match.dataRoot.getFeatureCollection();
+    return (fcr == null) ? null : fcr.getCollectionName();
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
 
@@ -226,6 +235,41 @@ public class DatasetManager implements InitializingBean {
     return ncfile;
   }
 
+  /**
+   * Like openNetcdfFile(), for requests that only look at the metadata.
+   * A plain file (no NcML, feature collection or DatasetSource) with a current HeaderSnapshot is built from
+   * the snapshot, without reading its header. This is not put in the file cache, since reading data from it
+   * reopens the file.
+   */
+  // return null means request has been handled, and calling routine should exit without further processing
+  public NetcdfFile openNetcdfFileMetadata(HttpServletRequest req, HttpServletResponse res, String reqPath) throws IOException {
+    if (reqPath == null)
+      return null;
+
+    String path = reqPath.startsWith("/") ? reqPath.substring(1) : reqPath;
+    DataRootManager.DataRootMatch match = dataRootManager.findDataRootMatch(path);
+    if (match != null && match.dataRoot != null && match.dataRoot.getFeatureCollection() == null &&
+            datasetTracker.findNcml(path) == null && !isDatasetSource(req)) {
+      DatasetScan dscan = match.dataRoot.getDatasetScan();
+      String location = dataRootManager.getLocationFromRequestPath(path);
+      if ((dscan == null || dscan.getNcmlElement() == null) && location != null) {
+        if (!resourceControlOk(req, res, path))
+          return null;
+        NetcdfFile snapshot = HeaderSnapshot.open(location);
+        if (snapshot != null) return snapshot;
+      }
+    }
+
+    return openNetcdfFile(req, res, reqPath);
+  }
+
+  private boolean isDatasetSource(HttpServletRequest req) {
+    for (DatasetSource datasetSource : datasetSources) {
+      if (datasetSource.isMine(req)) return true;
+    }
+    return false;
+  }
+
   /**
    * Open a file as a GridDataset, using getNetcdfFile(), so that it gets wrapped in NcML if needed.
    */
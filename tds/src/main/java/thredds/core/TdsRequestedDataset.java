@@ -96,6 +96,13 @@ public class TdsRequestedDataset {
     return trd.openAsNetcdfFile(request, response);
   }
 
+  // like getNetcdfFile, for requests that only look at the metadata, see DatasetManager.openNetcdfFileMetadata
+  public static NetcdfFile getNetcdfFileMetadata(HttpServletRequest request, HttpServletResponse response, String path) throws IOException {
+    TdsRequestedDataset trd = new TdsRequestedDataset(request, null);
+    if (path != null) trd.path = path;
+    return trd.isRemote ? NetcdfDataset.openDataset(trd.path) : datasetManager.openNetcdfFileMetadata(request, response, trd.path);
+  }
+
   public static long getLastModified(String reqPath) {
     File file = getFile(reqPath);
     return (file == null) ? -1 : file.lastModified();
@@ -110,6 +117,10 @@ public class TdsRequestedDataset {
     return datasetManager.getLocationFromRequestPath(reqPath);
   }
 
+  public static String getFeatureCollectionName(String reqPath) {
+    return datasetManager.getFeatureCollectionName(reqPath);
+  }
+
   public static boolean resourceControlOk(HttpServletRequest request, HttpServletResponse response, String path) {
     return datasetManager.resourceControlOk(request, response, path);
   }
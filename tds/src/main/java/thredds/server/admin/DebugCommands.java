@@ -33,11 +33,14 @@
 
 package thredds.server.admin;
 
+import dap4.servlet.DapCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import thredds.server.config.TdsContext;
+import thredds.server.wms.WmsCache;
 import thredds.servlet.ServletUtil;
+import thredds.servlet.filter.RequestBracketingLogMessageFilter;
 import ucar.nc2.dataset.NetcdfDataset;
 
 import java.io.ByteArrayOutputStream;
@@ -48,6 +51,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataCache;
+import ucar.nc2.stream.HeaderSnapshot;
 import ucar.nc2.util.cache.FileCacheIF;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -163,6 +168,14 @@ public class DebugCommands {
           fc.showCache(f);
         }
 
+        GribDataCache.showCache(f);
+        WmsCache.showCache(f);
+        f.format("%n");
+        HeaderSnapshot.showStats(f);
+
+        f.format("%n%nDap4 DSP cache%n");
+        DapCache.showStats(f);
+
         e.pw.flush();
       }
     };
@@ -174,6 +187,8 @@ public class DebugCommands {
          RandomAccessFile.getGlobalFileCache().clearCache(false);
          FileCacheIF fc = GribCdmIndex.gribCollectionCache;
          if (fc != null) fc.clearCache(false);
+         GribDataCache.clearCache();
+         WmsCache.clearCache();
          e.pw.println("  ClearCache ok");
        }
      };
@@ -220,6 +235,14 @@ public class DebugCommands {
      };
      debugHandler.addAction(act);
 
+    act = new Action("disableGribDataCache", "Disable GribData Cache") {
+       public void doAction(Event e) {
+         GribDataCache.disable();
+         e.pw.println("  Disable GribDataCache ok");
+       }
+     };
+     debugHandler.addAction(act);
+
     act = new Action("forceGCCache", "Force clear TimePartition Cache") {
       public void doAction(Event e) {
         FileCacheIF fc = GribCdmIndex.gribCollectionCache;
@@ -268,6 +291,14 @@ public class DebugCommands {
     Category debugHandler = findCategory("General");
     Action act;
 
+    act = new Action("toggleRequestTrace", "Toggle tracing of all requests") {
+      public void doAction(Event e) {
+        RequestBracketingLogMessageFilter.setTraceAll(!RequestBracketingLogMessageFilter.isTraceAll());
+        e.pw.println("  Trace all requests=" + RequestBracketingLogMessageFilter.isTraceAll() + " (see threddsServlet.log)");
+      }
+    };
+    debugHandler.addAction(act);
+
     act = new Action("showVersion", "Show Build Version") {
       public void doAction(Event e) {
         try {
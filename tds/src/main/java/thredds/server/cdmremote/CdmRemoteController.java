@@ -110,7 +110,8 @@ public class CdmRemoteController {
       System.out.printf(" path=%s%n query=%s%n", datasetPath, request.getQueryString());
 
     // LOOK heres where we want the Dataset, not the netcdfFile (!)
-    try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFile(request, response, datasetPath)) {
+    // metadata only, so it may come from a HeaderSnapshot
+    try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFileMetadata(request, response, datasetPath)) {
       if (ncfile == null) return null;  // failed resource control
 
       responseHeaders = new HttpHeaders();
@@ -153,7 +154,7 @@ public class CdmRemoteController {
     String datasetPath = TdsPathUtils.extractPath(request, "/cdmremote");
     String absPath = getAbsolutePath(request);
 
-    try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFile(request, response, datasetPath)) {
+    try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFileMetadata(request, response, datasetPath)) {
       if (ncfile == null) return null;
 
       Element rootElem = new Element("cdmRemoteCapabilities");
@@ -186,7 +187,7 @@ public class CdmRemoteController {
       System.out.printf(" path=%s%n query=%s%n", datasetPath, request.getQueryString());
     }
 
-    try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFile(request, response, datasetPath)) {
+    try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFileMetadata(request, response, datasetPath)) {
       if (ncfile == null) return;
 
       response.setContentType(ContentType.binary.getContentHeader());
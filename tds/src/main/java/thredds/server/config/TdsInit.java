@@ -33,6 +33,7 @@
 
 package thredds.server.config;
 
+import com.google.common.eventbus.EventBus;
 import org.slf4j.Logger;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.DisposableBean;
@@ -49,17 +50,27 @@ import thredds.core.DatasetManager;
 import thredds.core.StandardService;
 import thredds.featurecollection.CollectionUpdater;
 import thredds.featurecollection.InvDatasetFeatureCollection;
+import thredds.filesystem.ControllerSnapshot;
+import thredds.filesystem.DirectorySnapshot;
+import thredds.inventory.MFileCollectionManager;
+import thredds.inventory.partition.DirectoryCollection;
 import thredds.server.catalog.ConfigCatalogCache;
 import thredds.server.catalog.DatasetScan;
 import thredds.server.ncss.controller.NcssDiskCache;
 import thredds.server.ncss.format.FormatsAvailabilityService;
 import thredds.server.ncss.format.SupportedFormat;
+import thredds.server.wms.WmsCache;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.ft.point.collection.CompositePointCollection;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataCache;
+import ucar.nc2.iosp.ChunkCoalescer;
+import ucar.nc2.iosp.nexrad2.Level2VolumeScan;
 import ucar.nc2.jni.netcdf.Nc4Iosp;
 import ucar.nc2.ncml.Aggregation;
+import ucar.nc2.stream.HeaderSnapshot;
 import ucar.nc2.util.DiskCache;
 import ucar.nc2.util.DiskCache2;
 import ucar.nc2.util.cache.FileCache;
@@ -113,6 +124,10 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
   @Qualifier("fcTriggerExecutor")
   private ExecutorService executor;  // need this so we can shut it down
 
+  @Autowired
+  @Qualifier("fcTriggerEventBus")
+  private EventBus eventBus;
+
   @Autowired
   private AllowedServices allowedServices;
 
@@ -280,6 +295,39 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     Aggregation.setTypicalDatasetMode(typicalDataset);
     startupLog.info("TdsInit: Aggregation.setTypicalDatasetMode= " + typicalDataset);
 
+    // merge nearby chunks into larger reads; off unless configured
+    if (ThreddsConfig.getBoolean("ChunkCoalescer.use", false)) {
+      ChunkCoalescer.setMaxGap((int) ThreddsConfig.getBytes("ChunkCoalescer.maxGap", ChunkCoalescer.DEFAULT_MAX_GAP));
+      ChunkCoalescer.setMaxReadSize((int) ThreddsConfig.getBytes("ChunkCoalescer.maxReadSize", ChunkCoalescer.getMaxReadSize()));
+      startupLog.info("TdsInit: ChunkCoalescer maxGap= " + ChunkCoalescer.getMaxGap() + " maxReadSize= " + ChunkCoalescer.getMaxReadSize());
+    }
+
+    // NEXRAD level II: uncompress into memory instead of the disk cache
+    boolean nexradInMemory = ThreddsConfig.getBoolean("Nexrad2.uncompressInMemory", false);
+    Level2VolumeScan.setUncompressInMemory(nexradInMemory);
+    startupLog.info("TdsInit: Nexrad2.uncompressInMemory= " + nexradInMemory);
+
+    // point feature collections: number of files to read at once
+    int pointReadAhead = ThreddsConfig.getInt("PointCollection.readAhead", 0);
+    boolean pointTimeOrdered = ThreddsConfig.getBoolean("PointCollection.timeOrdered", true);
+    CompositePointCollection.setDefaultReadAhead(pointReadAhead, pointTimeOrdered);
+    startupLog.info("TdsInit: PointCollection.readAhead= " + pointReadAhead + " timeOrdered= " + pointTimeOrdered);
+
+    // collection directory scanning: keep listings in memory, rescan only changed directories
+    if (ThreddsConfig.getBoolean("DirectoryScan.useSnapshots", false)) {
+      DirectorySnapshot.setFullScanInterval(1000L * ThreddsConfig.getSeconds("DirectoryScan.fullScan", 60 * 60));
+      if (ThreddsConfig.getBoolean("DirectoryScan.watch", false)) {
+        try {
+          DirectorySnapshot.enableWatch();
+        } catch (IOException ioe) {
+          startupLog.error("TdsInit: DirectoryScan.watch failed", ioe);
+        }
+      }
+      DirectoryCollection.setUseSnapshots(true);
+      MFileCollectionManager.setController(new ControllerSnapshot());
+      startupLog.info("TdsInit: DirectoryScan.useSnapshots= true");
+    }
+
     ////////////////////////////////////////////////////////////////
     // Disk Caching
     String dir;
@@ -324,6 +372,17 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     GribIndexCache.setDiskCache2(gribCache);
     startupLog.info("TdsInit: GribIndex=" + gribCache);
 
+    // header snapshots of HDF5 / netCDF-4 / HDF4 files, off by default
+    if (ThreddsConfig.getBoolean("HeaderSnapshot.use", false)) {
+      String snapshotDir = ThreddsConfig.get("HeaderSnapshot.dir", new File(tdsContext.getThreddsDirectory(), "/cache/snapshot/").getPath());
+      int snapshotScourSecs = ThreddsConfig.getSeconds("HeaderSnapshot.scour", 24 * 60 * 60);
+      int snapshotMaxAgeSecs = ThreddsConfig.getSeconds("HeaderSnapshot.maxAge", 30 * 24 * 60 * 60);
+      DiskCache2 snapshotCache = new DiskCache2(snapshotDir, false, snapshotMaxAgeSecs / 60, snapshotScourSecs / 60);
+      snapshotCache.setAlwaysUseCache(true);
+      HeaderSnapshot.setDiskCache(snapshotCache);
+      startupLog.info("TdsInit: HeaderSnapshot= " + snapshotDir + " scour = " + snapshotScourSecs + " maxAgeSecs = " + snapshotMaxAgeSecs);
+    }
+
     // LOOK just create the diskCache here and send it in
     ncssDiskCache.init();
 
@@ -393,6 +452,21 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
       startupLog.info("TdsInit: GribCdmIndex.initDefaultCollectionCache= [" + min + "," + max + "] scour = " + secs);
     }
 
+    // GribDataCache: decoded GRIB fields shared across requests, default is 100 Mbytes
+    long gribDataBytes = ThreddsConfig.getBytes("GribDataCache.maxSize", 100 * 1000 * 1000);
+    if (gribDataBytes > 0) {
+      GribDataCache.init(gribDataBytes);
+      startupLog.info("TdsInit: GribDataCache.init= " + gribDataBytes + " bytes");
+    }
+
+    // WmsCache: catalogues for 100 datasets, reopened after 10 minutes; GetMap tile cache is off by default
+    int wmsDatasets = ThreddsConfig.getInt("WMS.maxDatasets", 100);
+    int wmsMaxAge = ThreddsConfig.getSeconds("WMS.cacheMaxAge", 10 * 60);
+    long wmsTileBytes = ThreddsConfig.getBytes("WMS.tileCacheSize", 0);
+    WmsCache.init(wmsDatasets, wmsMaxAge, wmsTileBytes);
+    eventBus.register(new WmsCache.CollectionListener());
+    startupLog.info("TdsInit: WmsCache.init= " + wmsDatasets + " datasets, maxAge = " + wmsMaxAge + " secs, tiles = " + wmsTileBytes + " bytes");
+
     //RandomAccessFile.enableDefaultGlobalFileCache();
     //RandomAccessFile.setDebugLeaks(true);
 
@@ -449,6 +523,8 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
       cdmDiskCacheTimer.cancel();
     FileCache.shutdown();              // this handles background threads for all instances of FileCache
     DiskCache2.exit();                // this handles background threads for all instances of DiskCache2
+    DirectorySnapshot.shutdown();
+    CompositePointCollection.shutdown();
     thredds.inventory.bdb.MetadataManager.closeAll();
     executor.shutdownNow();
 
@@ -0,0 +1,221 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package thredds.server.ncss.view.dsg;
+
+import ucar.ma2.ArrayStructure;
+import ucar.ma2.ArrayStructureBB;
+import ucar.ma2.DataType;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataA;
+import ucar.ma2.StructureMembers;
+import ucar.nc2.VariableSimpleIF;
+import ucar.nc2.ft.PointFeature;
+import ucar.nc2.util.xml.Parse;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the values of the wanted variables from a stream of PointFeatures, for the text writers.
+ * <p>
+ * The wanted members are looked up once for each StructureMembers, not by name for every variable of every point.
+ * When they are all in the leaf data of the feature, PointFeature.getDataAll() (which makes a new composite
+ * StructureData) is not called, and when the leaf data is a record of an ArrayStructureBB, scalar numbers are read
+ * straight from its ByteBuffer with an ArrayStructureBB.Cursor.
+ * <p>
+ * Not thread-safe; each writer has its own.
+ */
+public class FeatureDataReader {
+  private final String[] names;
+
+  private StructureMembers leafMembers;          // of the last leaf data
+  private StructureMembers.Member[] leafWanted;  // wanted members in leafMembers, null if not all there
+  private ArrayStructureBB array;                // of the last leaf data, if any
+  private ArrayStructureBB.Cursor arrayCursor;   // on array
+
+  private StructureData sdata;                   // of the current point
+  private StructureMembers.Member[] wanted;      // in sdata
+  private ArrayStructureBB.Cursor cursor;        // positioned on sdata, or null
+
+  private final StringBuilder value = new StringBuilder(); // for writeValue()
+  private char[] valueChars = new char[100];
+
+  public FeatureDataReader(List<VariableSimpleIF> wantedVariables) {
+    names = new String[wantedVariables.size()];
+    for (int i = 0; i < names.length; i++)
+      names[i] = wantedVariables.get(i).getShortName();
+  }
+
+  /**
+   * Move to the next point.
+   *
+   * @param pointFeat read the wanted variables from this point
+   * @throws IOException on read error
+   */
+  public void setPoint(PointFeature pointFeat) throws IOException {
+    StructureData leaf = pointFeat.getFeatureData();
+    if (leaf.getStructureMembers() != leafMembers) {
+      leafMembers = leaf.getStructureMembers();
+      leafWanted = findMembers(leafMembers, false);
+    }
+
+    cursor = null;
+    if (leafWanted != null) {
+      sdata = leaf;
+      wanted = leafWanted;
+      if (leaf instanceof StructureDataA) {
+        StructureDataA sdataA = (StructureDataA) leaf;
+        ArrayStructure as = sdataA.getArrayStructure();
+        if (as instanceof ArrayStructureBB) {
+          if (as != array) {
+            array = (ArrayStructureBB) as;
+            arrayCursor = array.getCursor();
+          }
+          cursor = arrayCursor.setRecnum(sdataA.getRecno());
+        }
+      }
+
+    } else { // some are in the parent features
+      sdata = pointFeat.getDataAll();
+      wanted = findMembers(sdata.getStructureMembers(), true);
+    }
+  }
+
+  private StructureMembers.Member[] findMembers(StructureMembers members, boolean mustFind) {
+    StructureMembers.Member[] result = new StructureMembers.Member[names.length];
+    for (int i = 0; i < names.length; i++) {
+      result[i] = members.findMember(names[i]);
+      if (result[i] == null) {
+        if (mustFind)
+          throw new IllegalArgumentException("illegal member name =" + names[i]);
+        return null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Is the i-th wanted variable text (String, char) or a Structure.
+   * @param i index into the wanted variables
+   * @return true if its values may need escaping
+   */
+  public boolean isText(int i) {
+    DataType dt = wanted[i].getDataType();
+    return dt.isString() || dt == DataType.STRUCTURE || dt == DataType.SEQUENCE;
+  }
+
+  /**
+   * Get the value of the i-th wanted variable at the current point as a String.
+   * Same as getArray().toString().trim(), but scalar numbers are formatted directly.
+   *
+   * @param i index into the wanted variables
+   * @return the value as a String
+   */
+  public String getValueString(int i) {
+    StructureMembers.Member m = wanted[i];
+    if (m.isScalar()) {
+      Class c = m.getDataType().getPrimitiveClassType();
+      if (c == float.class) return Float.toString(cursor != null ? cursor.getFloat(m) : sdata.getScalarFloat(m));
+      if (c == double.class) return Double.toString(cursor != null ? cursor.getDouble(m) : sdata.getScalarDouble(m));
+      if (c == int.class) return Integer.toString(cursor != null ? cursor.getInt(m) : sdata.getScalarInt(m));
+      if (c == short.class) return Short.toString(cursor != null ? cursor.getShort(m) : sdata.getScalarShort(m));
+      if (c == byte.class) return Byte.toString(cursor != null ? cursor.getByte(m) : sdata.getScalarByte(m));
+      if (c == long.class) return Long.toString(cursor != null ? cursor.getLong(m) : sdata.getScalarLong(m));
+    }
+    return sdata.getArray(m).toString().trim();
+  }
+
+  /**
+   * Append the value of the i-th wanted variable at the current point, the same text as getValueString(),
+   * without making a String for scalar numbers.
+   *
+   * @param i  index into the wanted variables
+   * @param sb append to this
+   */
+  public void appendValue(int i, StringBuilder sb) {
+    StructureMembers.Member m = wanted[i];
+    if (m.isScalar()) {
+      Class c = m.getDataType().getPrimitiveClassType();
+      if (c == float.class) {
+        sb.append(cursor != null ? cursor.getFloat(m) : sdata.getScalarFloat(m));
+        return;
+      }
+      if (c == double.class) {
+        sb.append(cursor != null ? cursor.getDouble(m) : sdata.getScalarDouble(m));
+        return;
+      }
+      if (c == int.class) {
+        sb.append(cursor != null ? cursor.getInt(m) : sdata.getScalarInt(m));
+        return;
+      }
+      if (c == short.class) {
+        sb.append(cursor != null ? cursor.getShort(m) : sdata.getScalarShort(m));
+        return;
+      }
+      if (c == byte.class) {
+        sb.append(cursor != null ? cursor.getByte(m) : sdata.getScalarByte(m));
+        return;
+      }
+      if (c == long.class) {
+        sb.append(cursor != null ? cursor.getLong(m) : sdata.getScalarLong(m));
+        return;
+      }
+    }
+    sb.append(sdata.getArray(m).toString().trim());
+  }
+
+  /**
+   * Write the value of the i-th wanted variable at the current point as XML character data.
+   * Text is cleaned of characters not allowed in XML; numbers are passed to the XMLStreamWriter as a char array.
+   *
+   * @param i          index into the wanted variables
+   * @param staxWriter write to this
+   * @throws XMLStreamException on write error
+   */
+  public void writeValue(int i, XMLStreamWriter staxWriter) throws XMLStreamException {
+    if (isText(i)) {
+      staxWriter.writeCharacters(Parse.cleanCharacterData(getValueString(i)).trim()); // make sure no bad chars
+      return;
+    }
+    value.setLength(0);
+    appendValue(i, value);
+    int n = value.length();
+    if (valueChars.length < n)
+      valueChars = new char[n];
+    value.getChars(0, n, valueChars, 0);
+    staxWriter.writeCharacters(valueChars, 0, n);
+  }
+}
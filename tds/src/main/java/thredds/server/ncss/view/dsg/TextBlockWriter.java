@@ -0,0 +1,220 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package thredds.server.ncss.view.dsg;
+
+import ucar.nc2.constants.CDM;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateFormatter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A UTF-8 Writer for the text point writers, that keeps its text in one reusable StringBuilder and writes it to the
+ * OutputStream in large blocks.
+ * <p>
+ * Numbers are appended straight into the buffer (StringBuilder.append(float) makes the same text as Float.toString(),
+ * without making a String), appendFixed() makes the same text as Format.dfrac(), and formatDateISO() remembers the
+ * dates it has already formatted, since the same observation times come around again for every station.
+ * <p>
+ * The CSV writers append a row at a time to getBuffer() and end it with newline(); the XML writers hand this to
+ * StAX as an ordinary Writer. Not thread-safe.
+ */
+public class TextBlockWriter extends Writer {
+  static public final int DEFAULT_BLOCK_SIZE = 64 * 1000;  // chars
+  static private final int MAX_DATES = 10 * 1000;
+  static private final String EOL = System.lineSeparator(); // as PrintWriter.println()
+
+  private final OutputStream out;
+  private final int blockSize;
+  private final StringBuilder buff;
+  private final CharsetEncoder encoder;
+  private char[] chars;
+  private ByteBuffer bytes;
+
+  private final Map<CalendarDate, String> dates = new HashMap<>();
+
+  public TextBlockWriter(OutputStream out) {
+    this(out, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * @param out       write to this; it is not closed by close()
+   * @param blockSize write to out when this many chars are waiting
+   */
+  public TextBlockWriter(OutputStream out, int blockSize) {
+    this.out = out;
+    this.blockSize = blockSize;
+    this.buff = new StringBuilder(blockSize + blockSize / 4);
+    this.encoder = CDM.utf8Charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * The text not yet written out. Append to it directly; it is written when newline() or flush() is called,
+   * or when more is written through the Writer methods.
+   * @return the buffer
+   */
+  public StringBuilder getBuffer() {
+    return buff;
+  }
+
+  /** End a line, and write out the buffer if it is full */
+  public void newline() throws IOException {
+    buff.append(EOL);
+    if (buff.length() >= blockSize)
+      writeBlock(false);
+  }
+
+  /**
+   * Append a double with a fixed number of decimals, the same as Format.dfrac(d, fixedDecimals).
+   * Like dfrac, extra decimals are truncated, not rounded, and an exponent is kept.
+   *
+   * @param sb            append to this
+   * @param d             the number
+   * @param fixedDecimals number of digits after the decimal point
+   */
+  static public void appendFixed(StringBuilder sb, double d, int fixedDecimals) {
+    int start = sb.length();
+    sb.append(d);
+    int exp = sb.length(); // start of the exponent, if any
+    int dot = -1;
+    for (int i = start; i < exp; i++) {
+      char c = sb.charAt(i);
+      if (c == '.') {
+        dot = i;
+      } else if (c == 'E') {
+        exp = i;
+        break;
+      }
+    }
+
+    int fracStart = (dot < 0) ? exp : dot + 1;
+    int have = exp - fracStart;
+    if (fixedDecimals == 0) {
+      sb.delete(dot < 0 ? exp : dot, exp);
+    } else if (have > fixedDecimals) {
+      sb.delete(fracStart + fixedDecimals, exp);
+    } else if (have < fixedDecimals) {
+      int pos = exp;
+      if (dot < 0) sb.insert(pos++, '.');
+      for (int i = have; i < fixedDecimals; i++)
+        sb.insert(pos++, '0');
+    }
+  }
+
+  /**
+   * Same as CalendarDateFormatter.toDateTimeStringISO(), but the result is remembered.
+   * @param cd the date
+   * @return ISO 8601 date string
+   */
+  public String formatDateISO(CalendarDate cd) {
+    String result = dates.get(cd);
+    if (result == null) {
+      if (dates.size() >= MAX_DATES) dates.clear();
+      result = CalendarDateFormatter.toDateTimeStringISO(cd);
+      dates.put(cd, result);
+    }
+    return result;
+  }
+
+  ////////////////////////////////////////////////////////////////
+  // Writer
+
+  @Override
+  public void write(int c) throws IOException {
+    buff.append((char) c);
+    if (buff.length() >= blockSize)
+      writeBlock(false);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    buff.append(cbuf, off, len);
+    if (buff.length() >= blockSize)
+      writeBlock(false);
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    buff.append(str, off, off + len);
+    if (buff.length() >= blockSize)
+      writeBlock(false);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writeBlock(false);
+    out.flush();
+  }
+
+  /** Write out everything, and flush (but do not close) the OutputStream */
+  @Override
+  public void close() throws IOException {
+    writeBlock(true);
+    out.flush();
+  }
+
+  private void writeBlock(boolean endOfInput) throws IOException {
+    int n = buff.length();
+    if (n == 0 && !endOfInput) return;
+
+    if (chars == null || chars.length < n) {
+      chars = new char[Math.max(n, blockSize)];
+      bytes = ByteBuffer.allocate((int) (chars.length * encoder.maxBytesPerChar()));
+    }
+    buff.getChars(0, n, chars, 0);
+    CharBuffer cb = CharBuffer.wrap(chars, 0, n);
+    bytes.clear();
+    encoder.encode(cb, bytes, endOfInput); // bytes is big enough for all of chars
+    if (endOfInput) {
+      encoder.flush(bytes);
+      encoder.reset();
+    }
+    out.write(bytes.array(), 0, bytes.position());
+
+    // a surrogate pair may have been split across blocks
+    buff.setLength(0);
+    if (cb.hasRemaining())
+      buff.append(chars, cb.position(), cb.remaining());
+  }
+}
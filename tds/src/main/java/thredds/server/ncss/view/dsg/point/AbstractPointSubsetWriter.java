@@ -75,13 +75,17 @@ public abstract class AbstractPointSubsetWriter extends DsgSubsetWriter {
 
     int count = 0;
     boolean headerDone = false;
-    for (PointFeature pointFeat : subsettedPointFeatColl) {
-      if (!headerDone) {
-        writeHeader(pointFeat);
-        headerDone = true;
+    // closed even if writing fails, so that any threads reading ahead are stopped
+    try (PointFeatureIterator iter = subsettedPointFeatColl.getPointFeatureIterator()) {
+      while (iter.hasNext()) {
+        PointFeature pointFeat = iter.next();
+        if (!headerDone) {
+          writeHeader(pointFeat);
+          headerDone = true;
+        }
+        writePoint(pointFeat);
+        count++;
       }
-      writePoint(pointFeat);
-      count++;
     }
 
     if (count == 0)
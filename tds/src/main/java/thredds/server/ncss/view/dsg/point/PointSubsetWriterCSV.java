@@ -34,34 +34,31 @@ package thredds.server.ncss.view.dsg.point;
 
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.FeatureDataReader;
+import thredds.server.ncss.view.dsg.TextBlockWriter;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
-import ucar.ma2.StructureData;
 import ucar.nc2.VariableSimpleIF;
-import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.PointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.EarthLocation;
-import ucar.unidata.util.Format;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 
 /**
  * Created by cwardgar on 2014/06/02.
  */
 public class PointSubsetWriterCSV extends AbstractPointSubsetWriter {
-    private final PrintWriter writer;
+    private final TextBlockWriter writer;
+    private final FeatureDataReader dataReader;
 
     public PointSubsetWriterCSV(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
             throws NcssException, IOException {
         super(fdPoint, ncssParams);
-      this.writer = new PrintWriter(new OutputStreamWriter(out, CDM.utf8Charset));
+        this.writer = new TextBlockWriter(out);
+        this.dataReader = new FeatureDataReader(wantedVariables);
     }
 
     @Override
@@ -82,38 +79,39 @@ public class PointSubsetWriterCSV extends AbstractPointSubsetWriter {
     }
 
     @Override
-    public void writeHeader(PointFeature pf) {
-        writer.print("time,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
+    public void writeHeader(PointFeature pf) throws IOException {
+        StringBuilder line = writer.getBuffer();
+        line.append("time,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
         for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(",");
-            writer.print(wantedVar.getShortName());
+            line.append(',');
+            line.append(wantedVar.getShortName());
             if (wantedVar.getUnitsString() != null)
-                writer.print("[unit=\"" + wantedVar.getUnitsString() + "\"]");
+                line.append("[unit=\"").append(wantedVar.getUnitsString()).append("\"]");
         }
-        writer.println();
+        writer.newline();
     }
 
     @Override
     public void writePoint(PointFeature pointFeat) throws IOException {
         EarthLocation loc = pointFeat.getLocation();
 
-        writer.print(CalendarDateFormatter.toDateTimeStringISO(pointFeat.getObservationTimeAsCalendarDate()));
-        writer.print(',');
-        writer.print(Format.dfrac(loc.getLatitude(), 3));
-        writer.print(',');
-        writer.print(Format.dfrac(loc.getLongitude(), 3));
+        StringBuilder line = writer.getBuffer();
+        line.append(writer.formatDateISO(pointFeat.getObservationTimeAsCalendarDate()));
+        line.append(',');
+        TextBlockWriter.appendFixed(line, loc.getLatitude(), 3);
+        line.append(',');
+        TextBlockWriter.appendFixed(line, loc.getLongitude(), 3);
 
-        StructureData structureData = pointFeat.getDataAll();
-        for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(',');
-            Array dataArray = structureData.getArray(wantedVar.getShortName());
-            writer.print(dataArray.toString().trim());
+        dataReader.setPoint(pointFeat);
+        for (int i = 0; i < wantedVariables.size(); i++) {
+            line.append(',');
+            dataReader.appendValue(i, line);
         }
-        writer.println();
+        writer.newline();
     }
 
     @Override
-    public void writeFooter() {
+    public void writeFooter() throws IOException {
         writer.flush();
     }
 }
@@ -34,16 +34,15 @@ package thredds.server.ncss.view.dsg.point;
 
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.FeatureDataReader;
+import thredds.server.ncss.view.dsg.TextBlockWriter;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
-import ucar.ma2.StructureData;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.PointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.EarthLocation;
 import ucar.unidata.util.Format;
 
@@ -57,14 +56,18 @@ import java.io.OutputStream;
  * Created by cwardgar on 2014/06/03.
  */
 public class PointSubsetWriterXML extends AbstractPointSubsetWriter {
+    private final TextBlockWriter writer;
     private final XMLStreamWriter staxWriter;
+    private final FeatureDataReader dataReader;
 
     public PointSubsetWriterXML(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
             throws XMLStreamException, NcssException, IOException {
         super(fdPoint, ncssParams);
 
+        writer = new TextBlockWriter(out);
         XMLOutputFactory factory = XMLOutputFactory.newInstance();
-        staxWriter = factory.createXMLStreamWriter(out, "UTF-8");
+        staxWriter = factory.createXMLStreamWriter(writer);
+        dataReader = new FeatureDataReader(wantedVariables);
     }
 
     @Override
@@ -94,8 +97,7 @@ public class PointSubsetWriterXML extends AbstractPointSubsetWriter {
 
         staxWriter.writeCharacters("\n    ");
         staxWriter.writeStartElement("pointFeature");
-        staxWriter.writeAttribute("date",
-                CalendarDateFormatter.toDateTimeStringISO(pointFeat.getObservationTimeAsCalendarDate()));
+        staxWriter.writeAttribute("date", writer.formatDateISO(pointFeat.getObservationTimeAsCalendarDate()));
 
         staxWriter.writeCharacters("\n        ");
         staxWriter.writeEmptyElement("location");
@@ -104,20 +106,15 @@ public class PointSubsetWriterXML extends AbstractPointSubsetWriter {
         if (!Double.isNaN(loc.getAltitude()))
             staxWriter.writeAttribute("altitude", Format.dfrac(loc.getAltitude(), 0));
 
-        StructureData structureData = pointFeat.getDataAll();
-        for (VariableSimpleIF wantedVar : wantedVariables) {
+        dataReader.setPoint(pointFeat);
+        for (int i = 0; i < wantedVariables.size(); i++) {
+            VariableSimpleIF wantedVar = wantedVariables.get(i);
             staxWriter.writeCharacters("\n        ");
             staxWriter.writeStartElement("data");
             staxWriter.writeAttribute("name", wantedVar.getShortName());
             if (wantedVar.getUnitsString() != null)
                 staxWriter.writeAttribute(CDM.UNITS, wantedVar.getUnitsString());
-
-            Array dataArray = structureData.getArray(wantedVar.getShortName());
-            String ss = dataArray.toString();
-            Class elemType = dataArray.getElementType();
-            if ((elemType == String.class) || (elemType == char.class) || (elemType == StructureData.class))
-                ss = ucar.nc2.util.xml.Parse.cleanCharacterData(ss); // make sure no bad chars
-            staxWriter.writeCharacters(ss.trim());
+            dataReader.writeValue(i, staxWriter);
             staxWriter.writeEndElement();
         }
 
@@ -126,12 +123,13 @@ public class PointSubsetWriterXML extends AbstractPointSubsetWriter {
     }
 
     @Override
-    public void writeFooter() throws XMLStreamException {
+    public void writeFooter() throws XMLStreamException, IOException {
         staxWriter.writeCharacters("\n");
         staxWriter.writeEndElement();
         staxWriter.writeCharacters("\n");
         staxWriter.writeEndDocument();
 
         staxWriter.close();  // This should flush the writer. The underlying output stream remains open.
+        writer.flush();
     }
 }
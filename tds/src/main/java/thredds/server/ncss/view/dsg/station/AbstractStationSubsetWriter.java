@@ -117,16 +117,20 @@ public abstract class AbstractStationSubsetWriter extends DsgSubsetWriter {
   protected int writeStationTimeSeriesFeature(StationTimeSeriesFeature stationFeat)
           throws Exception {
     int count = 0;
-    for (PointFeature pointFeat : stationFeat) {
-      assert pointFeat instanceof StationPointFeature :
-              "Expected pointFeat to be a StationPointFeature, not a " + pointFeat.getClass().getSimpleName();
-
-      if (!headerDone) {
-        writeHeader((StationPointFeature) pointFeat);
-        headerDone = true;
+    // closed even if writing fails
+    try (PointFeatureIterator iter = stationFeat.getPointFeatureIterator()) {
+      while (iter.hasNext()) {
+        PointFeature pointFeat = iter.next();
+        assert pointFeat instanceof StationPointFeature :
+                "Expected pointFeat to be a StationPointFeature, not a " + pointFeat.getClass().getSimpleName();
+
+        if (!headerDone) {
+          writeHeader((StationPointFeature) pointFeat);
+          headerDone = true;
+        }
+        writeStationPointFeature((StationPointFeature) pointFeat);
+        count++;
       }
-      writeStationPointFeature((StationPointFeature) pointFeat);
-      count++;
     }
     return count;
   }
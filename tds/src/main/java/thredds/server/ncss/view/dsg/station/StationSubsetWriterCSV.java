@@ -34,32 +34,30 @@ package thredds.server.ncss.view.dsg.station;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.FeatureDataReader;
+import thredds.server.ncss.view.dsg.TextBlockWriter;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
 import ucar.nc2.VariableSimpleIF;
-import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.point.StationPointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.Station;
-import ucar.unidata.util.Format;
 
 /**
  * Created by cwardgar on 2014-05-24.
  */
 public class StationSubsetWriterCSV extends AbstractStationSubsetWriter {
-    private final PrintWriter writer;
+    private final TextBlockWriter writer;
+    private final FeatureDataReader dataReader;
 
     public StationSubsetWriterCSV(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
             throws NcssException, IOException {
         super(fdPoint, ncssParams);
-      this.writer = new PrintWriter(new OutputStreamWriter(out, CDM.utf8Charset));
+        this.writer = new TextBlockWriter(out);
+        this.dataReader = new FeatureDataReader(wantedVariables);
     }
 
     @Override
@@ -81,34 +79,36 @@ public class StationSubsetWriterCSV extends AbstractStationSubsetWriter {
 
     @Override
     protected void writeHeader(StationPointFeature stationPointFeat) throws IOException {
-        writer.print("time,station,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
+        StringBuilder line = writer.getBuffer();
+        line.append("time,station,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
         for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(",");
-            writer.print(wantedVar.getShortName());
+            line.append(',');
+            line.append(wantedVar.getShortName());
             if (wantedVar.getUnitsString() != null)
-                writer.print("[unit=\"" + wantedVar.getUnitsString() + "\"]");
+                line.append("[unit=\"").append(wantedVar.getUnitsString()).append("\"]");
         }
-        writer.println();
+        writer.newline();
     }
 
     @Override
     protected void writeStationPointFeature(StationPointFeature stationPointFeat) throws IOException {
         Station station = stationPointFeat.getStation();
 
-        writer.print(CalendarDateFormatter.toDateTimeStringISO(stationPointFeat.getObservationTimeAsCalendarDate()));
-        writer.print(',');
-        writer.print(station.getName());
-        writer.print(',');
-        writer.print(Format.dfrac(station.getLatitude(), 3));
-        writer.print(',');
-        writer.print(Format.dfrac(station.getLongitude(), 3));
+        StringBuilder line = writer.getBuffer();
+        line.append(writer.formatDateISO(stationPointFeat.getObservationTimeAsCalendarDate()));
+        line.append(',');
+        line.append(station.getName());
+        line.append(',');
+        TextBlockWriter.appendFixed(line, station.getLatitude(), 3);
+        line.append(',');
+        TextBlockWriter.appendFixed(line, station.getLongitude(), 3);
 
-        for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(',');
-            Array dataArray = stationPointFeat.getDataAll().getArray(wantedVar.getShortName());
-            writer.print(dataArray.toString().trim());
+        dataReader.setPoint(stationPointFeat);
+        for (int i = 0; i < wantedVariables.size(); i++) {
+            line.append(',');
+            dataReader.appendValue(i, line);
         }
-        writer.println();
+        writer.newline();
     }
 
     @Override
@@ -39,16 +39,15 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.FeatureDataReader;
+import thredds.server.ncss.view.dsg.TextBlockWriter;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
-import ucar.ma2.StructureData;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.point.StationPointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.Station;
 import ucar.unidata.util.Format;
 
@@ -56,14 +55,21 @@ import ucar.unidata.util.Format;
  * Created by cwardgar on 2014/05/27.
  */
 public class StationSubsetWriterXML extends AbstractStationSubsetWriter {
+    private final TextBlockWriter writer;
     private final XMLStreamWriter staxWriter;
+    private final FeatureDataReader dataReader;
+
+    private Station lastStation;
+    private String latitude, longitude, altitude;  // of lastStation
 
     public StationSubsetWriterXML(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
             throws XMLStreamException, NcssException, IOException {
         super(fdPoint, ncssParams);
 
+        writer = new TextBlockWriter(out);
         XMLOutputFactory factory = XMLOutputFactory.newInstance();
-        staxWriter = factory.createXMLStreamWriter(out, "UTF-8");
+        staxWriter = factory.createXMLStreamWriter(writer);
+        dataReader = new FeatureDataReader(wantedVariables);
     }
 
     @Override
@@ -94,33 +100,34 @@ public class StationSubsetWriterXML extends AbstractStationSubsetWriter {
 
         staxWriter.writeCharacters("\n    ");
         staxWriter.writeStartElement("stationFeature");
-        staxWriter.writeAttribute("date",
-                CalendarDateFormatter.toDateTimeStringISO(stationPointFeat.getObservationTimeAsCalendarDate()));
+        staxWriter.writeAttribute("date", writer.formatDateISO(stationPointFeat.getObservationTimeAsCalendarDate()));
 
         staxWriter.writeCharacters("\n        ");
         staxWriter.writeStartElement("station");
         staxWriter.writeAttribute("name", station.getName());
-        staxWriter.writeAttribute("latitude", Format.dfrac(station.getLatitude(), 3));
-        staxWriter.writeAttribute("longitude", Format.dfrac(station.getLongitude(), 3));
-        if (!Double.isNaN(station.getAltitude()))
-            staxWriter.writeAttribute("altitude", Format.dfrac(station.getAltitude(), 0));
+        if (station != lastStation) {  // formatted once per station, not for every observation
+            lastStation = station;
+            latitude = Format.dfrac(station.getLatitude(), 3);
+            longitude = Format.dfrac(station.getLongitude(), 3);
+            altitude = Double.isNaN(station.getAltitude()) ? null : Format.dfrac(station.getAltitude(), 0);
+        }
+        staxWriter.writeAttribute("latitude", latitude);
+        staxWriter.writeAttribute("longitude", longitude);
+        if (altitude != null)
+            staxWriter.writeAttribute("altitude", altitude);
         if (station.getDescription() != null)
             staxWriter.writeCharacters(station.getDescription());
         staxWriter.writeEndElement();
 
-        for (VariableSimpleIF wantedVar : wantedVariables) {
+        dataReader.setPoint(stationPointFeat);
+        for (int i = 0; i < wantedVariables.size(); i++) {
+            VariableSimpleIF wantedVar = wantedVariables.get(i);
             staxWriter.writeCharacters("\n        ");
             staxWriter.writeStartElement("data");
             staxWriter.writeAttribute("name", wantedVar.getShortName());
             if (wantedVar.getUnitsString() != null)
                 staxWriter.writeAttribute(CDM.UNITS, wantedVar.getUnitsString());
-
-            Array dataArray = stationPointFeat.getDataAll().getArray(wantedVar.getShortName());
-            String ss = dataArray.toString();
-            Class elemType = dataArray.getElementType();
-            if ((elemType == String.class) || (elemType == char.class) || (elemType == StructureData.class))
-                ss = ucar.nc2.util.xml.Parse.cleanCharacterData(ss); // make sure no bad chars
-            staxWriter.writeCharacters(ss.trim());
+            dataReader.writeValue(i, staxWriter);
             staxWriter.writeEndElement();
         }
 
@@ -129,12 +136,13 @@ public class StationSubsetWriterXML extends AbstractStationSubsetWriter {
     }
 
     @Override
-    protected void writeFooter() throws XMLStreamException {
+    protected void writeFooter() throws XMLStreamException, IOException {
         staxWriter.writeCharacters("\n");
         staxWriter.writeEndElement();
         staxWriter.writeCharacters("\n");
         staxWriter.writeEndDocument();
 
         staxWriter.close();  // This should flush the writer. The underlying output stream remains open.
+        writer.flush();
     }
 }
@@ -33,6 +33,8 @@
 
 package thredds.server.radarServer2;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import ucar.nc2.constants.FeatureType;
 import ucar.nc2.dt.RadialDatasetSweep;
 import ucar.nc2.ft.FeatureDatasetFactoryManager;
@@ -56,11 +58,22 @@ import java.util.*;
  */
 
 public class RadarDataInventory {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RadarDataInventory.class);
+
     public enum DirType {
         Station, Variable, Date
     }
 
     private static final long updateIntervalMsec = 600000;
+
+    // How long a directory listing is trusted before checking the directory's
+    // modification time again
+    private static final long defaultRecheckMsec = 30000;
+
+    // Bound on the number of files held in the file indexes; the least
+    // recently used leaf directories are dropped and listed again when needed
+    private static final long defaultMaxIndexedFiles = 2000000;
+
     private EnumMap<DirType, Set<String>> items;
     private Path collectionDir;
     private DirectoryStructure structure;
@@ -70,12 +83,21 @@ public class RadarDataInventory {
     private CalendarDate lastUpdate;
     private int maxCrawlItems;
     private StationList stations;
+    private DirNode root;
+    private Cache<Path, FileIndex> fileIndexes;
     private CalendarPeriod nearestWindow, rangeAdjustment;
     private String name, description;
     private DateRange timeCoverage;
     private RadarServerConfig.RadarConfigEntry.GeoInfo geoCoverage;
+    private final long recheckMsec;
 
     public RadarDataInventory(Path datasetRoot, int numCrawl) {
+        this(datasetRoot, numCrawl, defaultMaxIndexedFiles, defaultRecheckMsec);
+    }
+
+    // for testing
+    RadarDataInventory(Path datasetRoot, int numCrawl, long maxIndexedFiles, long recheckMsec) {
+        this.recheckMsec = recheckMsec;
         items = new EnumMap<>(DirType.class);
         collectionDir = datasetRoot;
         structure = new DirectoryStructure(collectionDir);
@@ -83,6 +105,10 @@ public class RadarDataInventory {
         maxCrawlItems = numCrawl;
         stations = new StationList();
         nearestWindow = CalendarPeriod.of(1, CalendarPeriod.Field.Hour);
+        fileIndexes = CacheBuilder.newBuilder()
+                .maximumWeight(maxIndexedFiles)
+                .weigher((Path p, FileIndex fi) -> fi.times.length + 1)
+                .build();
     }
 
     public Path getCollectionDir()
@@ -166,42 +192,6 @@ public class RadarDataInventory {
             }
         }
 
-        private class DirectoryDateMatcher {
-            // Map a directory level to a date format
-            List<Integer> levels;
-            String fmt;
-
-            public DirectoryDateMatcher() {
-                levels = new ArrayList<>(4);
-                fmt = "";
-            }
-
-            public void add(int level, String value) {
-                levels.add(level);
-                fmt += value;
-            }
-
-            public SimpleDateFormat getFormat() {
-                SimpleDateFormat sdf = new SimpleDateFormat(fmt);
-                sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-                return sdf;
-            }
-
-            public Date getDate(Path path) {
-                Path relPath = base.relativize(path);
-                StringBuilder sb = new StringBuilder("");
-                for (Integer l: levels) {
-                    sb.append(relPath.getName(l));
-                }
-                try {
-                    SimpleDateFormat fmt = getFormat();
-                    return fmt.parse(sb.toString());
-                } catch (ParseException e) {
-                    return null;
-                }
-            }
-        }
-
         private Path base;
 
         private List<DirEntry> order;
@@ -231,7 +221,17 @@ public class RadarDataInventory {
             return sb.toString();
         }
 
-        public DirectoryDateMatcher matcher() { return new DirectoryDateMatcher(); }
+        // The date format for the directories at a level: the formats of
+        // all the date directories down to and including that level
+        private String dateFormat(int level) {
+            StringBuilder sb = new StringBuilder("");
+            for (int i = 0; i <= level; ++i) {
+                DirEntry entry = order.get(i);
+                if (entry.type == DirType.Date)
+                    sb.append(entry.fmt);
+            }
+            return sb.toString();
+        }
     }
 
     public void addStationDir() {
@@ -353,7 +353,248 @@ public class RadarDataInventory {
         }
     }
 
-    private void update() {
+    private static SimpleDateFormat makeFormat(String fmt) {
+        SimpleDateFormat sdf = new SimpleDateFormat(fmt);
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return sdf;
+    }
+
+    // Modification time of a directory, or -1 if it cannot be read. If the
+    // directory changed within the last couple of seconds, also return -1
+    // so that the listing made now is not trusted: file systems with a
+    // coarse timestamp could hide another change in the same tick.
+    private static long lastModified(Path dir, long now) {
+        try {
+            long mtime = Files.getLastModifiedTime(dir).toMillis();
+            return (now - mtime < 2000) ? -1 : mtime;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    // A directory above the data files. Its subdirectories are kept in
+    // memory, sorted by name for station/variable levels or by date for date
+    // levels, and are listed again only when the directory's modification
+    // time changes. That is checked at most every recheckMsec.
+    private class DirNode {
+        final Path path;
+        final int level; // position in structure.order of the subdirectories
+        final String dateString; // names of the date directories down to here
+
+        // the subdirectories, replaced as a whole on refresh
+        private volatile Map<String, DirNode> byName = Collections.emptyMap();
+        private List<DirNode> byDate = Collections.emptyList();
+        private CalendarDate[] dates = new CalendarDate[0];
+
+        // only used for children of date levels
+        private CalendarDate date;
+        private long lastModified = -1, lastChecked;
+        private boolean listed;
+
+        DirNode(Path path, int level, String dateString) {
+            this.path = path;
+            this.level = level;
+            this.dateString = dateString;
+        }
+
+        boolean isLeaf() {
+            return level >= structure.order.size();
+        }
+
+        synchronized void refresh() {
+            long now = System.currentTimeMillis();
+            if (listed && now - lastChecked < recheckMsec) return;
+            lastChecked = now;
+            long mtime = lastModified(path, now);
+            if (listed && mtime >= 0 && mtime == lastModified) return;
+            lastModified = mtime;
+            listed = true;
+
+            DirectoryStructure.DirEntry entry = structure.order.get(level);
+            SimpleDateFormat fmt = (entry.type == DirType.Date) ?
+                    makeFormat(structure.dateFormat(level)) : null;
+            Map<String, DirNode> newByName = new TreeMap<>();
+            try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(path)) {
+                for (Path sub : dirStream) {
+                    if (!Files.isDirectory(sub)) continue;
+                    String subName = sub.getFileName().toString();
+                    DirNode child = byName.get(subName);
+                    if (child == null) {
+                        if (fmt == null) {
+                            child = new DirNode(sub, level + 1, dateString);
+                        } else {
+                            child = new DirNode(sub, level + 1, dateString + subName);
+                            try {
+                                child.date = CalendarDate.of(fmt.parse(child.dateString));
+                            } catch (ParseException e) {
+                                continue; // Not part of the collection
+                            }
+                        }
+                    }
+                    newByName.put(subName, child);
+                }
+            } catch (IOException e) {
+                logger.warn("refresh(): Error reading dir: " + path, e);
+            }
+
+            if (fmt != null) {
+                List<DirNode> newByDate = new ArrayList<>(newByName.values());
+                Collections.sort(newByDate, (a, b) -> a.date.compareTo(b.date));
+                CalendarDate[] newDates = new CalendarDate[newByDate.size()];
+                for (int i = 0; i < newDates.length; ++i)
+                    newDates[i] = newByDate.get(i).date;
+                byDate = newByDate;
+                dates = newDates;
+            }
+            byName = newByName;
+        }
+
+        Collection<DirNode> children() {
+            refresh();
+            return byName.values();
+        }
+
+        DirNode child(String subName) {
+            refresh();
+            return byName.get(subName);
+        }
+
+        // Subdirectories of a date level whose date is within range
+        List<DirNode> children(CalendarDateRange range) {
+            refresh();
+            List<DirNode> nodes;
+            CalendarDate[] ds;
+            synchronized (this) { // a consistent pair
+                nodes = byDate;
+                ds = dates;
+            }
+            if (range == null) return nodes;
+            int lo = 0, hi = ds.length;
+            while (lo < hi) { // first date not before the start
+                int mid = (lo + hi) >>> 1;
+                if (ds[mid].isBefore(range.getStart())) lo = mid + 1;
+                else hi = mid;
+            }
+            int last = lo;
+            while (last < ds.length && !ds[last].isAfter(range.getEnd()))
+                ++last;
+            return nodes.subList(lo, last);
+        }
+
+        // The data files in a leaf directory, sorted by time
+        FileIndex files() {
+            long now = System.currentTimeMillis();
+            FileIndex fi = fileIndexes.getIfPresent(path);
+            if (fi != null) {
+                if (now - fi.lastChecked < recheckMsec) return fi;
+                long mtime = lastModified(path, now);
+                if (mtime >= 0 && mtime == fi.lastModified) {
+                    fi.lastChecked = now;
+                    return fi;
+                }
+            }
+            fi = new FileIndex(path, now);
+            fileIndexes.put(path, fi);
+            return fi;
+        }
+    }
+
+    // The data files in one directory with the times parsed from their names,
+    // sorted by time
+    private class FileIndex {
+        final long lastModified;
+        volatile long lastChecked;
+        final long[] times;
+        final Path[] files;
+
+        FileIndex(Path dir, long now) {
+            lastModified = lastModified(dir, now);
+            lastChecked = now;
+
+            List<Path> found = new ArrayList<>();
+            List<Long> foundTimes = new ArrayList<>();
+            SimpleDateFormat fmt = makeFormat(fileTimeFmt);
+            try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dir)) {
+                for (Path f : dirStream) {
+                    java.util.regex.Matcher regexMatcher = fileTimeRegex.matcher(f.toString());
+                    if (!regexMatcher.find()) continue;
+                    try {
+                        Date d = fmt.parse(regexMatcher.group());
+                        found.add(f);
+                        foundTimes.add(d.getTime());
+                    } catch (ParseException e) {
+                        // Ignore file
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("FileIndex(): Error getting files for: " + dir, e);
+            }
+
+            Integer[] order = new Integer[found.size()];
+            for (int i = 0; i < order.length; ++i)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(foundTimes.get(a), foundTimes.get(b)));
+            times = new long[order.length];
+            files = new Path[order.length];
+            for (int i = 0; i < order.length; ++i) {
+                times[i] = foundTimes.get(order[i]);
+                files[i] = found.get(order[i]);
+            }
+        }
+
+        // Add the files with a time in range to results
+        void select(CalendarDateRange range, Collection<Query.QueryResultItem> results, Query query) {
+            int first = 0;
+            long end = Long.MAX_VALUE;
+            if (range != null) {
+                long start = range.getStart().getMillis();
+                end = range.getEnd().getMillis();
+                int hi = times.length;
+                while (first < hi) {
+                    int mid = (first + hi) >>> 1;
+                    if (times[mid] < start) first = mid + 1;
+                    else hi = mid;
+                }
+            }
+            for (int i = first; i < times.length && times[i] <= end; ++i)
+                results.add(query.new QueryResultItem(files[i], CalendarDate.of(times[i])));
+        }
+    }
+
+    // Read the whole directory tree, except for the directories holding the
+    // data files, which are listed when first queried
+    private void buildIndex(DirNode node) {
+        if (node.isLeaf()) return;
+        for (DirNode child : node.children())
+            buildIndex(child);
+    }
+
+    /**
+     * Build the in-memory index of the directories in the collection, so
+     * that the first queries do not have to. After this, changes are picked
+     * up by checking directory modification times as queries come in.
+     */
+    public void buildIndex() {
+        update();
+    }
+
+    /**
+     * @return number of data files currently held in the index
+     */
+    public long getIndexedFileCount() {
+        long count = 0;
+        for (FileIndex fi : fileIndexes.asMap().values())
+            count += fi.times.length;
+        return count;
+    }
+
+    private synchronized void update() {
+        if (dirty) {
+            root = new DirNode(structure.base, 0, "");
+            fileIndexes.invalidateAll();
+            if (!structure.order.isEmpty())
+                buildIndex(root);
+        }
         if (dirty || timeToUpdate()) {
             findItems(structure.base, 0);
             dirty = false;
@@ -440,16 +681,7 @@ public class RadarDataInventory {
             }
         }
 
-        private boolean checkDate(CalendarDateRange range, CalendarDate d) {
-            // Range null indicates no time filter
-            return range == null || range.includes(d);
-        }
-
         public Collection<QueryResultItem> results() {
-            List<Path> results = new ArrayList<>();
-            DirectoryStructure.DirectoryDateMatcher matcher = structure.matcher();
-            results.add(structure.base);
-
             // Grab the range of dates up front
             List<Object> dates = q.get(DirType.Date);
             CalendarDateRange range = (CalendarDateRange) dates.get(0);
@@ -463,74 +695,44 @@ public class RadarDataInventory {
             }
 
             // Loop over each entry in the directory structure and handle
-            // as appropriate. For stn/var we check if the desired item
-            // exists. For dates, add the items that are within the filter
+            // as appropriate, using the in-memory index. For stn/var we look
+            // up the desired item. For dates, binary search for the items
+            // that are within the filter.
+            List<DirNode> results = new ArrayList<>();
+            results.add(root);
             for (int i = 0; i < structure.order.size(); ++i) {
                 DirectoryStructure.DirEntry entry = structure.order.get(i);
-                List<Path> newResults = new ArrayList<>();
+                List<DirNode> newResults = new ArrayList<>();
                 List<Object> queryItem = q.get(entry.type);
                 switch (entry.type) {
-                    // Loop over results and add subdirs that are within the
-                    // appropriate range, which is found by successively adding
-                    // the date format to a matcher string
+                    // The range is truncated to the precision of the date
+                    // format of this level
                     case Date:
-                        matcher.add(i, entry.fmt);
-                        SimpleDateFormat fmt = matcher.getFormat();
+                        SimpleDateFormat fmt = makeFormat(structure.dateFormat(i));
                         CalendarDateRange dirRange = rangeFromFormat(fmt, range);
-
-                        for (Path p : results)
-                            try(DirectoryStream<Path> dirStream = Files.newDirectoryStream(p)) {
-                                for (Path sub : dirStream) {
-                                    Date d = matcher.getDate(sub);
-                                    if (d != null && checkDate(dirRange, CalendarDate.of(d)))
-                                        newResults.add(sub);
-                                }
-                            } catch (IOException e) {
-                                System.out.println("results(): Error reading dir: " + p.toString());
-                            }
+                        for (DirNode node : results)
+                            newResults.addAll(node.children(dirRange));
                         break;
 
-                    // Add to results and prune non-existent
-                    // Add station/var name to matcher string
+                    // Prune non-existent
                     case Station:
                     case Variable:
                     default:
                         for (Object next: queryItem) {
-                            for (Path p : results) {
-                                Path nextPath = p.resolve(next.toString());
-                                if (Files.exists(nextPath))
-                                    newResults.add(nextPath);
+                            for (DirNode node : results) {
+                                DirNode child = node.child(next.toString());
+                                if (child != null)
+                                    newResults.add(child);
                             }
                         }
                 }
                 results = newResults;
             }
 
-            // Now get the contents of the remaining directories
+            // Now get the files in range from the remaining directories
             Collection<QueryResultItem> filteredFiles = new ArrayList<>();
-            for(Path p : results) {
-                try(DirectoryStream<Path> dirStream = Files.newDirectoryStream(p)) {
-                    for (Path f: dirStream) {
-                        java.util.regex.Matcher regexMatcher = fileTimeRegex.matcher(f.toString());
-                        if (!regexMatcher.find()) continue;
-
-                        try {
-                            SimpleDateFormat fmt = new SimpleDateFormat(fileTimeFmt);
-                            fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
-                            Date d = fmt.parse(regexMatcher.group());
-                            if (d != null) {
-                                CalendarDate cd = CalendarDate.of(d);
-                                if (checkDate(range, cd))
-                                    filteredFiles.add(new QueryResultItem(f, cd));
-                            }
-                        } catch (ParseException e) {
-                            // Ignore file
-                        }
-                    }
-                } catch (IOException e) {
-                    System.out.println("results(): Error getting files for: " + p.toString());
-                }
-            }
+            for (DirNode node : results)
+                node.files().select(range, filteredFiles, this);
 
             // If only looking for nearest, perform that reduction now
             CalendarDateRange originalRange = (CalendarDateRange) dates.get(0);
@@ -127,6 +127,7 @@ public class RadarServerController {
                         }
                         e.pw.printf("Collection Dir: %s%n", di.getCollectionDir().toString());
                         e.pw.printf("Last Update: %s%n", di.getLastUpdate());
+                        e.pw.printf("Indexed files: %d%n", di.getIndexedFileCount());
                         e.pw.println("Dates:");
                         for (String item : di.listItems(RadarDataInventory.DirType.Date)) {
                             e.pw.println("\t" + item);
@@ -190,6 +191,7 @@ public class RadarServerController {
             vars.put(conf.urlPath, conf.vars);
             StationList sl = di.getStationList();
             sl.loadFromXmlFile(contentPath + "/" + conf.stationFile);
+            di.buildIndex();
         }
     }
 
@@ -197,15 +197,9 @@ public class WcsCoverage {
         if (log.isDebugEnabled())
           log.debug("writeCoverageDataToFile(): tifFile=" + tifFile.getPath());
 
-        //GridCoverage subset = this.coverage.makeSubset(tRange, zRange, bboxLatLonRect, 1, 1, 1);  // LOOK do you need to subset it?
-        GeoReferencedArray array = coverage.readData(params);
-
+        // read and write it a row of tiles at a time; subset and write errors are reported below, like NetCDF3
         try (GeotiffWriter writer = new GeotiffWriter(tifFile.getPath())) {
-          writer.writeGrid(array, format == Request.Format.GeoTIFF);
-
-        } catch (Throwable e) {
-          log.error("writeCoverageDataToFile(): Failed to write file for requested coverage <" + this.coverage.getName() + ">: ", e);
-          throw new WcsException(WcsException.Code.UNKNOWN, "", "Problem creating coverage [" + this.coverage.getName() + "].");
+          writer.writeGridTiled(coverage, params, format == Request.Format.GeoTIFF);
         }
 
         return tifFile;
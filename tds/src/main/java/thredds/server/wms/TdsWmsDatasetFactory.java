@@ -18,9 +18,9 @@ import ucar.nc2.dataset.NetcdfDataset;
  */
 public class TdsWmsDatasetFactory extends CdmGridDatasetFactory {
 
-    private NetcdfDataset netcdfDataset;
+    private final NetcdfDataset netcdfDataset;
 
-    public void setNetcdfDataset(NetcdfDataset ncd) {
+    public TdsWmsDatasetFactory(NetcdfDataset ncd) {
         this.netcdfDataset = ncd;
     }
 
@@ -70,37 +70,27 @@ import ucar.nc2.dataset.NetcdfDataset;
  * This {@link WmsCatalogue} provides access to a SINGLE dataset. As such, each
  * different dataset requested will have a new instance of this class.
  *
- * NB - No caching is implemented in this {@link WmsCatalogue}. I would
- * recommend a cache which is shared amongst all {@link WmsCatalogue}s, passed
- * in on object construction, and which performs the caching/retrieval in the
- * {@link WmsCatalogue#getFeaturesForLayer(String, PlottingDomainParams)}
- * method. The cache keys will be a pair of the layerName and the
- * {@link PlottingDomainParams}, and the cached values will be
- * {@link Collection}s of {@link DiscreteFeature}s.
+ * Catalogues, and optionally the rendered GetMap images, are cached by
+ * {@link WmsCache}.
  *
  * @author Guy Griffiths
  */
 public class ThreddsWmsCatalogue implements WmsCatalogue {
     /*
-     * I have declared this as static to be shared between all instances of this
-     * class.
+     * One per catalogue: the factory hands its NetcdfDataset to EDAL, and a
+     * shared (static) factory let concurrent requests for different datasets
+     * swap each other's NetcdfDataset.
      * 
-     * However, it *may* be the case that non-gridded datasets need to be
-     * supported in TDS, in which case a different DatasetFactory may be needed
-     * per dataset type. Currently in EDAL we have:
+     * If non-gridded datasets need to be supported in TDS, a different
+     * DatasetFactory may be needed per dataset type. Currently in EDAL we have:
      * 
      * The CdmGridDatasetFactory which uses the Unidata CDM to load gridded
      * NetCDF data into the EDAL data model
      * 
      * The En3DatasetFactory which uses the Unidata CDM to load the EN3 and EN4
      * NetCDF in-situ datasets into the EDAL data model
-     * 
-     * If only gridded datasets will be used, then this is fine. However, for
-     * maximum flexibility and easy integration of possible future
-     * DatasetFactory types, it may be better off being passed into this
-     * catalogue.
      */
-    static TdsWmsDatasetFactory datasetFactory = new TdsWmsDatasetFactory();
+    private final TdsWmsDatasetFactory datasetFactory;
 
     /*
      * The Dataset associated with this catalogue
@@ -123,7 +113,7 @@ public class ThreddsWmsCatalogue implements WmsCatalogue {
         // overrides the getNetcdfDatasetFromLocation method from CdmGridDatasetFactory to take
         // the NetcdfDataset directly. However, createDataset's signature does not take a NetcdfDataset,
         // so we need to make it available to TdsWmsDatasetFactory to use.
-        datasetFactory.setNetcdfDataset(ncd);
+        datasetFactory = new TdsWmsDatasetFactory(ncd);
 
         // set dataset title
         Attribute datasetTitleAttr;
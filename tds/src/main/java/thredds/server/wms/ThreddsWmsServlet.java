@@ -33,30 +33,34 @@ import uk.ac.rdg.resc.edal.wms.RequestParams;
 import uk.ac.rdg.resc.edal.wms.WmsCatalogue;
 import uk.ac.rdg.resc.edal.wms.WmsServlet;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import thredds.core.TdsRequestedDataset;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.dataset.NetcdfDataset;
 
 /**
- * An example {@link WmsServlet} which uses the THREDDS catalogue to supply
+ * A {@link WmsServlet} which uses the THREDDS catalogue to supply
  * data.
  * 
- * This is example is well commented and demonstrates how to properly integrate
- * the EDAL WMS into the THREDDS catalogue. It doesn't show how to implement
- * caching, or WMS-specific configuration, but these things are recommended in
- * the final version.
+ * There is one WmsCatalogue per dataset, kept in the {@link WmsCache}
+ * along with the open dataset. If the tile cache is turned on, GetMap
+ * images are also cached there, so that clients panning and zooming over
+ * the same dataset (eg Godiva3) mostly do not re-extract the data.
  *
  * @author Guy Griffiths
  */
 @SuppressWarnings("serial")
 public class ThreddsWmsServlet extends WmsServlet {
-    private Map<String, WmsCatalogue> catalogueCache = new HashMap<>();
 
     @Override
     protected void dispatchWmsRequest(String request, RequestParams params,
@@ -66,9 +70,9 @@ public class ThreddsWmsServlet extends WmsServlet {
          * The super implementation of this gets called with a servlet-wide
          * catalogue, which "should" have been injected with the
          * WmsServlet.setCatalogue() method. Since we want one catalogue per
-         * dataset, we never call setCatalogue(), but instead we generate a
-         * WmsCatalogue (or more likely in a final version, retrieve a cached
-         * one) on each request, and pass that to the super implementation.
+         * dataset, we never call setCatalogue(), but instead we retrieve a
+         * cached one (or generate a new one) on each request, and pass that
+         * to the super implementation.
          */
 
         /*
@@ -76,40 +80,154 @@ public class ThreddsWmsServlet extends WmsServlet {
          */
         // Look - is setting this to null the right thing to do??
         String removePrefix = null;
-        TdsRequestedDataset tdsDataset = new TdsRequestedDataset(httpServletRequest, removePrefix);
-        if(catalogueCache.containsKey(tdsDataset.getPath())) {
-            catalogue = catalogueCache.get(tdsDataset.getPath());
-        } else {
-            NetcdfFile ncf = tdsDataset.getNetcdfFile(httpServletRequest, httpServletResponse,
-                    tdsDataset.getPath());
-
-            String netcdfFilePath = ncf.getLocation();
-    
-            /*
-             * Generate a new catalogue for the given dataset
-             * 
-             * In the full system, we should keep a cache of these
-             * ThreddsWmsCatalogues, but in this example we just create each new one
-             * on the fly.
-             * 
-             * If a feature cache is required on the WMS (a Good Idea), I recommend
-             * a single cache in this servlet which gets passed to each WmsCatalogue
-             * upon construction (i.e. HERE). That's a TDS implementation detail
-             * though, hence not in this example.
-             */
-            if (netcdfFilePath == null) {
+        final TdsRequestedDataset tdsDataset = new TdsRequestedDataset(httpServletRequest, removePrefix);
+        final String path = tdsDataset.getPath();
+        long lastModified = -1;
+        String collectionName = null;
+        if (!tdsDataset.isRemote()) {
+            lastModified = TdsRequestedDataset.getLastModified(path);
+            collectionName = TdsRequestedDataset.getFeatureCollectionName(path);
+        }
+
+        final String fcName = collectionName;
+        WmsCache.Entry entry = WmsCache.acquire(path, lastModified, () -> {
+            NetcdfFile ncf = tdsDataset.openAsNetcdfFile(httpServletRequest, httpServletResponse);
+            if (ncf == null) return null; // request has been handled
+
+            if (ncf.getLocation() == null) {
+                ncf.close();
                 throw new EdalLayerNotFoundException(
                         "The requested dataset is not available on this server");
             }
-            catalogue = new ThreddsWmsCatalogue((NetcdfDataset) ncf, tdsDataset.getPath());
-            catalogueCache.put(tdsDataset.getPath(), catalogue);
+            try {
+                return new WmsCache.Entry(path, fcName, new ThreddsWmsCatalogue((NetcdfDataset) ncf, path), ncf);
+            } catch (Exception e) {
+                ncf.close();
+                throw e;
+            }
+        });
+        if (entry == null) return;
+
+        try {
+            // a cached catalogue skips the open, so do the access check here
+            if (!tdsDataset.isRemote() && !TdsRequestedDataset.resourceControlOk(httpServletRequest, httpServletResponse, path))
+                return;
+
+            /*
+             * Now that we've got a WmsCatalogue, we can pass this request to the
+             * super implementation which will handle things from here.
+             */
+            if (!"GetMap".equalsIgnoreCase(request) || !WmsCache.isTileCacheEnabled()) {
+                super.dispatchWmsRequest(request, params, httpServletRequest, httpServletResponse,
+                        entry.getCatalogue());
+                return;
+            }
+
+            String key = WmsCache.makeTileKey(entry, httpServletRequest.getParameterMap());
+            WmsCache.Tile tile = WmsCache.getTile(key);
+            if (tile == null) {
+                BufferedResponse buffered = new BufferedResponse(httpServletResponse);
+                super.dispatchWmsRequest(request, params, httpServletRequest, buffered, entry.getCatalogue());
+                if (buffered.errorSent) return;
+                byte[] bytes = buffered.getBytes();
+                String contentType = buffered.getContentType();
+                // exceptions come back as XML, often with status 200
+                if (buffered.status == HttpServletResponse.SC_OK && contentType != null && contentType.startsWith("image/"))
+                    WmsCache.putTile(key, contentType, bytes);
+                httpServletResponse.setContentLength(bytes.length);
+                httpServletResponse.getOutputStream().write(bytes);
+                return;
+            }
+
+            httpServletResponse.setContentType(tile.contentType);
+            httpServletResponse.setContentLength(tile.bytes.length);
+            httpServletResponse.getOutputStream().write(tile.bytes);
+
+        } finally {
+            WmsCache.release(entry);
         }
+    }
 
-        /*
-         * Now that we've got a WmsCatalogue, we can pass this request to the
-         * super implementation which will handle things from here.
-         */
-        super.dispatchWmsRequest(request, params, httpServletRequest, httpServletResponse,
-                catalogue);
+    // Hold the response body in memory, so a GetMap image can be cached before it is sent
+    private static class BufferedResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(50 * 1000);
+        private ServletOutputStream out;
+        private PrintWriter writer;
+        private int status = SC_OK;
+        private boolean errorSent;
+
+        BufferedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        byte[] getBytes() {
+            if (writer != null) writer.flush();
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            status = sc;
+            super.setStatus(sc);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            status = sc;
+            errorSent = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            status = sc;
+            errorSent = true;
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            // set on the real response once the size is known
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (out == null) {
+                out = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        bytes.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        bytes.write(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null)
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() {
+            // nothing is sent until the request is done
+        }
     }
 }
@@ -0,0 +1,262 @@
+package thredds.server.wms;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.eventbus.Subscribe;
+import thredds.inventory.CollectionUpdateEvent;
+import ucar.nc2.NetcdfFile;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * (c) 1998-2016 University Corporation for Atmospheric Research/Unidata
+ */
+
+/**
+ * Caches for the WMS servlet, shared by all requests.
+ * <ol>
+ *   <li>ThreddsWmsCatalogues, keyed by dataset path. An entry is dropped when the least recently used of more than
+ *   maxDatasets, when older than maxAge, when the dataset file's last modified time changes, or when a
+ *   CollectionUpdateEvent arrives for the feature collection it belongs to.</li>
+ *   <li>Optionally, rendered GetMap images, keyed by the catalogue entry and all of the request parameters
+ *   (layers, bbox, width, height, styles, time, elevation, palette, ...). These go away with their catalogue entry.</li>
+ * </ol>
+ * An entry holds an open NetcdfDataset; it is closed after the entry is dropped and the last request using it
+ * has called release().
+ */
+public class WmsCache {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(WmsCache.class);
+  static private final AtomicLong generation = new AtomicLong();
+
+  static private Cache<String, Entry> catalogues;
+  static private Cache<String, Tile> tiles; // null means off
+  static private long maxTileBytes;
+
+  static {
+    init(100, 10 * 60, 0);
+  }
+
+  /**
+   * Set up the caches, dropping anything already cached.
+   *
+   * @param maxDatasets  maximum number of catalogues to keep
+   * @param maxAgeSecs   reopen a dataset after this many seconds
+   * @param maxTileBytes maximum total size of cached GetMap images, 0 to not cache them
+   */
+  static public synchronized void init(int maxDatasets, int maxAgeSecs, long maxTileBytes) {
+    if (catalogues != null) catalogues.invalidateAll();
+    if (tiles != null) tiles.invalidateAll();
+
+    catalogues = CacheBuilder.newBuilder()
+            .maximumSize(maxDatasets)
+            .expireAfterWrite(maxAgeSecs, TimeUnit.SECONDS)
+            .recordStats()
+            .removalListener((RemovalListener<String, Entry>) removal -> removal.getValue().evict())
+            .build();
+
+    WmsCache.maxTileBytes = maxTileBytes;
+    tiles = (maxTileBytes <= 0) ? null : CacheBuilder.newBuilder()
+            .maximumWeight(maxTileBytes)
+            .weigher((String key, Tile tile) -> tile.bytes.length)
+            .expireAfterWrite(maxAgeSecs, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+  }
+
+  /** Used to make a catalogue on a cache miss */
+  public interface CatalogueFactory {
+    /** @return the new entry, or null if the request has already been handled (eg not found, or not authorized) */
+    Entry make() throws Exception;
+  }
+
+  /**
+   * Get a catalogue, making it if it is not cached or if the dataset has changed.
+   * Call release() on the result when the request is done.
+   *
+   * @param path         dataset path
+   * @param lastModified current last modified time of the dataset file, or -1 if not known
+   * @param factory      make the catalogue if needed
+   * @return the entry, or null if the factory returned null
+   */
+  static public Entry acquire(String path, long lastModified, CatalogueFactory factory) throws Exception {
+    Cache<String, Entry> c = catalogues;
+    while (true) {
+      Entry entry = c.getIfPresent(path);
+      if (entry != null && entry.lastModified != lastModified) {
+        c.asMap().remove(path, entry);
+        entry = null;
+      }
+      if (entry == null) {
+        entry = factory.make();
+        if (entry == null) return null;
+        entry.lastModified = lastModified;
+        Entry prev = c.asMap().putIfAbsent(path, entry);
+        if (prev != null) { // someone else got there first
+          entry.evict();
+          entry = prev;
+        }
+      }
+      if (entry.retain())
+        return entry;
+      // it was closed between the get and the retain; try again
+    }
+  }
+
+  static public void release(Entry entry) {
+    if (entry != null) entry.release();
+  }
+
+  /** Drop the catalogue for one dataset path, and its tiles */
+  static public void invalidate(String path) {
+    catalogues.invalidate(path);
+  }
+
+  /** Drop the catalogues (and their tiles) of all datasets belonging to the named feature collection */
+  static public void invalidateCollection(String collectionName) {
+    for (Entry entry : catalogues.asMap().values()) {
+      if (collectionName.equals(entry.collectionName))
+        catalogues.asMap().remove(entry.path, entry);
+    }
+  }
+
+  static public void clearCache() {
+    catalogues.invalidateAll();
+    if (tiles != null) tiles.invalidateAll();
+  }
+
+  static public boolean isTileCacheEnabled() {
+    return tiles != null;
+  }
+
+  /**
+   * Make the key for a GetMap image.
+   *
+   * @param entry  the catalogue entry that made it
+   * @param params request parameters; names are case-insensitive
+   * @return key for getTile() and putTile()
+   */
+  static public String makeTileKey(Entry entry, Map<String, String[]> params) {
+    Map<String, String> sorted = new TreeMap<>();
+    for (Map.Entry<String, String[]> param : params.entrySet())
+      sorted.put(param.getKey().toLowerCase(), Arrays.toString(param.getValue()));
+    return entry.tilePrefix + sorted;
+  }
+
+  /** @return cached image, or null */
+  static public Tile getTile(String key) {
+    Cache<String, Tile> c = tiles;
+    return (c == null) ? null : c.getIfPresent(key);
+  }
+
+  static public void putTile(String key, String contentType, byte[] bytes) {
+    Cache<String, Tile> c = tiles;
+    if (c == null || bytes.length > maxTileBytes / 10) return; // dont let a huge image push out everything else
+    c.put(key, new Tile(contentType, bytes));
+  }
+
+  static public void showCache(Formatter f) {
+    Cache<String, Entry> c = catalogues;
+    CacheStats stats = c.stats();
+    f.format("%nWmsCache: %d catalogues%n", c.size());
+    f.format("  hits= %d miss= %d hitRate= %.3f evictions= %d%n", stats.hitCount(), stats.missCount(),
+            stats.hitRate(), stats.evictionCount());
+    Cache<String, Tile> t = tiles;
+    if (t == null) {
+      f.format("  GetMap tiles: turned off%n");
+      return;
+    }
+    long bytes = 0;
+    for (Tile tile : t.asMap().values())
+      bytes += tile.bytes.length;
+    stats = t.stats();
+    f.format("  GetMap tiles: %d, %d / %d Kbytes%n", t.size(), bytes / 1000, maxTileBytes / 1000);
+    f.format("  hits= %d miss= %d hitRate= %.3f evictions= %d%n", stats.hitCount(), stats.missCount(),
+            stats.hitRate(), stats.evictionCount());
+  }
+
+  ////////////////////////////////////////////////////////////////////////
+
+  /** Register with the feature collection event bus, to drop catalogues when a collection is updated */
+  static public class CollectionListener {
+    @Subscribe
+    public void processEvent(CollectionUpdateEvent event) {
+      invalidateCollection(event.getCollectionName());
+    }
+  }
+
+  static public class Tile {
+    public final String contentType;
+    public final byte[] bytes;
+
+    Tile(String contentType, byte[] bytes) {
+      this.contentType = contentType;
+      this.bytes = bytes;
+    }
+  }
+
+  /** A cached catalogue and the dataset it was made from */
+  static public class Entry {
+    private final String path;
+    private final String collectionName;
+    private final ThreddsWmsCatalogue catalogue;
+    private final NetcdfFile ncfile;
+    private final String tilePrefix;
+    private long lastModified;
+    private int users;
+    private boolean evicted, closed;
+
+    /**
+     * @param path           dataset path
+     * @param collectionName feature collection the dataset belongs to, or null
+     * @param catalogue      the catalogue
+     * @param ncfile         the dataset used by the catalogue, closed when the entry is done
+     */
+    public Entry(String path, String collectionName, ThreddsWmsCatalogue catalogue, NetcdfFile ncfile) {
+      this.path = path;
+      this.collectionName = collectionName;
+      this.catalogue = catalogue;
+      this.ncfile = ncfile;
+      this.tilePrefix = path + "#" + generation.incrementAndGet();
+    }
+
+    public ThreddsWmsCatalogue getCatalogue() {
+      return catalogue;
+    }
+
+    private synchronized boolean retain() {
+      if (closed) return false;
+      users++;
+      return true;
+    }
+
+    private synchronized void release() {
+      users--;
+      if (evicted && users == 0) close();
+    }
+
+    private synchronized void evict() {
+      evicted = true;
+      if (users == 0) close();
+    }
+
+    private void close() {
+      if (closed) return;
+      closed = true;
+      Cache<String, Tile> t = tiles;
+      if (t != null) t.asMap().keySet().removeIf(key -> key.startsWith(tilePrefix + "{"));
+      try {
+        ncfile.close();
+      } catch (IOException ioe) {
+        logger.warn("WmsCache close failed on " + path, ioe);
+      }
+    }
+  }
+}
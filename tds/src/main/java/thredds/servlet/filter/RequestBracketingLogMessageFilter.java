@@ -35,14 +35,21 @@ package thredds.servlet.filter;
 
 import org.slf4j.MDC;
 import thredds.servlet.UsageLog;
+import ucar.nc2.util.Metrics;
+import ucar.nc2.util.RequestTrace;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
- * Wraps a request with the UsageLog.setup and UsageLog.closing log messages
+ * Wraps a request with the UsageLog.setup and UsageLog.closing log messages.
+ * If the request has an X-Thredds-Trace header, or tracing is turned on for all requests from the admin debug page,
+ * a RequestTrace summary of where the time went is also logged, just before the closing message.
  *
  * @author edavis
  * @since 4.1
@@ -51,6 +58,28 @@ public class RequestBracketingLogMessageFilter implements javax.servlet.Filter {
 
   private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger("threddsServlet");
 
+  static public final String TRACE_HEADER = "X-Thredds-Trace";
+  static private volatile boolean traceAll = false;
+
+  static public void setTraceAll(boolean b) {
+    traceAll = b;
+  }
+
+  static public boolean isTraceAll() {
+    return traceAll;
+  }
+
+  // first path segment -> service label; anything else is "other", to keep the number of series bounded
+  static private final Set<String> services = new HashSet<>(Arrays.asList("admin", "catalog", "cdmremote", "cdmrfeature",
+          "dap4", "dodsC", "fileServer", "iso", "ncml", "ncss", "radarServer", "remoteCatalogService", "uddc", "wcs", "wms"));
+
+  static private final Metrics.Family<Metrics.Histogram> requestTime =
+          Metrics.histogram("tds_request_seconds", "Time to handle a request, by service", "service");
+  static private final Metrics.Family<Metrics.Counter> responseBytes =
+          Metrics.counter("tds_response_bytes_total", "Response body bytes, by service", "service");
+  static private final Metrics.Family<Metrics.Counter> responses =
+          Metrics.counter("tds_responses_total", "Responses by service and status class", "service", "status");
+
   public void init(FilterConfig filterConfig) throws ServletException {
   }
 
@@ -78,10 +107,43 @@ public class RequestBracketingLogMessageFilter implements javax.servlet.Filter {
     // Initial setup
     log.info(UsageLog.setupRequestContext(request));
 
-    filterChain.doFilter(request, response);
+    RequestTrace trace = (traceAll || request.getHeader(TRACE_HEADER) != null) ? RequestTrace.start(MDC.get("ID")) : null;
+    long start = System.nanoTime();
+    boolean ok = false;
+    try {
+      filterChain.doFilter(request, response);
+      ok = true;
+    } finally {
+      if (trace != null) {
+        RequestTrace.finish();
+        log.info(trace.toString());
+      }
+      // also count requests that threw, which the container turns into a 500
+      record(request, response, ok ? response.getHttpStatusCode() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR, start);
+    }
 
     log.info(UsageLog.closingMessageForRequestContext(response.getHttpStatusCode(), response.getHttpResponseBodyLength()));
     MDC.clear();
   }
 
+  private void record(HttpServletRequest request, TdsServletResponseWrapper response, int status, long start) {
+    String service = getService(request);
+    requestTime.labels(service).observeNanos(System.nanoTime() - start);
+    if (response.getHttpResponseBodyLength() > 0)
+      responseBytes.labels(service).inc(response.getHttpResponseBodyLength());
+    responses.labels(service, (status / 100) + "xx").inc();
+  }
+
+  static String getService(HttpServletRequest request) {
+    String path = request.getRequestURI();
+    String context = request.getContextPath();
+    if (path == null) return "other";
+    if (context != null && path.startsWith(context))
+      path = path.substring(context.length());
+    int start = path.startsWith("/") ? 1 : 0;
+    int end = path.indexOf('/', start);
+    String first = (end < 0) ? path.substring(start) : path.substring(start, end);
+    return services.contains(first) ? first : "other";
+  }
+
 }
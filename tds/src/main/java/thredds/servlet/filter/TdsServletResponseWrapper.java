@@ -33,6 +33,10 @@
 
 package thredds.servlet.filter;
 
+import ucar.nc2.util.RequestTrace;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
@@ -49,6 +53,7 @@ public class TdsServletResponseWrapper extends HttpServletResponseWrapper {
 
   private int httpStatusCode = 200;
   private long httpResponseBodyLength = -1;
+  private ServletOutputStream tracedOutputStream;
 
   public TdsServletResponseWrapper(HttpServletResponse response) {
     super(response);
@@ -105,4 +110,58 @@ public class TdsServletResponseWrapper extends HttpServletResponseWrapper {
     this.setHttpResponseBodyLength(len);
     super.setContentLength(len);
   }
+
+  // when the request is being traced, time spent writing the response body is a "response.write" span
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (!RequestTrace.isActive())
+      return super.getOutputStream();
+    if (tracedOutputStream == null)
+      tracedOutputStream = new TracedOutputStream(super.getOutputStream());
+    return tracedOutputStream;
+  }
+
+  private static class TracedOutputStream extends ServletOutputStream {
+    private final ServletOutputStream out;
+
+    TracedOutputStream(ServletOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      try (RequestTrace.Span span = RequestTrace.span("response.write")) {
+        out.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      try (RequestTrace.Span span = RequestTrace.span("response.write")) {
+        out.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      try (RequestTrace.Span span = RequestTrace.span("response.write")) {
+        out.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      out.setWriteListener(writeListener);
+    }
+  }
 }
@@ -0,0 +1,87 @@
+package thredds.server.ncss.view.dsg;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.unidata.util.Format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TextBlockWriter.appendFixed() against Format.dfrac(), and UTF-8 encoding across block boundaries.
+ */
+public class TestTextBlockWriter {
+    private static final double[] VALUES = {
+            0.0, -0.0, 1.0, -1.5, 0.1, 2.0 / 3.0, 123.456789, -98765.4321, 1234567.0, 9999999.99,
+            1.0e7, 1.0e-3, 9.99e-4, 1.0e-5, -2.5e-10, 1.23456789e10, 6.02214076e23, 1.0e300,
+            Double.MAX_VALUE, Double.MIN_VALUE, -Double.MIN_NORMAL,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    @Test
+    public void testAppendFixedSameAsDfrac() {
+        for (double d : VALUES) {
+            for (int decimals : new int[] {0, 1, 2, 3, 6, 20}) {
+                StringBuilder sb = new StringBuilder("prefix,");
+                TextBlockWriter.appendFixed(sb, d, decimals);
+                Assert.assertEquals(d + " decimals=" + decimals, "prefix," + Format.dfrac(d, decimals), sb.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testAppendFixedFloats() {
+        // the CSV writers pass floats widened to double
+        for (float f : new float[] {0.1f, 33.333f, -105.25f, 1.0e-7f, 3.4e38f, Float.NaN}) {
+            for (int decimals : new int[] {0, 2, 4}) {
+                StringBuilder sb = new StringBuilder();
+                TextBlockWriter.appendFixed(sb, f, decimals);
+                Assert.assertEquals(f + " decimals=" + decimals, Format.dfrac(f, decimals), sb.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testSurrogatePairSplitAcrossBlocks() throws IOException {
+        // U+1F600 and U+10400 are surrogate pairs in a String
+        String text = "ab😀cé𐐀😀d€";
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+
+        // every block size puts a block end between the two chars of some pair
+        for (int blockSize = 1; blockSize <= text.length() + 1; blockSize++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (TextBlockWriter writer = new TextBlockWriter(out, blockSize)) {
+                for (int i = 0; i < text.length(); i++)
+                    writer.write(text.charAt(i));
+            }
+            Assert.assertArrayEquals("blockSize=" + blockSize, expected, out.toByteArray());
+
+            // also flushing after every char
+            out = new ByteArrayOutputStream();
+            try (TextBlockWriter writer = new TextBlockWriter(out, blockSize)) {
+                for (int i = 0; i < text.length(); i++) {
+                    writer.write(text.charAt(i));
+                    writer.flush();
+                }
+            }
+            Assert.assertArrayEquals("flush blockSize=" + blockSize, expected, out.toByteArray());
+        }
+    }
+
+    @Test
+    public void testBufferAndNewline() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+        try (TextBlockWriter writer = new TextBlockWriter(out, 16)) {
+            for (int row = 0; row < 100; row++) {
+                writer.getBuffer().append("row").append(row).append(",😀,");
+                TextBlockWriter.appendFixed(writer.getBuffer(), row / 7.0, 3);
+                writer.newline();
+                expected.append("row").append(row).append(",😀,").append(Format.dfrac(row / 7.0, 3))
+                        .append(System.lineSeparator());
+            }
+        }
+        Assert.assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,137 @@
+package thredds.server.radarServer2;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateRange;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Query a radar collection laid out as station/yyyyMM/dd/files in a temporary directory,
+ * through the in-memory directory index and the bounded cache of file listings.
+ */
+public class TestRadarDataInventory {
+  static private final String[] STATIONS = {"KFTG", "KCYS"};
+  static private final String[] DAYS = {"20150130", "20150131", "20150201"};
+  static private final String[] TIMES = {"0000", "0600", "1200", "1800"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testQuery() throws IOException {
+    RadarDataInventory inv = makeInventory(100, 0);
+    Assert.assertEquals(2, inv.listItems(RadarDataInventory.DirType.Station).size());
+
+    // across a month directory, in time order
+    List<String> files = query(inv, "KFTG", "2015-01-31T06:00:00Z", "2015-02-01T06:00:00Z");
+    Assert.assertEquals(expected("KFTG", "20150131_0600", "20150131_1200", "20150131_1800", "20150201_0000",
+            "20150201_0600"), files);
+
+    Assert.assertEquals(0, query(inv, "KXXX", "2015-01-30T00:00:00Z", "2015-02-01T18:00:00Z").size());
+    Assert.assertEquals(0, query(inv, "KCYS", "2015-03-01T00:00:00Z", "2015-03-02T00:00:00Z").size());
+  }
+
+  @Test
+  public void testNearest() throws IOException {
+    RadarDataInventory inv = makeInventory(100, 0);
+    Assert.assertEquals(expected("KCYS", "20150131_1200"), query(inv, "KCYS", "2015-01-31T12:20:00Z", null));
+  }
+
+  @Test
+  public void testNewFiles() throws IOException {
+    // with no recheck interval, new files and directories are seen by the next query
+    RadarDataInventory inv = makeInventory(100, 0);
+    Assert.assertEquals(4, query(inv, "KFTG", "2015-02-01T00:00:00Z", "2015-02-02T23:59:00Z").size());
+
+    addFile("KFTG", "20150201", "2100");
+    addFile("KFTG", "20150202", "0300");
+    Assert.assertEquals(6, query(inv, "KFTG", "2015-02-01T00:00:00Z", "2015-02-02T23:59:00Z").size());
+  }
+
+  @Test
+  public void testRecheckInterval() throws IOException {
+    // with a long recheck interval, the listings made by the first query are used
+    RadarDataInventory inv = makeInventory(100, 60 * 60 * 1000);
+    Assert.assertEquals(4, query(inv, "KFTG", "2015-02-01T00:00:00Z", "2015-02-01T23:59:00Z").size());
+    addFile("KFTG", "20150201", "2100");
+    Assert.assertEquals(4, query(inv, "KFTG", "2015-02-01T00:00:00Z", "2015-02-01T23:59:00Z").size());
+  }
+
+  @Test
+  public void testIndexBound() throws IOException {
+    // each day directory weighs 5, so only two of them fit
+    RadarDataInventory inv = makeInventory(10, 0);
+    Assert.assertEquals(0, inv.getIndexedFileCount());
+
+    for (int i = 0; i < 3; i++) {
+      for (String stn : STATIONS) {
+        List<String> files = query(inv, stn, "2015-01-30T00:00:00Z", "2015-02-01T23:59:00Z");
+        Assert.assertEquals(DAYS.length * TIMES.length, files.size());
+        Assert.assertTrue(inv.getIndexedFileCount() <= 2 * TIMES.length);
+      }
+    }
+
+    RadarDataInventory big = makeInventory(100, 0);
+    query(big, "KFTG", "2015-01-30T00:00:00Z", "2015-02-01T23:59:00Z");
+    Assert.assertEquals(DAYS.length * TIMES.length, big.getIndexedFileCount());
+  }
+
+  private RadarDataInventory makeInventory(long maxIndexedFiles, long recheckMsec) throws IOException {
+    for (String stn : STATIONS)
+      for (String day : DAYS)
+        for (String time : TIMES)
+          addFile(stn, day, time);
+    Files.createDirectories(tempFolder.getRoot().toPath().resolve("KFTG").resolve("notadate"));
+
+    RadarDataInventory inv = new RadarDataInventory(tempFolder.getRoot().toPath(), 10, maxIndexedFiles, recheckMsec);
+    inv.addStationDir();
+    inv.addDateDir("yyyyMM");
+    inv.addDateDir("dd");
+    inv.addFileTime("\\d{8}_\\d{4}", "yyyyMMdd_HHmm");
+    inv.buildIndex();
+    return inv;
+  }
+
+  private void addFile(String stn, String day, String time) throws IOException {
+    Path dir = tempFolder.getRoot().toPath().resolve(stn).resolve(day.substring(0, 6)).resolve(day.substring(6));
+    Files.createDirectories(dir);
+    Path file = dir.resolve(name(stn, day + "_" + time));
+    if (!Files.exists(file))
+      Files.createFile(file);
+  }
+
+  static private String name(String stn, String time) {
+    return "Level2_" + stn + "_" + time + ".ar2v";
+  }
+
+  static private List<String> expected(String stn, String... times) {
+    List<String> result = new ArrayList<>();
+    for (String time : times)
+      result.add(name(stn, time));
+    return result;
+  }
+
+  // end == null for nearest
+  static private List<String> query(RadarDataInventory inv, String stn, String start, String end) {
+    CalendarDate startDate = CalendarDate.parseISOformat(null, start);
+    CalendarDate endDate = (end == null) ? startDate : CalendarDate.parseISOformat(null, end);
+    RadarDataInventory.Query q = inv.newQuery();
+    q.addStation(stn);
+    q.addDateRange(CalendarDateRange.of(startDate, endDate));
+
+    Collection<RadarDataInventory.Query.QueryResultItem> items = q.results();
+    List<String> result = new ArrayList<>();
+    for (RadarDataInventory.Query.QueryResultItem item : items)
+      result.add(item.file.getFileName().toString());
+    return result;
+  }
+}
@@ -0,0 +1,164 @@
+package thredds.server.wms;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import thredds.inventory.CollectionUpdateEvent;
+import thredds.inventory.CollectionUpdateType;
+import ucar.nc2.NetcdfFileSubclass;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WmsCache entries are not closed while a request holds them, are remade when the dataset or its collection changes,
+ * and GetMap images are keyed by every request parameter.
+ */
+public class TestWmsCache {
+
+  // counts its closes, instead of holding a file
+  static private class CountingFile extends NetcdfFileSubclass {
+    final AtomicInteger closes = new AtomicInteger();
+
+    @Override
+    public synchronized void close() throws IOException {
+      closes.incrementAndGet();
+    }
+  }
+
+  static private class Factory implements WmsCache.CatalogueFactory {
+    final String path, collectionName;
+    final AtomicInteger made = new AtomicInteger();
+    CountingFile last;
+
+    Factory(String path, String collectionName) {
+      this.path = path;
+      this.collectionName = collectionName;
+    }
+
+    @Override
+    public WmsCache.Entry make() {
+      made.incrementAndGet();
+      last = new CountingFile();
+      return new WmsCache.Entry(path, collectionName, null, last);
+    }
+  }
+
+  @Before
+  public void setup() {
+    WmsCache.init(2, 600, 1000 * 1000);
+  }
+
+  @After
+  public void cleanup() {
+    WmsCache.init(100, 10 * 60, 0);
+  }
+
+  @Test
+  public void testEvictWhilePinned() throws Exception {
+    Factory a = new Factory("a", null);
+    WmsCache.Entry pinned = WmsCache.acquire("a", 1, a);
+    CountingFile fileA = a.last;
+
+    // push it out of the cache while it is in use
+    for (String path : new String[] {"b", "c", "d"})
+      WmsCache.release(WmsCache.acquire(path, 1, new Factory(path, null)));
+    Assert.assertEquals(0, fileA.closes.get());
+
+    // the next request makes a new one
+    WmsCache.Entry again = WmsCache.acquire("a", 1, a);
+    Assert.assertEquals(2, a.made.get());
+    Assert.assertNotSame(pinned, again);
+    WmsCache.release(again);
+
+    // the evicted one is closed when the last user is done, once
+    WmsCache.release(pinned);
+    Assert.assertEquals(1, fileA.closes.get());
+    WmsCache.invalidate("a");
+    Assert.assertEquals(1, fileA.closes.get());
+  }
+
+  @Test
+  public void testDatasetChanged() throws Exception {
+    Factory a = new Factory("a", null);
+    WmsCache.release(WmsCache.acquire("a", 1, a));
+    WmsCache.release(WmsCache.acquire("a", 1, a));
+    Assert.assertEquals(1, a.made.get());
+    CountingFile first = a.last;
+
+    // a new last modified time makes a new catalogue, and closes the old one
+    WmsCache.release(WmsCache.acquire("a", 2, a));
+    Assert.assertEquals(2, a.made.get());
+    Assert.assertEquals(1, first.closes.get());
+    Assert.assertEquals(0, a.last.closes.get());
+  }
+
+  @Test
+  public void testCollectionChanged() throws Exception {
+    Factory a = new Factory("fc/a", "fc");
+    Factory b = new Factory("other/b", "other");
+    WmsCache.Entry entryA = WmsCache.acquire("fc/a", 1, a);
+    CountingFile fileA = a.last;
+    WmsCache.release(WmsCache.acquire("other/b", 1, b));
+    String key = WmsCache.makeTileKey(entryA, params("styles", "boxfill/rainbow"));
+    WmsCache.putTile(key, "image/png", new byte[100]);
+    Assert.assertNotNull(WmsCache.getTile(key));
+
+    new WmsCache.CollectionListener().processEvent(new CollectionUpdateEvent(CollectionUpdateType.always, "fc", "test"));
+
+    // the catalogue is remade, and the old one is closed once the request using it is done
+    WmsCache.release(WmsCache.acquire("fc/a", 1, a));
+    Assert.assertEquals(2, a.made.get());
+    Assert.assertEquals(0, fileA.closes.get());
+    WmsCache.release(entryA);
+    Assert.assertEquals(1, fileA.closes.get());
+    Assert.assertNull(WmsCache.getTile(key));
+
+    // other collections are not touched
+    WmsCache.release(WmsCache.acquire("other/b", 1, b));
+    Assert.assertEquals(1, b.made.get());
+    Assert.assertEquals(0, b.last.closes.get());
+  }
+
+  @Test
+  public void testTileKeys() throws Exception {
+    WmsCache.Entry entry = WmsCache.acquire("a", 1, new Factory("a", null));
+    try {
+      Map<String, String[]> base = params("layers", "temp", "styles", "boxfill/rainbow", "colorscalerange", "0,30",
+              "width", "256", "height", "256", "bbox", "-180,-90,180,90");
+      String key = WmsCache.makeTileKey(entry, base);
+
+      // names are case-insensitive, and order does not matter
+      Assert.assertEquals(key, WmsCache.makeTileKey(entry, params("BBOX", "-180,-90,180,90", "HEIGHT", "256",
+              "WIDTH", "256", "COLORSCALERANGE", "0,30", "STYLES", "boxfill/rainbow", "LAYERS", "temp")));
+
+      Assert.assertNotEquals(key, WmsCache.makeTileKey(entry, with(base, "styles", "boxfill/greyscale")));
+      Assert.assertNotEquals(key, WmsCache.makeTileKey(entry, with(base, "colorscalerange", "0,40")));
+      Assert.assertNotEquals(key, WmsCache.makeTileKey(entry, with(base, "width", "512")));
+      Assert.assertNotEquals(key, WmsCache.makeTileKey(entry, with(base, "height", "512")));
+
+      WmsCache.putTile(key, "image/png", new byte[100]);
+      Assert.assertNotNull(WmsCache.getTile(key));
+      Assert.assertNull(WmsCache.getTile(WmsCache.makeTileKey(entry, with(base, "width", "512"))));
+
+    } finally {
+      WmsCache.release(entry);
+    }
+  }
+
+  static private Map<String, String[]> params(String... nameValues) {
+    Map<String, String[]> result = new HashMap<>();
+    for (int i = 0; i < nameValues.length; i += 2)
+      result.put(nameValues[i], new String[] {nameValues[i + 1]});
+    return result;
+  }
+
+  static private Map<String, String[]> with(Map<String, String[]> params, String name, String value) {
+    Map<String, String[]> result = new HashMap<>(params);
+    result.put(name, new String[] {value});
+    return result;
+  }
+}
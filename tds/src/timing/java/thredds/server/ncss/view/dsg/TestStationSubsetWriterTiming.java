@@ -0,0 +1,143 @@
+package thredds.server.ncss.view.dsg;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import thredds.server.ncss.format.SupportedFormat;
+import ucar.ma2.ArrayChar;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.constants.CF;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.FeatureDatasetPoint;
+import ucar.nc2.ft2.coverage.SubsetParams;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Time the CSV and XML writers on a station request of 5M observations (1000 stations x 5000 times, 2 variables).
+ * The dataset is made in a temporary file; the output is counted and thrown away.
+ */
+public class TestStationSubsetWriterTiming {
+    private static final int NSTATIONS = 1000;
+    private static final int NTIMES = 5000;
+    private static final int REPEAT = 3;
+
+    private static File datasetFile;
+
+    // Discard all output
+    private static class NullOutputStream extends OutputStream {
+        long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    @BeforeClass
+    public static void makeDataset() throws Exception {
+        datasetFile = File.createTempFile("TestStationSubsetWriterTiming", ".nc");
+
+        try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3,
+                datasetFile.getPath())) {
+            writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.6"));
+            writer.addGroupAttribute(null, new Attribute(CF.FEATURE_TYPE, CF.FeatureType.timeSeries.name()));
+
+            Dimension stationDim = writer.addDimension(null, "station", NSTATIONS);
+            Dimension timeDim = writer.addDimension(null, "time", NTIMES);
+            List<Dimension> stationDims = Arrays.asList(stationDim);
+            List<Dimension> obsDims = Arrays.asList(stationDim, timeDim);
+
+            Variable name = writer.addStringVariable(null, "station_name", stationDims, 8);
+            name.addAttribute(new Attribute(CF.CF_ROLE, CF.TIMESERIES_ID));
+            writer.addVariable(null, "lat", DataType.FLOAT, stationDims)
+                    .addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+            writer.addVariable(null, "lon", DataType.FLOAT, stationDims)
+                    .addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+            writer.addVariable(null, "time", DataType.DOUBLE, Arrays.asList(timeDim))
+                    .addAttribute(new Attribute(CDM.UNITS, "seconds since 1970-01-01 00:00:00"));
+            for (String varName : new String[] {"pr", "tas"}) {
+                Variable v = writer.addVariable(null, varName, DataType.FLOAT, obsDims);
+                v.addAttribute(new Attribute(CDM.UNITS, varName.equals("tas") ? "K" : "kg m-2 s-1"));
+                v.addAttribute(new Attribute(CF.COORDINATES, "time lat lon"));
+            }
+            writer.create();
+
+            ArrayChar.D2 names = new ArrayChar.D2(NSTATIONS, 8);
+            ArrayFloat.D1 lats = new ArrayFloat.D1(NSTATIONS);
+            ArrayFloat.D1 lons = new ArrayFloat.D1(NSTATIONS);
+            for (int s = 0; s < NSTATIONS; s++) {
+                names.setString(s, String.format("ST%04d", s));
+                lats.set(s, -60.0f + 120.0f * s / NSTATIONS);
+                lons.set(s, -180.0f + 0.37f * s);
+            }
+            writer.write("station_name", names);
+            writer.write("lat", lats);
+            writer.write("lon", lons);
+
+            ArrayDouble.D1 times = new ArrayDouble.D1(NTIMES);
+            for (int t = 0; t < NTIMES; t++)
+                times.set(t, 3600.0 * t);
+            writer.write("time", times);
+
+            ArrayFloat.D2 pr = new ArrayFloat.D2(1, NTIMES);
+            ArrayFloat.D2 tas = new ArrayFloat.D2(1, NTIMES);
+            for (int s = 0; s < NSTATIONS; s++) {
+                for (int t = 0; t < NTIMES; t++) {
+                    pr.set(0, t, (s + t) % 17 * 0.1f);
+                    tas.set(0, t, 250.0f + (s * 7 + t) % 500 / 10.0f);
+                }
+                writer.write("pr", new int[] {s, 0}, pr);
+                writer.write("tas", new int[] {s, 0}, tas);
+            }
+        }
+    }
+
+    @AfterClass
+    public static void deleteDataset() {
+        if (datasetFile != null && !datasetFile.delete())
+            System.out.printf("Failed to delete %s%n", datasetFile);
+    }
+
+    @Test
+    public void timeCsv() throws Exception {
+        timeit(SupportedFormat.CSV_FILE);
+    }
+
+    @Test
+    public void timeXml() throws Exception {
+        timeit(SupportedFormat.XML_FILE);
+    }
+
+    private void timeit(SupportedFormat format) throws Exception {
+        SubsetParams subsetParams = new SubsetParams();
+        subsetParams.setVariables(new ArrayList<>(Arrays.asList("pr", "tas")));
+
+        for (int r = 0; r < REPEAT; r++) {
+            try (FeatureDatasetPoint fdPoint = DsgSubsetWriterTest.openPointDataset(FeatureType.STATION, datasetFile)) {
+                NullOutputStream sink = new NullOutputStream();
+                long start = System.nanoTime();
+                DsgSubsetWriterFactory.newInstance(fdPoint, subsetParams, null, sink, format).write();
+                double secs = (System.nanoTime() - start) / 1.0e9;
+                System.out.printf("%s: %d obs, %d bytes in %.3f secs = %.0f obs/sec, %.1f MB/sec%n", format,
+                        NSTATIONS * NTIMES, sink.count, secs, NSTATIONS * NTIMES / secs, (sink.count / 1.0e6) / secs);
+            }
+        }
+    }
+}